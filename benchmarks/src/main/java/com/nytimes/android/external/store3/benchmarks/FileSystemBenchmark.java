@@ -0,0 +1,100 @@
+package com.nytimes.android.external.store3.benchmarks;
+
+import com.nytimes.android.external.fs3.filesystem.FileSystem;
+import com.nytimes.android.external.fs3.filesystem.FileSystemFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+
+import java.util.concurrent.TimeUnit;
+
+import okio.Buffer;
+import okio.BufferedSource;
+
+/**
+ * Reads and writes of every {@link FileSystem} implementation at several payload sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FileSystemBenchmark {
+
+    private static final String PATH = "/article/benchmark";
+
+    @Param({"1024", "65536", "1048576"})
+    int payloadSize;
+
+    @Param({"plain", "memoryMapped", "logStructured"})
+    String implementation;
+
+    private File root;
+    private FileSystem fileSystem;
+    private byte[] payload;
+
+    @Setup
+    public void setUp() throws IOException {
+        root = File.createTempFile("filesystem", "benchmark");
+        if (!root.delete() || !root.mkdirs()) {
+            throw new IOException("unable to create " + root);
+        }
+        switch (implementation) {
+            case "memoryMapped":
+                fileSystem = FileSystemFactory.createMemoryMapped(root);
+                break;
+            case "logStructured":
+                fileSystem = FileSystemFactory.createLogStructured(root);
+                break;
+            default:
+                fileSystem = FileSystemFactory.create(root);
+        }
+        payload = Payloads.json(payloadSize).getBytes("UTF-8");
+        fileSystem.write(PATH, new Buffer().write(payload));
+    }
+
+    @TearDown
+    public void tearDown() {
+        delete(root);
+    }
+
+    @Benchmark
+    public long read() throws IOException {
+        BufferedSource source = fileSystem.read(PATH);
+        try {
+            Buffer sink = new Buffer();
+            return source.readAll(sink);
+        } finally {
+            source.close();
+        }
+    }
+
+    @Benchmark
+    public void write() throws IOException {
+        fileSystem.write(PATH, new Buffer().write(payload));
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,79 @@
+package com.nytimes.android.external.store3.benchmarks;
+
+import com.nytimes.android.external.store3.base.impl.BarCode;
+import com.nytimes.android.external.store3.base.impl.Store;
+import com.nytimes.android.external.store3.base.impl.StoreBuilder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.reactivex.Single;
+
+/**
+ * Eight threads fetching from a fetcher which takes about 50 microseconds. With a single key most fetches join one which is
+ * already in flight, with many keys they rarely do.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+public class InFlightBenchmark {
+
+    private static final long FETCH_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    @Param({"1", "8", "1024"})
+    int keys;
+
+    private final AtomicLong fetches = new AtomicLong();
+    private BarCode[] barCodes;
+    private Store<String, BarCode> store;
+
+    @Setup
+    public void setUp() {
+        barCodes = new BarCode[keys];
+        for (int i = 0; i < keys; i++) {
+            barCodes[i] = new BarCode("article", String.valueOf(i));
+        }
+        store = StoreBuilder.<String>barcode()
+                .fetcher(barCode -> Single.fromCallable(() -> {
+                    fetches.incrementAndGet();
+                    long deadline = System.nanoTime() + FETCH_NANOS;
+                    while (System.nanoTime() < deadline) {
+                        // in process stand in for a network call
+                    }
+                    return barCode.getKey();
+                }))
+                .open();
+    }
+
+    @State(Scope.Thread)
+    public static class KeyPicker {
+        private final Random random = new Random();
+
+        int next(int keys) {
+            return random.nextInt(keys);
+        }
+    }
+
+    @Benchmark
+    public String fetch(KeyPicker picker) {
+        return store.fetch(barCodes[picker.next(keys)]).blockingGet();
+    }
+}
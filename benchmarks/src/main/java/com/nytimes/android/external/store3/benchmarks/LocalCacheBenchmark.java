@@ -0,0 +1,109 @@
+package com.nytimes.android.external.store3.benchmarks;
+
+import com.nytimes.android.external.cache3.Cache;
+import com.nytimes.android.external.cache3.CacheBuilder;
+import com.nytimes.android.external.cache3.EvictionPolicy;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads and writes of a size bounded cache3 cache, with keys drawn from a skewed distribution over twice as many
+ * keys as the cache holds. Run the nested classes to compare thread counts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public abstract class LocalCacheBenchmark {
+
+    private static final int SIZE = 10_000;
+    private static final int KEYS = 2 * SIZE;
+    // power of two so that threads can wrap around with a mask
+    private static final int TRACE_LENGTH = 1 << 16;
+
+    @Param({"LRU", "TINY_LFU"})
+    EvictionPolicy evictionPolicy;
+
+    private Cache<Integer, Integer> cache;
+    private Integer[] trace;
+
+    @Setup
+    public void setUp() {
+        cache = CacheBuilder.newBuilder()
+                .maximumSize(SIZE)
+                .evictionPolicy(evictionPolicy)
+                .build();
+        Random random = new Random(42);
+        trace = new Integer[TRACE_LENGTH];
+        for (int i = 0; i < TRACE_LENGTH; i++) {
+            trace[i] = (int) (random.nextDouble() * random.nextDouble() * KEYS);
+        }
+        for (int i = 0; i < SIZE; i++) {
+            cache.put(trace[i], trace[i]);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int index = new Random().nextInt(TRACE_LENGTH);
+
+        int next() {
+            index = (index + 1) & (TRACE_LENGTH - 1);
+            return index;
+        }
+    }
+
+    @Benchmark
+    public Integer get(Cursor cursor) {
+        return cache.getIfPresent(trace[cursor.next()]);
+    }
+
+    @Benchmark
+    public void put(Cursor cursor) {
+        Integer key = trace[cursor.next()];
+        cache.put(key, key);
+    }
+
+    @Benchmark
+    public Integer getOrPut(Cursor cursor) {
+        Integer key = trace[cursor.next()];
+        Integer value = cache.getIfPresent(key);
+        if (value == null) {
+            cache.put(key, key);
+            return key;
+        }
+        return value;
+    }
+
+    @Threads(1)
+    public static class OneThread extends LocalCacheBenchmark {
+    }
+
+    @Threads(4)
+    public static class FourThreads extends LocalCacheBenchmark {
+    }
+
+    @Threads(16)
+    public static class SixteenThreads extends LocalCacheBenchmark {
+    }
+
+    @Threads(64)
+    public static class SixtyFourThreads extends LocalCacheBenchmark {
+    }
+}
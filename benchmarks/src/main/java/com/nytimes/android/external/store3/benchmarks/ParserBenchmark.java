@@ -0,0 +1,65 @@
+package com.nytimes.android.external.store3.benchmarks;
+
+import com.nytimes.android.external.store3.base.Parser;
+import com.nytimes.android.external.store3.middleware.GsonParserFactory;
+import com.nytimes.android.external.store3.middleware.jackson.JacksonParserFactory;
+import com.nytimes.android.external.store3.middleware.moshi.MoshiParserFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.UnsupportedEncodingException;
+import java.util.concurrent.TimeUnit;
+
+import okio.Buffer;
+import okio.BufferedSource;
+
+/**
+ * Parses a feed of articles with the {@link BufferedSource} parser of every middleware.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+
+    @Param({"16384", "1048576"})
+    int payloadSize;
+
+    @Param({"gson", "moshi", "jackson"})
+    String middleware;
+
+    private Parser<BufferedSource, Payloads.Feed> parser;
+    private byte[] payload;
+
+    @Setup
+    public void setUp() throws UnsupportedEncodingException {
+        switch (middleware) {
+            case "moshi":
+                parser = MoshiParserFactory.createSourceParser(Payloads.Feed.class);
+                break;
+            case "jackson":
+                parser = JacksonParserFactory.createSourceParser(Payloads.Feed.class);
+                break;
+            default:
+                parser = GsonParserFactory.createSourceParser(Payloads.Feed.class);
+        }
+        payload = Payloads.json(payloadSize).getBytes("UTF-8");
+    }
+
+    @Benchmark
+    public Payloads.Feed parse() {
+        return parser.apply(new Buffer().write(payload));
+    }
+}
@@ -0,0 +1,93 @@
+package com.nytimes.android.external.store3.benchmarks;
+
+import com.google.gson.Gson;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates feeds shaped like a news api response, so that every benchmark reads and parses the same kind of data.
+ */
+final class Payloads {
+
+    private Payloads() {
+    }
+
+    /**
+     * @return a {@link Feed} serialized to json, with as many articles as fit in about size bytes
+     */
+    static String json(int size) {
+        Random random = new Random(size);
+        Gson gson = new Gson();
+        Feed feed = new Feed();
+        feed.section = "home";
+        feed.articles = new ArrayList<>();
+        int length = 2;
+        do {
+            Article article = article(random, feed.articles.size());
+            length += gson.toJson(article).length() + 1;
+            feed.articles.add(article);
+        } while (length < size);
+        return gson.toJson(feed);
+    }
+
+    private static Article article(Random random, int index) {
+        Article article = new Article();
+        article.id = 1_000_000L + index;
+        article.title = words(random, 8);
+        article.summary = words(random, 40);
+        article.url = "https://www.example.com/2019/01/01/section/" + article.id + ".html";
+        article.byline = "By " + words(random, 2);
+        article.published = 1_546_300_800_000L + random.nextInt(86_400_000);
+        article.tags = Arrays.asList(words(random, 1), words(random, 1), words(random, 1));
+        article.images = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Image image = new Image();
+            image.url = article.url + "/image-" + i + ".jpg";
+            image.width = 200 << i;
+            image.height = 150 << i;
+            image.caption = words(random, 12);
+            article.images.add(image);
+        }
+        return article;
+    }
+
+    private static String words(Random random, int count) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                builder.append(' ');
+            }
+            int length = 2 + random.nextInt(8);
+            for (int j = 0; j < length; j++) {
+                builder.append((char) ('a' + random.nextInt(26)));
+            }
+        }
+        return builder.toString();
+    }
+
+    public static class Feed {
+        public String section;
+        public List<Article> articles;
+    }
+
+    public static class Article {
+        public long id;
+        public String title;
+        public String summary;
+        public String url;
+        public String byline;
+        public long published;
+        public List<String> tags;
+        public List<Image> images;
+    }
+
+    public static class Image {
+        public String url;
+        public int width;
+        public int height;
+        public String caption;
+    }
+}
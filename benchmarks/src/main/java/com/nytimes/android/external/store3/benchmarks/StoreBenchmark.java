@@ -0,0 +1,94 @@
+package com.nytimes.android.external.store3.benchmarks;
+
+import com.nytimes.android.external.store3.base.Persister;
+import com.nytimes.android.external.store3.base.impl.BarCode;
+import com.nytimes.android.external.store3.base.impl.MemoryPolicy;
+import com.nytimes.android.external.store3.base.impl.Store;
+import com.nytimes.android.external.store3.base.impl.StoreBuilder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+import io.reactivex.Maybe;
+import io.reactivex.Single;
+
+/**
+ * Cost of a {@link Store#get} served by each tier. The fetcher and persister are in memory, so the numbers are the
+ * overhead of the store itself.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StoreBenchmark {
+
+    private final BarCode barCode = new BarCode("article", "benchmark");
+    private Store<String, BarCode> store;
+
+    @Setup
+    public void setUp() {
+        store = StoreBuilder.<String>barcode()
+                .fetcher(key -> Single.just(Payloads.json(1024)))
+                .persister(new MapPersister())
+                .memoryPolicy(MemoryPolicy.builder()
+                        .setExpireAfterWrite(1)
+                        .setExpireAfterTimeUnit(TimeUnit.HOURS)
+                        .setMemorySize(100)
+                        .build())
+                .open();
+        store.get(barCode).blockingGet();
+    }
+
+    @Benchmark
+    public String memoryHit() {
+        return store.get(barCode).blockingGet();
+    }
+
+    /**
+     * clear only drops the memory entry because {@link MapPersister} is not {@code Clearable}
+     */
+    @Benchmark
+    public String diskHit() {
+        store.clear(barCode);
+        return store.get(barCode).blockingGet();
+    }
+
+    @Benchmark
+    public String networkFetch() {
+        return store.fetch(barCode).blockingGet();
+    }
+
+    static final class MapPersister implements Persister<String, BarCode> {
+        private final Map<BarCode, String> values = new ConcurrentHashMap<>();
+
+        @Nonnull
+        @Override
+        public Maybe<String> read(@Nonnull BarCode key) {
+            String value = values.get(key);
+            return value == null ? Maybe.<String>empty() : Maybe.just(value);
+        }
+
+        @Nonnull
+        @Override
+        public Single<Boolean> write(@Nonnull BarCode key, @Nonnull String raw) {
+            values.put(key, raw);
+            return Single.just(true);
+        }
+    }
+}
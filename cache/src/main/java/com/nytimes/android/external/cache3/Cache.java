@@ -101,6 +101,16 @@ public interface Cache<K, V> {
    */
   ConcurrentMap<K, V> asMap();
 
+  /**
+   * Returns a current snapshot of this cache's cumulative statistics. All stats are initialized
+   * to zero, and are monotonically increasing over the lifetime of the cache.
+   *
+   * <p>Due to the performance penalty of maintaining statistics, some implementations may not
+   * record the usage history immediately or at all. Caches built without
+   * {@link CacheBuilder#recordStats} report zero for every count.
+   */
+  CacheStats stats();
+
   /**
    * Performs any pending maintenance operations needed by the cache. Exactly which activities are
    * performed -- if any -- is implementation-dependent.
@@ -49,6 +49,49 @@ public final class CacheBuilder<K, V> {
     }
   }
 
+  static final Supplier<StatsCounter> NULL_STATS_COUNTER = new Supplier<StatsCounter>() {
+    @Nonnull
+    @Override
+    public StatsCounter get() {
+      return NullStatsCounter.INSTANCE;
+    }
+  };
+
+  static final Supplier<StatsCounter> CACHE_STATS_COUNTER = new Supplier<StatsCounter>() {
+    @Nonnull
+    @Override
+    public StatsCounter get() {
+      return new SimpleStatsCounter();
+    }
+  };
+
+  static final CacheStats EMPTY_STATS = new CacheStats(0, 0, 0, 0, 0, 0);
+
+  enum NullStatsCounter implements StatsCounter {
+    INSTANCE;
+
+    @Override
+    public void recordHits(int count) {}
+
+    @Override
+    public void recordMisses(int count) {}
+
+    @Override
+    public void recordLoadSuccess(long loadTime) {}
+
+    @Override
+    public void recordLoadException(long loadTime) {}
+
+    @Override
+    public void recordEviction() {}
+
+    @Nonnull
+    @Override
+    public CacheStats snapshot() {
+      return EMPTY_STATS;
+    }
+  }
+
   static final Ticker NULL_TICKER = new Ticker() {
     @Override
     public long read() {
@@ -67,12 +110,15 @@ public final class CacheBuilder<K, V> {
   long maximumSize = UNSET_INT;
   long maximumWeight = UNSET_INT;
   Weigher<? super K, ? super V> weigher;
+  EvictionPolicy evictionPolicy;
+  WeightBudget weightBudget;
 
   LocalCache.Strength keyStrength;
   LocalCache.Strength valueStrength;
 
   long expireAfterWriteNanos = UNSET_INT;
   long expireAfterAccessNanos = UNSET_INT;
+  Expiry<? super K, ? super V> expiry;
   long refreshNanos = UNSET_INT;
 
   Equivalence<Object> keyEquivalence;
@@ -81,6 +127,8 @@ public final class CacheBuilder<K, V> {
   RemovalListener<? super K, ? super V> removalListener;
   Ticker ticker;
 
+  Supplier<StatsCounter> statsCounterSupplier = NULL_STATS_COUNTER;
+
 
   // TODO(fry): make constructor private and update tests to use newBuilder
   CacheBuilder() {}
@@ -299,6 +347,47 @@ public final class CacheBuilder<K, V> {
     return (Weigher<K1, V1>) MoreObjects.firstNonNull(weigher, OneWeigher.INSTANCE);
   }
 
+  /**
+   * Specifies how a cache bounded by {@link #maximumSize} or {@link #maximumWeight} chooses the
+   * entry to evict once it is full. By default the least recently used entry is evicted, see
+   * {@link EvictionPolicy#TINY_LFU} for a policy which also takes the frequency of use into
+   * account. The policy has no effect on caches without a size bound.
+   *
+   * @throws IllegalStateException if an eviction policy was already set
+   */
+  @Nonnull
+  public CacheBuilder<K, V> evictionPolicy(@Nonnull EvictionPolicy evictionPolicy) {
+    Preconditions.checkState(this.evictionPolicy == null,
+        "eviction policy was already set to %s", this.evictionPolicy);
+    this.evictionPolicy = Preconditions.checkNotNull(evictionPolicy);
+    return this;
+  }
+
+  @Nonnull
+  EvictionPolicy getEvictionPolicy() {
+    return MoreObjects.firstNonNull(evictionPolicy, EvictionPolicy.LRU);
+  }
+
+  /**
+   * Bounds the total weight of this cache and of every other cache built with the same {@code
+   * budget}, see {@link WeightBudget}. Use of this method requires a corresponding call to {@link
+   * #weigher} and {@link #maximumWeight} prior to calling {@link #build}, which may be set to the
+   * maximum weight of the budget when the cache has no bound of its own.
+   *
+   * @throws IllegalStateException if a weight budget was already set
+   */
+  @Nonnull
+  public CacheBuilder<K, V> weightBudget(@Nonnull WeightBudget budget) {
+    Preconditions.checkState(this.weightBudget == null, "weight budget was already set");
+    this.weightBudget = Preconditions.checkNotNull(budget);
+    return this;
+  }
+
+  @Nullable
+  WeightBudget getWeightBudget() {
+    return weightBudget;
+  }
+
 
   @Nonnull
   CacheBuilder<K, V> setKeyStrength(@Nonnull LocalCache.Strength strength) {
@@ -348,6 +437,7 @@ public final class CacheBuilder<K, V> {
   public CacheBuilder<K, V> expireAfterWrite(long duration, @Nonnull TimeUnit unit) {
     Preconditions.checkState(expireAfterWriteNanos == UNSET_INT, "expireAfterWrite was already set to %s ns",
         expireAfterWriteNanos);
+    Preconditions.checkState(expiry == null, "expireAfterWrite can not be combined with expireAfter");
     Preconditions.checkArgument(duration >= 0, "duration cannot be negative: %s %s", duration, unit);
     this.expireAfterWriteNanos = unit.toNanos(duration);
     return this;
@@ -383,6 +473,7 @@ public final class CacheBuilder<K, V> {
   public CacheBuilder<K, V> expireAfterAccess(long duration, @Nonnull TimeUnit unit) {
     Preconditions.checkState(expireAfterAccessNanos == UNSET_INT, "expireAfterAccess was already set to %s ns",
         expireAfterAccessNanos);
+    Preconditions.checkState(expiry == null, "expireAfterAccess can not be combined with expireAfter");
     Preconditions.checkArgument(duration >= 0, "duration cannot be negative: %s %s", duration, unit);
     this.expireAfterAccessNanos = unit.toNanos(duration);
     return this;
@@ -393,6 +484,46 @@ public final class CacheBuilder<K, V> {
         ? DEFAULT_EXPIRATION_NANOS : expireAfterAccessNanos;
   }
 
+  /**
+   * Specifies that each entry should be automatically removed from the cache once the duration
+   * computed for it by {@code expiry} has elapsed, so that entries can live for different lengths of
+   * time. The duration is computed when the entry is created, and again whenever its value is
+   * replaced or read.
+   *
+   * <p>Entries are scheduled on a hierarchical timer wheel per segment, which finds the expired
+   * entries of the routine maintenance described in the class javadoc in amortized constant time
+   * however their durations are spread. Expired entries may be counted in {@link Cache#size}, but
+   * will never be visible to read or write operations.
+   *
+   * <p><b>Warning:</b> as with {@link #weigher}, do not continue to use <i>this</i> cache builder
+   * reference after invoking this method; use the reference this method <i>returns</i> instead.
+   *
+   * @param expiry the expiry to use in calculating the expiration time of cache entries
+   * @throws IllegalStateException if an expiry, a time to live or a time to idle was already set
+   */
+  @Nonnull
+  public <K1 extends K, V1 extends V> CacheBuilder<K1, V1> expireAfter(
+      @Nonnull Expiry<? super K1, ? super V1> expiry) {
+    Preconditions.checkState(this.expiry == null, "expireAfter was already set");
+    Preconditions.checkState(expireAfterWriteNanos == UNSET_INT,
+        "expireAfter can not be combined with expireAfterWrite");
+    Preconditions.checkState(expireAfterAccessNanos == UNSET_INT,
+        "expireAfter can not be combined with expireAfterAccess");
+
+    // safely limiting the kinds of caches this can produce
+    @SuppressWarnings("unchecked")
+    CacheBuilder<K1, V1> me = (CacheBuilder<K1, V1>) this;
+    me.expiry = Preconditions.checkNotNull(expiry);
+    return me;
+  }
+
+  // Make a safe contravariant cast now so we don't have to do it over and over.
+  @Nullable
+  @SuppressWarnings("unchecked")
+  <K1 extends K, V1 extends V> Expiry<K1, V1> getExpiry() {
+    return (Expiry<K1, V1>) expiry;
+  }
+
 
   long getRefreshNanos() {
     return (refreshNanos == UNSET_INT) ? DEFAULT_REFRESH_NANOS : refreshNanos;
@@ -462,6 +593,29 @@ public final class CacheBuilder<K, V> {
         MoreObjects.firstNonNull(removalListener, NullListener.INSTANCE);
   }
 
+  /**
+   * Enable the accumulation of {@link CacheStats} during the operation of the cache. Without this
+   * {@link Cache#stats} will return zero for all statistics. Note that recording stats requires
+   * bookkeeping to be performed with each operation, and thus imposes a performance penalty on
+   * cache operation.
+   *
+   * @since 12.0 (previously, stats collection was automatic)
+   */
+  @Nonnull
+  public CacheBuilder<K, V> recordStats() {
+    statsCounterSupplier = CACHE_STATS_COUNTER;
+    return this;
+  }
+
+  boolean isRecordingStats() {
+    return statsCounterSupplier == CACHE_STATS_COUNTER;
+  }
+
+  @Nonnull
+  Supplier<StatsCounter> getStatsCounterSupplier() {
+    return statsCounterSupplier;
+  }
+
   /**
    * Builds a cache, which either returns an already-loaded value for a given key or atomically
    * computes or retrieves it using the supplied {@code CacheLoader}. If another thread is currently
@@ -497,6 +651,7 @@ public final class CacheBuilder<K, V> {
   private void checkWeightWithWeigher() {
     if (weigher == null) {
       Preconditions.checkState(maximumWeight == UNSET_INT, "maximumWeight requires weigher");
+      Preconditions.checkState(weightBudget == null, "weightBudget requires weigher");
     } else {
       if (strictParsing) {
         Preconditions.checkState(maximumWeight != UNSET_INT, "weigher requires maximumWeight");
@@ -527,12 +682,18 @@ public final class CacheBuilder<K, V> {
     if (maximumWeight != UNSET_INT) {
       s.add("maximumWeight", maximumWeight);
     }
+    if (evictionPolicy != null) {
+      s.add("evictionPolicy", evictionPolicy);
+    }
     if (expireAfterWriteNanos != UNSET_INT) {
       s.add("expireAfterWrite", expireAfterWriteNanos + "ns");
     }
     if (expireAfterAccessNanos != UNSET_INT) {
       s.add("expireAfterAccess", expireAfterAccessNanos + "ns");
     }
+    if (expiry != null) {
+      s.addValue("expiry");
+    }
     if (keyStrength != null) {
       s.add("keyStrength", Ascii.toLowerCase(keyStrength.toString()));
     }
@@ -0,0 +1,23 @@
+package com.nytimes.android.external.cache3;
+
+/**
+ * Decides which entry a size bounded cache drops once it is full. See
+ * {@link CacheBuilder#evictionPolicy(EvictionPolicy)}.
+ */
+public enum EvictionPolicy {
+  /**
+   * Evicts the least recently used entry of a segment. This is the default.
+   */
+  LRU,
+
+  /**
+   * Window TinyLFU. New entries go through a small LRU window, about 1% of a segment, before
+   * competing for the main space, which is a segmented LRU split into a probation and a protected
+   * region. An entry leaving the window is only admitted if a count-min sketch of recent key
+   * frequencies estimates it to be more popular than the probation entry it would replace, and
+   * entries read while on probation are promoted to the protected region. This keeps a frequently
+   * used working set in the cache when it is swept by one-off keys, such as a scan over a long
+   * list, which would flush an LRU cache.
+   */
+  TINY_LFU
+}
@@ -0,0 +1,34 @@
+package com.nytimes.android.external.cache3;
+
+/**
+ * Computes how long each entry of a cache lives, see {@link CacheBuilder#expireAfter(Expiry)}. Durations
+ * are in nanoseconds and times are read from the {@link Ticker} of the cache. A duration of zero or less
+ * expires the entry right away, and {@link Long#MAX_VALUE} keeps it until it is evicted or invalidated.
+ */
+public interface Expiry<K, V> {
+
+  /**
+   * Returns how long after its creation the entry of key expires.
+   *
+   * @param currentTime the time the entry is created at
+   */
+  long expireAfterCreate(K key, V value, long currentTime);
+
+  /**
+   * Returns how long after the replacement of its value the entry of key expires. Return
+   * {@code currentDuration} to leave its expiration as it is.
+   *
+   * @param currentTime the time the value is replaced at
+   * @param currentDuration the time left before the entry expires
+   */
+  long expireAfterUpdate(K key, V value, long currentTime, long currentDuration);
+
+  /**
+   * Returns how long after a read of its value the entry of key expires. Return
+   * {@code currentDuration} to leave its expiration as it is.
+   *
+   * @param currentTime the time the value is read at
+   * @param currentDuration the time left before the entry expires
+   */
+  long expireAfterRead(K key, V value, long currentTime, long currentDuration);
+}
@@ -86,6 +86,11 @@ public abstract class ForwardingCache<K, V> extends ForwardingObject implements
     return delegate().asMap();
   }
 
+  @Override
+  public CacheStats stats() {
+    return delegate().stats();
+  }
+
   @Override
   public void cleanUp() {
     delegate().cleanUp();
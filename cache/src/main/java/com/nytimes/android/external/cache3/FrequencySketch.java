@@ -0,0 +1,123 @@
+package com.nytimes.android.external.cache3;
+
+/**
+ * A probabilistic multiset for estimating how popular a key is within a time window. This is the
+ * TinyLFU admission filter used by {@link EvictionPolicy#TINY_LFU}.
+ *
+ * <p>The sketch is a count-min sketch with 4-bit counters, sixteen of which are packed into each
+ * {@code long}. A key selects one of four counter groups from its hash and four counters in that
+ * group through independent hash functions; its frequency is the minimum of those counters, so it
+ * can be overestimated but never underestimated. Once as many increments as ten times the
+ * capacity have been recorded all counters are halved, which lets the history of keys that have
+ * stopped being popular fade away.
+ *
+ * <p>This class is not thread safe, callers are expected to hold the segment lock.
+ */
+final class FrequencySketch {
+  private static final long[] SEED = {
+      0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+  private static final long RESET_MASK = 0x7777777777777777L;
+  private static final long ONE_MASK = 0x1111111111111111L;
+  private static final int MAXIMUM_TABLE_SIZE = 1 << 30;
+
+  private int sampleSize;
+  private int tableMask;
+  private long[] table;
+  private int size;
+
+  FrequencySketch(long expectedSize) {
+    ensureCapacity(expectedSize);
+  }
+
+  /**
+   * Grows the sketch so that it can tell apart about {@code expectedSize} keys. Growing forgets
+   * all previously recorded frequencies.
+   */
+  void ensureCapacity(long expectedSize) {
+    int maximum = (int) Math.min(Math.max(expectedSize, 1), MAXIMUM_TABLE_SIZE);
+    if (table != null && table.length >= maximum) {
+      return;
+    }
+    table = new long[ceilingPowerOfTwo(maximum)];
+    tableMask = table.length - 1;
+    sampleSize = 10 * maximum;
+    size = 0;
+  }
+
+  int capacity() {
+    return table.length;
+  }
+
+  /**
+   * Returns the estimated number of occurrences of a key with the given hash, up to 15.
+   */
+  int frequency(int hash) {
+    int spread = spread(hash);
+    int start = (spread & 3) << 2;
+    int frequency = Integer.MAX_VALUE;
+    for (int i = 0; i < 4; i++) {
+      int index = indexOf(spread, i);
+      int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+      frequency = Math.min(frequency, count);
+    }
+    return frequency;
+  }
+
+  /**
+   * Records an occurrence of a key with the given hash, aging all counters when the sample is full.
+   */
+  void increment(int hash) {
+    int spread = spread(hash);
+    int start = (spread & 3) << 2;
+
+    boolean added = false;
+    for (int i = 0; i < 4; i++) {
+      added |= incrementAt(indexOf(spread, i), start + i);
+    }
+
+    if (added && (++size == sampleSize)) {
+      reset();
+    }
+  }
+
+  private boolean incrementAt(int index, int counter) {
+    int offset = counter << 2;
+    long mask = 0xfL << offset;
+    if ((table[index] & mask) != mask) {
+      table[index] += 1L << offset;
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Halves every counter and the sample size, correcting for the truncation of odd counters.
+   */
+  void reset() {
+    int odd = 0;
+    for (int i = 0; i < table.length; i++) {
+      odd += Long.bitCount(table[i] & ONE_MASK);
+      table[i] = (table[i] >>> 1) & RESET_MASK;
+    }
+    size = (size >>> 1) - (odd >>> 2);
+  }
+
+  private int indexOf(int hash, int i) {
+    long h = (hash + SEED[i]) * SEED[i];
+    h += h >>> 32;
+    return ((int) h) & tableMask;
+  }
+
+  /**
+   * Applies a supplemental hash so that keys differing only in their higher bits spread well.
+   */
+  private static int spread(int x) {
+    x = ((x >>> 16) ^ x) * 0x45d9f3b;
+    x = ((x >>> 16) ^ x) * 0x45d9f3b;
+    return (x >>> 16) ^ x;
+  }
+
+  private static int ceilingPowerOfTwo(int x) {
+    return 1 << -Integer.numberOfLeadingZeros(x - 1);
+  }
+}
@@ -15,11 +15,14 @@ import java.util.AbstractMap;
 import java.util.AbstractQueue;
 import java.util.AbstractSet;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Queue;
@@ -104,6 +107,12 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
     // TODO(fry): empirically optimize this
     static final int DRAIN_MAX = 16;
 
+    /**
+     * Longest duration an {@link Expiry} can give an entry, about 146 years. Half the range of the
+     * ticker, so that {@code now - expirationTime} never overflows.
+     */
+    static final long MAX_EXPIRY_NANOS = Long.MAX_VALUE >> 1;
+
     // Fields
 
     static final Logger logger = Logger.getLogger(LocalCache.class.getName());
@@ -181,6 +190,12 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
      */
     final long refreshNanos;
 
+    /**
+     * Computes how long each entry lives, or null if entries expire after a fixed duration or never.
+     */
+    @Nullable
+    final Expiry<K, V> expiry;
+
     /**
      * Entries waiting to be consumed by the removal listener.
      */
@@ -211,6 +226,25 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
 
     final CacheLoader<? super K, V> defaultLoader;
 
+    /**
+     * Accumulates global cache statistics. Note that there are also per-segments stats counters
+     * which must be aggregated to obtain a global stats view.
+     */
+    @Nonnull
+    final StatsCounter globalStatsCounter;
+
+    /**
+     * Decides which entry a segment evicts once it is over its maximum weight.
+     */
+    @Nonnull
+    final EvictionPolicy evictionPolicy;
+
+    /**
+     * Total weight shared with other caches, or null.
+     */
+    @Nullable
+    final WeightBudget weightBudget;
+
     /**
      * Creates a new, empty map with the specified strategy, initial capacity and concurrency level.
      */
@@ -227,9 +261,12 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
 
         maxWeight = builder.getMaximumWeight();
         weigher = builder.getWeigher();
+        evictionPolicy = builder.getEvictionPolicy();
+        weightBudget = builder.getWeightBudget();
         expireAfterAccessNanos = builder.getExpireAfterAccessNanos();
         expireAfterWriteNanos = builder.getExpireAfterWriteNanos();
         refreshNanos = builder.getRefreshNanos();
+        expiry = builder.getExpiry();
 
         removalListener = builder.getRemovalListener();
         removalNotificationQueue = (removalListener == CacheBuilder.NullListener.INSTANCE)
@@ -237,8 +274,10 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
                 : new ConcurrentLinkedQueue<RemovalNotification<K, V>>();
 
         ticker = builder.getTicker(recordsTime());
-        entryFactory = EntryFactory.getFactory(keyStrength, usesAccessEntries(), usesWriteEntries());
+        entryFactory = EntryFactory.getFactory(keyStrength, usesAccessEntries(), usesWriteEntries(),
+                expiresVariably());
         defaultLoader = loader;
+        globalStatsCounter = builder.getStatsCounterSupplier().get();
 
         int initialCapacity = Math.min(builder.getInitialCapacity(), MAXIMUM_CAPACITY);
         if (evictsBySize() && !customWeigher()) {
@@ -281,12 +320,12 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
                     maxSegmentWeight--;
                 }
                 this.segments[i] =
-                        createSegment(segmentSize, maxSegmentWeight);
+                        createSegment(segmentSize, maxSegmentWeight, builder.getStatsCounterSupplier().get());
             }
         } else {
             for (int i = 0; i < this.segments.length; ++i) {
                 this.segments[i] =
-                        createSegment(segmentSize, UNSET_INT);
+                        createSegment(segmentSize, UNSET_INT, builder.getStatsCounterSupplier().get());
             }
         }
     }
@@ -300,7 +339,11 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
     }
 
     boolean expires() {
-        return expiresAfterWrite() || expiresAfterAccess();
+        return expiresAfterWrite() || expiresAfterAccess() || expiresVariably();
+    }
+
+    boolean expiresVariably() {
+        return expiry != null;
     }
 
     boolean expiresAfterWrite() {
@@ -319,6 +362,10 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
         return expiresAfterAccess() || evictsBySize();
     }
 
+    boolean usesFrequencyAccessQueue() {
+        return evictsBySize() && evictionPolicy == EvictionPolicy.TINY_LFU;
+    }
+
     boolean usesWriteQueue() {
         return expiresAfterWrite();
     }
@@ -332,7 +379,7 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
     }
 
     boolean recordsTime() {
-        return recordsWrite() || recordsAccess();
+        return recordsWrite() || recordsAccess() || expiresVariably();
     }
 
     boolean usesWriteEntries() {
@@ -544,6 +591,43 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
                 copyWriteEntry(original, newEntry);
                 return newEntry;
             }
+        },
+
+        STRONG_EXPIRING {
+            @Nonnull
+            @Override
+            <K, V> ReferenceEntry<K, V> newEntry(
+                    Segment<K, V> segment, K key, int hash,   ReferenceEntry<K, V> next) {
+                return new StrongExpiringEntry<>(key, hash, next);
+            }
+
+            @Override
+            <K, V> ReferenceEntry<K, V> copyEntry(
+                    Segment<K, V> segment, @Nonnull ReferenceEntry<K, V> original, ReferenceEntry<K, V> newNext) {
+                ReferenceEntry<K, V> newEntry = super.copyEntry(segment, original, newNext);
+                copyAccessEntry(original, newEntry);
+                copyWriteEntry(original, newEntry);
+                newEntry.setExpirationTime(original.getExpirationTime());
+                return newEntry;
+            }
+        },
+        WEAK_EXPIRING {
+            @Nonnull
+            @Override
+            <K, V> ReferenceEntry<K, V> newEntry(
+                    @Nonnull Segment<K, V> segment, K key, int hash, ReferenceEntry<K, V> next) {
+                return new WeakExpiringEntry<>(segment.keyReferenceQueue, key, hash, next);
+            }
+
+            @Override
+            <K, V> ReferenceEntry<K, V> copyEntry(
+                    Segment<K, V> segment, @Nonnull ReferenceEntry<K, V> original, ReferenceEntry<K, V> newNext) {
+                ReferenceEntry<K, V> newEntry = super.copyEntry(segment, original, newNext);
+                copyAccessEntry(original, newEntry);
+                copyWriteEntry(original, newEntry);
+                newEntry.setExpirationTime(original.getExpirationTime());
+                return newEntry;
+            }
         };
 
         /**
@@ -561,8 +645,15 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
                 WEAK, WEAK_ACCESS, WEAK_WRITE, WEAK_ACCESS_WRITE,
         };
 
+        /**
+         * Returns the factory of entries with access and write order and an expiration time when
+         * {@code expiresVariably}, as their write links hold their place in the timer wheel.
+         */
         static EntryFactory getFactory(Strength keyStrength, boolean usesAccessQueue,
-                                       boolean usesWriteQueue) {
+                                       boolean usesWriteQueue, boolean expiresVariably) {
+            if (expiresVariably) {
+                return (keyStrength == Strength.WEAK) ? WEAK_EXPIRING : STRONG_EXPIRING;
+            }
             int flags = ((keyStrength == Strength.WEAK) ? WEAK_MASK : 0)
                     | (usesAccessQueue ? ACCESS_MASK : 0)
                     | (usesWriteQueue ? WRITE_MASK : 0);
@@ -598,6 +689,7 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
             // TODO(fry): when we link values instead of entries this method can go
             // away, as can connectAccessOrder, nullifyAccessOrder.
             newEntry.setAccessTime(original.getAccessTime());
+            newEntry.setAccessRegion(original.getAccessRegion());
 
             connectAccessOrder(original.getPreviousInAccessQueue(), newEntry);
             connectAccessOrder(newEntry, original.getNextInAccessQueue());
@@ -815,6 +907,17 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
          */
         void setPreviousInAccessQueue(ReferenceEntry<K, V> previous);
 
+        /**
+         * Returns the region of the access queue holding this entry when the cache evicts by
+         * {@link EvictionPolicy#TINY_LFU}, 0 when it is not queued.
+         */
+        int getAccessRegion();
+
+        /**
+         * Sets the region of the access queue holding this entry.
+         */
+        void setAccessRegion(int region);
+
     /*
      * Implemented by entries that use write order. Write entries are maintained in a
      * doubly-linked list. New entries are added at the tail of the list at write time and stale
@@ -850,6 +953,21 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
          * Sets the previous entry in the write queue.
          */
         void setPreviousInWriteQueue(ReferenceEntry<K, V> previous);
+
+    /*
+     * Implemented by entries of caches with an Expiry. Their write links place them in the timer
+     * wheel of their segment instead of a write queue.
+     */
+
+        /**
+         * Returns the time that this entry expires at, in ns.
+         */
+        long getExpirationTime();
+
+        /**
+         * Sets the entry expiration time in ns.
+         */
+        void setExpirationTime(long time);
     }
 
     private enum NullEntry implements ReferenceEntry<Object, Object> {
@@ -908,6 +1026,15 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
         public void setPreviousInAccessQueue(ReferenceEntry<Object, Object> previous) {
         }
 
+        @Override
+        public int getAccessRegion() {
+            return 0;
+        }
+
+        @Override
+        public void setAccessRegion(int region) {
+        }
+
         @Override
         public long getWriteTime() {
             return 0;
@@ -936,6 +1063,15 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
         @Override
         public void setPreviousInWriteQueue(ReferenceEntry<Object, Object> previous) {
         }
+
+        @Override
+        public long getExpirationTime() {
+            return 0;
+        }
+
+        @Override
+        public void setExpirationTime(long time) {
+        }
     }
 
     abstract static class AbstractReferenceEntry<K, V> implements ReferenceEntry<K, V> {
@@ -997,6 +1133,16 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
             throw new UnsupportedOperationException();
         }
 
+        @Override
+        public int getAccessRegion() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void setAccessRegion(int region) {
+            throw new UnsupportedOperationException();
+        }
+
         @Override
         public long getWriteTime() {
             throw new UnsupportedOperationException();
@@ -1026,6 +1172,16 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
         public void setPreviousInWriteQueue(ReferenceEntry<K, V> previous) {
             throw new UnsupportedOperationException();
         }
+
+        @Override
+        public long getExpirationTime() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void setExpirationTime(long time) {
+            throw new UnsupportedOperationException();
+        }
     }
 
     @Nonnull
@@ -1169,6 +1325,19 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
         public void setPreviousInAccessQueue(ReferenceEntry<K, V> previous) {
             this.previousAccess = previous;
         }
+
+        // Guarded By Segment.this
+        int accessRegion;
+
+        @Override
+        public int getAccessRegion() {
+            return accessRegion;
+        }
+
+        @Override
+        public void setAccessRegion(int region) {
+            this.accessRegion = region;
+        }
     }
 
     static final class StrongWriteEntry<K, V> extends StrongEntry<K, V> {
@@ -1217,7 +1386,7 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
         }
     }
 
-    static final class StrongAccessWriteEntry<K, V> extends StrongEntry<K, V> {
+    static class StrongAccessWriteEntry<K, V> extends StrongEntry<K, V> {
         StrongAccessWriteEntry(K key, int hash,   ReferenceEntry<K, V> next) {
             super(key, hash, next);
         }
@@ -1262,6 +1431,19 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
             this.previousAccess = previous;
         }
 
+        // Guarded By Segment.this
+        int accessRegion;
+
+        @Override
+        public int getAccessRegion() {
+            return accessRegion;
+        }
+
+        @Override
+        public void setAccessRegion(int region) {
+            this.accessRegion = region;
+        }
+
         // The code below is exactly the same for each write entry type.
 
         volatile long writeTime = Long.MAX_VALUE;
@@ -1303,6 +1485,26 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
         }
     }
 
+    static final class StrongExpiringEntry<K, V> extends StrongAccessWriteEntry<K, V> {
+        StrongExpiringEntry(K key, int hash,   ReferenceEntry<K, V> next) {
+            super(key, hash, next);
+        }
+
+        // The code below is exactly the same for each expiring entry type.
+
+        volatile long expirationTime = Long.MAX_VALUE;
+
+        @Override
+        public long getExpirationTime() {
+            return expirationTime;
+        }
+
+        @Override
+        public void setExpirationTime(long time) {
+            this.expirationTime = time;
+        }
+    }
+
     /**
      * Used for weakly-referenced keys.
      */
@@ -1355,6 +1557,16 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
             throw new UnsupportedOperationException();
         }
 
+        @Override
+        public int getAccessRegion() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void setAccessRegion(int region) {
+            throw new UnsupportedOperationException();
+        }
+
         // null write
 
         @Override
@@ -1387,6 +1599,16 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
             throw new UnsupportedOperationException();
         }
 
+        @Override
+        public long getExpirationTime() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void setExpirationTime(long time) {
+            throw new UnsupportedOperationException();
+        }
+
         // The code below is exactly the same for each entry type.
 
         final int hash;
@@ -1461,6 +1683,19 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
         public void setPreviousInAccessQueue(ReferenceEntry<K, V> previous) {
             this.previousAccess = previous;
         }
+
+        // Guarded By Segment.this
+        int accessRegion;
+
+        @Override
+        public int getAccessRegion() {
+            return accessRegion;
+        }
+
+        @Override
+        public void setAccessRegion(int region) {
+            this.accessRegion = region;
+        }
     }
 
     static final class WeakWriteEntry<K, V> extends WeakEntry<K, V> {
@@ -1510,7 +1745,7 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
         }
     }
 
-    static final class WeakAccessWriteEntry<K, V> extends WeakEntry<K, V> {
+    static class WeakAccessWriteEntry<K, V> extends WeakEntry<K, V> {
         WeakAccessWriteEntry(
                 ReferenceQueue<K> queue, K key, int hash,   ReferenceEntry<K, V> next) {
             super(queue, key, hash, next);
@@ -1556,6 +1791,19 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
             this.previousAccess = previous;
         }
 
+        // Guarded By Segment.this
+        int accessRegion;
+
+        @Override
+        public int getAccessRegion() {
+            return accessRegion;
+        }
+
+        @Override
+        public void setAccessRegion(int region) {
+            this.accessRegion = region;
+        }
+
         // The code below is exactly the same for each write entry type.
 
         volatile long writeTime = Long.MAX_VALUE;
@@ -1597,6 +1845,27 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
         }
     }
 
+    static final class WeakExpiringEntry<K, V> extends WeakAccessWriteEntry<K, V> {
+        WeakExpiringEntry(
+                ReferenceQueue<K> queue, K key, int hash,   ReferenceEntry<K, V> next) {
+            super(queue, key, hash, next);
+        }
+
+        // The code below is exactly the same for each expiring entry type.
+
+        volatile long expirationTime = Long.MAX_VALUE;
+
+        @Override
+        public long getExpirationTime() {
+            return expirationTime;
+        }
+
+        @Override
+        public void setExpirationTime(long time) {
+            this.expirationTime = time;
+        }
+    }
+
     /**
      * References a weak value.
      */
@@ -1909,8 +2178,8 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
 
     @Nonnull
     Segment<K, V> createSegment(
-            int initialCapacity, long maxSegmentWeight) {
-        return new Segment<>(this, initialCapacity, maxSegmentWeight);
+            int initialCapacity, long maxSegmentWeight, @Nonnull StatsCounter statsCounter) {
+        return new Segment<>(this, initialCapacity, maxSegmentWeight, statsCounter);
     }
 
     /**
@@ -1951,9 +2220,21 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
                 && (now - entry.getWriteTime() >= expireAfterWriteNanos)) {
             return true;
         }
+        if (expiresVariably()
+                && (now - entry.getExpirationTime() >= 0)) {
+            return true;
+        }
         return false;
     }
 
+    /**
+     * Returns the time an entry lasting {@code duration} from {@code now} expires at. Durations are
+     * capped so that expiration times compare correctly with the ticker however long they are.
+     */
+    static long expirationTime(long duration, long now) {
+        return now + Math.min(Math.max(duration, 0), MAX_EXPIRY_NANOS);
+    }
+
     // queues
 
     // Guarded By Segment.this
@@ -2049,6 +2330,12 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
         @Nonnull
         final LocalCache<K, V> map;
 
+        /**
+         * Accumulates cache statistics.
+         */
+        @Nonnull
+        final StatsCounter statsCounter;
+
         /**
          * The number of live elements in this segment's region.
          */
@@ -2128,9 +2415,24 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
         @Nullable
         final Queue<ReferenceEntry<K, V>> accessQueue;
 
-        Segment(@Nonnull LocalCache<K, V> map, int initialCapacity, long maxSegmentWeight) {
+        /**
+         * The access queue when the cache evicts by {@link EvictionPolicy#TINY_LFU}, null otherwise.
+         */
+        @Nullable
+        final FrequencyAccessQueue<K, V> frequencyAccessQueue;
+
+        /**
+         * The write queue when the cache has an {@link Expiry}, ordering entries by expiration time
+         * instead of write time. Null otherwise.
+         */
+        @Nullable
+        final TimerWheel<K, V> timerWheel;
+
+        Segment(@Nonnull LocalCache<K, V> map, int initialCapacity, long maxSegmentWeight,
+                @Nonnull StatsCounter statsCounter) {
             this.map = map;
             this.maxSegmentWeight = maxSegmentWeight;
+            this.statsCounter = Preconditions.checkNotNull(statsCounter);
             initTable(newEntryArray(initialCapacity));
 
             keyReferenceQueue = map.usesKeyReferences()
@@ -2139,17 +2441,33 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
             valueReferenceQueue = map.usesValueReferences()
                     ? new ReferenceQueue<V>() : null;
 
-            recencyQueue = map.usesAccessQueue()
+            recencyQueue = map.usesAccessQueue() || map.expiresVariably()
                     ? new ConcurrentLinkedQueue<ReferenceEntry<K, V>>()
                     : LocalCache.<ReferenceEntry<K, V>>discardingQueue();
 
-            writeQueue = map.usesWriteQueue()
-                    ? new WriteQueue<K, V>()
-                    : LocalCache.<ReferenceEntry<K, V>>discardingQueue();
+            timerWheel = map.expiresVariably()
+                    ? new TimerWheel<K, V>(map.ticker.read())
+                    : null;
 
-            accessQueue = map.usesAccessQueue()
-                    ? new AccessQueue<K, V>()
-                    : LocalCache.<ReferenceEntry<K, V>>discardingQueue();
+            if (timerWheel != null) {
+                writeQueue = timerWheel;
+            } else {
+                writeQueue = map.usesWriteQueue()
+                        ? new WriteQueue<K, V>()
+                        : LocalCache.<ReferenceEntry<K, V>>discardingQueue();
+            }
+
+            frequencyAccessQueue = map.usesFrequencyAccessQueue()
+                    ? new FrequencyAccessQueue<K, V>(map.customWeigher() ? 0 : maxSegmentWeight)
+                    : null;
+
+            if (frequencyAccessQueue != null) {
+                accessQueue = frequencyAccessQueue;
+            } else {
+                accessQueue = map.usesAccessQueue()
+                        ? new AccessQueue<K, V>()
+                        : LocalCache.<ReferenceEntry<K, V>>discardingQueue();
+            }
         }
 
         @Nonnull
@@ -2202,6 +2520,14 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
             int weight = map.weigher.weigh(key, value);
             Preconditions.checkState(weight >= 0, "Weights must be non-negative");
 
+            if (map.expiresVariably()) {
+                V previousValue = previous.get();
+                long duration = (previousValue == null)
+                        ? map.expiry.expireAfterCreate(key, value, now)
+                        : map.expiry.expireAfterUpdate(key, value, now, entry.getExpirationTime() - now);
+                entry.setExpirationTime(expirationTime(duration, now));
+            }
+
             ValueReference<K, V> valueReference =
                     map.valueStrength.referenceValue(this, entry, value, weight);
             entry.setValueReference(valueReference);
@@ -2224,6 +2550,7 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
                         V value = getLiveValue(e, now);
                         if (value != null) {
                             recordRead(e, now);
+                            statsCounter.recordHits(1);
                             return scheduleRefresh(e, key, hash, value, now, loader);
                         }
                         ValueReference<K, V> valueReference = e.getValueReference();
@@ -2284,6 +2611,7 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
                                 enqueueNotification(entryKey, hash, valueReference, RemovalCause.EXPIRED);
                             } else {
                                 recordLockedRead(e, now);
+                                statsCounter.recordHits(1);
                                 // we were concurrent with loading; don't consider refresh
                                 return value;
                             }
@@ -2322,6 +2650,7 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
                         return loadSync(key, hash, loadingValueReference, loader);
                     }
                 } finally {
+                    statsCounter.recordMisses(1);
                 }
             } else {
                 // The entry already exists. Wait for loading.
@@ -2348,6 +2677,7 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
                 recordRead(e, now);
                 return value;
             } finally {
+                statsCounter.recordMisses(1);
             }
         }
 
@@ -2391,10 +2721,12 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
                 if (value == null) {
                     throw new InvalidCacheLoadException("CacheLoader returned null for key " + key + ".");
                 }
+                statsCounter.recordLoadSuccess(loadingValueReference.elapsedNanos());
                 storeLoadedValue(key, hash, loadingValueReference, value);
                 return value;
             } finally {
                 if (value == null) {
+                    statsCounter.recordLoadException(loadingValueReference.elapsedNanos());
                     removeLoadingValue(key, hash, loadingValueReference);
                 }
             }
@@ -2583,6 +2915,9 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
             if (map.recordsAccess()) {
                 entry.setAccessTime(now);
             }
+            if (map.expiresVariably()) {
+                recordExpiringRead(entry, now);
+            }
             recencyQueue.add(entry);
         }
 
@@ -2598,6 +2933,23 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
                 entry.setAccessTime(now);
             }
             accessQueue.add(entry);
+            if (timerWheel != null) {
+                recordExpiringRead(entry, now);
+                timerWheel.add(entry);
+            }
+        }
+
+        /**
+         * Updates the expiration time of {@code entry} after a read. The timer wheel is updated when
+         * the recency queue is drained, or else when the entry is found in its former bucket.
+         */
+        void recordExpiringRead(@Nonnull ReferenceEntry<K, V> entry, long now) {
+            K key = entry.getKey();
+            V value = entry.getValueReference().get();
+            if (key != null && value != null) {
+                long duration = map.expiry.expireAfterRead(key, value, now, entry.getExpirationTime() - now);
+                entry.setExpirationTime(expirationTime(duration, now));
+            }
         }
 
         /**
@@ -2608,6 +2960,9 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
             // we are already under lock, so drain the recency queue immediately
             drainRecencyQueue();
             totalWeight += weight;
+            if (map.weightBudget != null) {
+                map.weightBudget.add(weight);
+            }
 
             if (map.recordsAccess()) {
                 entry.setAccessTime(now);
@@ -2635,6 +2990,9 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
                 if (accessQueue.contains(e)) {
                     accessQueue.add(e);
                 }
+                if (timerWheel != null && timerWheel.contains(e)) {
+                    timerWheel.add(e);
+                }
             }
         }
 
@@ -2658,9 +3016,21 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
             drainRecencyQueue();
 
             ReferenceEntry<K, V> e;
-            while ((e = writeQueue.peek()) != null && map.isExpired(e, now)) {
-                if (!removeEntry(e, e.getHash(), RemovalCause.EXPIRED)) {
-                    throw new AssertionError();
+            if (timerWheel != null) {
+                timerWheel.advance(now);
+                while ((e = timerWheel.pollExpired()) != null) {
+                    if (!map.isExpired(e, now)) {
+                        // read since the wheel advanced
+                        timerWheel.add(e);
+                    } else if (!removeEntry(e, e.getHash(), RemovalCause.EXPIRED)) {
+                        throw new AssertionError();
+                    }
+                }
+            } else {
+                while ((e = writeQueue.peek()) != null && map.isExpired(e, now)) {
+                    if (!removeEntry(e, e.getHash(), RemovalCause.EXPIRED)) {
+                        throw new AssertionError();
+                    }
                 }
             }
             while ((e = accessQueue.peek()) != null && map.isExpired(e, now)) {
@@ -2679,6 +3049,12 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
         void enqueueNotification(K key, int hash, @Nonnull ValueReference<K, V> valueReference,
                                  RemovalCause cause) {
             totalWeight -= valueReference.getWeight();
+            if (map.weightBudget != null) {
+                map.weightBudget.add(-valueReference.getWeight());
+            }
+            if (cause.wasEvicted()) {
+                statsCounter.recordEviction();
+            }
 
             if (map.removalNotificationQueue != DISCARDING_QUEUE) {
                 V value = valueReference.get();
@@ -2714,11 +3090,31 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
                     throw new AssertionError();
                 }
             }
+
+            // the shared budget is paid for by the cache written to, keeping the entry just written
+            WeightBudget budget = map.weightBudget;
+            while (budget != null && budget.isExceeded()
+                    && totalWeight > newest.getValueReference().getWeight()) {
+                ReferenceEntry<K, V> e = getNextEvictable();
+                if (e == newest) {
+                    break;
+                }
+                if (!removeEntry(e, e.getHash(), RemovalCause.SIZE)) {
+                    throw new AssertionError();
+                }
+            }
         }
 
         // TODO(fry): instead implement this with an eviction head
         @Nonnull
         ReferenceEntry<K, V> getNextEvictable() {
+            if (frequencyAccessQueue != null) {
+                ReferenceEntry<K, V> victim = frequencyAccessQueue.nextEvictable();
+                if (victim != null) {
+                    return victim;
+                }
+                throw new AssertionError();
+            }
             for (ReferenceEntry<K, V> e : accessQueue) {
                 int weight = e.getValueReference().getWeight();
                 if (weight > 0) {
@@ -3577,6 +3973,10 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
         }
 
 
+        public long elapsedNanos() {
+            return stopwatch.elapsed(NANOSECONDS);
+        }
+
         @Override
         public V waitForValue() throws ExecutionException {
             return Uninterruptibles.getUninterruptibly(futureValue);
@@ -3749,6 +4149,202 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
         }
     }
 
+    /**
+     * The write queue of a segment whose cache has an {@link Expiry}, which keeps entries in the
+     * buckets of a hierarchical timer wheel by expiration time. Its wheels turn by about a second, a
+     * minute, an hour and a day, the last one spanning about a week, after which entries share a
+     * single overflow bucket. Buckets are {@link WriteQueue}s, which can share the write links of an
+     * entry because an entry is in at most one of them.
+     * <p>
+     * <p>{@link #advance} visits the buckets of every wheel whose time went by since it last ran,
+     * moving expired entries to a queue polled by {@link #pollExpired} and the others to the bucket
+     * they now belong to, on a finer wheel. An entry is so visited at most once per wheel, which keeps
+     * expiration amortized O(1) however durations are spread. An entry whose expiration time changes
+     * stays in its bucket until it is offered again, or until that bucket is visited.
+     */
+    static final class TimerWheel<K, V> extends AbstractQueue<ReferenceEntry<K, V>> {
+        static final int[] BUCKETS = {64, 64, 32, 4, 1};
+        static final long[] SPANS = {
+                1L << 30, // 1.07s
+                1L << 36, // 1.15m
+                1L << 42, // 1.22h
+                1L << 47, // 1.63d
+                1L << 49, // 6.52d
+                1L << 49, // 6.52d
+        };
+        static final int[] SHIFT = {30, 36, 42, 47, 49};
+
+        final WriteQueue<K, V>[][] wheel;
+        final WriteQueue<K, V> expired = new WriteQueue<>();
+
+        /**
+         * The time ticks are counted from, so that they keep growing if the ticker overflows.
+         */
+        final long origin;
+
+        /**
+         * The time the wheel last advanced to.
+         */
+        long nanos;
+
+        @SuppressWarnings("unchecked")
+        TimerWheel(long now) {
+            origin = now;
+            nanos = now;
+            wheel = (WriteQueue<K, V>[][]) new WriteQueue<?, ?>[BUCKETS.length][];
+            for (int i = 0; i < wheel.length; i++) {
+                wheel[i] = (WriteQueue<K, V>[]) new WriteQueue<?, ?>[BUCKETS[i]];
+                for (int j = 0; j < wheel[i].length; j++) {
+                    wheel[i][j] = new WriteQueue<>();
+                }
+            }
+        }
+
+        /**
+         * Turns the wheels to {@code now}, queueing the entries which expired since they last turned.
+         */
+        void advance(long now) {
+            long previous = nanos - origin;
+            nanos = now;
+            now -= origin;
+            for (int i = 0; i < SHIFT.length; i++) {
+                long previousTicks = previous >> SHIFT[i];
+                long currentTicks = now >> SHIFT[i];
+                if (currentTicks - previousTicks <= 0) {
+                    break;
+                }
+                WriteQueue<K, V>[] buckets = wheel[i];
+                long delta = currentTicks - previousTicks;
+                int count = (delta >= buckets.length) ? buckets.length : (int) delta + 1;
+                for (int j = 0; j < count; j++) {
+                    expire(buckets[(int) ((previousTicks + j) & (buckets.length - 1))], nanos);
+                }
+            }
+        }
+
+        /**
+         * Returns the next entry found expired by {@link #advance}, or null.
+         */
+        @Nullable
+        ReferenceEntry<K, V> pollExpired() {
+            return expired.poll();
+        }
+
+        void expire(@Nonnull WriteQueue<K, V> bucket, long now) {
+            ReferenceEntry<K, V> head = bucket.head;
+            ReferenceEntry<K, V> e = head.getNextInWriteQueue();
+            if (e == head) {
+                return;
+            }
+            // detach the entries, as those not expired yet may go back to the same bucket
+            head.getPreviousInWriteQueue().setNextInWriteQueue(LocalCache.<K, V>nullEntry());
+            head.setNextInWriteQueue(head);
+            head.setPreviousInWriteQueue(head);
+            while (e != NullEntry.INSTANCE) {
+                ReferenceEntry<K, V> next = e.getNextInWriteQueue();
+                nullifyWriteOrder(e);
+                if (now - e.getExpirationTime() >= 0) {
+                    expired.offer(e);
+                } else {
+                    offer(e);
+                }
+                e = next;
+            }
+        }
+
+        @Nonnull
+        WriteQueue<K, V> bucketFor(long time) {
+            // an entry already expired goes to the current bucket, which the next advance visits
+            long duration = Math.max(time - nanos, 0);
+            int last = wheel.length - 1;
+            for (int i = 0; i < last; i++) {
+                if (duration < SPANS[i + 1]) {
+                    long ticks = (nanos - origin + duration) >> SHIFT[i];
+                    return wheel[i][(int) (ticks & (wheel[i].length - 1))];
+                }
+            }
+            return wheel[last][0];
+        }
+
+        // implements Queue
+
+        @Override
+        public boolean offer(@Nonnull ReferenceEntry<K, V> entry) {
+            return bucketFor(entry.getExpirationTime()).offer(entry);
+        }
+
+        @Override
+        public ReferenceEntry<K, V> peek() {
+            ReferenceEntry<K, V> next = expired.peek();
+            for (int i = 0; next == null && i < wheel.length; i++) {
+                for (int j = 0; next == null && j < wheel[i].length; j++) {
+                    next = wheel[i][j].peek();
+                }
+            }
+            return next;
+        }
+
+        @Override
+        public ReferenceEntry<K, V> poll() {
+            ReferenceEntry<K, V> next = peek();
+            if (next != null) {
+                remove(next);
+            }
+            return next;
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            // relinks the neighbours of the entry, whichever bucket they are in
+            return expired.remove(o);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean contains(Object o) {
+            ReferenceEntry<K, V> e = (ReferenceEntry) o;
+            return e.getNextInWriteQueue() != NullEntry.INSTANCE;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return peek() == null;
+        }
+
+        @Override
+        public int size() {
+            int size = expired.size();
+            for (WriteQueue<K, V>[] buckets : wheel) {
+                for (WriteQueue<K, V> bucket : buckets) {
+                    size += bucket.size();
+                }
+            }
+            return size;
+        }
+
+        @Override
+        public void clear() {
+            expired.clear();
+            for (WriteQueue<K, V>[] buckets : wheel) {
+                for (WriteQueue<K, V> bucket : buckets) {
+                    bucket.clear();
+                }
+            }
+        }
+
+        @Nonnull
+        @Override
+        public Iterator<ReferenceEntry<K, V>> iterator() {
+            List<ReferenceEntry<K, V>> entries = new ArrayList<>(expired);
+            for (WriteQueue<K, V>[] buckets : wheel) {
+                for (WriteQueue<K, V> bucket : buckets) {
+                    entries.addAll(bucket);
+                }
+            }
+            return Collections.unmodifiableList(entries).iterator();
+        }
+    }
+
     /**
      * A custom queue for managing access order. Note that this is tightly integrated with
      * {@code ReferenceEntry}, upon which it reliese to perform its linking.
@@ -3889,6 +4485,255 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
         }
     }
 
+    /**
+     * The access queue of a segment evicting by {@link EvictionPolicy#TINY_LFU}. Entries are kept in
+     * three {@link AccessQueue}s, which can share the access links of an entry because an entry is
+     * in at most one of them: a small LRU window admitting new entries, and a segmented LRU main
+     * space made of a probation and a protected region. Region sizes are counted in entries.
+     * <p>
+     * <p>Offering an entry records an access. A new entry enters the window; once the window is
+     * full its least recently used entry moves to probation as the admission candidate. An entry
+     * read while on probation is promoted to protected, demoting the least recently used protected
+     * entries to probation once protected holds more than its share of the main space. When the
+     * segment has to evict, the candidate is compared with the least recently used probation entry
+     * and the one with the lower estimated frequency is evicted, the candidate on a tie.
+     * <p>
+     * <p>Unlike {@link AccessQueue} the head of this queue is only approximately the least recently
+     * accessed entry, which can delay the cleanup, but never the expiration, of entries expiring
+     * after access.
+     */
+    static final class FrequencyAccessQueue<K, V> extends AbstractQueue<ReferenceEntry<K, V>> {
+        static final int WINDOW = 1;
+        static final int PROBATION = 2;
+        static final int PROTECTED = 3;
+
+        static final int WINDOW_PERCENT = 1;
+        static final int PROTECTED_PERCENT = 80;
+        static final long INITIAL_SKETCH_SIZE = 16;
+
+        final AccessQueue<K, V> window = new AccessQueue<>();
+        final AccessQueue<K, V> probation = new AccessQueue<>();
+        final AccessQueue<K, V> protectedQueue = new AccessQueue<>();
+        @Nonnull
+        final FrequencySketch sketch;
+
+        int windowSize;
+        int probationSize;
+        int protectedSize;
+
+        /**
+         * The entry most recently moved from the window to probation, not yet compared with a victim.
+         */
+        @Nullable
+        ReferenceEntry<K, V> candidate;
+
+        /**
+         * @param expectedSize number of entries the segment is expected to hold, the frequency sketch
+         *                     grows as needed when it is 0
+         */
+        FrequencyAccessQueue(long expectedSize) {
+            sketch = new FrequencySketch(expectedSize > 0 ? expectedSize : INITIAL_SKETCH_SIZE);
+        }
+
+        // implements Queue
+
+        @Override
+        public boolean offer(@Nonnull ReferenceEntry<K, V> entry) {
+            sketch.increment(entry.getHash());
+            switch (entry.getAccessRegion()) {
+                case WINDOW:
+                    window.offer(entry);
+                    break;
+                case PROBATION:
+                    if (entry == candidate) {
+                        candidate = null;
+                    }
+                    probationSize--;
+                    protectedSize++;
+                    entry.setAccessRegion(PROTECTED);
+                    protectedQueue.offer(entry);
+                    demoteProtected();
+                    break;
+                case PROTECTED:
+                    protectedQueue.offer(entry);
+                    break;
+                default:
+                    windowSize++;
+                    entry.setAccessRegion(WINDOW);
+                    window.offer(entry);
+                    if (size() > sketch.capacity()) {
+                        sketch.ensureCapacity(2L * size());
+                    }
+                    evictFromWindow();
+                    break;
+            }
+            return true;
+        }
+
+        /**
+         * Moves the least recently used window entries to probation while the window is too large.
+         */
+        void evictFromWindow() {
+            int windowCapacity = Math.max(1, size() * WINDOW_PERCENT / 100);
+            while (windowSize > windowCapacity) {
+                ReferenceEntry<K, V> e = window.peek();
+                windowSize--;
+                probationSize++;
+                e.setAccessRegion(PROBATION);
+                probation.offer(e);
+                candidate = e;
+            }
+        }
+
+        /**
+         * Moves the least recently used protected entries to probation while protected is too large.
+         */
+        void demoteProtected() {
+            int protectedCapacity = (probationSize + protectedSize) * PROTECTED_PERCENT / 100;
+            while (protectedSize > protectedCapacity) {
+                ReferenceEntry<K, V> e = protectedQueue.peek();
+                protectedSize--;
+                probationSize++;
+                e.setAccessRegion(PROBATION);
+                probation.offer(e);
+            }
+        }
+
+        /**
+         * Returns the entry the segment should evict next, or null if no entry has a weight.
+         */
+        @Nullable
+        ReferenceEntry<K, V> nextEvictable() {
+            ReferenceEntry<K, V> challenger = candidate;
+            candidate = null;
+
+            ReferenceEntry<K, V> victim = firstEvictable(probation, challenger);
+            if (victim == null) {
+                victim = firstEvictable(protectedQueue, challenger);
+            }
+            if (challenger != null && challenger.getValueReference().getWeight() > 0) {
+                if (victim == null
+                        || sketch.frequency(challenger.getHash()) <= sketch.frequency(victim.getHash())) {
+                    return challenger;
+                }
+                return victim;
+            }
+            return victim != null ? victim : firstEvictable(window, null);
+        }
+
+        @Nullable
+        private ReferenceEntry<K, V> firstEvictable(@Nonnull AccessQueue<K, V> region,
+                                                    @Nullable ReferenceEntry<K, V> skip) {
+            for (ReferenceEntry<K, V> e : region) {
+                if (e != skip && e.getValueReference().getWeight() > 0) {
+                    return e;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public ReferenceEntry<K, V> peek() {
+            return older(older(window.peek(), probation.peek()), protectedQueue.peek());
+        }
+
+        @Nullable
+        private static <K, V> ReferenceEntry<K, V> older(@Nullable ReferenceEntry<K, V> first,
+                                                         @Nullable ReferenceEntry<K, V> second) {
+            if (first == null) {
+                return second;
+            }
+            if (second == null) {
+                return first;
+            }
+            return second.getAccessTime() < first.getAccessTime() ? second : first;
+        }
+
+        @Override
+        public ReferenceEntry<K, V> poll() {
+            ReferenceEntry<K, V> next = peek();
+            if (next == null) {
+                return null;
+            }
+
+            remove(next);
+            return next;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean remove(Object o) {
+            ReferenceEntry<K, V> e = (ReferenceEntry) o;
+            switch (e.getAccessRegion()) {
+                case WINDOW:
+                    windowSize--;
+                    break;
+                case PROBATION:
+                    probationSize--;
+                    break;
+                case PROTECTED:
+                    protectedSize--;
+                    break;
+                default:
+                    break;
+            }
+            if (e == candidate) {
+                candidate = null;
+            }
+            e.setAccessRegion(0);
+            // unlinking only follows the links of the entry, whichever region holds it
+            return window.remove(e);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean contains(Object o) {
+            ReferenceEntry<K, V> e = (ReferenceEntry) o;
+            return e.getNextInAccessQueue() != NullEntry.INSTANCE;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return size() == 0;
+        }
+
+        @Override
+        public int size() {
+            return windowSize + probationSize + protectedSize;
+        }
+
+        @Override
+        public void clear() {
+            for (AccessQueue<K, V> region : regions()) {
+                for (ReferenceEntry<K, V> e : region) {
+                    e.setAccessRegion(0);
+                }
+                region.clear();
+            }
+            windowSize = 0;
+            probationSize = 0;
+            protectedSize = 0;
+            candidate = null;
+        }
+
+        @Nonnull
+        @Override
+        public Iterator<ReferenceEntry<K, V>> iterator() {
+            List<ReferenceEntry<K, V>> entries = new ArrayList<>(size());
+            for (AccessQueue<K, V> region : regions()) {
+                for (ReferenceEntry<K, V> e : region) {
+                    entries.add(e);
+                }
+            }
+            return entries.iterator();
+        }
+
+        @Nonnull
+        private List<AccessQueue<K, V>> regions() {
+            return Arrays.asList(window, probation, protectedQueue);
+        }
+    }
+
     // Cache support
 
     public void cleanUp() {
@@ -3972,7 +4817,9 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
         int hash = hash(Preconditions.checkNotNull(key));
         V value = segmentFor(hash).get(key, hash);
         if (value == null) {
+            globalStatsCounter.recordMisses(1);
         } else {
+            globalStatsCounter.recordHits(1);
         }
         return value;
     }
@@ -4006,7 +4853,8 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
                 hits++;
             }
         }
-
+        globalStatsCounter.recordHits(hits);
+        globalStatsCounter.recordMisses(misses);
         return result;
     }
 
@@ -4051,7 +4899,8 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
             }
             return result;
         } finally {
-
+            globalStatsCounter.recordHits(hits);
+            globalStatsCounter.recordMisses(misses);
         }
     }
 
@@ -4084,9 +4933,14 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
             throw new ExecutionException(e);
         } catch (Error e) {
             throw new ExecutionError(e);
+        } finally {
+            if (!success) {
+                globalStatsCounter.recordLoadException(stopwatch.elapsed(NANOSECONDS));
+            }
         }
 
         if (result == null) {
+            globalStatsCounter.recordLoadException(stopwatch.elapsed(NANOSECONDS));
             throw new InvalidCacheLoadException(loader + " returned null map from loadAll");
         }
 
@@ -4105,10 +4959,12 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
         }
 
         if (nullsPresent) {
+            globalStatsCounter.recordLoadException(stopwatch.elapsed(NANOSECONDS));
             throw new InvalidCacheLoadException(loader + " returned null keys or values from loadAll");
         }
 
         // TODO(fry): record count of loaded entries
+        globalStatsCounter.recordLoadSuccess(stopwatch.elapsed(NANOSECONDS));
         return result;
     }
 
@@ -4662,8 +5518,11 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
         final Equivalence<Object> valueEquivalence;
         final long expireAfterWriteNanos;
         final long expireAfterAccessNanos;
+        @Nullable
+        final Expiry<K, V> expiry;
         final long maxWeight;
         final Weigher<K, V> weigher;
+        final EvictionPolicy evictionPolicy;
         final int concurrencyLevel;
         final RemovalListener<? super K, ? super V> removalListener;
         @Nullable
@@ -4680,8 +5539,10 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
                     cache.valueEquivalence,
                     cache.expireAfterWriteNanos,
                     cache.expireAfterAccessNanos,
+                    cache.expiry,
                     cache.maxWeight,
                     cache.weigher,
+                    cache.evictionPolicy,
                     cache.concurrencyLevel,
                     cache.removalListener,
                     cache.ticker,
@@ -4691,8 +5552,8 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
         private ManualSerializationProxy(
                 Strength keyStrength, Strength valueStrength,
                 Equivalence<Object> keyEquivalence, Equivalence<Object> valueEquivalence,
-                long expireAfterWriteNanos, long expireAfterAccessNanos, long maxWeight,
-                Weigher<K, V> weigher, int concurrencyLevel,
+                long expireAfterWriteNanos, long expireAfterAccessNanos, @Nullable Expiry<K, V> expiry,
+                long maxWeight, Weigher<K, V> weigher, EvictionPolicy evictionPolicy, int concurrencyLevel,
                 RemovalListener<? super K, ? super V> removalListener,
                 Ticker ticker, CacheLoader<? super K, V> loader) {
             this.keyStrength = keyStrength;
@@ -4701,8 +5562,10 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
             this.valueEquivalence = valueEquivalence;
             this.expireAfterWriteNanos = expireAfterWriteNanos;
             this.expireAfterAccessNanos = expireAfterAccessNanos;
+            this.expiry = expiry;
             this.maxWeight = maxWeight;
             this.weigher = weigher;
+            this.evictionPolicy = evictionPolicy;
             this.concurrencyLevel = concurrencyLevel;
             this.removalListener = removalListener;
             this.ticker = (ticker == Ticker.systemTicker() || ticker == NULL_TICKER)
@@ -4718,6 +5581,7 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
                     .keyEquivalence(keyEquivalence)
                     .valueEquivalence(valueEquivalence)
                     .concurrencyLevel(concurrencyLevel)
+                    .evictionPolicy(evictionPolicy)
                     .removalListener(removalListener);
             builder.strictParsing = false;
             if (expireAfterWriteNanos > 0) {
@@ -4726,6 +5590,9 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
             if (expireAfterAccessNanos > 0) {
                 builder.expireAfterAccess(expireAfterAccessNanos, NANOSECONDS);
             }
+            if (expiry != null) {
+                builder.expireAfter(expiry);
+            }
             if (weigher != CacheBuilder.OneWeigher.INSTANCE) {
                 builder.weigher(weigher);
                 if (maxWeight != UNSET_INT) {
@@ -4892,6 +5759,17 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
             localCache.cleanUp();
         }
 
+        @Nonnull
+        @Override
+        public CacheStats stats() {
+            SimpleStatsCounter aggregator = new SimpleStatsCounter();
+            aggregator.incrementBy(localCache.globalStatsCounter);
+            for (Segment<K, V> segment : localCache.segments) {
+                aggregator.incrementBy(segment.statsCounter);
+            }
+            return aggregator.snapshot();
+        }
+
         // Serialization Support
 
         private static final long serialVersionUID = 1;
@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2011 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nytimes.android.external.cache3;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnull;
+
+/**
+ * A thread-safe {@link StatsCounter} implementation for use by {@link Cache} implementors.
+ *
+ * @since 10.0
+ */
+public final class SimpleStatsCounter implements StatsCounter {
+  private final AtomicLong hitCount = new AtomicLong();
+  private final AtomicLong missCount = new AtomicLong();
+  private final AtomicLong loadSuccessCount = new AtomicLong();
+  private final AtomicLong loadExceptionCount = new AtomicLong();
+  private final AtomicLong totalLoadTime = new AtomicLong();
+  private final AtomicLong evictionCount = new AtomicLong();
+
+  /**
+   * Constructs an instance with all counts initialized to zero.
+   */
+  public SimpleStatsCounter() {}
+
+  /**
+   * @since 11.0
+   */
+  @Override
+  public void recordHits(int count) {
+    hitCount.addAndGet(count);
+  }
+
+  /**
+   * @since 11.0
+   */
+  @Override
+  public void recordMisses(int count) {
+    missCount.addAndGet(count);
+  }
+
+  @Override
+  public void recordLoadSuccess(long loadTime) {
+    loadSuccessCount.incrementAndGet();
+    totalLoadTime.addAndGet(loadTime);
+  }
+
+  @Override
+  public void recordLoadException(long loadTime) {
+    loadExceptionCount.incrementAndGet();
+    totalLoadTime.addAndGet(loadTime);
+  }
+
+  @Override
+  public void recordEviction() {
+    evictionCount.incrementAndGet();
+  }
+
+  @Nonnull
+  @Override
+  public CacheStats snapshot() {
+    return new CacheStats(
+        hitCount.get(),
+        missCount.get(),
+        loadSuccessCount.get(),
+        loadExceptionCount.get(),
+        totalLoadTime.get(),
+        evictionCount.get());
+  }
+
+  /**
+   * Increments all counters by the values in {@code other}.
+   */
+  public void incrementBy(@Nonnull StatsCounter other) {
+    CacheStats otherStats = other.snapshot();
+    hitCount.addAndGet(otherStats.hitCount());
+    missCount.addAndGet(otherStats.missCount());
+    loadSuccessCount.addAndGet(otherStats.loadSuccessCount());
+    loadExceptionCount.addAndGet(otherStats.loadExceptionCount());
+    totalLoadTime.addAndGet(otherStats.totalLoadTime());
+    evictionCount.addAndGet(otherStats.evictionCount());
+  }
+}
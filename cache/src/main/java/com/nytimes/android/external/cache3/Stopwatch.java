@@ -152,6 +152,20 @@ public final class Stopwatch {
         return isRunning ? ticker.read() - startTick + elapsedNanos : elapsedNanos;
     }
 
+    /**
+     * Returns the current elapsed time shown on this stopwatch, expressed
+     * in the desired time unit, with any fraction rounded down.
+     *
+     * <p>Note that the overhead of measurement can be more than a microsecond, so
+     * it is generally not useful to specify {@link TimeUnit#NANOSECONDS}
+     * precision here.
+     *
+     * @since 14.0 (since 10.0 as {@code elapsedTime()})
+     */
+    public long elapsed(@Nonnull TimeUnit desiredUnit) {
+        return desiredUnit.convert(elapsedNanos(), NANOSECONDS);
+    }
+
 
     /**
      * Returns a string representation of the current elapsed time.
@@ -0,0 +1,45 @@
+package com.nytimes.android.external.cache3;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A maximum total weight shared by several caches, see {@link CacheBuilder#weightBudget}.
+ *
+ * <p>Every cache still evicts by its own {@link CacheBuilder#maximumWeight}. In addition, when a
+ * write takes the total weight of all caches over the budget, the cache written to evicts its own
+ * entries, in the order of its {@link EvictionPolicy}, until the total is back within the budget
+ * or it only holds the entry just written. Caches which are not written to keep their entries
+ * until then, or until they expire.
+ */
+public final class WeightBudget {
+
+  private final long maximumWeight;
+  private final AtomicLong weight = new AtomicLong();
+
+  /**
+   * @throws IllegalArgumentException if {@code maximumWeight} is negative
+   */
+  public WeightBudget(long maximumWeight) {
+    Preconditions.checkArgument(maximumWeight >= 0, "maximum weight must not be negative");
+    this.maximumWeight = maximumWeight;
+  }
+
+  public long getMaximumWeight() {
+    return maximumWeight;
+  }
+
+  /**
+   * @return total weight of the entries of all caches sharing this budget
+   */
+  public long getWeight() {
+    return weight.get();
+  }
+
+  void add(long delta) {
+    weight.addAndGet(delta);
+  }
+
+  boolean isExceeded() {
+    return weight.get() > maximumWeight;
+  }
+}
@@ -4,45 +4,92 @@ import com.nytimes.android.external.fs3.filesystem.FileSystem;
 import com.nytimes.android.external.store3.base.DiskAllRead;
 
 import java.io.FileNotFoundException;
+import java.io.IOException;
 
 import javax.annotation.Nonnull;
 
 import io.reactivex.Observable;
+import io.reactivex.Scheduler;
 import io.reactivex.exceptions.Exceptions;
+import io.reactivex.functions.Function;
+import io.reactivex.schedulers.Schedulers;
+import okio.Buffer;
 import okio.BufferedSource;
 
 /**
  * FSReader is used when persisting from file system
  * PathResolver will be used in creating file system paths based on cache keys.
  * Make sure to have keys containing same data resolve to same "path"
- *
+ * <p>
+ * By default files are opened one after the other and read by the subscriber. With a maxConcurrency above 1,
+ * up to maxConcurrency files are read into memory at once on a background thread each, and emitted either in
+ * the order they are listed in or as soon as they are read.
  */
 public class FSAllReader implements DiskAllRead {
     final FileSystem fileSystem;
+    private final int maxConcurrency;
+    private final boolean ordered;
+    @Nonnull
+    private final Scheduler scheduler;
 
     public FSAllReader(FileSystem fileSystem) {
+        this(fileSystem, 1, true);
+    }
+
+    /**
+     * @param maxConcurrency files read at once on {@link Schedulers#io()}, 1 to open them sequentially
+     * @param ordered        emit files in the order they are listed in, instead of the order they are read in
+     */
+    public FSAllReader(FileSystem fileSystem, int maxConcurrency, boolean ordered) {
+        this(fileSystem, maxConcurrency, ordered, Schedulers.io());
+    }
+
+    FSAllReader(FileSystem fileSystem, int maxConcurrency, boolean ordered, @Nonnull Scheduler scheduler) {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("maxConcurrency must be positive");
+        }
         this.fileSystem = fileSystem;
+        this.maxConcurrency = maxConcurrency;
+        this.ordered = ordered;
+        this.scheduler = scheduler;
     }
 
     @Nonnull
     @Override
     public Observable<BufferedSource> readAll(@Nonnull final String path) throws FileNotFoundException {
         return Observable.defer(() -> {
-            Observable<BufferedSource> bufferedSourceObservable = null;
+            Observable<String> paths;
             try {
-                bufferedSourceObservable = Observable
-                        .fromIterable(fileSystem.list(path))
-                        .map(s -> {
-                            try {
-                                return fileSystem.read(s);
-                            } catch (FileNotFoundException e) {
-                                throw Exceptions.propagate(e);
-                            }
-                        });
+                paths = Observable.fromIterable(fileSystem.list(path));
             } catch (FileNotFoundException e) {
                 throw Exceptions.propagate(e);
             }
-            return bufferedSourceObservable;
+            if (maxConcurrency == 1) {
+                return paths.map(s -> {
+                    try {
+                        return fileSystem.read(s);
+                    } catch (FileNotFoundException e) {
+                        throw Exceptions.propagate(e);
+                    }
+                });
+            }
+            Function<String, Observable<BufferedSource>> readFile =
+                    s -> Observable.fromCallable(() -> readFully(s)).subscribeOn(scheduler);
+            return ordered
+                    ? paths.concatMapEager(readFile, maxConcurrency, 1)
+                    : paths.flatMap(readFile, maxConcurrency);
         });
     }
+
+    @Nonnull
+    private BufferedSource readFully(@Nonnull String path) throws IOException {
+        BufferedSource source = fileSystem.read(path);
+        try {
+            Buffer buffer = new Buffer();
+            buffer.writeAll(source);
+            return buffer;
+        } finally {
+            source.close();
+        }
+    }
 }
@@ -0,0 +1,96 @@
+package com.nytimes.android.external.fs3;
+
+import com.nytimes.android.external.fs3.filesystem.FileSystem;
+import com.nytimes.android.external.store3.base.DiskTee;
+import com.nytimes.android.external.store3.base.PendingWrite;
+
+import java.io.IOException;
+
+import javax.annotation.Nonnull;
+
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+
+/**
+ * FSTee is used when parsing data while persisting it to file system.
+ * Every byte the parser reads is copied aside, and once parsing succeeds the copy, along with whatever the parser
+ * left unread, is written to the file system in one go, so that the file is never read back.
+ * PathResolver will be used in creating file system paths based on cache keys.
+ * Make sure to have keys containing same data resolve to same "path"
+ *
+ * @param <T> key type
+ */
+public class FSTee<T> implements DiskTee<BufferedSource, T> {
+    final FileSystem fileSystem;
+    final PathResolver<T> pathResolver;
+
+    public FSTee(FileSystem fileSystem, PathResolver<T> pathResolver) {
+        this.fileSystem = fileSystem;
+        this.pathResolver = pathResolver;
+    }
+
+    @Nonnull
+    @Override
+    public PendingWrite<BufferedSource> tee(@Nonnull T key, @Nonnull BufferedSource source) {
+        return new TeeWrite(pathResolver.resolve(key), source);
+    }
+
+    private final class TeeWrite implements PendingWrite<BufferedSource> {
+        @Nonnull
+        private final String path;
+        @Nonnull
+        private final BufferedSource source;
+        private final Buffer copy = new Buffer();
+        @Nonnull
+        private final BufferedSource raw;
+
+        TeeWrite(@Nonnull String path, @Nonnull BufferedSource source) {
+            this.path = path;
+            this.source = source;
+            this.raw = Okio.buffer(new ForwardingSource(source) {
+                @Override
+                public long read(@Nonnull Buffer sink, long byteCount) throws IOException {
+                    long read = super.read(sink, byteCount);
+                    if (read > 0) {
+                        sink.copyTo(copy, sink.size() - read, read);
+                    }
+                    return read;
+                }
+
+                @Override
+                public void close() {
+                    // parsers may close what they read, the rest of source is still needed on commit
+                }
+            });
+        }
+
+        @Nonnull
+        @Override
+        public BufferedSource raw() {
+            return raw;
+        }
+
+        @Override
+        public void commit() throws IOException {
+            try {
+                // bytes the parser never asked for were not copied yet
+                copy.writeAll(source);
+                fileSystem.write(path, copy);
+            } finally {
+                source.close();
+            }
+        }
+
+        @Override
+        public void abort() {
+            copy.clear();
+            try {
+                source.close();
+            } catch (IOException ignored) {
+                // nothing was written, and the parse error which aborted the write is what the caller reports
+            }
+        }
+    }
+}
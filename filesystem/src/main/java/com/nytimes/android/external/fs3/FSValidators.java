@@ -0,0 +1,105 @@
+package com.nytimes.android.external.fs3;
+
+import com.nytimes.android.external.fs3.filesystem.FileSystem;
+import com.nytimes.android.external.store3.base.Validators;
+
+import java.io.IOException;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import okio.Buffer;
+import okio.BufferedSource;
+
+/**
+ * FSValidators keeps the {@link Validators} of records in the same file system, as one small file per record
+ * under {@link FileSystem#METADATA_ROOT}, which the file system leaves out of listings and quotas and deletes
+ * along with the records.
+ * PathResolver will be used in creating file system paths based on cache keys.
+ *
+ * @param <T> key type
+ */
+public class FSValidators<T> {
+    static final String ROOT = FileSystem.METADATA_ROOT;
+    private static final String ETAG = "ETag: ";
+    private static final String LAST_MODIFIED = "Last-Modified: ";
+
+    final FileSystem fileSystem;
+    final PathResolver<T> pathResolver;
+
+    public FSValidators(FileSystem fileSystem, PathResolver<T> pathResolver) {
+        this.fileSystem = fileSystem;
+        this.pathResolver = pathResolver;
+    }
+
+    /**
+     * @return validators of the record of key, or null if there is no record, it has no validators or they
+     * cannot be read
+     */
+    @Nullable
+    public Validators read(@Nonnull T key) {
+        String recordPath = pathResolver.resolve(key);
+        String path = validatorsPath(recordPath);
+        if (!fileSystem.exists(recordPath) || !fileSystem.exists(path)) {
+            return null;
+        }
+        BufferedSource source = null;
+        try {
+            source = fileSystem.read(path);
+            String eTag = null;
+            String lastModified = null;
+            String line;
+            while ((line = source.readUtf8Line()) != null) {
+                if (line.startsWith(ETAG)) {
+                    eTag = line.substring(ETAG.length());
+                } else if (line.startsWith(LAST_MODIFIED)) {
+                    lastModified = line.substring(LAST_MODIFIED.length());
+                }
+            }
+            return eTag == null && lastModified == null ? null : new Validators(eTag, lastModified);
+        } catch (IOException e) {
+            return null;
+        } finally {
+            if (source != null) {
+                try {
+                    source.close();
+                } catch (IOException ignored) {
+                    // the validators were read in full already and closing a read only source loses nothing
+                }
+            }
+        }
+    }
+
+    /**
+     * replaces the validators of the record of key, or deletes them when validators is null
+     */
+    public void write(@Nonnull T key, @Nullable Validators validators) throws IOException {
+        String path = validatorsPath(pathResolver.resolve(key));
+        if (validators == null) {
+            if (fileSystem.exists(path)) {
+                fileSystem.delete(path);
+            }
+            return;
+        }
+        Buffer buffer = new Buffer();
+        if (validators.getETag() != null) {
+            buffer.writeUtf8(ETAG).writeUtf8(validators.getETag()).writeByte('\n');
+        }
+        if (validators.getLastModified() != null) {
+            buffer.writeUtf8(LAST_MODIFIED).writeUtf8(validators.getLastModified()).writeByte('\n');
+        }
+        fileSystem.write(path, buffer);
+    }
+
+    /**
+     * marks the record of key as just written, see {@link FileSystem#touch(String)}
+     */
+    public void touch(@Nonnull T key) throws IOException {
+        fileSystem.touch(pathResolver.resolve(key));
+    }
+
+    @Nonnull
+    static String validatorsPath(@Nonnull String recordPath) {
+        return ROOT + (recordPath.startsWith("/") ? recordPath : "/" + recordPath);
+    }
+}
@@ -1,8 +1,11 @@
 package com.nytimes.android.external.fs3;
 
 import com.nytimes.android.external.fs3.filesystem.FileSystem;
+import com.nytimes.android.external.store3.base.DiskBatchWrite;
 import com.nytimes.android.external.store3.base.DiskWrite;
 
+import java.util.Map;
+
 import javax.annotation.Nonnull;
 
 import io.reactivex.Single;
@@ -14,7 +17,7 @@ import okio.BufferedSource;
  * Make sure to have keys containing same data resolve to same "path"
  * @param <T> key type
  */
-public class FSWriter<T> implements DiskWrite<BufferedSource, T> {
+public class FSWriter<T> implements DiskWrite<BufferedSource, T>, DiskBatchWrite<BufferedSource, T> {
     final FileSystem fileSystem;
     final PathResolver<T> pathResolver;
 
@@ -31,4 +34,18 @@ public class FSWriter<T> implements DiskWrite<BufferedSource, T> {
             return true;
         });
     }
+
+    /**
+     * Writes the records of a batch one after the other from a single task
+     */
+    @Nonnull
+    @Override
+    public Single<Boolean> writeAll(@Nonnull final Map<T, BufferedSource> data) {
+        return Single.fromCallable(() -> {
+            for (Map.Entry<T, BufferedSource> entry : data.entrySet()) {
+                fileSystem.write(pathResolver.resolve(entry.getKey()), entry.getValue());
+            }
+            return true;
+        });
+    }
 }
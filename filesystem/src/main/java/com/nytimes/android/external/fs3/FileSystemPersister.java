@@ -1,8 +1,13 @@
 package com.nytimes.android.external.fs3;
 
 import com.nytimes.android.external.fs3.filesystem.FileSystem;
+import com.nytimes.android.external.store3.base.DiskBatchWrite;
+import com.nytimes.android.external.store3.base.DiskTee;
+import com.nytimes.android.external.store3.base.PendingWrite;
 import com.nytimes.android.external.store3.base.Persister;
 
+import java.util.Map;
+
 import javax.annotation.Nonnull;
 
 import io.reactivex.Maybe;
@@ -15,13 +20,16 @@ import okio.BufferedSource;
  * Make sure to have keys containing same data resolve to same "path"
  * @param <T> key type
  */
-public final class FileSystemPersister<T> implements Persister<BufferedSource, T> {
+public final class FileSystemPersister<T> implements Persister<BufferedSource, T>, DiskTee<BufferedSource, T>,
+        DiskBatchWrite<BufferedSource, T> {
     private final FSReader<T> fileReader;
     private final FSWriter<T> fileWriter;
+    private final FSTee<T> fileTee;
 
     private FileSystemPersister(FileSystem fileSystem, PathResolver<T> pathResolver) {
         fileReader = new FSReader<>(fileSystem, pathResolver);
         fileWriter = new FSWriter<>(fileSystem, pathResolver);
+        fileTee = new FSTee<>(fileSystem, pathResolver);
     }
 
     @Nonnull
@@ -44,4 +52,16 @@ public final class FileSystemPersister<T> implements Persister<BufferedSource, T
     public Single<Boolean> write(@Nonnull final T key, @Nonnull final BufferedSource data) {
         return fileWriter.write(key, data);
     }
+
+    @Nonnull
+    @Override
+    public Single<Boolean> writeAll(@Nonnull Map<T, BufferedSource> data) {
+        return fileWriter.writeAll(data);
+    }
+
+    @Nonnull
+    @Override
+    public PendingWrite<BufferedSource> tee(@Nonnull T key, @Nonnull BufferedSource bufferedSource) {
+        return fileTee.tee(key, bufferedSource);
+    }
 }
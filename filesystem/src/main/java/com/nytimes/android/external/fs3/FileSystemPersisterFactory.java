@@ -1,5 +1,6 @@
 package com.nytimes.android.external.fs3;
 
+import com.nytimes.android.external.fs3.filesystem.CompressionCodec;
 import com.nytimes.android.external.fs3.filesystem.FileSystem;
 import com.nytimes.android.external.fs3.filesystem.FileSystemFactory;
 import com.nytimes.android.external.store3.base.Persister;
@@ -32,6 +33,22 @@ public final class FileSystemPersisterFactory {
         return FileSystemPersister.create(FileSystemFactory.create(root), pathResolver);
     }
 
+    /**
+     * Returns a new {@link BufferedSource} persister with the provided file as the root of the
+     * persistence {@link FileSystem}, compressing what it writes with codec.
+     *
+     * @throws IOException
+     */
+    @Nonnull
+    public static <Key> Persister<BufferedSource, Key> create(@Nonnull File root,
+                                                              PathResolver<Key> pathResolver,
+                                                              @Nonnull CompressionCodec codec) throws IOException {
+        if (root == null) {
+            throw new IllegalArgumentException("root file cannot be null.");
+        }
+        return FileSystemPersister.create(FileSystemFactory.createCompressed(root, codec), pathResolver);
+    }
+
     /**
      * Returns a new {@link BufferedSource} persister with the provided fileSystem as the root of the
      * persistence {@link FileSystem}.
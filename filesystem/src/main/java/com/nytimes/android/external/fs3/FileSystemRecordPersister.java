@@ -1,13 +1,22 @@
 package com.nytimes.android.external.fs3;
 
 import com.nytimes.android.external.fs3.filesystem.FileSystem;
+import com.nytimes.android.external.store3.base.DiskBatchWrite;
+import com.nytimes.android.external.store3.base.DiskTee;
+import com.nytimes.android.external.store3.base.PendingWrite;
 import com.nytimes.android.external.store3.base.Persister;
 import com.nytimes.android.external.store3.base.RecordProvider;
 import com.nytimes.android.external.store3.base.RecordState;
+import com.nytimes.android.external.store3.base.ValidatorProvider;
+import com.nytimes.android.external.store3.base.Validators;
 
+import java.io.IOException;
+
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import io.reactivex.Maybe;
 import io.reactivex.Single;
@@ -17,12 +26,18 @@ import okio.BufferedSource;
  * FileSystemRecordPersister is used when persisting to/from file system while being stale aware
  * PathResolver will be used in creating file system paths based on cache keys.
  * Make sure to have keys containing same data resolve to same "path"
+ * Validators of records for a {@link com.nytimes.android.external.store3.base.ConditionalFetcher} are kept
+ * alongside them, see {@link FSValidators}.
  *
  * @param <Key> key type
  */
-public final class FileSystemRecordPersister<Key> implements Persister<BufferedSource, Key>, RecordProvider<Key> {
+public final class FileSystemRecordPersister<Key>
+        implements Persister<BufferedSource, Key>, RecordProvider<Key>, ValidatorProvider<Key>,
+        DiskTee<BufferedSource, Key>, DiskBatchWrite<BufferedSource, Key> {
     private final FSReader<Key> fileReader;
     private final FSWriter<Key> fileWriter;
+    private final FSTee<Key> fileTee;
+    private final FSValidators<Key> validators;
     private final FileSystem fileSystem;
     private final PathResolver<Key> pathResolver;
     private final long expirationDuration;
@@ -38,6 +53,8 @@ public final class FileSystemRecordPersister<Key> implements Persister<BufferedS
         this.expirationUnit = expirationUnit;
         fileReader = new FSReader<>(fileSystem, pathResolver);
         fileWriter = new FSWriter<>(fileSystem, pathResolver);
+        fileTee = new FSTee<>(fileSystem, pathResolver);
+        validators = new FSValidators<>(fileSystem, pathResolver);
     }
 
     @Nonnull
@@ -69,4 +86,32 @@ public final class FileSystemRecordPersister<Key> implements Persister<BufferedS
     public Single<Boolean> write(@Nonnull Key key, @Nonnull BufferedSource bufferedSource) {
         return fileWriter.write(key, bufferedSource);
     }
+
+    @Nonnull
+    @Override
+    public Single<Boolean> writeAll(@Nonnull Map<Key, BufferedSource> data) {
+        return fileWriter.writeAll(data);
+    }
+
+    @Nonnull
+    @Override
+    public PendingWrite<BufferedSource> tee(@Nonnull Key key, @Nonnull BufferedSource bufferedSource) {
+        return fileTee.tee(key, bufferedSource);
+    }
+
+    @Nullable
+    @Override
+    public Validators getValidators(@Nonnull Key key) {
+        return validators.read(key);
+    }
+
+    @Override
+    public void setValidators(@Nonnull Key key, @Nullable Validators validators) throws IOException {
+        this.validators.write(key, validators);
+    }
+
+    @Override
+    public void touch(@Nonnull Key key) throws IOException {
+        validators.touch(key);
+    }
 }
@@ -29,7 +29,19 @@ public class SourceAllPersister implements AllPersister<BufferedSource, BarCode>
 
     @Inject
     public SourceAllPersister(FileSystem fileSystem) {
-        sourceFileAllReader = new FSAllReader(fileSystem);
+        this(fileSystem, new FSAllReader(fileSystem));
+    }
+
+    /**
+     * @param readAllConcurrency files {@link #readAll} reads at once, see {@link FSAllReader}
+     * @param ordered            whether {@link #readAll} emits files in the order they are listed in
+     */
+    public SourceAllPersister(FileSystem fileSystem, int readAllConcurrency, boolean ordered) {
+        this(fileSystem, new FSAllReader(fileSystem, readAllConcurrency, ordered));
+    }
+
+    private SourceAllPersister(FileSystem fileSystem, @Nonnull FSAllReader allReader) {
+        sourceFileAllReader = allReader;
         sourceFileAllEraser = new FSAllEraser(fileSystem);
         sourceFileReader = new FSReader<>(fileSystem,  new BarCodeReadAllPathResolver());
         sourceFileWriter = new FSWriter<>(fileSystem,  new BarCodeReadAllPathResolver());
@@ -62,4 +74,8 @@ public class SourceAllPersister implements AllPersister<BufferedSource, BarCode>
     public static SourceAllPersister create(FileSystem fileSystem) {
         return new SourceAllPersister(fileSystem);
     }
+
+    public static SourceAllPersister create(FileSystem fileSystem, int readAllConcurrency, boolean ordered) {
+        return new SourceAllPersister(fileSystem, readAllConcurrency, ordered);
+    }
 }
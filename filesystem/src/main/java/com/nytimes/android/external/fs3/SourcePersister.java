@@ -2,9 +2,14 @@ package com.nytimes.android.external.fs3;
 
 
 import com.nytimes.android.external.fs3.filesystem.FileSystem;
+import com.nytimes.android.external.store3.base.DiskBatchWrite;
+import com.nytimes.android.external.store3.base.DiskTee;
+import com.nytimes.android.external.store3.base.PendingWrite;
 import com.nytimes.android.external.store3.base.Persister;
 import com.nytimes.android.external.store3.base.impl.BarCode;
 
+import java.util.Map;
+
 import javax.annotation.Nonnull;
 import javax.inject.Inject;
 
@@ -21,17 +26,21 @@ import okio.BufferedSource;
  * .parser(new GsonSourceParser<>(gson, BookResults.class))
  * .open();
  */
-public class SourcePersister implements Persister<BufferedSource, BarCode> {
+public class SourcePersister implements Persister<BufferedSource, BarCode>, DiskTee<BufferedSource, BarCode>,
+        DiskBatchWrite<BufferedSource, BarCode> {
 
     @Nonnull
     final SourceFileReader sourceFileReader;
     @Nonnull
     final SourceFileWriter sourceFileWriter;
+    @Nonnull
+    final FSTee<BarCode> sourceFileTee;
 
     @Inject
     public SourcePersister(FileSystem fileSystem) {
         sourceFileReader = new SourceFileReader(fileSystem);
         sourceFileWriter = new SourceFileWriter(fileSystem);
+        sourceFileTee = new FSTee<>(fileSystem, new BarCodePathResolver());
     }
 
     public static SourcePersister create(FileSystem fileSystem) {
@@ -55,4 +64,16 @@ public class SourcePersister implements Persister<BufferedSource, BarCode> {
         return sourceFileWriter.write(barCode, data);
     }
 
+    @Nonnull
+    @Override
+    public Single<Boolean> writeAll(@Nonnull Map<BarCode, BufferedSource> data) {
+        return sourceFileWriter.writeAll(data);
+    }
+
+    @Nonnull
+    @Override
+    public PendingWrite<BufferedSource> tee(@Nonnull BarCode barCode, @Nonnull BufferedSource data) {
+        return sourceFileTee.tee(barCode, data);
+    }
+
 }
@@ -1,5 +1,6 @@
 package com.nytimes.android.external.fs3;
 
+import com.nytimes.android.external.fs3.filesystem.CompressionCodec;
 import com.nytimes.android.external.fs3.filesystem.FileSystem;
 import com.nytimes.android.external.fs3.filesystem.FileSystemFactory;
 import com.nytimes.android.external.store3.base.Persister;
@@ -78,6 +79,39 @@ public final class SourcePersisterFactory {
         return SourcePersister.create(fileSystem);
     }
 
+    /**
+     * Returns a new {@link BufferedSource} persister with the provided file as the root of the
+     * persistence {@link FileSystem}, compressing what it writes with codec.
+     *
+     * @throws IOException
+     */
+    @Nonnull
+    public static Persister<BufferedSource, BarCode> create(@Nonnull File root,
+                                                            @Nonnull CompressionCodec codec) throws IOException {
+        if (root == null) {
+            throw new IllegalArgumentException("root file cannot be null.");
+        }
+        return SourcePersister.create(FileSystemFactory.createCompressed(root, codec));
+    }
+
+    /**
+     * Returns a new {@link BufferedSource} persister with the provided file as the root of the
+     * persistence {@link FileSystem}, compressing what it writes with codec.
+     *
+     * @throws IOException
+     */
+    @Nonnull
+    public static Persister<BufferedSource, BarCode> create(@Nonnull File root,
+                                                            long expirationDuration,
+                                                            @Nonnull TimeUnit expirationUnit,
+                                                            @Nonnull CompressionCodec codec) throws IOException {
+        if (root == null) {
+            throw new IllegalArgumentException("root file cannot be null.");
+        }
+        return RecordPersister.create(FileSystemFactory.createCompressed(root, codec), expirationDuration,
+                expirationUnit);
+    }
+
     /**
      * Returns a new {@link BufferedSource} persister with the provided file as the root of the
      * persistence {@link FileSystem}.
@@ -103,4 +137,19 @@ public final class SourcePersisterFactory {
         }
         return SourceAllPersister.create(fileSystem);
     }
+
+    /**
+     * Returns a new {@link BufferedSource} persister with the provided fileSystem as the root of the
+     * persistence {@link FileSystem}, whose readAll reads up to readAllConcurrency files at once.
+     * Worth it for directories with many files, see {@link FSAllReader}.
+     **/
+    @Nonnull
+    public static Persister<BufferedSource, BarCode> createAll(@Nonnull FileSystem fileSystem,
+                                                              int readAllConcurrency,
+                                                              boolean ordered) {
+        if (fileSystem == null) {
+            throw new IllegalArgumentException("fileSystem cannot be null.");
+        }
+        return SourceAllPersister.create(fileSystem, readAllConcurrency, ordered);
+    }
 }
@@ -0,0 +1,55 @@
+package com.nytimes.android.external.fs3;
+
+import com.nytimes.android.external.store3.base.OffHeapRawCodec;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import javax.annotation.Nonnull;
+
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.Okio;
+
+/**
+ * {@link OffHeapRawCodec} for stores persisting {@link BufferedSource}s, to be passed to
+ * {@link com.nytimes.android.external.store3.base.impl.RealStoreBuilder#offHeapCache}.
+ * Encoding reads the source to the end and closes it.
+ */
+public class SourceRawCodec implements OffHeapRawCodec<BufferedSource> {
+
+    @Nonnull
+    @Override
+    public byte[] encode(@Nonnull BufferedSource source) throws IOException {
+        try {
+            return source.readByteArray();
+        } finally {
+            source.close();
+        }
+    }
+
+    @Nonnull
+    @Override
+    public BufferedSource decode(@Nonnull byte[] bytes) {
+        // read as it is consumed rather than copied into a buffer up front
+        return Okio.buffer(Okio.source(new ByteArrayInputStream(bytes)));
+    }
+
+    @Nonnull
+    @Override
+    public BufferedSource decode(@Nonnull ByteBuffer[] blocks) {
+        Buffer buffer = new Buffer();
+        try {
+            for (ByteBuffer block : blocks) {
+                while (block.hasRemaining()) {
+                    buffer.write(block);
+                }
+            }
+        } catch (IOException e) {
+            // writing to a Buffer does not do any I/O
+            throw new AssertionError(e);
+        }
+        return buffer;
+    }
+}
@@ -0,0 +1,46 @@
+package com.nytimes.android.external.fs3;
+
+import com.nytimes.android.external.fs3.filesystem.MappedBufferedSource;
+import com.nytimes.android.external.store3.base.RawMeter;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnull;
+
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+
+/**
+ * {@link RawMeter} for stores persisting {@link BufferedSource}s, to be passed to
+ * {@link com.nytimes.android.external.store3.base.impl.RealStoreBuilder#rawMeter}.
+ * Buffers and memory mapped sources are sized right away and passed on as they are, so parsers can still read
+ * them directly, other sources count the bytes the parser reads from them.
+ */
+public class SourceRawMeter implements RawMeter<BufferedSource> {
+
+    @Nonnull
+    @Override
+    public BufferedSource meter(@Nonnull BufferedSource source, @Nonnull final AtomicLong bytesRead) {
+        if (source instanceof Buffer) {
+            bytesRead.addAndGet(((Buffer) source).size());
+            return source;
+        }
+        if (source instanceof MappedBufferedSource) {
+            bytesRead.addAndGet(((MappedBufferedSource) source).byteBuffer().remaining());
+            return source;
+        }
+        return Okio.buffer(new ForwardingSource(source) {
+            @Override
+            public long read(@Nonnull Buffer sink, long byteCount) throws IOException {
+                long read = super.read(sink, byteCount);
+                if (read > 0) {
+                    bytesRead.addAndGet(read);
+                }
+                return read;
+            }
+        });
+    }
+}
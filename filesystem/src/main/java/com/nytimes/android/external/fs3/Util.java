@@ -3,56 +3,81 @@ package com.nytimes.android.external.fs3;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.Stack;
+import java.util.ArrayList;
+import java.util.List;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 public class Util {
 
+    /**
+     * @return path as an absolute path without empty, "." and ".." segments, or "" for an empty path.
+     * Paths which are simple already are returned as they are.
+     */
     @Nonnull
-    public String simplifyPath(@Nonnull String path) {
+    public String simplifyPath(@Nullable String path) {
         if (ifInvalidPATH(path)) {
             return "";
         }
+        if (isSimple(path)) {
+            return path;
+        }
 
-        String delim = "[/]+";
-        String[] arr = path.split(delim);
-
-        Stack<String> stack = new Stack<>();
-
-        fillStack(arr, stack);
+        List<String> segments = new ArrayList<>();
+        int length = path.length();
+        int start = 0;
+        while (start < length) {
+            int end = path.indexOf('/', start);
+            if (end == -1) {
+                end = length;
+            }
+            addSegment(segments, path.substring(start, end));
+            start = end + 1;
+        }
 
-        if (emptyStack(stack)) {
+        if (segments.isEmpty()) {
             return "/";
         }
 
-        StringBuilder sb = new StringBuilder();
-
-        for (String str : stack) {
-            sb.append("/").append(str);
+        StringBuilder sb = new StringBuilder(length + 1);
+        for (String segment : segments) {
+            sb.append('/').append(segment);
         }
-
         return sb.toString();
     }
 
-    private boolean emptyStack(@Nonnull Stack<String> stack) {
-        return stack.isEmpty();
+    private void addSegment(@Nonnull List<String> segments, @Nonnull String segment) {
+        if ("..".equals(segment)) {
+            if (!segments.isEmpty()) {
+                segments.remove(segments.size() - 1);
+            }
+        } else if (!".".equals(segment) && !segment.isEmpty()) {
+            segments.add(segment);
+        }
     }
 
-    private void fillStack(@Nonnull String[] arr, @Nonnull Stack<String> stack) {
-        for (String str : arr) {
-            if ("/".equals(str)) {
-                continue;
-            }
-            if ("..".equals(str)) {
-                if (!stack.isEmpty()) {
-                    stack.pop();
+    /**
+     * @return whether path is "/" or starts with a slash and has neither empty, "." nor ".." segments
+     */
+    private boolean isSimple(@Nonnull String path) {
+        int length = path.length();
+        if (path.charAt(0) != '/') {
+            return false;
+        }
+        int segmentStart = 1;
+        for (int i = 1; i <= length; i++) {
+            if (i == length || path.charAt(i) == '/') {
+                int segmentLength = i - segmentStart;
+                if (segmentLength == 0 && length > 1
+                        || segmentLength == 1 && path.charAt(segmentStart) == '.'
+                        || segmentLength == 2 && path.startsWith("..", segmentStart)) {
+                    return false;
                 }
-            } else if (!".".equals(str) && !str.isEmpty()) {
-                stack.push(str);
+                segmentStart = i + 1;
             }
         }
+        return true;
     }
 
     private boolean ifInvalidPATH(@Nullable String path) {
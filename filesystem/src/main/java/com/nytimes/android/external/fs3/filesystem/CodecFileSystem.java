@@ -0,0 +1,151 @@
+package com.nytimes.android.external.fs3.filesystem;
+
+import com.nytimes.android.external.store3.base.RecordState;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.ByteString;
+import okio.Okio;
+import okio.Source;
+import okio.Timeout;
+
+/**
+ * a {@link FileSystem} compressing the content of every file of another one with a {@link CompressionCodec}.
+ * <p>
+ * Compressed files start with {@link #MAGIC} and the id of their codec. Files without it are read as they are, so
+ * a store can switch to compression, or between codecs, without losing what it persisted before.
+ */
+final class CodecFileSystem implements FileSystem {
+
+    static final ByteString MAGIC = ByteString.of((byte) 0xC5, (byte) 'S', (byte) 'Z');
+    private static final int HEADER_SIZE = MAGIC.size() + 1;
+
+    @Nonnull
+    private final FileSystem delegate;
+    @Nonnull
+    private final CompressionCodec codec;
+    private final CompressionCodec[] codecs = new CompressionCodec[256];
+
+    CodecFileSystem(@Nonnull FileSystem delegate, @Nonnull CompressionCodec codec) {
+        this.delegate = delegate;
+        this.codec = codec;
+        for (CompressionCodec builtIn : CompressionCodecs.builtIn()) {
+            codecs[builtIn.id() & 0xFF] = builtIn;
+        }
+        codecs[codec.id() & 0xFF] = codec;
+    }
+
+    @Nonnull
+    @Override
+    public BufferedSource read(String path) throws FileNotFoundException {
+        return Okio.buffer(new DecodingSource(delegate.read(path)));
+    }
+
+    /**
+     * compresses source in memory before writing it, so the file is only replaced once it is complete
+     */
+    @Override
+    public void write(String path, BufferedSource source) throws IOException {
+        Buffer compressed = new Buffer()
+                .write(MAGIC)
+                .writeByte(codec.id());
+        BufferedSink sink = Okio.buffer(codec.compress(compressed));
+        try {
+            sink.writeAll(source);
+        } finally {
+            sink.close();
+        }
+        delegate.write(path, compressed);
+    }
+
+    @Override
+    public void delete(String path) throws IOException {
+        delegate.delete(path);
+    }
+
+    @Override
+    public void deleteAll(String path) throws IOException {
+        delegate.deleteAll(path);
+    }
+
+    @Nonnull
+    @Override
+    public Collection<String> list(String path) throws FileNotFoundException {
+        return delegate.list(path);
+    }
+
+    @Override
+    public boolean exists(String file) {
+        return delegate.exists(file);
+    }
+
+    @Override
+    public void touch(String path) throws IOException {
+        delegate.touch(path);
+    }
+
+    @Override
+    public RecordState getRecordState(@Nonnull TimeUnit expirationUnit, long expirationDuration,
+                                      @Nonnull String path) {
+        return delegate.getRecordState(expirationUnit, expirationDuration, path);
+    }
+
+    /**
+     * decides whether a file is compressed on its first read, so that opening it does not touch the disk
+     */
+    private final class DecodingSource implements Source {
+        @Nonnull
+        private final BufferedSource raw;
+        @Nullable
+        private Source content;
+
+        DecodingSource(@Nonnull BufferedSource raw) {
+            this.raw = raw;
+        }
+
+        @Override
+        public long read(@Nonnull Buffer sink, long byteCount) throws IOException {
+            if (content == null) {
+                content = open();
+            }
+            return content.read(sink, byteCount);
+        }
+
+        @Nonnull
+        private Source open() throws IOException {
+            if (!raw.request(HEADER_SIZE) || !raw.rangeEquals(0, MAGIC)) {
+                return raw;
+            }
+            raw.skip(MAGIC.size());
+            int id = raw.readByte() & 0xFF;
+            if (codecs[id] == null) {
+                throw new IOException("file was compressed with unknown codec " + id);
+            }
+            return codecs[id].decompress(raw);
+        }
+
+        @Nonnull
+        @Override
+        public Timeout timeout() {
+            return raw.timeout();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (content == null) {
+                raw.close();
+            } else {
+                content.close();
+            }
+        }
+    }
+}
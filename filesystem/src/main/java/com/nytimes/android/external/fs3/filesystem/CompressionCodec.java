@@ -0,0 +1,36 @@
+package com.nytimes.android.external.fs3.filesystem;
+
+import java.io.IOException;
+
+import javax.annotation.Nonnull;
+
+import okio.Sink;
+import okio.Source;
+
+/**
+ * Compresses the files of a {@link FileSystem} created with
+ * {@link FileSystemFactory#createCompressed(FileSystem, CompressionCodec)}.
+ * <p>
+ * Every compressed file starts with a header holding the {@link #id()} of its codec, so a file system can read
+ * files written with any of the codecs of {@link CompressionCodecs}, or with none, whatever codec it writes with.
+ */
+public interface CompressionCodec {
+
+    /**
+     * @return identifies the codec in the header of the files it compressed. Ids up to 15 are reserved for
+     * {@link CompressionCodecs}.
+     */
+    byte id();
+
+    /**
+     * @return a sink compressing everything written to it into sink, closing it closes sink
+     */
+    @Nonnull
+    Sink compress(@Nonnull Sink sink) throws IOException;
+
+    /**
+     * @return a source decompressing the content of source, closing it closes source
+     */
+    @Nonnull
+    Source decompress(@Nonnull Source source) throws IOException;
+}
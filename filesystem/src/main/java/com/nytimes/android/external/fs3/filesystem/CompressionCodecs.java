@@ -0,0 +1,99 @@
+package com.nytimes.android.external.fs3.filesystem;
+
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import javax.annotation.Nonnull;
+
+import okio.DeflaterSink;
+import okio.GzipSink;
+import okio.GzipSource;
+import okio.InflaterSource;
+import okio.Okio;
+import okio.Sink;
+import okio.Source;
+
+/**
+ * The {@link CompressionCodec}s every compressed {@link FileSystem} can read.
+ */
+public final class CompressionCodecs {
+
+    static final byte GZIP_ID = 1;
+    static final byte DEFLATE_ID = 2;
+    static final byte LZ_ID = 3;
+
+    private static final CompressionCodec GZIP = new Gzip();
+    private static final CompressionCodec DEFLATE = new Deflate();
+    private static final CompressionCodec LZ = new LzCodec();
+
+    private CompressionCodecs() {
+    }
+
+    /**
+     * @return gzip, which compresses json about 5 to 10 times
+     */
+    @Nonnull
+    public static CompressionCodec gzip() {
+        return GZIP;
+    }
+
+    /**
+     * @return zlib deflate, which compresses as well as {@link #gzip()} with a smaller header and a cheaper
+     * checksum
+     */
+    @Nonnull
+    public static CompressionCodec deflate() {
+        return DEFLATE;
+    }
+
+    /**
+     * @return an LZ77 codec in the spirit of LZ4, which compresses less than {@link #gzip()} but reads and writes
+     * several times faster. Best when disk hits are bound by cpu rather than by flash.
+     */
+    @Nonnull
+    public static CompressionCodec lz() {
+        return LZ;
+    }
+
+    static CompressionCodec[] builtIn() {
+        return new CompressionCodec[]{GZIP, DEFLATE, LZ};
+    }
+
+    private static final class Gzip implements CompressionCodec {
+        @Override
+        public byte id() {
+            return GZIP_ID;
+        }
+
+        @Nonnull
+        @Override
+        public Sink compress(@Nonnull Sink sink) {
+            return new GzipSink(sink);
+        }
+
+        @Nonnull
+        @Override
+        public Source decompress(@Nonnull Source source) {
+            return new GzipSource(source);
+        }
+    }
+
+    private static final class Deflate implements CompressionCodec {
+        @Override
+        public byte id() {
+            return DEFLATE_ID;
+        }
+
+        @Nonnull
+        @Override
+        public Sink compress(@Nonnull Sink sink) {
+            return new DeflaterSink(sink, new Deflater());
+        }
+
+        @Nonnull
+        @Override
+        public Source decompress(@Nonnull Source source) {
+            return new InflaterSource(Okio.buffer(source), new Inflater());
+        }
+    }
+}
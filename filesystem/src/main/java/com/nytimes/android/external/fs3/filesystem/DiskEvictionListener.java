@@ -0,0 +1,20 @@
+package com.nytimes.android.external.fs3.filesystem;
+
+import com.nytimes.android.external.store3.base.RecordState;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Notified of every file a {@link FileSystem} deletes to stay within its {@link DiskQuota}.
+ * Called on the thread which evicts, it should return quickly.
+ */
+public interface DiskEvictionListener {
+
+    /**
+     * @param path  of the evicted file
+     * @param size  bytes the file took on disk
+     * @param state {@link RecordState#STALE} if the file was older than {@link DiskQuota#getStaleAfter()},
+     *              {@link RecordState#FRESH} otherwise
+     */
+    void onEvicted(@Nonnull String path, long size, @Nonnull RecordState state);
+}
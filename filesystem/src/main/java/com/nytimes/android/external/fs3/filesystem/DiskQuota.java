@@ -0,0 +1,141 @@
+package com.nytimes.android.external.fs3.filesystem;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Limits of a {@link FileSystem} created with {@link FileSystemFactory#createBounded(java.io.File, DiskQuota)}.
+ * <p>
+ * Once a write takes the files over either limit, files are evicted in the background until they are back
+ * under {@link #TRIM_RATIO} of both limits, so that the next writes do not start another eviction right away.
+ * Files older than {@link #getStaleAfter()} go first, oldest first, then the least recently read or written ones.
+ */
+public final class DiskQuota {
+
+    /**
+     * share of the limits files are trimmed down to
+     */
+    public static final double TRIM_RATIO = 0.9;
+
+    private static final long UNLIMITED = -1;
+
+    private final long maxBytes;
+    private final long maxFiles;
+    private final long staleAfter;
+    @Nonnull
+    private final TimeUnit staleAfterUnit;
+    @Nullable
+    private final DiskEvictionListener listener;
+
+    DiskQuota(long maxBytes, long maxFiles, long staleAfter, @Nonnull TimeUnit staleAfterUnit,
+              @Nullable DiskEvictionListener listener) {
+        this.maxBytes = maxBytes;
+        this.maxFiles = maxFiles;
+        this.staleAfter = staleAfter;
+        this.staleAfterUnit = staleAfterUnit;
+        this.listener = listener;
+    }
+
+    @Nonnull
+    public static DiskQuotaBuilder builder() {
+        return new DiskQuotaBuilder();
+    }
+
+    /**
+     * @return maximum total size of the files, or Long.MAX_VALUE if there is none
+     */
+    public long getMaxBytes() {
+        return maxBytes == UNLIMITED ? Long.MAX_VALUE : maxBytes;
+    }
+
+    /**
+     * @return maximum number of files, or Long.MAX_VALUE if there is none
+     */
+    public long getMaxFiles() {
+        return maxFiles == UNLIMITED ? Long.MAX_VALUE : maxFiles;
+    }
+
+    /**
+     * @return age after which files are evicted before any other, or -1 if files are only evicted by recency
+     */
+    public long getStaleAfter() {
+        return staleAfter;
+    }
+
+    @Nonnull
+    public TimeUnit getStaleAfterUnit() {
+        return staleAfterUnit;
+    }
+
+    @Nullable
+    public DiskEvictionListener getEvictionListener() {
+        return listener;
+    }
+
+    boolean isExceeded(long bytes, long files) {
+        return bytes > getMaxBytes() || files > getMaxFiles();
+    }
+
+    boolean isTrimmed(long bytes, long files) {
+        return (maxBytes == UNLIMITED || bytes <= maxBytes * TRIM_RATIO)
+                && (maxFiles == UNLIMITED || files <= maxFiles * TRIM_RATIO);
+    }
+
+    @Override
+    public String toString() {
+        return "DiskQuota{maxBytes=" + maxBytes + ", maxFiles=" + maxFiles
+                + ", staleAfter=" + staleAfter + ' ' + staleAfterUnit + '}';
+    }
+
+    public static class DiskQuotaBuilder {
+        private long maxBytes = UNLIMITED;
+        private long maxFiles = UNLIMITED;
+        private long staleAfter = UNLIMITED;
+        private TimeUnit staleAfterUnit = TimeUnit.MILLISECONDS;
+        private DiskEvictionListener listener;
+
+        public DiskQuotaBuilder setMaxBytes(long maxBytes) {
+            if (maxBytes <= 0) {
+                throw new IllegalArgumentException("maxBytes must be positive: " + maxBytes);
+            }
+            this.maxBytes = maxBytes;
+            return this;
+        }
+
+        public DiskQuotaBuilder setMaxFiles(long maxFiles) {
+            if (maxFiles <= 0) {
+                throw new IllegalArgumentException("maxFiles must be positive: " + maxFiles);
+            }
+            this.maxFiles = maxFiles;
+            return this;
+        }
+
+        /**
+         * Files not written to for longer than staleAfter are evicted before any other. Usually the expiration of
+         * the persister, since their records are {@link com.nytimes.android.external.store3.base.RecordState#STALE}
+         * already.
+         */
+        public DiskQuotaBuilder setStaleAfter(long staleAfter, @Nonnull TimeUnit unit) {
+            if (staleAfter < 0) {
+                throw new IllegalArgumentException("staleAfter must not be negative: " + staleAfter);
+            }
+            this.staleAfter = staleAfter;
+            this.staleAfterUnit = unit;
+            return this;
+        }
+
+        public DiskQuotaBuilder setEvictionListener(@Nonnull DiskEvictionListener listener) {
+            this.listener = listener;
+            return this;
+        }
+
+        public DiskQuota build() {
+            if (maxBytes == UNLIMITED && maxFiles == UNLIMITED) {
+                throw new IllegalStateException("Set maxBytes, maxFiles or both");
+            }
+            return new DiskQuota(maxBytes, maxFiles, staleAfter, staleAfterUnit, listener);
+        }
+    }
+}
@@ -6,8 +6,10 @@ import com.nytimes.android.external.fs3.Util;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import okio.BufferedSink;
 import okio.BufferedSource;
@@ -21,10 +23,18 @@ class FSFile {
     private final String pathValue;
     @Nonnull
     private final File file;
+    private final boolean memoryMapped;
+    @Nullable
+    private FileMapping mapping;
 
     FSFile(File root, @Nonnull String path) throws IOException {
+        this(root, path, false);
+    }
+
+    FSFile(File root, @Nonnull String path, boolean memoryMapped) throws IOException {
         this.pathValue = path;
         this.file = new File(root, path);
+        this.memoryMapped = memoryMapped;
         if (file.exists() && file.isDirectory()) {
             throw new FileNotFoundException(format("expecting a file at %s, instead found a directory", path));
         }
@@ -41,6 +51,7 @@ class FSFile {
          * it's ok to delete the file even if we still have readers! the file won't really
          * be deleted until all readers close it (it just removes the name-to-inode mapping)
          */
+        releaseMapping();
         if (!file.delete()) {
             throw new IllegalStateException("unable to delete " + file);
         }
@@ -63,6 +74,7 @@ class FSFile {
             if (!tmpFile.renameTo(file)) {
                 throw new IOException("unable to move tmp file to " + file.getPath());
             }
+            releaseMapping();
         } catch (Exception e) {
             throw new IOException("unable to write to file", e);
 
@@ -79,13 +91,60 @@ class FSFile {
     @Nonnull
     public BufferedSource source() throws FileNotFoundException {
         if (file.exists()) {
+            if (memoryMapped) {
+                BufferedSource mapped = mappedSource();
+                if (mapped != null) {
+                    return mapped;
+                }
+            }
             return Okio.buffer(Okio.source(file));
         }
         throw new FileNotFoundException(pathValue);
     }
 
+    /**
+     * shares one mapping of the current version between all its readers
+     *
+     * @return null if the file cannot be mapped
+     */
+    @Nullable
+    private synchronized BufferedSource mappedSource() throws FileNotFoundException {
+        if (mapping == null || !mapping.isCurrent(file)) {
+            releaseMapping();
+            try {
+                mapping = FileMapping.map(file);
+            } catch (IOException e) {
+                FileNotFoundException notFound = new FileNotFoundException(pathValue);
+                notFound.initCause(e);
+                throw notFound;
+            }
+        }
+        ByteBuffer content = mapping == null ? null : mapping.retain();
+        return content == null ? null : new MappedBufferedSource(content, mapping);
+    }
+
+    /**
+     * lets go of the mapping of the current version, which is unmapped once its last reader is closed
+     */
+    synchronized void releaseMapping() {
+        if (mapping != null) {
+            mapping.release();
+            mapping = null;
+        }
+    }
+
+    public void touch() throws IOException {
+        if (!file.setLastModified(System.currentTimeMillis())) {
+            throw new IOException("unable to touch " + file.getPath());
+        }
+    }
+
     public long lastModified() {
         return file.lastModified();
     }
+
+    public long length() {
+        return file.length();
+    }
 }
 
@@ -0,0 +1,79 @@
+package com.nytimes.android.external.fs3.filesystem;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * a read-only memory mapping of one version of a file, shared by the {@link FSFile} which cached it and every
+ * {@link MappedBufferedSource} reading from it.
+ * <p>
+ * The mapping is reference counted: the {@link FSFile} holds one reference until the file is written, deleted or
+ * evicted and every reader holds one until it is closed. Java has no safe way to unmap a buffer, so once the last
+ * reference is released the buffer is dropped and unmapped by the garbage collector; the file itself can be deleted
+ * at any time, the mapping keeps the data around the same way an open file descriptor does.
+ */
+final class FileMapping {
+
+    @Nullable
+    private ByteBuffer buffer;
+    private final long lastModified;
+    private int references = 1;
+
+    private FileMapping(@Nonnull ByteBuffer buffer, long lastModified) {
+        this.buffer = buffer;
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * @return a mapping of the current content of {@code file}, or null if it is too large to be mapped
+     */
+    @Nullable
+    static FileMapping map(@Nonnull File file) throws IOException {
+        long lastModified = file.lastModified();
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                return null;
+            }
+            return new FileMapping(channel.map(FileChannel.MapMode.READ_ONLY, 0, size), lastModified);
+        } finally {
+            // the mapping stays valid after the channel is closed
+            randomAccessFile.close();
+        }
+    }
+
+    /**
+     * @return whether this still maps the version of {@code file} on disk
+     */
+    synchronized boolean isCurrent(@Nonnull File file) {
+        return buffer != null && file.lastModified() == lastModified && file.length() == buffer.capacity();
+    }
+
+    /**
+     * takes a reference for a new reader
+     *
+     * @return a read-only view of the whole mapping, or null if the last reference was already released
+     */
+    @Nullable
+    synchronized ByteBuffer retain() {
+        if (buffer == null) {
+            return null;
+        }
+        references++;
+        return buffer.asReadOnlyBuffer();
+    }
+
+    synchronized void release() {
+        if (--references == 0) {
+            buffer = null;
+        }
+    }
+}
@@ -45,6 +45,13 @@ import okio.BufferedSource;
  */
 public interface FileSystem {
 
+    /**
+     * directory of the files kept alongside other files, such as the validators of records, at the same path under
+     * it. Listing another directory leaves it out, deleting a file or a directory deletes what it keeps for them
+     * and a {@link DiskQuota} neither counts its files nor evicts them apart from the files they belong to.
+     */
+    String METADATA_ROOT = "/.validators";
+
     /**
      * read the latest version of a file
      *
@@ -96,6 +103,15 @@ public interface FileSystem {
      */
     boolean exists(String file);
 
+    /**
+     * marks a file as modified now without changing its content, so that {@link #getRecordState} counts its age
+     * from now on
+     *
+     * @param path what to touch - must correspond to a single file
+     * @throws FileNotFoundException if there is no such file
+     */
+    void touch(String path) throws IOException;
+
     /**
      * compares age of file with given expiration time and returns
      * appropriate recordState
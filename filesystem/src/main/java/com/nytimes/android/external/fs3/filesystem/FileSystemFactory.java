@@ -5,6 +5,8 @@ import java.io.IOException;
 
 import javax.annotation.Nonnull;
 
+import io.reactivex.schedulers.Schedulers;
+
 /**
  * Factory for {@link FileSystem}.
  */
@@ -23,4 +25,74 @@ public final class FileSystemFactory {
     public static FileSystem create(@Nonnull File root) throws IOException {
         return new FileSystemImpl(root);
     }
+
+    /**
+     * Creates new instance of {@link FileSystemImpl} which reads files through memory mappings. Its reads return
+     * a {@link MappedBufferedSource}, which parsers can consume as a {@link java.nio.ByteBuffer} without copying.
+     * Worth it for large files, small ones are cheaper to read through a stream.
+     *
+     * @param root root directory.
+     * @return new instance of {@link FileSystemImpl}.
+     * @throws IOException
+     */
+    @Nonnull
+    public static FileSystem createMemoryMapped(@Nonnull File root) throws IOException {
+        return new FileSystemImpl(root, true);
+    }
+
+    /**
+     * Creates new instance of {@link FileSystemImpl} which keeps its files within quota. Files are evicted on
+     * {@link Schedulers#io()}, see {@link DiskQuota} for the order. Pass it to any of the persister factories
+     * taking a {@link FileSystem}.
+     *
+     * @param root  root directory, which should not be shared with anything else.
+     * @param quota limits of the files under root.
+     * @return new instance of {@link FileSystemImpl}.
+     * @throws IOException
+     */
+    @Nonnull
+    public static FileSystem createBounded(@Nonnull File root, @Nonnull DiskQuota quota) throws IOException {
+        return new FileSystemImpl(root, false, quota, Schedulers.io());
+    }
+
+    /**
+     * Creates new instance of {@link LogStructuredFileSystem}, which appends all files to a few segment files
+     * instead of keeping one file per path. Prefer it over {@link #create(File)} for stores with many keys.
+     * Obsolete versions are compacted away on {@link Schedulers#io()}.
+     *
+     * @param root root directory, which should not be shared with anything else.
+     * @return new instance of {@link LogStructuredFileSystem}.
+     * @throws IOException
+     */
+    @Nonnull
+    public static FileSystem createLogStructured(@Nonnull File root) throws IOException {
+        return new LogStructuredFileSystem(root, LogStructuredFileSystem.DEFAULT_MAX_SEGMENT_SIZE, Schedulers.io());
+    }
+
+    /**
+     * Creates a {@link FileSystem} compressing the files of fileSystem with codec, see {@link CompressionCodecs}.
+     * Files written without compression, or with another codec of {@link CompressionCodecs}, stay readable.
+     *
+     * @param fileSystem where compressed files are stored.
+     * @param codec      used to compress new files.
+     * @return new compressing {@link FileSystem}.
+     */
+    @Nonnull
+    public static FileSystem createCompressed(@Nonnull FileSystem fileSystem, @Nonnull CompressionCodec codec) {
+        return new CodecFileSystem(fileSystem, codec);
+    }
+
+    /**
+     * Creates new instance of {@link FileSystemImpl} compressing its files with codec, see
+     * {@link #createCompressed(FileSystem, CompressionCodec)}.
+     *
+     * @param root  root directory.
+     * @param codec used to compress new files.
+     * @return new compressing {@link FileSystem}.
+     * @throws IOException
+     */
+    @Nonnull
+    public static FileSystem createCompressed(@Nonnull File root, @Nonnull CompressionCodec codec) throws IOException {
+        return createCompressed(create(root), codec);
+    }
 }
@@ -2,6 +2,8 @@ package com.nytimes.android.external.fs3.filesystem;
 
 import com.nytimes.android.external.cache3.CacheLoader;
 import com.nytimes.android.external.cache3.LoadingCache;
+import com.nytimes.android.external.cache3.RemovalListener;
+import com.nytimes.android.external.cache3.RemovalNotification;
 import com.nytimes.android.external.fs3.Util;
 import com.nytimes.android.external.store3.base.RecordState;
 
@@ -10,11 +12,21 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
+import io.reactivex.Scheduler;
+import io.reactivex.schedulers.Schedulers;
 import okio.BufferedSource;
 
 import static com.nytimes.android.external.cache3.CacheBuilder.newBuilder;
@@ -24,109 +36,379 @@ import static java.lang.String.format;
  * implements a {@link FileSystem} as regular files on disk in a specific document root (kind of like a root jail)
  * <p>
  * All operations are on the caller's thread.
+ * <p>
+ * The size and modification time of every file are indexed in memory when the file system is created and kept up to
+ * date by writes and deletes, so {@link #exists}, {@link #getRecordState}, {@link #list} and {@link #deleteAll} never
+ * touch the disk to find files. Files changed under the root by anything but this file system won't be noticed.
+ * <p>
+ * When memory mapped, reads are served from a {@link MappedBufferedSource} which shares one mapping of the current
+ * version of a file between all of its readers.
+ * <p>
+ * With a {@link DiskQuota}, files are evicted on the given {@link Scheduler} once a write takes them over the quota,
+ * picked from the index by their age and the time they were last read or written. Evicted files are deleted like
+ * any other, so readers which opened them before keep reading them.
  */
 class FileSystemImpl implements FileSystem {
 
+    // FSFiles are only needed to read, write and delete, metadata lives in the index
+    private static final int OPEN_FILES = 500;
+    private static final int PATH_LOCKS = 64;
+    private static final boolean NIO_FILES = hasNioFiles();
+
     private final Util util = new Util();
     @Nonnull
     private final LoadingCache<String, FSFile> files;
     @Nonnull
+    private final ConcurrentSkipListMap<String, FileMetadata> index = new ConcurrentSkipListMap<>();
+    @Nonnull
     private final File root;
+    @Nullable
+    private final DiskQuota quota;
+    @Nonnull
+    private final Scheduler evictionScheduler;
+    private final AtomicLong totalBytes = new AtomicLong();
+    private final AtomicLong fileCount = new AtomicLong();
+    private final AtomicBoolean evictionScheduled = new AtomicBoolean();
+    // writes, deletes and evictions of a path hold its lock until the index matches the disk
+    private final Object[] pathLocks = new Object[PATH_LOCKS];
 
     FileSystemImpl(@Nonnull final File root) throws IOException {
+        this(root, false);
+    }
+
+    FileSystemImpl(@Nonnull final File root, final boolean memoryMapped) throws IOException {
+        this(root, memoryMapped, null, Schedulers.io());
+    }
+
+    FileSystemImpl(@Nonnull final File root,
+                   final boolean memoryMapped,
+                   @Nullable DiskQuota quota,
+                   @Nonnull Scheduler evictionScheduler) throws IOException {
         this.root = root;
+        this.quota = quota;
+        this.evictionScheduler = evictionScheduler;
+        for (int i = 0; i < PATH_LOCKS; i++) {
+            pathLocks[i] = new Object();
+        }
 
-        this.files = newBuilder().maximumSize(20)
+        this.files = newBuilder().maximumSize(OPEN_FILES)
+                .removalListener(new RemovalListener<String, FSFile>() {
+                    @Override
+                    public void onRemoval(@Nonnull RemovalNotification<String, FSFile> notification) {
+                        FSFile file = notification.getValue();
+                        if (file != null) {
+                            file.releaseMapping();
+                        }
+                    }
+                })
                 .build(new CacheLoader<String, FSFile>() {
                     @Nonnull
                     @Override
                     public FSFile load(@Nonnull String path) throws IOException {
-                        return new FSFile(root, path);
+                        return new FSFile(root, path, memoryMapped);
                     }
                 });
 
         util.createParentDirs(root);
+        buildIndex();
+        evictIfExceeded();
     }
 
     @Nonnull
     @Override
     public BufferedSource read(@Nonnull String path) throws FileNotFoundException {
-        return getFile(path).source();
+        String cleanPath = cleanPath(path);
+        FileMetadata metadata = index.get(cleanPath);
+        if (metadata == null) {
+            throw new FileNotFoundException(cleanPath);
+        }
+        if (quota != null) {
+            metadata.lastAccess = System.currentTimeMillis();
+        }
+        return files.getUnchecked(cleanPath).source();
     }
 
     @Override
     public void write(@Nonnull String path, BufferedSource source) throws IOException {
-        getFile(path).write(source);
+        String cleanPath = cleanPath(path);
+        synchronized (lockFor(cleanPath)) {
+            FSFile file = files.getUnchecked(cleanPath);
+            file.write(source);
+            track(cleanPath, new FileMetadata(file.length(), file.lastModified()));
+        }
+        evictIfExceeded();
     }
 
     @Override
     public void delete(@Nonnull String path) throws IOException {
-        getFile(path).delete();
+        String cleanPath = cleanPath(path);
+        synchronized (lockFor(cleanPath)) {
+            files.getUnchecked(cleanPath).delete();
+            untrack(cleanPath);
+        }
+        if (!isMetadata(cleanPath)) {
+            deleteMetadata(cleanPath);
+        }
     }
 
     @Nonnull
     @Override
     public Collection<String> list(@Nonnull String directory) throws FileNotFoundException {
-        Collection<FSFile> foundFiles = findFiles(directory);
-        Collection<String> names = new ArrayList<>(foundFiles.size());
-        for (FSFile foundFile : foundFiles) {
-            names.add(foundFile.path());
+        List<String> paths = new ArrayList<>();
+        boolean metadata = isMetadata(cleanPath(directory));
+        for (String path : findFiles(directory).keySet()) {
+            if (metadata || !isMetadata(path)) {
+                paths.add(path);
+            }
         }
-        return names;
+        return paths;
     }
 
     @Override
     public void deleteAll(@Nonnull String directory) throws FileNotFoundException {
-        Collection<FSFile> foundFiles = findFiles(directory);
-        for (FSFile foundFile : foundFiles) {
-            foundFile.delete();
+        for (String path : findFiles(directory).keySet()) {
+            deleteIndexed(path);
+        }
+        String cleanDirectory = cleanPath(directory);
+        if (!isMetadata(cleanDirectory) && !"/".equals(cleanDirectory)) {
+            for (String path : findFiles(METADATA_ROOT + cleanDirectory).keySet()) {
+                deleteIndexed(path);
+            }
         }
     }
 
     @Override
     public boolean exists(@Nonnull String path) {
-        return getFile(path).exists();
+        return index.containsKey(cleanPath(path));
+    }
+
+    @Override
+    public void touch(@Nonnull String path) throws IOException {
+        String cleanPath = cleanPath(path);
+        synchronized (lockFor(cleanPath)) {
+            if (!index.containsKey(cleanPath)) {
+                throw new FileNotFoundException(cleanPath);
+            }
+            FSFile file = files.getUnchecked(cleanPath);
+            file.touch();
+            track(cleanPath, new FileMetadata(file.length(), file.lastModified()));
+        }
     }
 
     @Override
     public RecordState getRecordState(@Nonnull TimeUnit expirationUnit, long expirationDuration, @Nonnull String path) {
-        FSFile file = getFile(path);
-        if (!file.exists()) {
+        FileMetadata metadata = index.get(cleanPath(path));
+        if (metadata == null) {
             return RecordState.MISSING;
         }
         long now = System.currentTimeMillis();
         long cuttOffPoint = now - TimeUnit.MILLISECONDS.convert(expirationDuration, expirationUnit);
-        if (file.lastModified() < cuttOffPoint) {
+        if (metadata.lastModified < cuttOffPoint) {
             return RecordState.STALE;
         } else {
             return RecordState.FRESH;
         }
     }
 
-    @Nullable
-    private FSFile getFile(@Nonnull String path) {
-        return files.getUnchecked(cleanPath(path));
-    }
-
     @Nonnull
     private String cleanPath(@Nonnull String dirty) {
         return util.simplifyPath(dirty);
     }
 
+    private static boolean isMetadata(@Nonnull String cleanPath) {
+        return cleanPath.startsWith(METADATA_ROOT + "/") || cleanPath.equals(METADATA_ROOT);
+    }
+
+    private void deleteMetadata(@Nonnull String cleanPath) {
+        String metadataPath = METADATA_ROOT + cleanPath;
+        if (index.containsKey(metadataPath)) {
+            deleteIndexed(metadataPath);
+        }
+    }
+
+    private void deleteIndexed(@Nonnull String cleanPath) {
+        synchronized (lockFor(cleanPath)) {
+            files.getUnchecked(cleanPath).delete();
+            untrack(cleanPath);
+        }
+    }
+
     @Nonnull
-    private Collection<FSFile> findFiles(@Nonnull String path) throws FileNotFoundException {
-        File searchRoot = new File(root, util.simplifyPath(path));
-        if (searchRoot.exists() && searchRoot.isFile()) {
+    private ConcurrentNavigableMap<String, FileMetadata> findFiles(@Nonnull String path) throws FileNotFoundException {
+        String directory = cleanPath(path);
+        if (index.containsKey(directory)) {
             throw new FileNotFoundException(format("expecting a directory at %s, instead found a file", path));
         }
+        String prefix = directory.endsWith("/") ? directory : directory + "/";
+        return index.subMap(prefix, prefix + Character.MAX_VALUE);
+    }
 
-        Collection<FSFile> foundFiles = new ArrayList<>();
-        BreadthFirstFileTreeIterator iterator = new BreadthFirstFileTreeIterator(searchRoot);
+    private void buildIndex() throws IOException {
+        if (NIO_FILES) {
+            NioFileTreeWalker.walk(root, new NioFileTreeWalker.Visitor() {
+                @Override
+                public void visit(@Nonnull String path, long size, long lastModified) {
+                    track(cleanPath(path), new FileMetadata(size, lastModified));
+                }
+            });
+            return;
+        }
+        int rootLength = root.getPath().length();
+        BreadthFirstFileTreeIterator iterator = new BreadthFirstFileTreeIterator(root);
         while (iterator.hasNext()) {
             File file = (File) iterator.next();
-            foundFiles.add(files.getUnchecked(util.simplifyPath(file.getPath()
-                    .replaceFirst(root.getPath(), ""))));
+            track(cleanPath(file.getPath().substring(rootLength)),
+                    new FileMetadata(file.length(), file.lastModified()));
+        }
+    }
+
+    private static boolean hasNioFiles() {
+        try {
+            Class.forName("java.nio.file.Files");
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    @Nonnull
+    private Object lockFor(@Nonnull String path) {
+        return pathLocks[(path.hashCode() & Integer.MAX_VALUE) % PATH_LOCKS];
+    }
+
+    private void track(@Nonnull String path, @Nonnull FileMetadata metadata) {
+        FileMetadata previous = index.put(path, metadata);
+        if (isMetadata(path)) {
+            return;
+        }
+        if (previous == null) {
+            fileCount.incrementAndGet();
+            totalBytes.addAndGet(metadata.size);
+        } else {
+            totalBytes.addAndGet(metadata.size - previous.size);
+        }
+    }
+
+    private void untrack(@Nonnull String path) {
+        FileMetadata removed = index.remove(path);
+        if (removed != null && !isMetadata(path)) {
+            untracked(removed);
+        }
+    }
+
+    private void untracked(@Nonnull FileMetadata removed) {
+        fileCount.decrementAndGet();
+        totalBytes.addAndGet(-removed.size);
+    }
+
+    private void evictIfExceeded() {
+        if (quota == null || !quota.isExceeded(totalBytes.get(), fileCount.get())
+                || !evictionScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        evictionScheduler.scheduleDirect(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    evict(quota);
+                } finally {
+                    evictionScheduled.set(false);
+                }
+                // writes which went over the quota while evicting did not schedule an eviction
+                evictIfExceeded();
+            }
+        });
+    }
+
+    /**
+     * deletes stale files, oldest first, then the least recently used ones until the files are trimmed
+     */
+    private void evict(@Nonnull DiskQuota quota) {
+        long staleBefore = quota.getStaleAfter() < 0 ? Long.MIN_VALUE
+                : System.currentTimeMillis() - quota.getStaleAfterUnit().toMillis(quota.getStaleAfter());
+        List<Candidate> candidates = new ArrayList<>();
+        for (Map.Entry<String, FileMetadata> entry : index.entrySet()) {
+            if (isMetadata(entry.getKey())) {
+                continue;
+            }
+            candidates.add(new Candidate(entry.getKey(), entry.getValue(), staleBefore));
+        }
+        Collections.sort(candidates, Candidate.EVICTION_ORDER);
+
+        DiskEvictionListener listener = quota.getEvictionListener();
+        for (Candidate candidate : candidates) {
+            if (quota.isTrimmed(totalBytes.get(), fileCount.get())) {
+                return;
+            }
+            synchronized (lockFor(candidate.path)) {
+                // skip files written or deleted since the candidates were picked
+                if (!index.remove(candidate.path, candidate.metadata)) {
+                    continue;
+                }
+                untracked(candidate.metadata);
+                try {
+                    files.getUnchecked(candidate.path).delete();
+                } catch (IllegalStateException alreadyDeleted) {
+                    // removed from under the file system, nothing left to evict
+                }
+            }
+            try {
+                deleteMetadata(candidate.path);
+            } catch (IllegalStateException alreadyDeleted) {
+                // removed from under the file system as well
+            }
+            if (listener != null) {
+                listener.onEvicted(candidate.path, candidate.metadata.size,
+                        candidate.stale ? RecordState.STALE : RecordState.FRESH);
+            }
+        }
+    }
+
+    private static final class FileMetadata {
+        final long size;
+        final long lastModified;
+        // only kept up to date with a quota
+        volatile long lastAccess;
+
+        FileMetadata(long size, long lastModified) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.lastAccess = lastModified;
+        }
+    }
+
+    /**
+     * a file which may be evicted, with its last access time as it was when picked so that sorting is stable
+     */
+    private static final class Candidate {
+        static final Comparator<Candidate> EVICTION_ORDER = new Comparator<Candidate>() {
+            @Override
+            public int compare(Candidate first, Candidate second) {
+                if (first.stale != second.stale) {
+                    return first.stale ? -1 : 1;
+                }
+                return first.stale
+                        ? compareLongs(first.metadata.lastModified, second.metadata.lastModified)
+                        : compareLongs(first.lastAccess, second.lastAccess);
+            }
+        };
+
+        @Nonnull
+        final String path;
+        @Nonnull
+        final FileMetadata metadata;
+        final long lastAccess;
+        final boolean stale;
+
+        Candidate(@Nonnull String path, @Nonnull FileMetadata metadata, long staleBefore) {
+            this.path = path;
+            this.metadata = metadata;
+            this.lastAccess = metadata.lastAccess;
+            this.stale = metadata.lastModified < staleBefore;
+        }
+
+        private static int compareLongs(long first, long second) {
+            return first < second ? -1 : (first == second ? 0 : 1);
         }
-        return foundFiles;
     }
 }
@@ -0,0 +1,567 @@
+package com.nytimes.android.external.fs3.filesystem;
+
+import com.nytimes.android.external.fs3.Util;
+import com.nytimes.android.external.store3.base.RecordState;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import io.reactivex.Scheduler;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+import okio.Source;
+
+import static java.lang.String.format;
+
+/**
+ * implements a {@link FileSystem} as a log of records appended to a few segment files in a specific document root,
+ * instead of one file per path like {@link FileSystemImpl}. Writing a path appends a new version of it to the
+ * current segment and points an in-memory index at it, so neither a write nor {@link #getRecordState} touches the
+ * directory. Deleting a path appends a tombstone, touching it a record holding only its new timestamp.
+ * <p>
+ * The copy-on-write semantics of {@link FileSystem} hold because a version is never overwritten in place: a reader
+ * keeps reading the version it opened, writes become visible in the order their writers are closed and a segment
+ * file is only deleted once it has no more readers.
+ * <p>
+ * Every record carries a CRC32. When the file system is opened the index is rebuilt by replaying the segments, and a
+ * record torn by a crash at the end of the last segment is truncated away.
+ * <p>
+ * Once less than half of a full segment is used by current versions, its current versions, along with the last
+ * touches of current versions in older segments, are copied to the end of the log and the segment is deleted. That
+ * compaction runs on the given {@link Scheduler}.
+ * <p>
+ * The content of a write is buffered in memory before it is appended, so that a slow source does not hold up other
+ * writers.
+ */
+class LogStructuredFileSystem implements FileSystem {
+
+    static final long DEFAULT_MAX_SEGMENT_SIZE = 4 * 1024 * 1024;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final Pattern SEGMENT_NAME = Pattern.compile("segment-(\\d+)\\.log");
+    private static final int MAGIC = 0x4c534653;
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    private static final byte TOUCH = 3;
+    // magic, type, timestamp, path length and data length
+    private static final int HEADER_SIZE = 4 + 1 + 8 + 4 + 4;
+    private static final int CRC_SIZE = 4;
+
+    private final Util util = new Util();
+    @Nonnull
+    private final File root;
+    private final long maxSegmentSize;
+    @Nonnull
+    private final Scheduler compactionScheduler;
+    private final List<Segment> segments = new ArrayList<>();
+    // compacted segments whose file is still read or could not be deleted yet
+    private final List<Segment> obsoleteSegments = new ArrayList<>();
+    private final TreeMap<String, Location> index = new TreeMap<>();
+    private Segment active;
+    private FileOutputStream activeOut;
+    private boolean compactionScheduled;
+
+    LogStructuredFileSystem(@Nonnull File root,
+                            long maxSegmentSize,
+                            @Nonnull Scheduler compactionScheduler) throws IOException {
+        this.root = root;
+        this.maxSegmentSize = maxSegmentSize;
+        this.compactionScheduler = compactionScheduler;
+
+        if (!root.isDirectory() && !root.mkdirs()) {
+            throw new IOException("Unable to create " + root);
+        }
+        recover();
+    }
+
+    @Nonnull
+    @Override
+    public BufferedSource read(@Nonnull String path) throws FileNotFoundException {
+        Location location;
+        synchronized (this) {
+            location = index.get(cleanPath(path));
+            if (location == null) {
+                throw new FileNotFoundException(path);
+            }
+            location.segment.readers++;
+        }
+        try {
+            FileInputStream in = new FileInputStream(location.segment.file);
+            in.getChannel().position(location.dataOffset);
+            return Okio.buffer(new VersionSource(Okio.source(in), location));
+        } catch (IOException e) {
+            release(location.segment);
+            FileNotFoundException notFound = new FileNotFoundException(path);
+            notFound.initCause(e);
+            throw notFound;
+        }
+    }
+
+    @Override
+    public void write(@Nonnull String path, BufferedSource source) throws IOException {
+        byte[] data;
+        try {
+            data = source.readByteArray();
+        } catch (Exception e) {
+            throw new IOException("unable to write to file", e);
+        } finally {
+            source.close();
+        }
+        synchronized (this) {
+            append(PUT, cleanPath(path), System.currentTimeMillis(), data);
+            scheduleCompaction();
+        }
+    }
+
+    @Override
+    public synchronized void delete(@Nonnull String path) throws IOException {
+        String cleanPath = cleanPath(path);
+        String metadataPath = METADATA_ROOT + cleanPath;
+        boolean hasMetadata = !isMetadata(cleanPath) && index.containsKey(metadataPath);
+        if (!index.containsKey(cleanPath) && !hasMetadata) {
+            return;
+        }
+        if (index.containsKey(cleanPath)) {
+            append(DELETE, cleanPath, System.currentTimeMillis(), new byte[0]);
+        }
+        if (hasMetadata) {
+            append(DELETE, metadataPath, System.currentTimeMillis(), new byte[0]);
+        }
+        scheduleCompaction();
+    }
+
+    @Override
+    public synchronized void deleteAll(@Nonnull String directory) throws IOException {
+        List<String> paths = new ArrayList<>(findPaths(directory));
+        String cleanDirectory = cleanPath(directory);
+        if (!isMetadata(cleanDirectory) && !"/".equals(cleanDirectory)) {
+            paths.addAll(findPaths(METADATA_ROOT + cleanDirectory));
+        }
+        for (String path : paths) {
+            append(DELETE, path, System.currentTimeMillis(), new byte[0]);
+        }
+        scheduleCompaction();
+    }
+
+    @Override
+    public synchronized void touch(@Nonnull String path) throws IOException {
+        String cleanPath = cleanPath(path);
+        if (!index.containsKey(cleanPath)) {
+            throw new FileNotFoundException(path);
+        }
+        append(TOUCH, cleanPath, System.currentTimeMillis(), new byte[0]);
+        scheduleCompaction();
+    }
+
+    @Nonnull
+    @Override
+    public synchronized Collection<String> list(@Nonnull String directory) throws FileNotFoundException {
+        Collection<String> paths = findPaths(directory);
+        if (!isMetadata(cleanPath(directory))) {
+            Iterator<String> iterator = paths.iterator();
+            while (iterator.hasNext()) {
+                if (isMetadata(iterator.next())) {
+                    iterator.remove();
+                }
+            }
+        }
+        return paths;
+    }
+
+    @Override
+    public synchronized boolean exists(@Nonnull String path) {
+        return index.containsKey(cleanPath(path));
+    }
+
+    @Override
+    public RecordState getRecordState(@Nonnull TimeUnit expirationUnit, long expirationDuration, @Nonnull String path) {
+        Location location;
+        synchronized (this) {
+            location = index.get(cleanPath(path));
+        }
+        if (location == null) {
+            return RecordState.MISSING;
+        }
+        long cutOffPoint = System.currentTimeMillis() - TimeUnit.MILLISECONDS.convert(expirationDuration,
+                expirationUnit);
+        return location.timestamp < cutOffPoint ? RecordState.STALE : RecordState.FRESH;
+    }
+
+    /**
+     * copies the current versions out of every full segment which is at least half obsolete and deletes the
+     * segment once it has no more readers
+     */
+    synchronized void compact() throws IOException {
+        for (Segment segment : new ArrayList<>(obsoleteSegments)) {
+            deleteIfUnread(segment);
+        }
+        for (Segment segment : new ArrayList<>(segments)) {
+            if (segment != active && segment.liveBytes * 2 < segment.size) {
+                compact(segment);
+            }
+        }
+    }
+
+    synchronized int segmentCount() {
+        return segments.size();
+    }
+
+    private void compact(@Nonnull final Segment segment) throws IOException {
+        final boolean hasOlderSegments = hasOlderSegments(segment);
+        replay(segment, new RecordVisitor() {
+            @Override
+            public void visit(byte type, String path, long timestamp, long offset, byte[] data) throws IOException {
+                Location location = index.get(path);
+                boolean current = type == PUT
+                        && location != null && location.segment == segment && location.recordOffset == offset;
+                // a tombstone only matters while an older segment may still hold a version of its path
+                boolean shadowing = type == DELETE && location == null && hasOlderSegments;
+                // the last touch of a version kept in an older segment would be lost along with this one
+                boolean lastTouch = type == TOUCH && location != null && location.segment.id < segment.id
+                        && location.timestamp == timestamp;
+                if (current) {
+                    // copied with the time it was last touched, touches of it are not copied
+                    append(type, path, location.timestamp, data);
+                } else if (shadowing || lastTouch) {
+                    append(type, path, timestamp, data);
+                }
+            }
+        });
+        segments.remove(segment);
+        segment.obsolete = true;
+        obsoleteSegments.add(segment);
+        deleteIfUnread(segment);
+    }
+
+    /**
+     * @return whether a file older than segment may still be replayed, including those of compacted segments which
+     * were not deleted yet
+     */
+    private boolean hasOlderSegments(@Nonnull Segment segment) {
+        if (segments.indexOf(segment) > 0) {
+            return true;
+        }
+        for (Segment obsolete : obsoleteSegments) {
+            if (obsolete.id < segment.id) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void scheduleCompaction() {
+        if (compactionScheduled || !hasObsoleteSegment()) {
+            return;
+        }
+        compactionScheduled = true;
+        compactionScheduler.scheduleDirect(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (LogStructuredFileSystem.this) {
+                    compactionScheduled = false;
+                    try {
+                        compact();
+                    } catch (IOException ignored) {
+                        // obsolete versions are kept around until the next compaction
+                    }
+                }
+            }
+        });
+    }
+
+    private boolean hasObsoleteSegment() {
+        for (Segment segment : segments) {
+            if (segment != active && segment.liveBytes * 2 < segment.size) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void append(byte type, @Nonnull String path, long timestamp, @Nonnull byte[] data) throws IOException {
+        byte[] pathBytes = path.getBytes(UTF_8);
+        Buffer record = new Buffer()
+                .writeInt(MAGIC)
+                .writeByte(type)
+                .writeLong(timestamp)
+                .writeInt(pathBytes.length)
+                .writeInt(data.length)
+                .write(pathBytes)
+                .write(data);
+        CRC32 crc = new CRC32();
+        crc.update(record.snapshot().toByteArray(), 4, (int) record.size() - 4);
+        record.writeInt((int) crc.getValue());
+
+        long recordOffset = active.size;
+        long recordSize = record.size();
+        try {
+            record.writeTo(activeOut);
+        } catch (IOException e) {
+            // drop whatever part of the record made it to disk
+            activeOut.getChannel().truncate(recordOffset);
+            throw e;
+        }
+        active.size += recordSize;
+        apply(type, path, timestamp, active, recordOffset, data.length);
+
+        if (active.size >= maxSegmentSize) {
+            activeOut.close();
+            openActive(active.id + 1);
+        }
+    }
+
+    private void apply(byte type, @Nonnull String path, long timestamp, @Nonnull Segment segment,
+                       long recordOffset, int dataLength) {
+        if (type == TOUCH) {
+            Location location = index.get(path);
+            if (location != null) {
+                location.timestamp = timestamp;
+            }
+            return;
+        }
+        Location previous = index.remove(path);
+        if (previous != null) {
+            previous.segment.liveBytes -= previous.recordSize();
+        }
+        if (type == PUT) {
+            Location location = new Location(segment, path, recordOffset, dataLength, timestamp);
+            index.put(path, location);
+            segment.liveBytes += location.recordSize();
+        }
+    }
+
+    private void recover() throws IOException {
+        Map<Long, File> files = new HashMap<>();
+        File[] children = root.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                Matcher matcher = SEGMENT_NAME.matcher(child.getName());
+                if (matcher.matches()) {
+                    files.put(Long.parseLong(matcher.group(1)), child);
+                }
+            }
+        }
+        List<Long> ids = new ArrayList<>(files.keySet());
+        Collections.sort(ids);
+
+        for (final Long id : ids) {
+            final Segment segment = new Segment(id, files.get(id));
+            segments.add(segment);
+            segment.size = replay(segment, new RecordVisitor() {
+                @Override
+                public void visit(byte type, String path, long timestamp, long offset, byte[] data) {
+                    apply(type, path, timestamp, segment, offset, data.length);
+                }
+            });
+        }
+
+        if (segments.isEmpty()) {
+            openActive(0);
+        } else {
+            active = segments.get(segments.size() - 1);
+            RandomAccessFile file = new RandomAccessFile(active.file, "rw");
+            try {
+                // a crash may have left a torn record behind
+                file.setLength(active.size);
+            } finally {
+                file.close();
+            }
+            activeOut = new FileOutputStream(active.file, true);
+        }
+    }
+
+    private void openActive(long id) throws IOException {
+        active = new Segment(id, new File(root, format("segment-%d.log", id)));
+        activeOut = new FileOutputStream(active.file, true);
+        segments.add(active);
+    }
+
+    /**
+     * visits the intact records of a segment in order, stopping at the first torn or corrupt one
+     *
+     * @return offset right after the last intact record
+     */
+    private long replay(@Nonnull Segment segment, @Nonnull RecordVisitor visitor) throws IOException {
+        long length = segment.file.length();
+        long offset = 0;
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(segment.file)));
+        try {
+            while (offset + HEADER_SIZE + CRC_SIZE <= length) {
+                if (in.readInt() != MAGIC) {
+                    break;
+                }
+                byte type = in.readByte();
+                long timestamp = in.readLong();
+                int pathLength = in.readInt();
+                int dataLength = in.readInt();
+                if ((type != PUT && type != DELETE && type != TOUCH) || pathLength < 0 || dataLength < 0
+                        || offset + HEADER_SIZE + pathLength + dataLength + CRC_SIZE > length) {
+                    break;
+                }
+                byte[] pathBytes = new byte[pathLength];
+                byte[] data = new byte[dataLength];
+                in.readFully(pathBytes);
+                in.readFully(data);
+
+                CRC32 crc = new CRC32();
+                crc.update(new Buffer().writeByte(type).writeLong(timestamp).writeInt(pathLength)
+                        .writeInt(dataLength).readByteArray());
+                crc.update(pathBytes);
+                crc.update(data);
+                if (in.readInt() != (int) crc.getValue()) {
+                    break;
+                }
+
+                visitor.visit(type, new String(pathBytes, UTF_8), timestamp, offset, data);
+                offset += HEADER_SIZE + pathLength + dataLength + CRC_SIZE;
+            }
+        } catch (EOFException ignored) {
+            // torn record, everything before it is intact
+        } finally {
+            in.close();
+        }
+        return offset;
+    }
+
+    private synchronized void release(@Nonnull Segment segment) {
+        segment.readers--;
+        deleteIfUnread(segment);
+    }
+
+    /**
+     * deletes the file of a compacted segment once it has no more readers. A file which cannot be deleted is tried
+     * again on the next compaction, until then it is harmless: every current version it holds was copied to a later
+     * segment, which wins when the file is replayed.
+     */
+    private void deleteIfUnread(@Nonnull Segment segment) {
+        if (segment.obsolete && segment.readers == 0 && (segment.file.delete() || !segment.file.exists())) {
+            obsoleteSegments.remove(segment);
+        }
+    }
+
+    @Nonnull
+    private Collection<String> findPaths(@Nonnull String directory) throws FileNotFoundException {
+        String cleanDirectory = cleanPath(directory);
+        if (index.containsKey(cleanDirectory)) {
+            throw new FileNotFoundException(format("expecting a directory at %s, instead found a file", directory));
+        }
+        String prefix = cleanDirectory.endsWith("/") ? cleanDirectory : cleanDirectory + "/";
+        SortedMap<String, Location> children = index.subMap(prefix, prefix + Character.MAX_VALUE);
+        return new ArrayList<>(children.keySet());
+    }
+
+    @Nonnull
+    private String cleanPath(@Nonnull String dirty) {
+        return util.simplifyPath(dirty);
+    }
+
+    private static boolean isMetadata(@Nonnull String cleanPath) {
+        return cleanPath.startsWith(METADATA_ROOT + "/") || cleanPath.equals(METADATA_ROOT);
+    }
+
+    private interface RecordVisitor {
+        void visit(byte type, String path, long timestamp, long offset, byte[] data) throws IOException;
+    }
+
+    private static final class Segment {
+        final long id;
+        @Nonnull
+        final File file;
+        long size;
+        long liveBytes;
+        int readers;
+        boolean obsolete;
+
+        Segment(long id, @Nonnull File file) {
+            this.id = id;
+            this.file = file;
+        }
+    }
+
+    private static final class Location {
+        @Nonnull
+        final Segment segment;
+        final long recordOffset;
+        final long dataOffset;
+        final int dataLength;
+        final int pathLength;
+        // moved forward by touches
+        volatile long timestamp;
+
+        Location(@Nonnull Segment segment, @Nonnull String path, long recordOffset, int dataLength, long timestamp) {
+            this.segment = segment;
+            this.recordOffset = recordOffset;
+            this.pathLength = path.getBytes(UTF_8).length;
+            this.dataOffset = recordOffset + HEADER_SIZE + pathLength;
+            this.dataLength = dataLength;
+            this.timestamp = timestamp;
+        }
+
+        long recordSize() {
+            return HEADER_SIZE + pathLength + dataLength + CRC_SIZE;
+        }
+    }
+
+    /**
+     * reads a single version out of its segment and lets go of the segment when closed
+     */
+    private final class VersionSource extends ForwardingSource {
+        @Nullable
+        private Segment segment;
+        private long remaining;
+
+        VersionSource(@Nonnull Source delegate, @Nonnull Location location) {
+            super(delegate);
+            this.segment = location.segment;
+            this.remaining = location.dataLength;
+        }
+
+        @Override
+        public long read(@Nonnull Buffer sink, long byteCount) throws IOException {
+            if (remaining == 0) {
+                return -1;
+            }
+            long read = super.read(sink, Math.min(byteCount, remaining));
+            if (read == -1) {
+                throw new EOFException();
+            }
+            remaining -= read;
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            super.close();
+            if (segment != null) {
+                release(segment);
+                segment = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package com.nytimes.android.external.fs3.filesystem;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+
+import javax.annotation.Nonnull;
+
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.Okio;
+import okio.Sink;
+import okio.Source;
+import okio.Timeout;
+
+/**
+ * LZ77 compression in the spirit of LZ4: greedy matching of 4 byte sequences found through a hash table, encoded
+ * as literal runs and back references of up to 64 KiB, with no entropy coding. This trades compression ratio for
+ * speed.
+ * <p>
+ * Content is compressed in independent blocks of up to {@link #BLOCK_SIZE} bytes. Each block is a type byte,
+ * its uncompressed and its encoded length as ints, and its encoded bytes. Blocks which do not compress are
+ * stored as they are.
+ */
+final class LzCodec implements CompressionCodec {
+
+    static final int BLOCK_SIZE = 64 * 1024;
+
+    private static final byte STORED = 0;
+    private static final byte COMPRESSED = 1;
+    private static final int MIN_MATCH = 4;
+    private static final int MAX_OFFSET = 0xFFFF;
+    private static final int HASH_BITS = 14;
+    private static final int RUN_MASK = 15;
+
+    @Override
+    public byte id() {
+        return CompressionCodecs.LZ_ID;
+    }
+
+    @Nonnull
+    @Override
+    public Sink compress(@Nonnull Sink sink) {
+        return new LzSink(Okio.buffer(sink));
+    }
+
+    @Nonnull
+    @Override
+    public Source decompress(@Nonnull Source source) {
+        return new LzSource(Okio.buffer(source));
+    }
+
+    static int maxCompressedLength(int length) {
+        return length + length / 255 + 16;
+    }
+
+    /**
+     * @return number of bytes written to dst, which must hold at least {@link #maxCompressedLength(int)}
+     */
+    static int compress(@Nonnull byte[] src, int length, @Nonnull byte[] dst, @Nonnull int[] table) {
+        Arrays.fill(table, -1);
+        int out = 0;
+        int anchor = 0;
+        int i = 0;
+        while (i + MIN_MATCH <= length) {
+            int sequence = readInt(src, i);
+            int hash = (sequence * 0x9E3779B1) >>> (32 - HASH_BITS);
+            int reference = table[hash];
+            table[hash] = i;
+            if (reference < 0 || i - reference > MAX_OFFSET || readInt(src, reference) != sequence) {
+                i++;
+                continue;
+            }
+            int matchLength = MIN_MATCH;
+            while (i + matchLength < length && src[reference + matchLength] == src[i + matchLength]) {
+                matchLength++;
+            }
+            out = writeSequence(src, anchor, i - anchor, dst, out, matchLength - MIN_MATCH);
+            int offset = i - reference;
+            dst[out++] = (byte) offset;
+            dst[out++] = (byte) (offset >>> 8);
+            if (matchLength - MIN_MATCH >= RUN_MASK) {
+                out = writeRun(dst, out, matchLength - MIN_MATCH - RUN_MASK);
+            }
+            i += matchLength;
+            anchor = i;
+        }
+        // the last sequence only has literals, the decoder stops after it
+        return writeSequence(src, anchor, length - anchor, dst, out, 0);
+    }
+
+    /**
+     * decompresses the block in src into dst, which must be exactly as long as the uncompressed block
+     */
+    static void decompress(@Nonnull byte[] src, int length, @Nonnull byte[] dst, int dstLength) throws IOException {
+        int in = 0;
+        int out = 0;
+        try {
+            while (in < length) {
+                int token = src[in++] & 0xFF;
+                int literals = token >>> 4;
+                if (literals == RUN_MASK) {
+                    int b;
+                    do {
+                        b = src[in++] & 0xFF;
+                        literals += b;
+                    } while (b == 0xFF);
+                }
+                System.arraycopy(src, in, dst, out, literals);
+                in += literals;
+                out += literals;
+                if (in == length) {
+                    break;
+                }
+                int offset = (src[in] & 0xFF) | (src[in + 1] & 0xFF) << 8;
+                in += 2;
+                int matchLength = token & RUN_MASK;
+                if (matchLength == RUN_MASK) {
+                    int b;
+                    do {
+                        b = src[in++] & 0xFF;
+                        matchLength += b;
+                    } while (b == 0xFF);
+                }
+                matchLength += MIN_MATCH;
+                if (offset == 0 || offset > out || out + matchLength > dstLength) {
+                    throw new IOException("corrupt lz block");
+                }
+                // byte by byte, a match may overlap the bytes it produces
+                for (int end = out + matchLength; out < end; out++) {
+                    dst[out] = dst[out - offset];
+                }
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException("corrupt lz block", e);
+        }
+        if (out != dstLength) {
+            throw new IOException("corrupt lz block");
+        }
+    }
+
+    private static int writeSequence(byte[] src, int start, int literals, byte[] dst, int out, int matchRun) {
+        dst[out++] = (byte) (Math.min(literals, RUN_MASK) << 4 | Math.min(matchRun, RUN_MASK));
+        if (literals >= RUN_MASK) {
+            out = writeRun(dst, out, literals - RUN_MASK);
+        }
+        System.arraycopy(src, start, dst, out, literals);
+        return out + literals;
+    }
+
+    private static int writeRun(byte[] dst, int out, int remaining) {
+        while (remaining >= 0xFF) {
+            dst[out++] = (byte) 0xFF;
+            remaining -= 0xFF;
+        }
+        dst[out++] = (byte) remaining;
+        return out;
+    }
+
+    private static void readFully(BufferedSource source, byte[] sink, int offset, int byteCount) throws IOException {
+        while (byteCount > 0) {
+            int read = source.read(sink, offset, byteCount);
+            if (read == -1) {
+                throw new EOFException();
+            }
+            offset += read;
+            byteCount -= read;
+        }
+    }
+
+    private static int readInt(byte[] src, int i) {
+        return (src[i] & 0xFF) | (src[i + 1] & 0xFF) << 8 | (src[i + 2] & 0xFF) << 16 | (src[i + 3] & 0xFF) << 24;
+    }
+
+    private static final class LzSink implements Sink {
+        private final BufferedSink sink;
+        private final byte[] block = new byte[BLOCK_SIZE];
+        private final byte[] encoded = new byte[maxCompressedLength(BLOCK_SIZE)];
+        private final int[] table = new int[1 << HASH_BITS];
+        private int size;
+        private boolean closed;
+
+        LzSink(@Nonnull BufferedSink sink) {
+            this.sink = sink;
+        }
+
+        @Override
+        public void write(@Nonnull Buffer source, long byteCount) throws IOException {
+            while (byteCount > 0) {
+                int count = (int) Math.min(byteCount, BLOCK_SIZE - size);
+                readFully(source, block, size, count);
+                size += count;
+                byteCount -= count;
+                if (size == BLOCK_SIZE) {
+                    writeBlock();
+                }
+            }
+        }
+
+        private void writeBlock() throws IOException {
+            if (size == 0) {
+                return;
+            }
+            int encodedLength = compress(block, size, encoded, table);
+            if (encodedLength < size) {
+                sink.writeByte(COMPRESSED).writeInt(size).writeInt(encodedLength).write(encoded, 0, encodedLength);
+            } else {
+                sink.writeByte(STORED).writeInt(size).writeInt(size).write(block, 0, size);
+            }
+            size = 0;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            writeBlock();
+            sink.flush();
+        }
+
+        @Nonnull
+        @Override
+        public Timeout timeout() {
+            return sink.timeout();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                writeBlock();
+            } finally {
+                sink.close();
+            }
+        }
+    }
+
+    private static final class LzSource implements Source {
+        private final BufferedSource source;
+        private final Buffer decoded = new Buffer();
+        private final byte[] block = new byte[BLOCK_SIZE];
+        private final byte[] encoded = new byte[maxCompressedLength(BLOCK_SIZE)];
+
+        LzSource(@Nonnull BufferedSource source) {
+            this.source = source;
+        }
+
+        @Override
+        public long read(@Nonnull Buffer sink, long byteCount) throws IOException {
+            if (decoded.size() == 0 && !readBlock()) {
+                return -1;
+            }
+            return decoded.read(sink, byteCount);
+        }
+
+        private boolean readBlock() throws IOException {
+            if (source.exhausted()) {
+                return false;
+            }
+            byte type = source.readByte();
+            int length = source.readInt();
+            int encodedLength = source.readInt();
+            if (length < 0 || length > BLOCK_SIZE || encodedLength < 0
+                    || encodedLength > maxCompressedLength(BLOCK_SIZE)) {
+                throw new IOException("corrupt lz block header");
+            }
+            if (type == STORED) {
+                if (encodedLength != length) {
+                    throw new IOException("corrupt lz block header");
+                }
+                source.readFully(decoded, length);
+                return true;
+            }
+            if (type != COMPRESSED) {
+                throw new IOException("unknown lz block type " + type);
+            }
+            source.require(encodedLength);
+            readFully(source, encoded, 0, encodedLength);
+            decompress(encoded, encodedLength, block, length);
+            decoded.write(block, 0, length);
+            return true;
+        }
+
+        @Nonnull
+        @Override
+        public Timeout timeout() {
+            return source.timeout();
+        }
+
+        @Override
+        public void close() throws IOException {
+            source.close();
+        }
+    }
+}
@@ -0,0 +1,382 @@
+package com.nytimes.android.external.fs3.filesystem;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ByteString;
+import okio.Okio;
+import okio.Options;
+import okio.Sink;
+import okio.Source;
+import okio.Timeout;
+
+/**
+ * a {@link BufferedSource} over a memory mapped file, as returned by a {@link FileSystem} created with
+ * {@link FileSystemFactory#createMemoryMapped(java.io.File)}.
+ * <p>
+ * Parsers which can consume a {@link ByteBuffer} should check for this type and read {@link #byteBuffer()} instead
+ * of the stream, which saves copying the content through okio segments. Either way the caller must close it.
+ */
+public final class MappedBufferedSource implements BufferedSource {
+
+    @Nonnull
+    private final ByteBuffer content;
+    @Nonnull
+    private final BufferedSource delegate;
+    @Nullable
+    private FileMapping mapping;
+
+    MappedBufferedSource(@Nonnull ByteBuffer content, @Nonnull FileMapping mapping) {
+        this.content = content;
+        this.mapping = mapping;
+        this.delegate = Okio.buffer(new ByteBufferSource(content.duplicate()));
+    }
+
+    /**
+     * @return a read-only view of the whole file, which is not affected by reading from this source. It must not be
+     * used once this source is closed.
+     */
+    @Nonnull
+    public ByteBuffer byteBuffer() {
+        return content.duplicate();
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+        synchronized (this) {
+            if (mapping != null) {
+                mapping.release();
+                mapping = null;
+            }
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return delegate.isOpen();
+    }
+
+    @Override
+    public long read(@Nonnull Buffer sink, long byteCount) throws IOException {
+        return delegate.read(sink, byteCount);
+    }
+
+    @Override
+    public int read(ByteBuffer sink) throws IOException {
+        return delegate.read(sink);
+    }
+
+    @Nonnull
+    @Override
+    public Timeout timeout() {
+        return delegate.timeout();
+    }
+
+    @Deprecated
+    @Nonnull
+    @Override
+    public Buffer buffer() {
+        return delegate.getBuffer();
+    }
+
+    @Nonnull
+    @Override
+    public Buffer getBuffer() {
+        return delegate.getBuffer();
+    }
+
+    @Override
+    public boolean exhausted() throws IOException {
+        return delegate.exhausted();
+    }
+
+    @Override
+    public void require(long byteCount) throws IOException {
+        delegate.require(byteCount);
+    }
+
+    @Override
+    public boolean request(long byteCount) throws IOException {
+        return delegate.request(byteCount);
+    }
+
+    @Override
+    public byte readByte() throws IOException {
+        return delegate.readByte();
+    }
+
+    @Override
+    public short readShort() throws IOException {
+        return delegate.readShort();
+    }
+
+    @Override
+    public short readShortLe() throws IOException {
+        return delegate.readShortLe();
+    }
+
+    @Override
+    public int readInt() throws IOException {
+        return delegate.readInt();
+    }
+
+    @Override
+    public int readIntLe() throws IOException {
+        return delegate.readIntLe();
+    }
+
+    @Override
+    public long readLong() throws IOException {
+        return delegate.readLong();
+    }
+
+    @Override
+    public long readLongLe() throws IOException {
+        return delegate.readLongLe();
+    }
+
+    @Override
+    public long readDecimalLong() throws IOException {
+        return delegate.readDecimalLong();
+    }
+
+    @Override
+    public long readHexadecimalUnsignedLong() throws IOException {
+        return delegate.readHexadecimalUnsignedLong();
+    }
+
+    @Override
+    public void skip(long byteCount) throws IOException {
+        delegate.skip(byteCount);
+    }
+
+    @Nonnull
+    @Override
+    public ByteString readByteString() throws IOException {
+        return delegate.readByteString();
+    }
+
+    @Nonnull
+    @Override
+    public ByteString readByteString(long byteCount) throws IOException {
+        return delegate.readByteString(byteCount);
+    }
+
+    @Override
+    public int select(@Nonnull Options options) throws IOException {
+        return delegate.select(options);
+    }
+
+    @Nonnull
+    @Override
+    public byte[] readByteArray() throws IOException {
+        return delegate.readByteArray();
+    }
+
+    @Nonnull
+    @Override
+    public byte[] readByteArray(long byteCount) throws IOException {
+        return delegate.readByteArray(byteCount);
+    }
+
+    @Override
+    public int read(@Nonnull byte[] sink) throws IOException {
+        return delegate.read(sink);
+    }
+
+    @Override
+    public void readFully(@Nonnull byte[] sink) throws IOException {
+        delegate.readFully(sink);
+    }
+
+    @Override
+    public int read(@Nonnull byte[] sink, int offset, int byteCount) throws IOException {
+        return delegate.read(sink, offset, byteCount);
+    }
+
+    @Override
+    public void readFully(@Nonnull Buffer sink, long byteCount) throws IOException {
+        delegate.readFully(sink, byteCount);
+    }
+
+    @Override
+    public long readAll(@Nonnull Sink sink) throws IOException {
+        return delegate.readAll(sink);
+    }
+
+    @Nonnull
+    @Override
+    public String readUtf8() throws IOException {
+        return delegate.readUtf8();
+    }
+
+    @Nonnull
+    @Override
+    public String readUtf8(long byteCount) throws IOException {
+        return delegate.readUtf8(byteCount);
+    }
+
+    @Nullable
+    @Override
+    public String readUtf8Line() throws IOException {
+        return delegate.readUtf8Line();
+    }
+
+    @Nonnull
+    @Override
+    public String readUtf8LineStrict() throws IOException {
+        return delegate.readUtf8LineStrict();
+    }
+
+    @Nonnull
+    @Override
+    public String readUtf8LineStrict(long limit) throws IOException {
+        return delegate.readUtf8LineStrict(limit);
+    }
+
+    @Override
+    public int readUtf8CodePoint() throws IOException {
+        return delegate.readUtf8CodePoint();
+    }
+
+    @Nonnull
+    @Override
+    public String readString(@Nonnull Charset charset) throws IOException {
+        return delegate.readString(charset);
+    }
+
+    @Nonnull
+    @Override
+    public String readString(long byteCount, @Nonnull Charset charset) throws IOException {
+        return delegate.readString(byteCount, charset);
+    }
+
+    @Override
+    public long indexOf(byte b) throws IOException {
+        return delegate.indexOf(b);
+    }
+
+    @Override
+    public long indexOf(byte b, long fromIndex) throws IOException {
+        return delegate.indexOf(b, fromIndex);
+    }
+
+    @Override
+    public long indexOf(byte b, long fromIndex, long toIndex) throws IOException {
+        return delegate.indexOf(b, fromIndex, toIndex);
+    }
+
+    @Override
+    public long indexOf(@Nonnull ByteString bytes) throws IOException {
+        return delegate.indexOf(bytes);
+    }
+
+    @Override
+    public long indexOf(@Nonnull ByteString bytes, long fromIndex) throws IOException {
+        return delegate.indexOf(bytes, fromIndex);
+    }
+
+    @Override
+    public long indexOfElement(@Nonnull ByteString targetBytes) throws IOException {
+        return delegate.indexOfElement(targetBytes);
+    }
+
+    @Override
+    public long indexOfElement(@Nonnull ByteString targetBytes, long fromIndex) throws IOException {
+        return delegate.indexOfElement(targetBytes, fromIndex);
+    }
+
+    @Override
+    public boolean rangeEquals(long offset, @Nonnull ByteString bytes) throws IOException {
+        return delegate.rangeEquals(offset, bytes);
+    }
+
+    @Override
+    public boolean rangeEquals(long offset, @Nonnull ByteString bytes, int bytesOffset, int byteCount)
+            throws IOException {
+        return delegate.rangeEquals(offset, bytes, bytesOffset, byteCount);
+    }
+
+    @Nonnull
+    @Override
+    public BufferedSource peek() {
+        return delegate.peek();
+    }
+
+    @Nonnull
+    @Override
+    public InputStream inputStream() {
+        final InputStream inputStream = delegate.inputStream();
+        return new InputStream() {
+            @Override
+            public int read() throws IOException {
+                return inputStream.read();
+            }
+
+            @Override
+            public int read(@Nonnull byte[] data, int offset, int byteCount) throws IOException {
+                return inputStream.read(data, offset, byteCount);
+            }
+
+            @Override
+            public int available() throws IOException {
+                return inputStream.available();
+            }
+
+            @Override
+            public void close() throws IOException {
+                MappedBufferedSource.this.close();
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return "MappedBufferedSource(" + delegate + ")";
+    }
+
+    /**
+     * copies the mapped content into okio segments as it is read
+     */
+    private static final class ByteBufferSource implements Source {
+        @Nonnull
+        private final ByteBuffer remaining;
+
+        ByteBufferSource(@Nonnull ByteBuffer remaining) {
+            this.remaining = remaining;
+        }
+
+        @Override
+        public long read(@Nonnull Buffer sink, long byteCount) throws IOException {
+            if (!remaining.hasRemaining()) {
+                return -1;
+            }
+            int limit = remaining.limit();
+            int count = (int) Math.min(byteCount, remaining.remaining());
+            remaining.limit(remaining.position() + count);
+            try {
+                return sink.write(remaining);
+            } finally {
+                remaining.limit(limit);
+            }
+        }
+
+        @Nonnull
+        @Override
+        public Timeout timeout() {
+            return Timeout.NONE;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
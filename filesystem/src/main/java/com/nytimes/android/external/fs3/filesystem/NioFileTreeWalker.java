@@ -0,0 +1,70 @@
+package com.nytimes.android.external.fs3.filesystem;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.EnumSet;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Walks the files under a directory with {@link Files#walkFileTree}, which reads the size and modification time
+ * of every file along with its directory entry, instead of the separate lookups of {@link File#isDirectory()},
+ * {@link File#length()} and {@link File#lastModified()} per file that {@link BreadthFirstFileTreeIterator} needs.
+ * <p>
+ * java.nio.file is missing before Android O, so this class must not be loaded without checking that
+ * java.nio.file.Files exists first, see {@link FileSystemImpl}.
+ */
+final class NioFileTreeWalker {
+
+    interface Visitor {
+        /**
+         * @param path path of the file relative to the root walked, starting with a slash
+         */
+        void visit(@Nonnull String path, long size, long lastModified);
+    }
+
+    private NioFileTreeWalker() {
+    }
+
+    /**
+     * visits every file under root, following links like {@link BreadthFirstFileTreeIterator} does. Files which
+     * cannot be read are skipped.
+     */
+    static void walk(@Nonnull File root, @Nonnull final Visitor visitor) throws IOException {
+        final Path rootPath = root.toPath();
+        if (!Files.isDirectory(rootPath)) {
+            return;
+        }
+        SimpleFileVisitor<Path> fileVisitor = new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                if (!attributes.isDirectory()) {
+                    visitor.visit(relativePath(rootPath, file), attributes.size(),
+                            attributes.lastModifiedTime().toMillis());
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exception) {
+                return FileVisitResult.CONTINUE;
+            }
+        };
+        Files.walkFileTree(rootPath, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE, fileVisitor);
+    }
+
+    @Nonnull
+    private static String relativePath(@Nonnull Path root, @Nonnull Path file) {
+        String relative = root.relativize(file).toString();
+        if (File.separatorChar != '/') {
+            relative = relative.replace(File.separatorChar, '/');
+        }
+        return "/" + relative;
+    }
+}
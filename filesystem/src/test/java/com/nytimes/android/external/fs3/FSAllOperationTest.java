@@ -9,6 +9,8 @@ import org.junit.Test;
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import io.reactivex.Observable;
 import okio.BufferedSource;
@@ -45,6 +47,30 @@ public class FSAllOperationTest {
         assertThat(observable.blockingLast().readUtf8()).isEqualTo(CHALLAH_CHALLAH);
     }
 
+    @Test
+    public void readAllInParallel() throws IOException {
+        File tempDir = createTempDir();
+        FileSystem fileSystem = FileSystemFactory.create(tempDir);
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            String data = CHALLAH + i;
+            fileSystem.write(FOLDER + "/" + INNER_FOLDER + "/key" + (char) ('a' + i), source(data));
+            expected.add(data);
+        }
+
+        List<String> ordered = new FSAllReader(fileSystem, 4, true).readAll(FOLDER)
+                .map(BufferedSource::readUtf8)
+                .toList()
+                .blockingGet();
+        assertThat(ordered).containsExactlyElementsOf(expected);
+
+        List<String> unordered = new FSAllReader(fileSystem, 4, false).readAll(FOLDER)
+                .map(BufferedSource::readUtf8)
+                .toList()
+                .blockingGet();
+        assertThat(unordered).containsOnlyElementsOf(expected).hasSize(expected.size());
+    }
+
     @Test
     public void deleteAll() throws IOException {
         File tempDir = createTempDir();
@@ -0,0 +1,81 @@
+package com.nytimes.android.external.fs3;
+
+import com.nytimes.android.external.fs3.filesystem.FileSystem;
+import com.nytimes.android.external.fs3.filesystem.FileSystemFactory;
+import com.nytimes.android.external.store3.base.Parser;
+import com.nytimes.android.external.store3.base.PendingWrite;
+import com.nytimes.android.external.store3.base.impl.BarCode;
+import com.nytimes.android.external.store3.base.impl.Store;
+import com.nytimes.android.external.store3.base.impl.StoreBuilder;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+
+import io.reactivex.Single;
+import okio.Buffer;
+import okio.BufferedSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FSTeeTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final BarCode barCode = new BarCode("type", "key");
+    private FileSystem fileSystem;
+    private FSTee<BarCode> tee;
+
+    @Before
+    public void setUp() throws IOException {
+        fileSystem = FileSystemFactory.create(folder.newFolder());
+        tee = new FSTee<>(fileSystem, key -> "/" + key.getType() + "/" + key.getKey());
+    }
+
+    @Test
+    public void commitWritesWhatWasReadAndWhatWasLeft() throws IOException {
+        PendingWrite<BufferedSource> write = tee.tee(barCode, new Buffer().writeUtf8("parsed and left"));
+
+        assertThat(write.raw().readUtf8(6)).isEqualTo("parsed");
+        write.raw().close();
+        assertThat(fileSystem.exists("/type/key")).isFalse();
+
+        write.commit();
+        assertThat(fileSystem.read("/type/key").readUtf8()).isEqualTo("parsed and left");
+    }
+
+    @Test
+    public void abortKeepsThePreviousRecord() throws IOException {
+        fileSystem.write("/type/key", new Buffer().writeUtf8("previous"));
+        PendingWrite<BufferedSource> write = tee.tee(barCode, new Buffer().writeUtf8("broken"));
+
+        write.raw().readUtf8();
+        write.abort();
+
+        assertThat(fileSystem.read("/type/key").readUtf8()).isEqualTo("previous");
+    }
+
+    @Test
+    public void storesParseWhileWriting() throws IOException {
+        Parser<BufferedSource, String> parser = source -> {
+            try {
+                return source.readUtf8();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        };
+        Store<String, BarCode> store = StoreBuilder.<BarCode, BufferedSource, String>parsedWithKey()
+                .fetcher(key -> Single.<BufferedSource>just(new Buffer().writeUtf8("{\"value\":1}")))
+                .persister(FileSystemPersister.create(fileSystem, key -> "/" + key.getType() + "/" + key.getKey()))
+                .parser(parser)
+                .parseWhileWriting()
+                .open();
+
+        assertThat(store.get(barCode).blockingGet()).isEqualTo("{\"value\":1}");
+        assertThat(fileSystem.read("/type/key").readUtf8()).isEqualTo("{\"value\":1}");
+    }
+}
@@ -0,0 +1,100 @@
+package com.nytimes.android.external.fs3;
+
+import com.nytimes.android.external.fs3.filesystem.FileSystem;
+import com.nytimes.android.external.fs3.filesystem.FileSystemFactory;
+import com.nytimes.android.external.store3.base.RecordState;
+import com.nytimes.android.external.store3.base.Validators;
+import com.nytimes.android.external.store3.base.impl.BarCode;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import okio.Buffer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FSValidatorsTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final BarCode barCode = new BarCode("type", "key");
+    private final Validators validators = new Validators("\"abc\"", "Wed, 21 Oct 2015 07:28:00 GMT");
+    private File root;
+    private FileSystem fileSystem;
+    private FileSystemRecordPersister<BarCode> persister;
+
+    @Before
+    public void setUp() throws IOException {
+        root = folder.newFolder();
+        open();
+    }
+
+    @Test
+    public void validatorsAreKeptAlongsideTheirRecord() throws IOException {
+        persister.write(barCode, new Buffer().writeUtf8("data")).blockingGet();
+        persister.setValidators(barCode, validators);
+
+        assertThat(persister.getValidators(barCode)).isEqualTo(validators);
+        assertThat(fileSystem.list("/type")).containsExactly("/type/key");
+
+        persister.setValidators(barCode, new Validators(null, "Thu, 22 Oct 2015 07:28:00 GMT"));
+        assertThat(persister.getValidators(barCode)).isEqualTo(new Validators(null, "Thu, 22 Oct 2015 07:28:00 GMT"));
+
+        persister.setValidators(barCode, null);
+        assertThat(persister.getValidators(barCode)).isNull();
+    }
+
+    @Test
+    public void recordsWithoutDataHaveNoValidators() throws IOException {
+        persister.write(barCode, new Buffer().writeUtf8("data")).blockingGet();
+        persister.setValidators(barCode, validators);
+
+        fileSystem.delete("/type/key");
+
+        assertThat(persister.getValidators(barCode)).isNull();
+    }
+
+    @Test
+    public void validatorsAreNeitherListedNorKeptPastTheirRecord() throws IOException {
+        persister.write(barCode, new Buffer().writeUtf8("data")).blockingGet();
+        persister.setValidators(barCode, validators);
+        String path = FSValidators.validatorsPath("/type/key");
+
+        assertThat(fileSystem.list("/")).containsExactly("/type/key");
+
+        fileSystem.delete("/type/key");
+        assertThat(fileSystem.exists(path)).isFalse();
+
+        persister.write(barCode, new Buffer().writeUtf8("data")).blockingGet();
+        persister.setValidators(barCode, validators);
+        fileSystem.deleteAll("/type");
+        assertThat(fileSystem.exists(path)).isFalse();
+    }
+
+    @Test
+    public void touchMakesAStaleRecordFresh() throws IOException {
+        persister.write(barCode, new Buffer().writeUtf8("data")).blockingGet();
+        File file = new File(root, "type/key");
+        assertThat(file.setLastModified(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(2))).isTrue();
+        open();
+        assertThat(persister.getRecordState(barCode)).isEqualTo(RecordState.STALE);
+
+        persister.touch(barCode);
+
+        assertThat(persister.getRecordState(barCode)).isEqualTo(RecordState.FRESH);
+        assertThat(fileSystem.read("/type/key").readUtf8()).isEqualTo("data");
+    }
+
+    private void open() throws IOException {
+        fileSystem = FileSystemFactory.create(root);
+        persister = FileSystemRecordPersister.create(fileSystem, key -> "/" + key.getType() + "/" + key.getKey(),
+                1, TimeUnit.DAYS);
+    }
+}
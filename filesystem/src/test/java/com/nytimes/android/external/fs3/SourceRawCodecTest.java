@@ -0,0 +1,35 @@
+package com.nytimes.android.external.fs3;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import okio.Buffer;
+
+import static com.google.common.base.Charsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SourceRawCodecTest {
+
+    private static final String CHALLAH = "Challah";
+
+    private final SourceRawCodec codec = new SourceRawCodec();
+
+    @Test
+    public void encodedSourcesAreDecoded() throws IOException {
+        byte[] bytes = codec.encode(new Buffer().writeUtf8(CHALLAH));
+
+        assertThat(codec.decode(bytes).readUtf8()).isEqualTo(CHALLAH);
+    }
+
+    @Test
+    public void blocksAreDecodedFromTheirPositionToTheirLimit() throws IOException {
+        ByteBuffer direct = ByteBuffer.allocateDirect(16);
+        direct.put("xxChaxx".getBytes(UTF_8));
+        direct.position(2).limit(5);
+        ByteBuffer heap = ByteBuffer.wrap("llah".getBytes(UTF_8));
+
+        assertThat(codec.decode(new ByteBuffer[]{direct, heap}).readUtf8()).isEqualTo(CHALLAH);
+    }
+}
@@ -0,0 +1,41 @@
+package com.nytimes.android.external.fs3;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.Okio;
+
+import static com.google.common.base.Charsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SourceRawMeterTest {
+
+    private static final String CHALLAH = "Challah";
+
+    private final SourceRawMeter meter = new SourceRawMeter();
+    private final AtomicLong bytesRead = new AtomicLong();
+
+    @Test
+    public void buffersAreSizedRightAway() {
+        Buffer buffer = new Buffer().writeUtf8(CHALLAH);
+
+        assertThat(meter.meter(buffer, bytesRead)).isSameAs(buffer);
+        assertThat(bytesRead.get()).isEqualTo(CHALLAH.length());
+    }
+
+    @Test
+    public void streamedSourcesCountWhatIsRead() throws IOException {
+        BufferedSource source = Okio.buffer(Okio.source(new ByteArrayInputStream(CHALLAH.getBytes(UTF_8))));
+
+        BufferedSource metered = meter.meter(source, bytesRead);
+        assertThat(bytesRead.get()).isZero();
+
+        assertThat(metered.readUtf8()).isEqualTo(CHALLAH);
+        assertThat(bytesRead.get()).isEqualTo(CHALLAH.length());
+    }
+}
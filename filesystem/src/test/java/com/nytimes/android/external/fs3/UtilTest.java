@@ -29,6 +29,23 @@ public class UtilTest {
         assertThat(util.simplifyPath("")).isEqualTo("");
     }
 
+    @Test
+    public void testSimplifyPathEdgeCases() {
+        assertThat(util.simplifyPath("/")).isEqualTo("/");
+        assertThat(util.simplifyPath("a")).isEqualTo("/a");
+        assertThat(util.simplifyPath("//a//b")).isEqualTo("/a/b");
+        assertThat(util.simplifyPath("/a/.")).isEqualTo("/a");
+        assertThat(util.simplifyPath("/a/..")).isEqualTo("/");
+        assertThat(util.simplifyPath("/../a")).isEqualTo("/a");
+        assertThat(util.simplifyPath("/.a/..b/c.")).isEqualTo("/.a/..b/c.");
+    }
+
+    @Test
+    public void testSimplePathsAreNotCopied() {
+        String path = "/type/key";
+        assertThat(util.simplifyPath(path)).isSameAs(path);
+    }
+
     @Test
     public void createParentDirTest() throws IOException {
         File child = mock(File.class);
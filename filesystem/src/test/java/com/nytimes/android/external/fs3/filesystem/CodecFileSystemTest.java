@@ -0,0 +1,114 @@
+package com.nytimes.android.external.fs3.filesystem;
+
+import com.nytimes.android.external.fs3.SourcePersisterFactory;
+import com.nytimes.android.external.store3.base.Persister;
+import com.nytimes.android.external.store3.base.impl.BarCode;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import okio.Buffer;
+import okio.BufferedSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CodecFileSystemTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File root;
+    private String json;
+
+    @Before
+    public void setUp() throws IOException {
+        root = folder.newFolder();
+        StringBuilder builder = new StringBuilder("[");
+        Random random = new Random(1);
+        for (int i = 0; i < 3000; i++) {
+            builder.append("{\"id\":").append(i)
+                    .append(",\"title\":\"article ").append(random.nextInt(100))
+                    .append("\",\"section\":\"world\"},");
+        }
+        json = builder.append("{}]").toString();
+    }
+
+    @Test
+    public void everyCodecRoundTripsAndCompresses() throws IOException {
+        CompressionCodec[] codecs = {CompressionCodecs.gzip(), CompressionCodecs.deflate(), CompressionCodecs.lz()};
+        for (CompressionCodec codec : codecs) {
+            FileSystem fileSystem = FileSystemFactory.createCompressed(root, codec);
+            String path = "/codec" + codec.id();
+            fileSystem.write(path, source(json));
+
+            assertThat(read(fileSystem, path)).isEqualTo(json);
+            assertThat(new File(root, path).length()).isLessThan(json.length() / 4);
+        }
+    }
+
+    @Test
+    public void lzHandlesIncompressibleAndMultiBlockContent() throws IOException {
+        FileSystem fileSystem = FileSystemFactory.createCompressed(root, CompressionCodecs.lz());
+        byte[] noise = new byte[LzCodec.BLOCK_SIZE * 2 + 123];
+        new Random(2).nextBytes(noise);
+
+        fileSystem.write("/noise", new Buffer().write(noise));
+        fileSystem.write("/empty", new Buffer());
+
+        assertThat(fileSystem.read("/noise").readByteArray()).isEqualTo(noise);
+        assertThat(fileSystem.read("/empty").readByteArray()).isEmpty();
+    }
+
+    @Test
+    public void readsFilesWrittenWithoutOrWithAnotherCodec() throws IOException {
+        FileSystem plain = FileSystemFactory.create(root);
+        plain.write("/plain", source(json));
+        FileSystemFactory.createCompressed(plain, CompressionCodecs.gzip()).write("/gzip", source(json));
+
+        FileSystem lz = FileSystemFactory.createCompressed(plain, CompressionCodecs.lz());
+
+        assertThat(read(lz, "/plain")).isEqualTo(json);
+        assertThat(read(lz, "/gzip")).isEqualTo(json);
+    }
+
+    @Test(expected = IOException.class)
+    public void unknownCodecsFail() throws IOException {
+        FileSystem plain = FileSystemFactory.create(root);
+        plain.write("/unknown", new Buffer().write(CodecFileSystem.MAGIC).writeByte(99).writeUtf8("data"));
+
+        FileSystemFactory.createCompressed(plain, CompressionCodecs.lz()).read("/unknown").readUtf8();
+    }
+
+    @Test
+    public void persistersCompress() throws IOException {
+        Persister<BufferedSource, BarCode> persister = SourcePersisterFactory.create(root, CompressionCodecs.gzip());
+        BarCode barCode = new BarCode("type", "key");
+
+        persister.write(barCode, source(json)).blockingGet();
+
+        assertThat(persister.read(barCode).map(BufferedSource::readUtf8).blockingGet()).isEqualTo(json);
+        FileSystem plain = FileSystemFactory.create(root);
+        BufferedSource raw = plain.read(plain.list("/").iterator().next());
+        assertThat(raw.readByteString(CodecFileSystem.MAGIC.size())).isEqualTo(CodecFileSystem.MAGIC);
+        raw.close();
+    }
+
+    private static String read(FileSystem fileSystem, String path) throws IOException {
+        BufferedSource source = fileSystem.read(path);
+        try {
+            return source.readUtf8();
+        } finally {
+            source.close();
+        }
+    }
+
+    private static BufferedSource source(String data) {
+        return new Buffer().writeUtf8(data);
+    }
+}
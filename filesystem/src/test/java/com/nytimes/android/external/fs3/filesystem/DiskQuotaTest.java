@@ -0,0 +1,185 @@
+package com.nytimes.android.external.fs3.filesystem;
+
+import com.nytimes.android.external.store3.base.RecordState;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.schedulers.Schedulers;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+public class DiskQuotaTest {
+
+    private static final long NOW = System.currentTimeMillis();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Map<String, RecordState> evicted = new LinkedHashMap<>();
+    private final DiskEvictionListener listener = (path, size, state) -> evicted.put(path, state);
+    private File root;
+
+    @Before
+    public void setUp() throws IOException {
+        root = folder.newFolder();
+        writeDirectly("a", "1", NOW - 3000);
+        writeDirectly("b", "2", NOW - 2000);
+        writeDirectly("c", "3", NOW - 1000);
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedFiles() throws IOException {
+        FileSystem fileSystem = open(DiskQuota.builder().setMaxFiles(3));
+
+        fileSystem.read("/a").close();
+        fileSystem.write("/d", source("4"));
+
+        assertThat(fileSystem.list("/")).containsOnly("/a", "/d");
+        assertThat(evicted).containsExactly(entry("/b", RecordState.FRESH), entry("/c", RecordState.FRESH));
+        assertThat(new File(root, "b").exists()).isFalse();
+    }
+
+    @Test
+    public void evictsStaleFilesFirst() throws IOException {
+        writeDirectly("a", "1", NOW - TimeUnit.HOURS.toMillis(2));
+        FileSystem fileSystem = open(DiskQuota.builder()
+                .setMaxFiles(3)
+                .setStaleAfter(1, TimeUnit.HOURS));
+
+        fileSystem.read("/a").close();
+        fileSystem.write("/d", source("4"));
+
+        assertThat(fileSystem.list("/")).containsOnly("/c", "/d");
+        assertThat(evicted).containsExactly(entry("/a", RecordState.STALE), entry("/b", RecordState.FRESH));
+    }
+
+    @Test
+    public void evictsByTotalSize() throws IOException {
+        FileSystem fileSystem = open(DiskQuota.builder().setMaxBytes(10));
+
+        fileSystem.write("/d", source("4444"));
+        assertThat(fileSystem.list("/")).containsOnly("/a", "/b", "/c", "/d");
+
+        fileSystem.write("/e", source("55555"));
+        assertThat(fileSystem.list("/")).containsOnly("/d", "/e");
+    }
+
+    @Test
+    public void metadataIsNotCountedAndIsEvictedWithItsFile() throws IOException {
+        FileSystem fileSystem = open(DiskQuota.builder().setMaxFiles(3));
+
+        fileSystem.write(FileSystem.METADATA_ROOT + "/a", source("validators"));
+        assertThat(fileSystem.list("/")).containsOnly("/a", "/b", "/c");
+        assertThat(evicted).isEmpty();
+
+        fileSystem.write("/d", source("4"));
+        assertThat(evicted).containsExactly(entry("/a", RecordState.FRESH), entry("/b", RecordState.FRESH));
+        assertThat(fileSystem.exists(FileSystem.METADATA_ROOT + "/a")).isFalse();
+    }
+
+    @Test
+    public void existingFilesOverTheQuotaAreEvictedOnCreation() throws IOException {
+        FileSystem fileSystem = open(DiskQuota.builder().setMaxFiles(2));
+
+        assertThat(fileSystem.list("/")).containsOnly("/c");
+    }
+
+    @Test
+    public void readersOfEvictedFilesKeepReading() throws IOException {
+        FileSystem fileSystem = open(DiskQuota.builder().setMaxFiles(3));
+        // read through another file system, which does not make b recently used in this one
+        BufferedSource reader = new FileSystemImpl(root).read("/b");
+
+        fileSystem.write("/d", source("4"));
+
+        assertThat(fileSystem.exists("/b")).isFalse();
+        assertThat(reader.readUtf8()).isEqualTo("2");
+        reader.close();
+    }
+
+    @Test
+    public void filesAreNotEvictedWhileTheyAreWritten() throws Exception {
+        final FileSystem fileSystem = open(DiskQuota.builder().setMaxFiles(3));
+        final CountDownLatch renamed = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        // the source is closed once the new version of /a replaced the old one
+        final BufferedSource blocking = Okio.buffer(new ForwardingSource(source("new")) {
+            @Override
+            public void close() throws IOException {
+                renamed.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.close();
+            }
+        });
+        Thread writer = start(() -> fileSystem.write("/a", blocking));
+        renamed.await();
+
+        // /a is the least recently used file, as its new version is not indexed yet
+        Thread evictor = start(() -> fileSystem.write("/d", source("4")));
+        while (evictor.getState() != Thread.State.BLOCKED && evictor.getState() != Thread.State.TERMINATED) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+        writer.join();
+        evictor.join();
+
+        assertThat(fileSystem.exists("/a")).isTrue();
+        assertThat(fileSystem.read("/a").readUtf8()).isEqualTo("new");
+        assertThat(evicted).doesNotContainKey("/a");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void quotaNeedsALimit() {
+        DiskQuota.builder().setStaleAfter(1, TimeUnit.HOURS).build();
+    }
+
+    private FileSystem open(DiskQuota.DiskQuotaBuilder quota) throws IOException {
+        return new FileSystemImpl(root, false, quota.setEvictionListener(listener).build(),
+                Schedulers.trampoline());
+    }
+
+    private static Thread start(final Write write) {
+        Thread thread = new Thread(() -> {
+            try {
+                write.run();
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    private void writeDirectly(String path, String data, long lastModified) throws IOException {
+        File file = new File(root, path);
+        Okio.buffer(Okio.sink(file)).writeUtf8(data).close();
+        assertThat(file.setLastModified(lastModified)).isTrue();
+    }
+
+    private static BufferedSource source(String data) {
+        return new Buffer().writeUtf8(data);
+    }
+
+    private interface Write {
+        void run() throws IOException;
+    }
+}
@@ -0,0 +1,113 @@
+package com.nytimes.android.external.fs3.filesystem;
+
+import com.nytimes.android.external.store3.base.RecordState;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.Okio;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FileSystemImplTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File root;
+
+    @Before
+    public void setUp() throws IOException {
+        root = folder.newFolder();
+    }
+
+    @Test
+    public void indexesExistingFilesOnCreation() throws IOException {
+        writeDirectly("type/one", "1");
+        writeDirectly("type/inner/two", "2");
+
+        FileSystem fileSystem = new FileSystemImpl(root);
+
+        assertThat(fileSystem.exists("/type/one")).isTrue();
+        assertThat(fileSystem.list("type")).containsOnly("/type/one", "/type/inner/two");
+        assertThat(fileSystem.getRecordState(TimeUnit.HOURS, 1, "/type/inner/two")).isEqualTo(RecordState.FRESH);
+        assertThat(fileSystem.read("/type/inner/two").readUtf8()).isEqualTo("2");
+    }
+
+    @Test
+    public void writesAndDeletesKeepTheIndexCurrent() throws IOException {
+        FileSystem fileSystem = new FileSystemImpl(root);
+
+        fileSystem.write("/type/one", source("1"));
+        fileSystem.write("/type/two", source("2"));
+        assertThat(fileSystem.list("/type")).containsOnly("/type/one", "/type/two");
+
+        fileSystem.delete("/type/one");
+        assertThat(fileSystem.exists("/type/one")).isFalse();
+        assertThat(fileSystem.getRecordState(TimeUnit.HOURS, 1, "/type/one")).isEqualTo(RecordState.MISSING);
+
+        fileSystem.deleteAll("/type");
+        assertThat(fileSystem.list("/")).isEmpty();
+        assertThat(new File(root, "type/two").exists()).isFalse();
+    }
+
+    @Test
+    public void checksDoNotTouchTheDisk() throws IOException {
+        FileSystem fileSystem = new FileSystemImpl(root);
+        fileSystem.write("/key", source("value"));
+
+        assertThat(new File(root, "key").setLastModified(0)).isTrue();
+
+        assertThat(fileSystem.getRecordState(TimeUnit.HOURS, 1, "/key")).isEqualTo(RecordState.FRESH);
+        assertThat(new FileSystemImpl(root).getRecordState(TimeUnit.HOURS, 1, "/key"))
+                .isEqualTo(RecordState.STALE);
+    }
+
+    @Test(expected = FileNotFoundException.class)
+    public void listingAFileFails() throws IOException {
+        FileSystem fileSystem = new FileSystemImpl(root);
+        fileSystem.write("/type/key", source("value"));
+
+        fileSystem.list("/type/key");
+    }
+
+    @Test
+    public void touchMakesAStaleFileFresh() throws IOException {
+        writeDirectly("type/key", "data");
+        File file = new File(root, "type/key");
+        assertThat(file.setLastModified(System.currentTimeMillis() - TimeUnit.HOURS.toMillis(2))).isTrue();
+        FileSystem fileSystem = new FileSystemImpl(root);
+        assertThat(fileSystem.getRecordState(TimeUnit.HOURS, 1, "/type/key")).isEqualTo(RecordState.STALE);
+
+        fileSystem.touch("/type/key");
+
+        assertThat(fileSystem.getRecordState(TimeUnit.HOURS, 1, "/type/key")).isEqualTo(RecordState.FRESH);
+        assertThat(new FileSystemImpl(root).getRecordState(TimeUnit.HOURS, 1, "/type/key"))
+                .isEqualTo(RecordState.FRESH);
+        assertThat(fileSystem.read("/type/key").readUtf8()).isEqualTo("data");
+    }
+
+    @Test(expected = FileNotFoundException.class)
+    public void touchingAMissingFileFails() throws IOException {
+        new FileSystemImpl(root).touch("/missing");
+    }
+
+    private void writeDirectly(String path, String data) throws IOException {
+        File file = new File(root, path);
+        assertThat(file.getParentFile().mkdirs() || file.getParentFile().isDirectory()).isTrue();
+        Okio.buffer(Okio.sink(file)).writeUtf8(data).close();
+    }
+
+    private static BufferedSource source(String data) {
+        return new Buffer().writeUtf8(data);
+    }
+}
@@ -0,0 +1,253 @@
+package com.nytimes.android.external.fs3.filesystem;
+
+import com.nytimes.android.external.store3.base.RecordState;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.schedulers.Schedulers;
+import okio.Buffer;
+import okio.BufferedSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LogStructuredFileSystemTest {
+
+    private static final long SEGMENT_SIZE = 256;
+    private static final long EXPIRATION_MILLIS = 500;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File root;
+    private LogStructuredFileSystem fileSystem;
+
+    @Before
+    public void setUp() throws IOException {
+        root = folder.newFolder();
+        fileSystem = open();
+    }
+
+    @Test
+    public void readsTheLastClosedVersion() throws IOException {
+        fileSystem.write("/type/key", source("first"));
+        fileSystem.write("type//key", source("second"));
+
+        assertThat(fileSystem.read("/type/key").readUtf8()).isEqualTo("second");
+        assertThat(fileSystem.exists("/type/key")).isTrue();
+        assertThat(fileSystem.exists("/type/other")).isFalse();
+    }
+
+    @Test(expected = FileNotFoundException.class)
+    public void readingAMissingFileFails() throws IOException {
+        fileSystem.read("/missing");
+    }
+
+    @Test
+    public void openReadersKeepTheirVersion() throws IOException {
+        fileSystem.write("/key", source("old"));
+        BufferedSource reader = fileSystem.read("/key");
+
+        fileSystem.write("/key", source("new"));
+        fileSystem.delete("/key");
+
+        assertThat(reader.readUtf8()).isEqualTo("old");
+        assertThat(fileSystem.exists("/key")).isFalse();
+        reader.close();
+    }
+
+    @Test
+    public void listsAndDeletesDirectories() throws IOException {
+        fileSystem.write("/type/one", source("1"));
+        fileSystem.write("/type/inner/two", source("2"));
+        fileSystem.write("/typeWriter/three", source("3"));
+
+        assertThat(fileSystem.list("/type")).containsOnly("/type/inner/two", "/type/one");
+
+        fileSystem.deleteAll("/type");
+        assertThat(fileSystem.list("/type")).isEmpty();
+        assertThat(fileSystem.list("/")).containsOnly("/typeWriter/three");
+    }
+
+    @Test
+    public void metadataIsNotListedAndIsDeletedWithItsFile() throws IOException {
+        fileSystem.write("/type/one", source("1"));
+        fileSystem.write("/type/two", source("2"));
+        fileSystem.write(FileSystem.METADATA_ROOT + "/type/one", source("validators"));
+        fileSystem.write(FileSystem.METADATA_ROOT + "/type/two", source("validators"));
+
+        assertThat(fileSystem.list("/")).containsOnly("/type/one", "/type/two");
+        assertThat(fileSystem.list(FileSystem.METADATA_ROOT)).hasSize(2);
+
+        fileSystem.delete("/type/one");
+        assertThat(fileSystem.exists(FileSystem.METADATA_ROOT + "/type/one")).isFalse();
+
+        fileSystem.deleteAll("/type");
+        assertThat(fileSystem.list(FileSystem.METADATA_ROOT)).isEmpty();
+    }
+
+    @Test
+    public void recoversIndexAfterReopening() throws IOException {
+        fileSystem.write("/kept", source("kept"));
+        fileSystem.write("/deleted", source("deleted"));
+        fileSystem.delete("/deleted");
+
+        LogStructuredFileSystem reopened = open();
+
+        assertThat(reopened.read("/kept").readUtf8()).isEqualTo("kept");
+        assertThat(reopened.exists("/deleted")).isFalse();
+        assertThat(reopened.getRecordState(TimeUnit.HOURS, 1, "/kept")).isEqualTo(RecordState.FRESH);
+        assertThat(reopened.getRecordState(TimeUnit.HOURS, 1, "/deleted")).isEqualTo(RecordState.MISSING);
+    }
+
+    @Test
+    public void dropsATornRecordOnRecovery() throws IOException {
+        fileSystem.write("/intact", source("intact"));
+        fileSystem.write("/torn", source("torn"));
+        File segment = new File(root, "segment-0.log");
+        RandomAccessFile file = new RandomAccessFile(segment, "rw");
+        file.setLength(file.length() - 2);
+        file.close();
+
+        LogStructuredFileSystem reopened = open();
+        reopened.write("/after", source("after"));
+
+        assertThat(reopened.exists("/torn")).isFalse();
+        assertThat(reopened.read("/intact").readUtf8()).isEqualTo("intact");
+        assertThat(open().read("/after").readUtf8()).isEqualTo("after");
+    }
+
+    @Test
+    public void compactsObsoleteVersions() throws IOException {
+        for (int i = 0; i < 50; i++) {
+            fileSystem.write("/hot", source("version " + i));
+        }
+        fileSystem.write("/cold", source("cold"));
+        fileSystem.compact();
+
+        assertThat(fileSystem.segmentCount()).isLessThanOrEqualTo(2);
+        assertThat(fileSystem.read("/hot").readUtf8()).isEqualTo("version 49");
+        assertThat(fileSystem.read("/cold").readUtf8()).isEqualTo("cold");
+
+        LogStructuredFileSystem reopened = open();
+        assertThat(reopened.read("/hot").readUtf8()).isEqualTo("version 49");
+        assertThat(reopened.read("/cold").readUtf8()).isEqualTo("cold");
+    }
+
+    @Test
+    public void compactionWaitsForReaders() throws IOException {
+        fileSystem.write("/key", source("old"));
+        BufferedSource reader = fileSystem.read("/key");
+        File first = new File(root, "segment-0.log");
+
+        for (int i = 0; i < 50; i++) {
+            fileSystem.write("/key", source("version " + i));
+        }
+        fileSystem.compact();
+
+        assertThat(first.exists()).isTrue();
+        assertThat(reader.readUtf8()).isEqualTo("old");
+        reader.close();
+        assertThat(first.exists()).isFalse();
+    }
+
+    @Test
+    public void segmentsWhichCannotBeDeletedAreDeletedByALaterCompaction() throws IOException {
+        fileSystem.write("/key", source("old"));
+        BufferedSource reader = fileSystem.read("/key");
+        File first = new File(root, "segment-0.log");
+        for (int i = 0; i < 50; i++) {
+            fileSystem.write("/key", source("version " + i));
+        }
+        fileSystem.compact();
+
+        // a non empty directory cannot be deleted
+        assertThat(first.delete()).isTrue();
+        File blocker = new File(first, "blocker");
+        assertThat(blocker.mkdirs()).isTrue();
+        assertThat(reader.readUtf8()).isEqualTo("old");
+        reader.close();
+        assertThat(first.exists()).isTrue();
+
+        assertThat(blocker.delete()).isTrue();
+        fileSystem.compact();
+        assertThat(first.exists()).isFalse();
+    }
+
+    @Test
+    public void deletedFilesStayDeletedAfterCompaction() throws IOException {
+        fileSystem.write("/deleted", source("deleted"));
+        for (int i = 0; i < 50; i++) {
+            fileSystem.write("/hot", source("version " + i));
+        }
+        fileSystem.delete("/deleted");
+        fileSystem.compact();
+
+        assertThat(open().exists("/deleted")).isFalse();
+    }
+
+    @Test
+    public void touchesSurviveReopeningAndCompaction() throws IOException, InterruptedException {
+        fileSystem.write("/touched", source("touched"));
+        Thread.sleep(EXPIRATION_MILLIS * 2);
+        assertThat(fileSystem.getRecordState(TimeUnit.MILLISECONDS, EXPIRATION_MILLIS, "/touched"))
+                .isEqualTo(RecordState.STALE);
+
+        fileSystem.touch("/touched");
+        assertThat(fileSystem.getRecordState(TimeUnit.MILLISECONDS, EXPIRATION_MILLIS, "/touched"))
+                .isEqualTo(RecordState.FRESH);
+        assertThat(open().getRecordState(TimeUnit.MILLISECONDS, EXPIRATION_MILLIS, "/touched"))
+                .isEqualTo(RecordState.FRESH);
+
+        for (int i = 0; i < 50; i++) {
+            fileSystem.write("/hot", source("version " + i));
+        }
+        fileSystem.compact();
+        LogStructuredFileSystem reopened = open();
+        assertThat(reopened.getRecordState(TimeUnit.MILLISECONDS, EXPIRATION_MILLIS, "/touched"))
+                .isEqualTo(RecordState.FRESH);
+        assertThat(reopened.read("/touched").readUtf8()).isEqualTo("touched");
+    }
+
+    @Test
+    public void touchesOfFilesInOlderSegmentsSurviveCompaction() throws IOException, InterruptedException {
+        fileSystem.write("/touched", source("touched"));
+        // fill the first segment with current versions so that it is never compacted
+        for (int i = 0; i < 4; i++) {
+            fileSystem.write("/cold/" + i, source("a cold version which stays current"));
+        }
+        Thread.sleep(EXPIRATION_MILLIS * 2);
+        fileSystem.touch("/touched");
+
+        for (int i = 0; i < 50; i++) {
+            fileSystem.write("/hot", source("version " + i));
+        }
+        fileSystem.compact();
+
+        assertThat(new File(root, "segment-0.log").exists()).isTrue();
+        assertThat(new File(root, "segment-1.log").exists()).isFalse();
+        assertThat(open().getRecordState(TimeUnit.MILLISECONDS, EXPIRATION_MILLIS, "/touched"))
+                .isEqualTo(RecordState.FRESH);
+    }
+
+    @Test(expected = FileNotFoundException.class)
+    public void touchingAMissingFileFails() throws IOException {
+        fileSystem.touch("/missing");
+    }
+
+    private LogStructuredFileSystem open() throws IOException {
+        return new LogStructuredFileSystem(root, SEGMENT_SIZE, Schedulers.trampoline());
+    }
+
+    private static BufferedSource source(String data) {
+        return new Buffer().writeUtf8(data);
+    }
+}
@@ -0,0 +1,86 @@
+package com.nytimes.android.external.fs3.filesystem;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+import okio.Buffer;
+import okio.BufferedSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MappedFileSystemTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private FileSystem fileSystem;
+
+    @Before
+    public void setUp() throws IOException {
+        fileSystem = FileSystemFactory.createMemoryMapped(folder.newFolder());
+    }
+
+    @Test
+    public void readsThroughAMapping() throws IOException {
+        fileSystem.write("/key", source("mapped"));
+
+        BufferedSource source = fileSystem.read("/key");
+
+        assertThat(source).isInstanceOf(MappedBufferedSource.class);
+        assertThat(source.readUtf8()).isEqualTo("mapped");
+        source.close();
+    }
+
+    @Test
+    public void byteBufferIsIndependentOfTheStream() throws IOException {
+        fileSystem.write("/key", source("mapped"));
+        MappedBufferedSource source = (MappedBufferedSource) fileSystem.read("/key");
+
+        assertThat(source.readUtf8(3)).isEqualTo("map");
+        ByteBuffer content = source.byteBuffer();
+
+        assertThat(content.isReadOnly()).isTrue();
+        assertThat(UTF_8.decode(content).toString()).isEqualTo("mapped");
+        assertThat(source.readUtf8()).isEqualTo("ped");
+        source.close();
+    }
+
+    @Test
+    public void openReadersKeepTheirVersion() throws IOException {
+        fileSystem.write("/key", source("old"));
+        BufferedSource first = fileSystem.read("/key");
+        BufferedSource second = fileSystem.read("/key");
+
+        fileSystem.write("/key", source("new version"));
+        assertThat(fileSystem.read("/key").readUtf8()).isEqualTo("new version");
+
+        fileSystem.delete("/key");
+        assertThat(first.readUtf8()).isEqualTo("old");
+        assertThat(second.readUtf8()).isEqualTo("old");
+        first.close();
+        second.close();
+        assertThat(fileSystem.exists("/key")).isFalse();
+    }
+
+    @Test
+    public void emptyFilesCanBeMapped() throws IOException {
+        fileSystem.write("/empty", source(""));
+
+        BufferedSource source = fileSystem.read("/empty");
+
+        assertThat(source.exhausted()).isTrue();
+        source.close();
+    }
+
+    private static BufferedSource source(String data) {
+        return new Buffer().writeUtf8(data);
+    }
+}
@@ -0,0 +1,55 @@
+package com.nytimes.android.external.fs3.filesystem;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import okio.Okio;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class NioFileTreeWalkerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void visitsWhatTheBreadthFirstIteratorFinds() throws IOException {
+        File root = folder.newFolder();
+        write(root, "one", "1");
+        write(root, "type/two", "22");
+        write(root, "type/inner/three", "333");
+        assertThat(new File(root, "empty").mkdirs()).isTrue();
+
+        final Map<String, Long> walked = new HashMap<>();
+        NioFileTreeWalker.walk(root, (path, size, lastModified) -> walked.put(path, size));
+
+        Map<String, Long> iterated = new HashMap<>();
+        BreadthFirstFileTreeIterator iterator = new BreadthFirstFileTreeIterator(root);
+        while (iterator.hasNext()) {
+            File file = (File) iterator.next();
+            iterated.put(file.getPath().substring(root.getPath().length()), file.length());
+        }
+
+        assertThat(walked).isEqualTo(iterated);
+        assertThat(walked).containsEntry("/type/inner/three", 3L);
+    }
+
+    @Test
+    public void missingRootHasNoFiles() throws IOException {
+        NioFileTreeWalker.walk(new File(folder.getRoot(), "missing"), (path, size, lastModified) -> {
+            throw new AssertionError(path);
+        });
+    }
+
+    private static void write(File root, String path, String data) throws IOException {
+        File file = new File(root, path);
+        assertThat(file.getParentFile().mkdirs() || file.getParentFile().isDirectory()).isTrue();
+        Okio.buffer(Okio.sink(file)).writeUtf8(data).close();
+    }
+}
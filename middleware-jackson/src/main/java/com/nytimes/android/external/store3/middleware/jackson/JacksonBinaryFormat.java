@@ -0,0 +1,80 @@
+package com.nytimes.android.external.store3.middleware.jackson;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import java.io.IOException;
+
+import javax.annotation.Nonnull;
+
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ByteString;
+
+/**
+ * Layout of the documents written by {@link JacksonBinaryPersister}: {@link #MAGIC}, a format version byte, the
+ * schema version given by the app as an int, then the document encoded as Smile.
+ */
+final class JacksonBinaryFormat {
+
+    static final ByteString MAGIC = ByteString.of((byte) 0, (byte) 'S', (byte) 'J', (byte) 'B');
+    static final byte FORMAT_VERSION = 1;
+    static final int HEADER_SIZE = MAGIC.size() + 1 + 4;
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final SmileFactory SMILE_FACTORY = new SmileFactory();
+
+    private JacksonBinaryFormat() {
+    }
+
+    /**
+     * @return whether source starts with a binary document header, without consuming it
+     */
+    static boolean isBinary(@Nonnull BufferedSource source) throws IOException {
+        return source.request(HEADER_SIZE) && source.rangeEquals(0, MAGIC);
+    }
+
+    /**
+     * consumes the header of a binary document
+     *
+     * @return whether the document was written with this format and schemaVersion
+     */
+    static boolean readHeader(@Nonnull BufferedSource source, int schemaVersion) throws IOException {
+        source.skip(MAGIC.size());
+        byte formatVersion = source.readByte();
+        int documentSchemaVersion = source.readInt();
+        return formatVersion == FORMAT_VERSION && documentSchemaVersion == schemaVersion;
+    }
+
+    /**
+     * re-encodes a json document token by token, without binding it to any type
+     */
+    @Nonnull
+    static Buffer fromJson(@Nonnull BufferedSource json, int schemaVersion) throws IOException {
+        Buffer binary = new Buffer()
+                .write(MAGIC)
+                .writeByte(FORMAT_VERSION)
+                .writeInt(schemaVersion);
+        JsonParser parser = JSON_FACTORY.createParser(json.inputStream());
+        try {
+            JsonGenerator generator = SMILE_FACTORY.createGenerator(binary.outputStream());
+            try {
+                while (parser.nextToken() != null) {
+                    generator.copyCurrentStructure(parser);
+                }
+            } finally {
+                generator.close();
+            }
+        } finally {
+            parser.close();
+        }
+        return binary;
+    }
+
+    @Nonnull
+    static SmileFactory smileFactory() {
+        return SMILE_FACTORY;
+    }
+}
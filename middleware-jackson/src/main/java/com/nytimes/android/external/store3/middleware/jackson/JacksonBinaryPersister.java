@@ -0,0 +1,107 @@
+package com.nytimes.android.external.store3.middleware.jackson;
+
+import com.nytimes.android.external.store3.base.Clearable;
+import com.nytimes.android.external.store3.base.Persister;
+import com.nytimes.android.external.store3.base.RecordProvider;
+import com.nytimes.android.external.store3.base.RecordState;
+import com.nytimes.android.external.store3.base.ValidatorProvider;
+import com.nytimes.android.external.store3.base.Validators;
+import com.nytimes.android.external.store3.base.impl.StoreUtil;
+
+import java.io.IOException;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import io.reactivex.Maybe;
+import io.reactivex.Single;
+import okio.BufferedSource;
+
+/**
+ * Persister which stores json fetched from the network as Smile, a binary encoding of json, so that disk hits
+ * read with {@link JacksonBinarySourceParser} skip text parsing. Converting does not bind the json to any type,
+ * it costs one pass over the document when it is written.
+ * <p>
+ * Documents are tagged with schemaVersion. Bump it whenever the cached documents must not be read anymore: the
+ * parser then rejects them and the store fetches them again.
+ * <p>
+ * {@link RecordProvider}, {@link Clearable} and {@link ValidatorProvider} are forwarded to the delegate when it
+ * implements them.
+ *
+ * @param <Key> key type
+ */
+public final class JacksonBinaryPersister<Key> implements Persister<BufferedSource, Key>,
+        RecordProvider<Key>, Clearable<Key>, ValidatorProvider<Key> {
+
+    @Nonnull
+    private final Persister<BufferedSource, Key> delegate;
+    private final int schemaVersion;
+
+    public JacksonBinaryPersister(@Nonnull Persister<BufferedSource, Key> delegate, int schemaVersion) {
+        this.delegate = delegate;
+        this.schemaVersion = schemaVersion;
+    }
+
+    @Nonnull
+    public static <Key> JacksonBinaryPersister<Key> create(@Nonnull Persister<BufferedSource, Key> delegate,
+                                                           int schemaVersion) {
+        return new JacksonBinaryPersister<>(delegate, schemaVersion);
+    }
+
+    @Nonnull
+    @Override
+    public Maybe<BufferedSource> read(@Nonnull Key key) {
+        return delegate.read(key);
+    }
+
+    @Nonnull
+    @Override
+    public Single<Boolean> write(@Nonnull final Key key, @Nonnull final BufferedSource raw) {
+        return Single.defer(() -> {
+            if (JacksonBinaryFormat.isBinary(raw)) {
+                return delegate.write(key, raw);
+            }
+            try {
+                return delegate.write(key, JacksonBinaryFormat.fromJson(raw, schemaVersion));
+            } finally {
+                raw.close();
+            }
+        });
+    }
+
+    @Nonnull
+    @Override
+    public RecordState getRecordState(@Nonnull Key key) {
+        return StoreUtil.getRecordState(key, delegate);
+    }
+
+    @Override
+    public void clear(@Nonnull Key key) {
+        StoreUtil.clearPersister(delegate, key);
+    }
+
+    @Nullable
+    @Override
+    @SuppressWarnings("unchecked")
+    public Validators getValidators(@Nonnull Key key) {
+        return delegate instanceof ValidatorProvider
+                ? ((ValidatorProvider<Key>) delegate).getValidators(key)
+                : null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void setValidators(@Nonnull Key key, @Nullable Validators validators) throws IOException {
+        if (delegate instanceof ValidatorProvider) {
+            ((ValidatorProvider<Key>) delegate).setValidators(key, validators);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void touch(@Nonnull Key key) throws IOException {
+        if (delegate instanceof ValidatorProvider) {
+            ((ValidatorProvider<Key>) delegate).touch(key);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.nytimes.android.external.store3.middleware.jackson;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.nytimes.android.external.store3.base.Parser;
+import com.nytimes.android.external.store3.util.ParserException;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+import javax.annotation.Nonnull;
+
+import io.reactivex.annotations.NonNull;
+import okio.BufferedSource;
+
+/**
+ * Parses documents written by {@link JacksonBinaryPersister}, and plain json for everything else, such as files
+ * persisted before the binary persister was used.
+ * <p>
+ * A binary document with another schema version fails with a {@link ParserException}, which makes the store
+ * treat it as a miss and fetch it again.
+ */
+public class JacksonBinarySourceParser<Parsed> implements Parser<BufferedSource, Parsed> {
+
+    private final ObjectReader smileReader;
+    private final JacksonSourceParser<Parsed> jsonParser;
+    private final int schemaVersion;
+
+    public JacksonBinarySourceParser(@Nonnull ObjectMapper objectMapper, @Nonnull Type type, int schemaVersion) {
+        smileReader = objectMapper.readerFor(objectMapper.constructType(type))
+                .with(JacksonBinaryFormat.smileFactory());
+        jsonParser = new JacksonSourceParser<>(objectMapper, type);
+        this.schemaVersion = schemaVersion;
+    }
+
+    @Override
+    @SuppressWarnings({"PMD.EmptyCatchBlock"})
+    public Parsed apply(@NonNull BufferedSource bufferedSource) throws ParserException {
+        try {
+            if (!JacksonBinaryFormat.isBinary(bufferedSource)) {
+                return jsonParser.apply(bufferedSource);
+            }
+            if (!JacksonBinaryFormat.readHeader(bufferedSource, schemaVersion)) {
+                throw new ParserException("document was written with another schema version");
+            }
+            return smileReader.readValue(bufferedSource.inputStream());
+        } catch (IOException e) {
+            throw new ParserException(e.getMessage(), e);
+        } finally {
+            try {
+                bufferedSource.close();
+            } catch (IOException e) {
+            }
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.nytimes.android.external.store3.middleware.jackson;
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.nytimes.android.external.store3.base.Parser;
+import com.nytimes.android.external.store3.base.StreamingParser;
 
 import java.io.Reader;
 import java.lang.reflect.Type;
@@ -103,6 +104,78 @@ public final class JacksonParserFactory {
         return createSourceParser(new ObjectMapper(), type);
     }
 
+    /**
+     * Returns a new Parser which parses from {@link BufferedSource} to the specified type, reading documents
+     * written by {@link JacksonBinaryPersister} with schemaVersion as Smile and anything else as json, using
+     * the provided {@link ObjectMapper} instance.
+     */
+    @Nonnull
+    @SuppressWarnings("PMD.AvoidThrowingNullPointerException")
+    public static <T> Parser<BufferedSource, T> createBinarySourceParser(@Nonnull ObjectMapper objectMapper,
+                                                                         @Nonnull Type type,
+                                                                         int schemaVersion) {
+        if (objectMapper == null) {
+            throw new NullPointerException("objectMapper cannot be null.");
+        }
+        if (type == null) {
+            throw new NullPointerException("type cannot be null.");
+        }
+        return new JacksonBinarySourceParser<>(objectMapper, type, schemaVersion);
+    }
+
+    /**
+     * Returns a new Parser which parses from {@link BufferedSource} to the specified type, reading documents
+     * written by {@link JacksonBinaryPersister} with schemaVersion as Smile and anything else as json, using
+     * a new default configured {@link ObjectMapper} instance.
+     */
+    @Nonnull
+    public static <T> Parser<BufferedSource, T> createBinarySourceParser(@Nonnull Type type, int schemaVersion) {
+        return createBinarySourceParser(new ObjectMapper(), type, schemaVersion);
+    }
+
+    /**
+     * Returns a new {@link StreamingParser} which parses the elements of a json array from {@link BufferedSource}
+     * to the specified type one by one, using the provided {@link JsonFactory} instance.
+     */
+    @Nonnull
+    @SuppressWarnings("PMD.AvoidThrowingNullPointerException")
+    public static <T> StreamingParser<BufferedSource, T> createStreamingSourceParser(@Nonnull JsonFactory jsonFactory,
+                                                                                     @Nonnull Type elementType) {
+        if (jsonFactory == null) {
+            throw new NullPointerException("jsonFactory cannot be null.");
+        }
+        if (elementType == null) {
+            throw new NullPointerException("elementType cannot be null.");
+        }
+        return new JacksonStreamingSourceParser<>(jsonFactory, elementType);
+    }
+
+    /**
+     * Returns a new {@link StreamingParser} which parses the elements of a json array from {@link BufferedSource}
+     * to the specified type one by one, using the provided {@link ObjectMapper} instance.
+     */
+    @Nonnull
+    @SuppressWarnings("PMD.AvoidThrowingNullPointerException")
+    public static <T> StreamingParser<BufferedSource, T> createStreamingSourceParser(
+            @Nonnull ObjectMapper objectMapper, @Nonnull Type elementType) {
+        if (objectMapper == null) {
+            throw new NullPointerException("objectMapper cannot be null.");
+        }
+        if (elementType == null) {
+            throw new NullPointerException("elementType cannot be null.");
+        }
+        return new JacksonStreamingSourceParser<>(objectMapper, elementType);
+    }
+
+    /**
+     * Returns a new {@link StreamingParser} which parses the elements of a json array from {@link BufferedSource}
+     * to the specified type one by one, using a new default configured {@link ObjectMapper} instance.
+     */
+    @Nonnull
+    public static <T> StreamingParser<BufferedSource, T> createStreamingSourceParser(@Nonnull Type elementType) {
+        return createStreamingSourceParser(new ObjectMapper(), elementType);
+    }
+
     /**
      * Returns a new Parser which parses from {@link Reader} to the specified type, using
      * the provided {@link JsonFactory} instance.
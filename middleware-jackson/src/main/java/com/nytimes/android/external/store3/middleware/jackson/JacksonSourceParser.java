@@ -3,6 +3,8 @@ package com.nytimes.android.external.store3.middleware.jackson;
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import com.nytimes.android.external.fs3.filesystem.MappedBufferedSource;
 import com.nytimes.android.external.store3.base.Parser;
 import com.nytimes.android.external.store3.util.ParserException;
 
@@ -35,6 +37,9 @@ public class JacksonSourceParser<Parsed> implements Parser<BufferedSource, Parse
     @Override
     @SuppressWarnings({"PMD.EmptyCatchBlock"})
     public Parsed apply(@NonNull BufferedSource bufferedSource) throws ParserException {
+        if (bufferedSource instanceof MappedBufferedSource) {
+            return parseMapped((MappedBufferedSource) bufferedSource);
+        }
         InputStream inputStream = bufferedSource.inputStream();
         try {
             return objectMapper.readValue(inputStream, parsedType);
@@ -49,4 +54,21 @@ public class JacksonSourceParser<Parsed> implements Parser<BufferedSource, Parse
             }
         }
     }
+
+    /**
+     * reads straight from the mapped file instead of copying it through okio segments first
+     */
+    @SuppressWarnings({"PMD.EmptyCatchBlock"})
+    private Parsed parseMapped(@Nonnull MappedBufferedSource mappedSource) throws ParserException {
+        try {
+            return objectMapper.readValue(new ByteBufferBackedInputStream(mappedSource.byteBuffer()), parsedType);
+        } catch (IOException e) {
+            throw new ParserException(e.getMessage(), e);
+        } finally {
+            try {
+                mappedSource.close();
+            } catch (IOException e) {
+            }
+        }
+    }
 }
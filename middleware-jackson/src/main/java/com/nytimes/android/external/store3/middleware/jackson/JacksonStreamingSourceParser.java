@@ -0,0 +1,88 @@
+package com.nytimes.android.external.store3.middleware.jackson;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.nytimes.android.external.store3.base.StreamingParser;
+import com.nytimes.android.external.store3.util.ParserException;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+import javax.annotation.Nonnull;
+import javax.inject.Inject;
+
+import io.reactivex.Emitter;
+import io.reactivex.Flowable;
+import io.reactivex.annotations.NonNull;
+import okio.Buffer;
+import okio.BufferedSource;
+
+/**
+ * Parser which walks a top-level json array with a {@link JsonParser} and binds its elements one at a time,
+ * as they are requested.
+ * <p>
+ * The source is drained into memory when subscribed to, since persisters close the sources they read once
+ * emitted. Only its bytes are held, elements are decoded lazily and null elements are skipped.
+ */
+public class JacksonStreamingSourceParser<Element> implements StreamingParser<BufferedSource, Element> {
+
+    private final ObjectMapper objectMapper;
+    private final ObjectReader elementReader;
+
+    public JacksonStreamingSourceParser(@Nonnull JsonFactory jsonFactory, @Nonnull Type elementType) {
+        this(new ObjectMapper(jsonFactory), elementType);
+    }
+
+    @Inject
+    public JacksonStreamingSourceParser(@Nonnull ObjectMapper objectMapper, @Nonnull Type elementType) {
+        this.objectMapper = objectMapper;
+        elementReader = objectMapper.readerFor(objectMapper.constructType(elementType));
+    }
+
+    @Override
+    public Flowable<Element> apply(@NonNull final BufferedSource bufferedSource) {
+        return Flowable.generate(() -> open(bufferedSource), this::next, JsonParser::close);
+    }
+
+    @Nonnull
+    private JsonParser open(@Nonnull BufferedSource bufferedSource) throws ParserException {
+        try {
+            Buffer content = new Buffer();
+            try {
+                bufferedSource.readAll(content);
+            } finally {
+                bufferedSource.close();
+            }
+            JsonParser parser = objectMapper.getFactory().createParser(content.inputStream());
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                parser.close();
+                throw new ParserException("Expected a json array but was " + parser.getCurrentToken());
+            }
+            return parser;
+        } catch (IOException e) {
+            throw new ParserException(e.getMessage(), e);
+        }
+    }
+
+    private void next(@Nonnull JsonParser parser, @Nonnull Emitter<Element> emitter) throws ParserException {
+        try {
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (token == null) {
+                    throw new ParserException("Unterminated json array");
+                }
+                Element element = elementReader.readValue(parser);
+                if (element != null) {
+                    emitter.onNext(element);
+                    return;
+                }
+            }
+            emitter.onComplete();
+        } catch (IOException e) {
+            throw new ParserException(e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.nytimes.android.external.store3.middleware.jackson;
+
+import com.nytimes.android.external.fs3.FileSystemRecordPersister;
+import com.nytimes.android.external.fs3.SourcePersisterFactory;
+import com.nytimes.android.external.fs3.filesystem.FileSystem;
+import com.nytimes.android.external.fs3.filesystem.FileSystemFactory;
+import com.nytimes.android.external.store3.base.Persister;
+import com.nytimes.android.external.store3.base.Validators;
+import com.nytimes.android.external.store3.base.impl.BarCode;
+import com.nytimes.android.external.store3.base.impl.Store;
+import com.nytimes.android.external.store3.base.impl.StoreBuilder;
+import com.nytimes.android.external.store3.middleware.jackson.data.Foo;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.reactivex.Single;
+import okio.Buffer;
+import okio.BufferedSource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class JacksonBinaryPersisterTest {
+
+    private static final String JSON =
+            "{\"number\":123,\"string\":\"abc\",\"bars\":[{\"string\":\"def\"},{\"string\":\"ghi\"}]}";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final BarCode barCode = new BarCode("value", "key");
+    private final AtomicInteger fetches = new AtomicInteger();
+    private FileSystem fileSystem;
+
+    @Before
+    public void setUp() throws IOException {
+        fileSystem = FileSystemFactory.create(folder.newFolder());
+    }
+
+    @Test
+    public void diskHitsReadTheBinaryDocument() throws IOException {
+        assertFoo(open(1).get(barCode).blockingGet());
+
+        BufferedSource file = fileSystem.read(fileSystem.list("/").iterator().next());
+        assertEquals(JacksonBinaryFormat.MAGIC, file.readByteString(JacksonBinaryFormat.MAGIC.size()));
+        file.close();
+
+        assertFoo(open(1).get(barCode).blockingGet());
+        assertEquals(1, fetches.get());
+    }
+
+    @Test
+    public void jsonPersistedBeforeIsStillRead() {
+        Persister<BufferedSource, BarCode> plain = SourcePersisterFactory.create(fileSystem);
+        plain.write(barCode, new Buffer().writeUtf8(JSON)).blockingGet();
+
+        assertFoo(open(1).get(barCode).blockingGet());
+        assertEquals(0, fetches.get());
+    }
+
+    @Test
+    public void documentsOfAnotherSchemaVersionAreFetchedAgain() {
+        open(1).get(barCode).blockingGet();
+
+        assertFoo(open(2).get(barCode).blockingGet());
+        assertEquals(2, fetches.get());
+
+        open(2).get(barCode).blockingGet();
+        assertEquals(2, fetches.get());
+    }
+
+    @Test
+    public void validatorsAreForwardedToTheDelegate() throws IOException {
+        FileSystemRecordPersister<BarCode> records = FileSystemRecordPersister.create(fileSystem,
+                key -> "/" + key.getType() + "/" + key.getKey(), 1, TimeUnit.DAYS);
+        JacksonBinaryPersister<BarCode> persister = JacksonBinaryPersister.create(records, 1);
+        Validators validators = new Validators("\"abc\"", null);
+        persister.write(barCode, new Buffer().writeUtf8(JSON)).blockingGet();
+
+        persister.setValidators(barCode, validators);
+
+        assertEquals(validators, persister.getValidators(barCode));
+        assertEquals(validators, records.getValidators(barCode));
+    }
+
+    private Store<Foo, BarCode> open(int schemaVersion) {
+        return StoreBuilder.<BarCode, BufferedSource, Foo>parsedWithKey()
+                .fetcher(key -> Single.fromCallable(() -> {
+                    fetches.incrementAndGet();
+                    return new Buffer().writeUtf8(JSON);
+                }))
+                .persister(JacksonBinaryPersister.create(SourcePersisterFactory.create(fileSystem), schemaVersion))
+                .parser(JacksonParserFactory.<Foo>createBinarySourceParser(Foo.class, schemaVersion))
+                .open();
+    }
+
+    private static void assertFoo(Foo foo) {
+        assertEquals(123, foo.number);
+        assertEquals("abc", foo.string);
+        assertEquals(2, foo.bars.size());
+        assertTrue("def".equals(foo.bars.get(0).string));
+    }
+}
@@ -2,6 +2,8 @@ package com.nytimes.android.external.store3.middleware.jackson;
 
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nytimes.android.external.fs3.filesystem.FileSystem;
+import com.nytimes.android.external.fs3.filesystem.FileSystemFactory;
 import com.nytimes.android.external.store3.base.Fetcher;
 import com.nytimes.android.external.store3.base.Parser;
 import com.nytimes.android.external.store3.base.Persister;
@@ -14,6 +16,7 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
@@ -38,6 +41,8 @@ public class JacksonSourceParserStoreTest {
             "{\"number\":123,\"string\":\"abc\",\"bars\":[{\"string\":\"def\"},{\"string\":\"ghi\"}]}";
     @Rule
     public ExpectedException expectedException = ExpectedException.none();
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
     @Mock
     Fetcher<BufferedSource, BarCode> fetcher;
     @Mock
@@ -101,6 +106,17 @@ public class JacksonSourceParserStoreTest {
         verify(fetcher, times(1)).fetch(barCode);
     }
 
+    @Test
+    public void testParsesMemoryMappedSource() throws Exception {
+        FileSystem fileSystem = FileSystemFactory.createMemoryMapped(folder.newFolder());
+        fileSystem.write("/foo", source(sourceString));
+
+        Foo result = JacksonParserFactory.<Foo>createSourceParser(Foo.class)
+                .apply(fileSystem.read("/foo"));
+
+        validateFoo(result);
+    }
+
     private void validateFoo(Foo foo) {
         assertNotNull(foo);
         assertEquals(foo.number, 123);
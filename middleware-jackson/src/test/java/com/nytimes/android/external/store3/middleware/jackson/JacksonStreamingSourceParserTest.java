@@ -0,0 +1,80 @@
+package com.nytimes.android.external.store3.middleware.jackson;
+
+import com.nytimes.android.external.fs3.SourcePersisterFactory;
+import com.nytimes.android.external.store3.base.StreamingParser;
+import com.nytimes.android.external.store3.base.impl.BarCode;
+import com.nytimes.android.external.store3.base.impl.Store;
+import com.nytimes.android.external.store3.base.impl.StoreBuilder;
+import com.nytimes.android.external.store3.middleware.jackson.data.Bar;
+import com.nytimes.android.external.store3.util.ParserException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.reactivex.Single;
+import io.reactivex.subscribers.TestSubscriber;
+import okio.Buffer;
+import okio.BufferedSource;
+
+import static org.junit.Assert.assertEquals;
+
+public class JacksonStreamingSourceParserTest {
+
+    private static final String JSON = "[{\"string\":\"a\"},null,{\"string\":\"b\"},{\"string\":\"c\"}]";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final BarCode barCode = new BarCode("value", "key");
+    private final AtomicInteger fetches = new AtomicInteger();
+    private final StreamingParser<BufferedSource, Bar> parser =
+            JacksonParserFactory.createStreamingSourceParser(Bar.class);
+
+    @Test
+    public void streamsPersistedElementsAsTheyAreRequested() throws IOException {
+        Store<Object, BarCode> store = StoreBuilder.<BarCode, BufferedSource, Object>parsedWithKey()
+                .fetcher(key -> Single.fromCallable(() -> {
+                    fetches.incrementAndGet();
+                    return new Buffer().writeUtf8(JSON);
+                }))
+                .persister(SourcePersisterFactory.create(folder.newFolder()))
+                .parser(source -> source)
+                .open();
+
+        TestSubscriber<Bar> subscriber = store.streamingGet(barCode, parser).test(1);
+        assertEquals(1, subscriber.valueCount());
+        subscriber.assertNotComplete();
+
+        subscriber.requestMore(Long.MAX_VALUE);
+        subscriber.assertComplete();
+        assertStrings(subscriber.values(), "a", "b", "c");
+
+        assertStrings(store.streamingGet(barCode, parser).toList().blockingGet(), "a", "b", "c");
+        assertEquals(1, fetches.get());
+    }
+
+    @Test
+    public void documentWhichIsNotAnArrayFails() {
+        parser.apply(new Buffer().writeUtf8("{\"string\":\"a\"}")).test().assertError(ParserException.class);
+    }
+
+    @Test
+    public void truncatedArrayFailsAfterItsElements() {
+        TestSubscriber<Bar> subscriber = parser.apply(new Buffer().writeUtf8("[{\"string\":\"a\"},{\"str")).test();
+
+        subscriber.assertError(ParserException.class);
+        assertStrings(subscriber.values(), "a");
+    }
+
+    private static void assertStrings(List<Bar> bars, String... strings) {
+        assertEquals(strings.length, bars.size());
+        for (int i = 0; i < strings.length; i++) {
+            assertEquals(strings[i], bars.get(i).string);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.nytimes.android.external.store3.middleware.moshi;
 
 import com.nytimes.android.external.store3.base.Parser;
+import com.nytimes.android.external.store3.base.StreamingParser;
 import com.squareup.moshi.Moshi;
 
 import java.lang.reflect.Type;
@@ -66,4 +67,30 @@ public final class MoshiParserFactory {
     public static <T> Parser<BufferedSource, T> createSourceParser(@Nonnull Type type) {
         return createSourceParser(new Moshi.Builder().build(), type);
     }
+
+    /**
+     * Returns a new {@link StreamingParser} which parses the elements of a json array from {@link BufferedSource}
+     * to the specified type one by one, using the provided {@link Moshi} instance.
+     */
+    @Nonnull
+    @SuppressWarnings("PMD.AvoidThrowingNullPointerException")
+    public static <T> StreamingParser<BufferedSource, T> createStreamingSourceParser(@Nonnull Moshi moshi,
+                                                                                     @Nonnull Type elementType) {
+        if (moshi == null) {
+            throw new NullPointerException("moshi cannot be null.");
+        }
+        if (elementType == null) {
+            throw new NullPointerException("elementType cannot be null.");
+        }
+        return new MoshiStreamingSourceParser<>(moshi, elementType);
+    }
+
+    /**
+     * Returns a new {@link StreamingParser} which parses the elements of a json array from {@link BufferedSource}
+     * to the specified type one by one, using a new default configured {@link Moshi} instance.
+     */
+    @Nonnull
+    public static <T> StreamingParser<BufferedSource, T> createStreamingSourceParser(@Nonnull Type elementType) {
+        return createStreamingSourceParser(new Moshi.Builder().build(), elementType);
+    }
 }
@@ -0,0 +1,76 @@
+package com.nytimes.android.external.store3.middleware.moshi;
+
+import com.nytimes.android.external.store3.base.StreamingParser;
+import com.nytimes.android.external.store3.util.ParserException;
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.JsonDataException;
+import com.squareup.moshi.JsonReader;
+import com.squareup.moshi.Moshi;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+import javax.annotation.Nonnull;
+import javax.inject.Inject;
+
+import io.reactivex.Emitter;
+import io.reactivex.Flowable;
+import io.reactivex.annotations.NonNull;
+import okio.Buffer;
+import okio.BufferedSource;
+
+/**
+ * Parser which walks a top-level json array with a {@link JsonReader} and binds its elements one at a time,
+ * as they are requested.
+ * <p>
+ * The source is drained into memory when subscribed to, since persisters close the sources they read once
+ * emitted. Only its bytes are held, elements are decoded lazily and null elements are skipped.
+ */
+public class MoshiStreamingSourceParser<Element> implements StreamingParser<BufferedSource, Element> {
+
+    private final JsonAdapter<Element> jsonAdapter;
+
+    @Inject
+    public MoshiStreamingSourceParser(@Nonnull Moshi moshi, @Nonnull Type elementType) {
+        jsonAdapter = moshi.adapter(elementType);
+    }
+
+    @Override
+    public Flowable<Element> apply(@NonNull final BufferedSource bufferedSource) {
+        return Flowable.generate(() -> open(bufferedSource), this::next, JsonReader::close);
+    }
+
+    @Nonnull
+    private JsonReader open(@Nonnull BufferedSource bufferedSource) throws ParserException {
+        try {
+            Buffer content = new Buffer();
+            try {
+                bufferedSource.readAll(content);
+            } finally {
+                bufferedSource.close();
+            }
+            JsonReader reader = JsonReader.of(content);
+            reader.beginArray();
+            return reader;
+        } catch (IOException | JsonDataException e) {
+            throw new ParserException(e.getMessage(), e);
+        }
+    }
+
+    private void next(@Nonnull JsonReader reader, @Nonnull Emitter<Element> emitter) throws ParserException {
+        try {
+            while (reader.hasNext()) {
+                if (reader.peek() == JsonReader.Token.NULL) {
+                    reader.nextNull();
+                    continue;
+                }
+                emitter.onNext(jsonAdapter.fromJson(reader));
+                return;
+            }
+            reader.endArray();
+            emitter.onComplete();
+        } catch (IOException | JsonDataException e) {
+            throw new ParserException(e.getMessage(), e);
+        }
+    }
+}
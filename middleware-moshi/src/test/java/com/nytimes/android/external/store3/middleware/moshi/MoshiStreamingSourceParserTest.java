@@ -0,0 +1,41 @@
+package com.nytimes.android.external.store3.middleware.moshi;
+
+import com.nytimes.android.external.store3.base.StreamingParser;
+import com.nytimes.android.external.store3.middleware.moshi.data.Bar;
+import com.nytimes.android.external.store3.util.ParserException;
+
+import org.junit.Test;
+
+import io.reactivex.subscribers.TestSubscriber;
+import okio.Buffer;
+import okio.BufferedSource;
+
+import static org.junit.Assert.assertEquals;
+
+public class MoshiStreamingSourceParserTest {
+
+    private final StreamingParser<BufferedSource, Bar> parser =
+            MoshiParserFactory.createStreamingSourceParser(Bar.class);
+
+    @Test
+    public void elementsAreParsedAsTheyAreRequested() {
+        TestSubscriber<Bar> subscriber = parser
+                .apply(new Buffer().writeUtf8("[{\"string\":\"a\"},null,{\"string\":\"b\"}]"))
+                .test(1);
+        assertEquals(1, subscriber.valueCount());
+        assertEquals("a", subscriber.values().get(0).string);
+        subscriber.assertNotComplete();
+
+        subscriber.requestMore(1);
+        assertEquals("b", subscriber.values().get(1).string);
+        subscriber.assertNotComplete();
+
+        subscriber.requestMore(1);
+        subscriber.assertValueCount(2).assertComplete();
+    }
+
+    @Test
+    public void documentWhichIsNotAnArrayFails() {
+        parser.apply(new Buffer().writeUtf8("{\"string\":\"a\"}")).test().assertError(ParserException.class);
+    }
+}
@@ -3,6 +3,7 @@ package com.nytimes.android.external.store3.middleware;
 
 import com.google.gson.Gson;
 import com.nytimes.android.external.store3.base.Parser;
+import com.nytimes.android.external.store3.base.StreamingParser;
 
 import java.io.Reader;
 import java.lang.reflect.Type;
@@ -54,6 +55,25 @@ public final class GsonParserFactory {
         return new GsonSourceParser<>(gson, type);
     }
 
+    /**
+     * Returns a new {@link StreamingParser} which parses the elements of a json array from {@link BufferedSource}
+     * to the specified type one by one, using a new default configured {@link Gson} instance.
+     */
+    @Nonnull
+    public static <T> StreamingParser<BufferedSource, T> createStreamingSourceParser(@Nonnull Type elementType) {
+        return createStreamingSourceParser(new Gson(), elementType);
+    }
+
+    /**
+     * Returns a new {@link StreamingParser} which parses the elements of a json array from {@link BufferedSource}
+     * to the specified type one by one, using the provided {@link Gson} instance.
+     */
+    @Nonnull
+    public static <T> StreamingParser<BufferedSource, T> createStreamingSourceParser(@Nonnull Gson gson,
+                                                                                     @Nonnull Type elementType) {
+        return new GsonStreamingSourceParser<>(gson, elementType);
+    }
+
     /**
      * Returns a new Parser which parses from a String to the specified type, using
      * a new default {@link Gson} instance.
@@ -0,0 +1,85 @@
+package com.nytimes.android.external.store3.middleware;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.nytimes.android.external.store3.base.StreamingParser;
+import com.nytimes.android.external.store3.util.ParserException;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.reflect.Type;
+import java.nio.charset.Charset;
+
+import javax.annotation.Nonnull;
+import javax.inject.Inject;
+
+import io.reactivex.Emitter;
+import io.reactivex.Flowable;
+import io.reactivex.annotations.NonNull;
+import okio.Buffer;
+import okio.BufferedSource;
+
+import static com.nytimes.android.external.cache3.Preconditions.checkNotNull;
+
+/**
+ * Parser which walks a top-level json array with a {@link JsonReader} and binds its elements one at a time,
+ * as they are requested.
+ * <p>
+ * The source is drained into memory when subscribed to, since persisters close the sources they read once
+ * emitted. Only its bytes are held, elements are decoded lazily and null elements are skipped.
+ */
+public class GsonStreamingSourceParser<Element> implements StreamingParser<BufferedSource, Element> {
+
+    private final Gson gson;
+    private final Type elementType;
+
+    @Inject
+    public GsonStreamingSourceParser(Gson gson, Type elementType) {
+        checkNotNull(gson, "Gson can't be null");
+        checkNotNull(elementType, "Type can't be null");
+        this.gson = gson;
+        this.elementType = elementType;
+    }
+
+    @Override
+    public Flowable<Element> apply(@NonNull final BufferedSource bufferedSource) {
+        return Flowable.generate(() -> open(bufferedSource), this::next, JsonReader::close);
+    }
+
+    @Nonnull
+    private JsonReader open(@Nonnull BufferedSource bufferedSource) throws ParserException {
+        try {
+            Buffer content = new Buffer();
+            try {
+                bufferedSource.readAll(content);
+            } finally {
+                bufferedSource.close();
+            }
+            JsonReader reader = gson.newJsonReader(new InputStreamReader(content.inputStream(),
+                    Charset.forName("UTF-8")));
+            reader.beginArray();
+            return reader;
+        } catch (IOException | IllegalStateException e) {
+            throw new ParserException(e.getMessage(), e);
+        }
+    }
+
+    private void next(@Nonnull JsonReader reader, @Nonnull Emitter<Element> emitter) throws ParserException {
+        try {
+            while (reader.hasNext()) {
+                if (reader.peek() == JsonToken.NULL) {
+                    reader.nextNull();
+                    continue;
+                }
+                emitter.onNext(gson.<Element>fromJson(reader, elementType));
+                return;
+            }
+            reader.endArray();
+            emitter.onComplete();
+        } catch (IOException | JsonParseException e) {
+            throw new ParserException(e.getMessage(), e);
+        }
+    }
+}
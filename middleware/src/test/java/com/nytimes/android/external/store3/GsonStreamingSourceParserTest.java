@@ -0,0 +1,45 @@
+package com.nytimes.android.external.store3;
+
+import com.nytimes.android.external.store3.base.StreamingParser;
+import com.nytimes.android.external.store3.middleware.GsonParserFactory;
+import com.nytimes.android.external.store3.util.ParserException;
+
+import org.junit.Test;
+
+import io.reactivex.subscribers.TestSubscriber;
+import okio.Buffer;
+import okio.BufferedSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class GsonStreamingSourceParserTest {
+
+    private final StreamingParser<BufferedSource, Foo> parser =
+            GsonParserFactory.createStreamingSourceParser(Foo.class);
+
+    @Test
+    public void elementsAreParsedAsTheyAreRequested() {
+        TestSubscriber<Foo> subscriber = parser
+                .apply(new Buffer().writeUtf8("[{\"value\":\"a\"},null,{\"value\":\"b\"}]"))
+                .test(1);
+        assertThat(subscriber.values()).hasSize(1);
+        assertThat(subscriber.values().get(0).value).isEqualTo("a");
+        subscriber.assertNotComplete();
+
+        subscriber.requestMore(1);
+        assertThat(subscriber.values().get(1).value).isEqualTo("b");
+        subscriber.assertNotComplete();
+
+        subscriber.requestMore(1);
+        subscriber.assertValueCount(2).assertComplete();
+    }
+
+    @Test
+    public void documentWhichIsNotAnArrayFails() {
+        parser.apply(new Buffer().writeUtf8("{\"value\":\"a\"}")).test().assertError(ParserException.class);
+    }
+
+    private static class Foo {
+        String value;
+    }
+}
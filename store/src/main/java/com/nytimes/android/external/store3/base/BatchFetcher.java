@@ -0,0 +1,25 @@
+package com.nytimes.android.external.store3.base;
+
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+
+import io.reactivex.Single;
+
+
+/**
+ * Interface for fetching new data for many keys of a Store with a single backend call
+ *
+ * @param <Raw> data type before parsing
+ */
+public interface BatchFetcher<Raw, Key> {
+
+    /**
+     * @param keys keys which could not be served from memory or disk, without duplicates
+     * @return Single that emits a {@link Raw} value for each key that could be loaded.
+     * Keys missing from the map will fail individually.
+     */
+    @Nonnull
+    Single<Map<Key, Raw>> fetchAll(@Nonnull List<Key> keys);
+}
@@ -0,0 +1,26 @@
+package com.nytimes.android.external.store3.base;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import io.reactivex.Single;
+
+
+/**
+ * Interface for fetching new data for a Store only if it changed since it was last fetched, for example with an
+ * If-None-Match or If-Modified-Since request
+ *
+ * @param <Raw> data type before parsing
+ */
+public interface ConditionalFetcher<Raw, Key> {
+
+    /**
+     * @param key        Container with Key and Type used as a request param
+     * @param validators validators stored with the record of key by a persister implementing
+     *                   {@link ValidatorProvider}, or null when there is no record or it has none
+     * @return Single that emits the {@link Raw} data fetched, or that it has not been modified.
+     * It may only answer not modified when validators are given.
+     */
+    @Nonnull
+    Single<FetchResponse<Raw>> fetch(@Nonnull Key key, @Nullable Validators validators);
+}
@@ -0,0 +1,22 @@
+package com.nytimes.android.external.store3.base;
+
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+
+import io.reactivex.Single;
+
+/**
+ * Persisters should implement DiskBatchWrite if they can write several records at once for less
+ * than writing each of them, it is then used to flush a
+ * {@link com.nytimes.android.external.store3.base.impl.WriteBehindPersister WriteBehindPersister}
+ *
+ * @param <Raw> data type before parsing
+ */
+public interface DiskBatchWrite<Raw, Key> extends DiskWrite<Raw, Key> {
+    /**
+     * @param raws records to write, each of them as {@link DiskWrite#write} would
+     */
+    @Nonnull
+    Single<Boolean> writeAll(@Nonnull Map<Key, Raw> raws);
+}
@@ -0,0 +1,21 @@
+package com.nytimes.android.external.store3.base;
+
+import java.io.IOException;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Implemented by persisters which can write raw data while it is being parsed, instead of writing it completely
+ * and reading it back before parsing
+ *
+ * @param <Raw> data type before parsing
+ */
+public interface DiskTee<Raw, Key> {
+
+    /**
+     * @param raw data to write to key, as it is read from {@link PendingWrite#raw()}
+     * @return a write of key which nobody can read until it is committed
+     */
+    @Nonnull
+    PendingWrite<Raw> tee(@Nonnull Key key, @Nonnull Raw raw) throws IOException;
+}
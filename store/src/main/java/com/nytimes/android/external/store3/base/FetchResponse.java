@@ -0,0 +1,55 @@
+package com.nytimes.android.external.store3.base;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Answer of a {@link ConditionalFetcher}: either new raw data, or that the record on disk has not changed
+ *
+ * @param <Raw> data type before parsing
+ */
+public final class FetchResponse<Raw> {
+
+    @Nullable
+    private final Raw raw;
+    @Nullable
+    private final Validators validators;
+
+    private FetchResponse(@Nullable Raw raw, @Nullable Validators validators) {
+        this.raw = raw;
+        this.validators = validators;
+    }
+
+    /**
+     * @param validators validators of raw, to be stored alongside it for the next fetch, or null if it has none
+     */
+    @Nonnull
+    public static <Raw> FetchResponse<Raw> modified(@Nonnull Raw raw, @Nullable Validators validators) {
+        return new FetchResponse<>(raw, validators);
+    }
+
+    /**
+     * @param validators new validators of the record if the server sent any, or null to keep the stored ones
+     */
+    @Nonnull
+    public static <Raw> FetchResponse<Raw> notModified(@Nullable Validators validators) {
+        return new FetchResponse<>(null, validators);
+    }
+
+    public boolean isNotModified() {
+        return raw == null;
+    }
+
+    /**
+     * @return the data fetched, or null when it has not been modified
+     */
+    @Nullable
+    public Raw getRaw() {
+        return raw;
+    }
+
+    @Nullable
+    public Validators getValidators() {
+        return validators;
+    }
+}
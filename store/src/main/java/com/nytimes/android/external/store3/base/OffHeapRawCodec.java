@@ -0,0 +1,22 @@
+package com.nytimes.android.external.store3.base;
+
+import java.nio.ByteBuffer;
+
+import javax.annotation.Nonnull;
+
+/**
+ * {@link RawCodec} which can also decode {@link Raw} data kept outside of the Java heap, straight from the blocks
+ * holding it, see {@link com.nytimes.android.external.store3.base.impl.RealStoreBuilder#offHeapCache}
+ *
+ * @param <Raw> data type before parsing
+ */
+public interface OffHeapRawCodec<Raw> extends RawCodec<Raw> {
+
+    /**
+     * @param blocks content returned by {@link #encode(Object)} split in order over buffers, each read from its
+     *               position to its limit. They are only valid during the call, their content must be copied.
+     * @return a new {@link Raw} value with that content, ready to be parsed
+     */
+    @Nonnull
+    Raw decode(@Nonnull ByteBuffer[] blocks);
+}
@@ -0,0 +1,29 @@
+package com.nytimes.android.external.store3.base;
+
+import java.io.IOException;
+
+import javax.annotation.Nonnull;
+
+/**
+ * A write started by {@link DiskTee#tee}, which must be either committed or aborted once its raw data is parsed
+ *
+ * @param <Raw> data type before parsing
+ */
+public interface PendingWrite<Raw> {
+
+    /**
+     * @return the data being written, to hand to the parser
+     */
+    @Nonnull
+    Raw raw();
+
+    /**
+     * writes whatever the parser left unread and makes the write visible to readers
+     */
+    void commit() throws IOException;
+
+    /**
+     * drops the write, leaving the previous record in place
+     */
+    void abort();
+}
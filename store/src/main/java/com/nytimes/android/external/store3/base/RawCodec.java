@@ -0,0 +1,29 @@
+package com.nytimes.android.external.store3.base;
+
+import java.io.IOException;
+
+import javax.annotation.Nonnull;
+
+
+/**
+ * Interface for turning {@link Raw} data into bytes and back, so that it can be kept outside of the Java heap
+ *
+ * @param <Raw> data type before parsing
+ */
+public interface RawCodec<Raw> {
+
+    /**
+     * @param raw value read from the persister, which may be consumed
+     * @return the content of raw
+     */
+    @Nonnull
+    byte[] encode(@Nonnull Raw raw) throws IOException;
+
+    /**
+     * @param bytes content returned by {@link #encode(Object)}, handed over to the new value which may read it
+     *              without copying it
+     * @return a new {@link Raw} value with that content, ready to be parsed
+     */
+    @Nonnull
+    Raw decode(@Nonnull byte[] bytes);
+}
@@ -0,0 +1,23 @@
+package com.nytimes.android.external.store3.base;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnull;
+
+
+/**
+ * Interface for counting the bytes of raw data as it is parsed, so that values parsed from it can be weighed by
+ * that size in memory, see {@link com.nytimes.android.external.store3.base.impl.MemoryPolicy#getMaxWeight()}
+ *
+ * @param <Raw> data type before parsing
+ */
+public interface RawMeter<Raw> {
+
+    /**
+     * @param raw       value about to be parsed
+     * @param bytesRead to add the size of the content of raw to, as it is read or right away
+     * @return raw, or a value with the same content which counts what is read from it
+     */
+    @Nonnull
+    Raw meter(@Nonnull Raw raw, @Nonnull AtomicLong bytesRead);
+}
@@ -0,0 +1,24 @@
+package com.nytimes.android.external.store3.base;
+
+import com.nytimes.android.external.store3.util.ParserException;
+
+import io.reactivex.Flowable;
+import io.reactivex.annotations.NonNull;
+import io.reactivex.functions.Function;
+
+/**
+ * Parser which decodes the elements of a collection one by one as they are requested, instead of
+ * materialising the whole collection before anything is emitted.
+ *
+ * @param <Raw>     data type before parsing, usually a BufferedSource
+ * @param <Element> data type of an element of the collection
+ */
+public interface StreamingParser<Raw, Element> extends Function<Raw, Flowable<Element>> {
+
+    /**
+     * @return the elements of raw, which is read when the result is subscribed to and closed once it terminates
+     */
+    @Override
+    Flowable<Element> apply(@NonNull Raw raw) throws ParserException;
+
+}
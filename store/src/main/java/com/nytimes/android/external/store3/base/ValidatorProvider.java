@@ -0,0 +1,30 @@
+package com.nytimes.android.external.store3.base;
+
+import java.io.IOException;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Implemented by persisters which keep the {@link Validators} of their records alongside them, for a
+ * {@link ConditionalFetcher}
+ */
+public interface ValidatorProvider<Key> {
+
+    /**
+     * @return validators of the record of key, or null if there is no record or it has none
+     */
+    @Nullable
+    Validators getValidators(@Nonnull Key key);
+
+    /**
+     * replaces the validators of the record of key, or removes them when validators is null
+     */
+    void setValidators(@Nonnull Key key, @Nullable Validators validators) throws IOException;
+
+    /**
+     * marks the record of key as just written, without rewriting it, after a fetch found that it has not changed.
+     * A persister which is also a {@link RecordProvider} reports the record as fresh afterwards.
+     */
+    void touch(@Nonnull Key key) throws IOException;
+}
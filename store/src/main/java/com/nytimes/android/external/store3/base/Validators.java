@@ -0,0 +1,54 @@
+package com.nytimes.android.external.store3.base;
+
+import javax.annotation.Nullable;
+
+/**
+ * Validators of a record, such as the ETag and Last-Modified headers of the response it was fetched from, which a
+ * {@link ConditionalFetcher} sends along so that the server can answer that the record has not changed.
+ */
+public final class Validators {
+
+    @Nullable
+    private final String eTag;
+    @Nullable
+    private final String lastModified;
+
+    public Validators(@Nullable String eTag, @Nullable String lastModified) {
+        this.eTag = eTag;
+        this.lastModified = lastModified;
+    }
+
+    @Nullable
+    public String getETag() {
+        return eTag;
+    }
+
+    @Nullable
+    public String getLastModified() {
+        return lastModified;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        Validators that = (Validators) o;
+        return (eTag == null ? that.eTag == null : eTag.equals(that.eTag))
+                && (lastModified == null ? that.lastModified == null : lastModified.equals(that.lastModified));
+    }
+
+    @Override
+    public int hashCode() {
+        int result = eTag == null ? 0 : eTag.hashCode();
+        return 31 * result + (lastModified == null ? 0 : lastModified.hashCode());
+    }
+
+    @Override
+    public String toString() {
+        return "Validators{eTag='" + eTag + "', lastModified='" + lastModified + "'}";
+    }
+}
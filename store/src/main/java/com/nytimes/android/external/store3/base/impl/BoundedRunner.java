@@ -0,0 +1,236 @@
+package com.nytimes.android.external.store3.base.impl;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import io.reactivex.Maybe;
+import io.reactivex.MaybeEmitter;
+import io.reactivex.MaybeObserver;
+import io.reactivex.Scheduler;
+import io.reactivex.disposables.Disposable;
+
+/**
+ * Runs units of work on a {@link Scheduler}, with at most maxConcurrency of them running at once. Work beyond that
+ * waits in a queue, by priority when the runner orders priorities, then in the order it was subscribed to.
+ * <p>
+ * A unit of work holds its slot until it terminates or is disposed, so asynchronous work such as a network
+ * call is bounded as well. Its result is emitted after the slot is released, on the thread it terminated on.
+ */
+final class BoundedRunner {
+
+    /**
+     * Told of the unit of work it was scheduled with as it moves through the queue
+     */
+    interface QueueListener {
+
+        /**
+         * @param delta one when the work joins the queue, minus one when it leaves it
+         */
+        void onQueueDepthChanged(int delta);
+
+        /**
+         * @param waitNanos time the work waited for a slot
+         */
+        void onStarted(long waitNanos);
+    }
+
+    private static final int QUEUED = 0;
+    private static final int RUNNING = 1;
+    private static final int DONE = 2;
+
+    @Nonnull
+    private final Scheduler scheduler;
+    private final int maxConcurrency;
+    private final PriorityQueue<Task<?>> pending;
+    private int running;
+    private long sequence;
+
+    /**
+     * @param priorityOrder orders the priorities work is scheduled with, queued work runs first to last in it,
+     *                      when null priorities are ignored
+     */
+    BoundedRunner(@Nonnull Scheduler scheduler, int maxConcurrency,
+                  @Nullable final Comparator<Integer> priorityOrder) {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("maxConcurrency must be positive");
+        }
+        this.scheduler = scheduler;
+        this.maxConcurrency = maxConcurrency;
+        this.pending = new PriorityQueue<>(11, (first, second) -> {
+            if (priorityOrder != null) {
+                int byPriority = priorityOrder.compare(first.priority, second.priority);
+                if (byPriority != 0) {
+                    return byPriority;
+                }
+            }
+            return first.order < second.order ? -1 : (first.order == second.order ? 0 : 1);
+        });
+    }
+
+    /**
+     * @param listener when not null, told when work joins and leaves the queue and how long it waited
+     * @return work, queued when subscribed to and removed from the queue, or disposed, when disposed
+     */
+    @Nonnull
+    <T> Maybe<T> schedule(@Nonnull final Maybe<T> work, final int priority,
+                          @Nullable final QueueListener listener) {
+        return Maybe.create(emitter -> {
+            if (listener != null) {
+                listener.onQueueDepthChanged(1);
+            }
+            Task<T> task;
+            synchronized (this) {
+                task = new Task<>(work, emitter, priority, sequence++, listener);
+                pending.offer(task);
+            }
+            emitter.setCancellable(task::cancel);
+            drain();
+        });
+    }
+
+    /**
+     * @return units of work waiting for a slot
+     */
+    synchronized int getQueueDepth() {
+        return pending.size();
+    }
+
+    /**
+     * @return units of work holding a slot
+     */
+    synchronized int getActiveCount() {
+        return running;
+    }
+
+    int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    private void drain() {
+        List<Task<?>> started = new ArrayList<>();
+        synchronized (this) {
+            while (running < maxConcurrency && !pending.isEmpty()) {
+                running++;
+                started.add(pending.poll());
+            }
+        }
+        for (Task<?> task : started) {
+            task.dequeued();
+            scheduler.scheduleDirect(task);
+        }
+    }
+
+    private void release() {
+        synchronized (this) {
+            running--;
+        }
+        drain();
+    }
+
+    private final class Task<T> extends AtomicInteger implements Runnable, MaybeObserver<T> {
+
+        private static final long serialVersionUID = 1;
+
+        @Nonnull
+        private final Maybe<T> work;
+        @Nonnull
+        private final MaybeEmitter<T> emitter;
+        private final int priority;
+        private final long order;
+        @Nullable
+        private final QueueListener listener;
+        private final long queuedAt = System.nanoTime();
+        @Nullable
+        private volatile Disposable upstream;
+
+        Task(@Nonnull Maybe<T> work, @Nonnull MaybeEmitter<T> emitter, int priority, long order,
+             @Nullable QueueListener listener) {
+            super(QUEUED);
+            this.work = work;
+            this.emitter = emitter;
+            this.priority = priority;
+            this.order = order;
+            this.listener = listener;
+        }
+
+        void dequeued() {
+            if (listener != null) {
+                listener.onQueueDepthChanged(-1);
+            }
+        }
+
+        @Override
+        public void run() {
+            if (!compareAndSet(QUEUED, RUNNING)) {
+                // disposed after leaving the queue, the slot it was given is free again
+                release();
+                return;
+            }
+            if (listener != null) {
+                listener.onStarted(System.nanoTime() - queuedAt);
+            }
+            work.subscribe(this);
+        }
+
+        void cancel() {
+            if (compareAndSet(QUEUED, DONE)) {
+                boolean removed;
+                synchronized (BoundedRunner.this) {
+                    removed = pending.remove(this);
+                }
+                if (removed) {
+                    dequeued();
+                }
+            } else if (compareAndSet(RUNNING, DONE)) {
+                Disposable disposable = upstream;
+                if (disposable != null) {
+                    disposable.dispose();
+                }
+                release();
+            }
+        }
+
+        @Override
+        public void onSubscribe(@Nonnull Disposable disposable) {
+            upstream = disposable;
+            if (get() == DONE) {
+                disposable.dispose();
+            }
+        }
+
+        @Override
+        public void onSuccess(@Nonnull T value) {
+            if (finish()) {
+                emitter.onSuccess(value);
+            }
+        }
+
+        @Override
+        public void onError(@Nonnull Throwable error) {
+            if (finish()) {
+                emitter.onError(error);
+            }
+        }
+
+        @Override
+        public void onComplete() {
+            if (finish()) {
+                emitter.onComplete();
+            }
+        }
+
+        private boolean finish() {
+            if (compareAndSet(RUNNING, DONE)) {
+                release();
+                return true;
+            }
+            return false;
+        }
+    }
+}
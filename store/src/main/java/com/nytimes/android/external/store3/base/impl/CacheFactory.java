@@ -2,81 +2,234 @@ package com.nytimes.android.external.store3.base.impl;
 
 import com.nytimes.android.external.cache3.Cache;
 import com.nytimes.android.external.cache3.CacheBuilder;
+import com.nytimes.android.external.cache3.Expiry;
+import com.nytimes.android.external.cache3.RemovalListener;
+import com.nytimes.android.external.cache3.Weigher;
 
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import io.reactivex.Maybe;
 import io.reactivex.Observable;
-import io.reactivex.Single;
 
 public final class CacheFactory {
+    /**
+     * size of the raw data of the value the current thread puts in a memory cache, see {@link #put}
+     */
+    private static final ThreadLocal<Long> RAW_BYTES = new ThreadLocal<>();
+
     private CacheFactory() {
 
     }
 
-    static <Key, Parsed> Cache<Key, Maybe<Parsed>> createCache(MemoryPolicy memoryPolicy) {
-       return createBaseCache(memoryPolicy);
+    static <Key, Parsed> Cache<Key, Parsed> createCache(MemoryPolicy memoryPolicy) {
+       return createCache(memoryPolicy, null);
     }
 
-    static <Key, Parsed> Cache<Key, Single<Parsed>> createInflighter(MemoryPolicy memoryPolicy) {
-       return createBaseInFlighter(memoryPolicy);
+    static <Key, Parsed> Cache<Key, Parsed> createCache(MemoryPolicy memoryPolicy,
+                                                         @Nullable StoreMetrics metrics) {
+        return createBaseCache(memoryPolicy, metrics, null);
     }
 
-    public static <Key, Parsed> Cache<Key, Observable<Parsed>> createRoomCache(MemoryPolicy memoryPolicy) {
-     return createBaseCache(memoryPolicy);
+    /**
+     * @param removalListener notified of every value which leaves the cache, whether it is replaced, invalidated,
+     *                        expired or evicted
+     */
+    static <Key, Parsed> Cache<Key, Parsed> createCache(MemoryPolicy memoryPolicy,
+                                                         @Nullable StoreMetrics metrics,
+                                                         @Nonnull RemovalListener<Key, Parsed> removalListener) {
+        return createBaseCache(memoryPolicy, metrics, removalListener);
     }
 
+    /**
+     * @return whether caches created with memoryPolicy weigh values by the size of their raw data, which must then
+     * be measured and passed to {@link #put}
+     */
+    static boolean weighsRawBytes(@Nullable MemoryPolicy memoryPolicy) {
+        return memoryPolicy != null && memoryPolicy.hasMaxWeight() && memoryPolicy.getSizeEstimator() == null;
+    }
 
-
-    public static <Key, Parsed> Cache<Key, Observable<Parsed>> createRoomInflighter(MemoryPolicy memoryPolicy) {
-        return createBaseInFlighter(memoryPolicy);
+    /**
+     * Puts value in a cache created by {@link #createCache}, weighed by rawBytes if the cache weighs raw sizes
+     */
+    static <Key, Parsed> void put(@Nonnull Cache<Key, Parsed> cache, @Nonnull Key key, @Nonnull Parsed value,
+                                  @Nullable AtomicLong rawBytes) {
+        if (rawBytes == null) {
+            cache.put(key, value);
+            return;
+        }
+        // weighers run on the thread which puts
+        RAW_BYTES.set(rawBytes.get());
+        try {
+            cache.put(key, value);
+        } finally {
+            RAW_BYTES.remove();
+        }
     }
 
+    /**
+     * @return cache of the responses of a {@link com.nytimes.android.external.store3.util.NoopPersister}, which
+     * keeps each of them for as long as the {@link MemoryPolicy#getExpiry() expiry} of memoryPolicy keeps a value,
+     * the expiry must then accept raw values
+     */
+    public static <Key, Raw> Cache<Key, Maybe<Raw>> createResponseCache(@Nonnull MemoryPolicy memoryPolicy) {
+        final Expiry<Object, Object> expiry = expiry(memoryPolicy);
+        CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder();
+        if (memoryPolicy.hasMaxSize()) {
+            builder.maximumSize(memoryPolicy.getMaxSize());
+        }
+        return builder
+                .expireAfter(new Expiry<Key, Maybe<Raw>>() {
+                    @Override
+                    public long expireAfterCreate(Key key, Maybe<Raw> response, long currentTime) {
+                        return expiry.expireAfterCreate(key, response.blockingGet(), currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(Key key, Maybe<Raw> response, long currentTime,
+                                                  long currentDuration) {
+                        return expiry.expireAfterUpdate(key, response.blockingGet(), currentTime, currentDuration);
+                    }
+
+                    @Override
+                    public long expireAfterRead(Key key, Maybe<Raw> response, long currentTime, long currentDuration) {
+                        return expiry.expireAfterRead(key, response.blockingGet(), currentTime, currentDuration);
+                    }
+                })
+                .build();
+    }
 
-    private static <Key, Value> Cache<Key, Value> createBaseInFlighter(MemoryPolicy memoryPolicy) {
-        long expireAfterToSeconds = memoryPolicy == null ? StoreDefaults.getCacheTTLTimeUnit()
-                .toSeconds(StoreDefaults.getCacheTTL())
-                : memoryPolicy.getExpireAfterTimeUnit().toSeconds(memoryPolicy.getExpireAfterWrite());
-        long maximumInFlightRequestsDuration = TimeUnit.MINUTES.toSeconds(1);
+    /**
+     * @throws IllegalArgumentException if memoryPolicy has an {@link MemoryPolicy#getExpiry() expiry} or a
+     *                                  {@link MemoryPolicy#hasMaxWeight() max weight}, which cannot be applied to
+     *                                  the streams of values kept in memory by a StoreRoom
+     */
+    public static <Key, Parsed> Cache<Key, Observable<Parsed>> createRoomCache(MemoryPolicy memoryPolicy) {
+        return createRoomCache(memoryPolicy, null);
+    }
 
-        if (expireAfterToSeconds > maximumInFlightRequestsDuration) {
-            return CacheBuilder
-                    .newBuilder()
-                    .expireAfterWrite(maximumInFlightRequestsDuration, TimeUnit.SECONDS)
-                    .build();
-        } else {
-            long expireAfter = memoryPolicy == null ? StoreDefaults.getCacheTTL() :
-                    memoryPolicy.getExpireAfterWrite();
-            TimeUnit expireAfterUnit = memoryPolicy == null ? StoreDefaults.getCacheTTLTimeUnit() :
-                    memoryPolicy.getExpireAfterTimeUnit();
-            return CacheBuilder.newBuilder()
-                    .expireAfterWrite(expireAfter, expireAfterUnit)
-                    .build();
+    /**
+     * @throws IllegalArgumentException if memoryPolicy has an {@link MemoryPolicy#getExpiry() expiry} or a
+     *                                  {@link MemoryPolicy#hasMaxWeight() max weight}, which cannot be applied to
+     *                                  the streams of values kept in memory by a StoreRoom
+     */
+    public static <Key, Parsed> Cache<Key, Observable<Parsed>> createRoomCache(MemoryPolicy memoryPolicy,
+                                                                               @Nullable StoreMetrics metrics) {
+        if (memoryPolicy != null && memoryPolicy.hasExpiry()) {
+            throw new IllegalArgumentException("A StoreRoom does not support a memory policy with an expiry");
         }
+        if (memoryPolicy != null && memoryPolicy.hasMaxWeight()) {
+            throw new IllegalArgumentException("A StoreRoom does not support a memory policy with a max weight");
+        }
+        return createBaseCache(memoryPolicy, metrics, null);
     }
 
-
-    private static <Key, Value> Cache<Key, Value> createBaseCache(MemoryPolicy memoryPolicy){
+    private static <Key, Value> Cache<Key, Value> createBaseCache(MemoryPolicy memoryPolicy,
+                                                                  @Nullable StoreMetrics metrics,
+                                                                  @Nullable RemovalListener<Key, Value>
+                                                                          removalListener) {
+        CacheBuilder<Object, Object> builder;
         if (memoryPolicy == null) {
-            return CacheBuilder
+            builder = CacheBuilder
                     .newBuilder()
                     .maximumSize(StoreDefaults.getCacheSize())
-                    .expireAfterWrite(StoreDefaults.getCacheTTL(), StoreDefaults.getCacheTTLTimeUnit())
-                    .build();
+                    .expireAfterWrite(StoreDefaults.getCacheTTL(), StoreDefaults.getCacheTTLTimeUnit());
         } else {
-            if (memoryPolicy.getExpireAfterAccess() == memoryPolicy.DEFAULT_POLICY) {
-                return CacheBuilder
-                        .newBuilder()
-                        .maximumSize(memoryPolicy.getMaxSize())
-                        .expireAfterWrite(memoryPolicy.getExpireAfterWrite(), memoryPolicy.getExpireAfterTimeUnit())
-                        .build();
+            builder = CacheBuilder.newBuilder();
+            if (memoryPolicy.hasMaxWeight()) {
+                builder.maximumWeight(memoryPolicy.getMaxWeight())
+                        .weigher(CacheFactory.<Key, Value>weigher(memoryPolicy));
+                if (memoryPolicy.getSharedBudget() != null) {
+                    builder.weightBudget(memoryPolicy.getSharedBudget().weightBudget());
+                }
+            } else {
+                builder.maximumSize(memoryPolicy.getMaxSize());
+            }
+            if (memoryPolicy.hasExpiry()) {
+                builder.expireAfter(CacheFactory.<Key, Value>expiry(memoryPolicy));
+            } else if (memoryPolicy.getExpireAfterAccess() == memoryPolicy.DEFAULT_POLICY) {
+                builder.expireAfterWrite(memoryPolicy.getExpireAfterWrite(), memoryPolicy.getExpireAfterTimeUnit());
+            } else {
+                builder.expireAfterAccess(memoryPolicy.getExpireAfterAccess(), memoryPolicy.getExpireAfterTimeUnit());
+            }
+        }
+        if (memoryPolicy != null) {
+            builder.evictionPolicy(evictionPolicy(memoryPolicy.getEvictionPolicy()));
+        }
+        if (removalListener != null) {
+            return build(builder.removalListener(removalListener), metrics);
+        }
+        return build(builder, metrics);
+    }
+
+    private static <Key, Value> Cache<Key, Value> build(CacheBuilder<? super Key, ? super Value> builder,
+                                                        @Nullable StoreMetrics metrics) {
+        if (metrics == null) {
+            return builder.build();
+        }
+        Cache<Key, Value> cache = builder.recordStats().build();
+        metrics.bindMemoryCache(cache);
+        return cache;
+    }
+
+    @Nonnull
+    @SuppressWarnings("unchecked")
+    private static <Key, Value> Weigher<Object, Object> weigher(@Nonnull MemoryPolicy memoryPolicy) {
+        final SizeEstimator<Object, Object> estimator = (SizeEstimator<Object, Object>) memoryPolicy.getSizeEstimator();
+        return (key, value) -> {
+            long bytes;
+            if (estimator != null) {
+                bytes = estimator.estimateBytes(key, value);
             } else {
-                return CacheBuilder
-                        .newBuilder()
-                        .maximumSize(memoryPolicy.getMaxSize())
-                        .expireAfterAccess(memoryPolicy.getExpireAfterAccess(), memoryPolicy.getExpireAfterTimeUnit())
-                        .build();
+                Long rawBytes = RAW_BYTES.get();
+                bytes = rawBytes == null ? 1 : rawBytes;
             }
+            return (int) Math.max(1, Math.min(Integer.MAX_VALUE, bytes));
+        };
+    }
+
+    @Nonnull
+    @SuppressWarnings("unchecked")
+    private static <Key, Value> Expiry<Object, Object> expiry(@Nonnull MemoryPolicy memoryPolicy) {
+        final MemoryExpiry<Object, Object> expiry = (MemoryExpiry<Object, Object>) memoryPolicy.getExpiry();
+        final TimeUnit unit = memoryPolicy.getExpireAfterTimeUnit();
+        return new Expiry<Object, Object>() {
+            @Override
+            public long expireAfterCreate(Object key, Object value, long currentTime) {
+                return unit.toNanos(expiry.expireAfterCreate(key, value));
+            }
+
+            @Override
+            public long expireAfterUpdate(Object key, Object value, long currentTime, long currentDuration) {
+                long duration = unit.convert(currentDuration, TimeUnit.NANOSECONDS);
+                return toNanos(expiry.expireAfterUpdate(key, value, duration), duration, currentDuration);
+            }
+
+            @Override
+            public long expireAfterRead(Object key, Object value, long currentTime, long currentDuration) {
+                long duration = unit.convert(currentDuration, TimeUnit.NANOSECONDS);
+                return toNanos(expiry.expireAfterRead(key, value, duration), duration, currentDuration);
+            }
+
+            /**
+             * durations handed to the expiry are rounded down to its unit, returning one as it was given keeps the
+             * expiration it stood for instead of moving it forward to the rounded down duration
+             */
+            private long toNanos(long returned, long given, long currentNanos) {
+                return returned == given ? currentNanos : unit.toNanos(returned);
+            }
+        };
+    }
+
+    private static com.nytimes.android.external.cache3.EvictionPolicy evictionPolicy(EvictionPolicy evictionPolicy) {
+        switch (evictionPolicy) {
+            case TINY_LFU:
+                return com.nytimes.android.external.cache3.EvictionPolicy.TINY_LFU;
+            default:
+                return com.nytimes.android.external.cache3.EvictionPolicy.LRU;
         }
     }
 
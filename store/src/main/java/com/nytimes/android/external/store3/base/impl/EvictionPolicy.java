@@ -0,0 +1,16 @@
+package com.nytimes.android.external.store3.base.impl;
+
+/**
+ * How the memory cache of a Store picks the entry to drop once it holds {@link MemoryPolicy#getMaxSize()} entries
+ */
+public enum EvictionPolicy {
+    /**
+     * drop the least recently used entry
+     */
+    LRU,
+    /**
+     * only admit a new entry in place of an older one when it has been used more often recently,
+     * which keeps popular entries in memory when many entries are read once, such as while scrolling a long list
+     */
+    TINY_LFU
+}
@@ -0,0 +1,199 @@
+package com.nytimes.android.external.store3.base.impl;
+
+import com.nytimes.android.external.store.util.Result;
+import com.nytimes.android.external.store3.base.BatchFetcher;
+import com.nytimes.android.external.store3.base.ConditionalFetcher;
+import com.nytimes.android.external.store3.base.RawCodec;
+import com.nytimes.android.external.store3.base.RawMeter;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import io.reactivex.Scheduler;
+import io.reactivex.schedulers.Schedulers;
+
+/**
+ * Everything a {@link RealInternalStore} may be opened with besides its fetcher, persister, parser and policies,
+ * as set up by {@link RealStoreBuilder}. Options which are not set keep the behavior of a store without them.
+ */
+final class InternalStoreOptions<Raw, Parsed, Key> {
+
+    @Nullable
+    private BatchFetcher<Raw, Key> batchFetcher;
+    @Nullable
+    private ConditionalFetcher<Raw, Key> conditionalFetcher;
+    @Nullable
+    private StoreMetrics metrics;
+    @Nullable
+    private OffHeapRawCache<Raw, Key> rawCache;
+    @Nonnull
+    private Scheduler refreshScheduler = Schedulers.io();
+    @Nullable
+    private RequestCoalescer<Key, Result<Parsed>> inFlightRequests;
+    @Nonnull
+    private Map<StoreMetrics.Stage, StageScheduler> stageSchedulers =
+            new EnumMap<StoreMetrics.Stage, StageScheduler>(StoreMetrics.Stage.class);
+    @Nullable
+    private RawCodec<Raw> handOffCodec;
+    @Nullable
+    private RawMeter<Raw> rawMeter;
+    @Nullable
+    private PrefetchQueue prefetchQueue;
+    @Nullable
+    private NegativeCache<Key> negativeCache;
+    private boolean parseWhileWriting;
+
+    @Nonnull
+    InternalStoreOptions<Raw, Parsed, Key> batchFetcher(@Nullable BatchFetcher<Raw, Key> batchFetcher) {
+        this.batchFetcher = batchFetcher;
+        return this;
+    }
+
+    /**
+     * @param conditionalFetcher used instead of the fetcher to fetch single keys with the validators of their
+     *                           records
+     */
+    @Nonnull
+    InternalStoreOptions<Raw, Parsed, Key> conditionalFetcher(
+            @Nullable ConditionalFetcher<Raw, Key> conditionalFetcher) {
+        this.conditionalFetcher = conditionalFetcher;
+        return this;
+    }
+
+    @Nonnull
+    InternalStoreOptions<Raw, Parsed, Key> metrics(@Nullable StoreMetrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
+    @Nonnull
+    InternalStoreOptions<Raw, Parsed, Key> rawCache(@Nullable OffHeapRawCache<Raw, Key> rawCache) {
+        this.rawCache = rawCache;
+        return this;
+    }
+
+    @Nonnull
+    InternalStoreOptions<Raw, Parsed, Key> refreshScheduler(@Nonnull Scheduler refreshScheduler) {
+        this.refreshScheduler = refreshScheduler;
+        return this;
+    }
+
+    /**
+     * Defaults to a coalescer without timeouts or hedging, reporting to the metrics
+     */
+    @Nonnull
+    InternalStoreOptions<Raw, Parsed, Key> inFlightRequests(
+            @Nonnull RequestCoalescer<Key, Result<Parsed>> inFlightRequests) {
+        this.inFlightRequests = inFlightRequests;
+        return this;
+    }
+
+    @Nonnull
+    InternalStoreOptions<Raw, Parsed, Key> stageSchedulers(
+            @Nonnull Map<StoreMetrics.Stage, StageScheduler> stageSchedulers) {
+        this.stageSchedulers = stageSchedulers;
+        return this;
+    }
+
+    @Nonnull
+    InternalStoreOptions<Raw, Parsed, Key> handOffCodec(@Nullable RawCodec<Raw> handOffCodec) {
+        this.handOffCodec = handOffCodec;
+        return this;
+    }
+
+    @Nonnull
+    InternalStoreOptions<Raw, Parsed, Key> rawMeter(@Nullable RawMeter<Raw> rawMeter) {
+        this.rawMeter = rawMeter;
+        return this;
+    }
+
+    /**
+     * Defaults to a queue running {@link PrefetchQueue#DEFAULT_MAX_CONCURRENCY} prefetches at once on the io
+     * scheduler
+     */
+    @Nonnull
+    InternalStoreOptions<Raw, Parsed, Key> prefetchQueue(@Nonnull PrefetchQueue prefetchQueue) {
+        this.prefetchQueue = prefetchQueue;
+        return this;
+    }
+
+    @Nonnull
+    InternalStoreOptions<Raw, Parsed, Key> negativeCache(@Nullable NegativeCache<Key> negativeCache) {
+        this.negativeCache = negativeCache;
+        return this;
+    }
+
+    /**
+     * @param parseWhileWriting whether fetched data is parsed while the persister writes it, see
+     *                          {@link RealStoreBuilder#parseWhileWriting()}
+     */
+    @Nonnull
+    InternalStoreOptions<Raw, Parsed, Key> parseWhileWriting(boolean parseWhileWriting) {
+        this.parseWhileWriting = parseWhileWriting;
+        return this;
+    }
+
+    @Nullable
+    BatchFetcher<Raw, Key> getBatchFetcher() {
+        return batchFetcher;
+    }
+
+    @Nullable
+    ConditionalFetcher<Raw, Key> getConditionalFetcher() {
+        return conditionalFetcher;
+    }
+
+    @Nullable
+    StoreMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Nullable
+    OffHeapRawCache<Raw, Key> getRawCache() {
+        return rawCache;
+    }
+
+    @Nonnull
+    Scheduler getRefreshScheduler() {
+        return refreshScheduler;
+    }
+
+    @Nonnull
+    RequestCoalescer<Key, Result<Parsed>> getInFlightRequests() {
+        return inFlightRequests == null ? new RequestCoalescer<Key, Result<Parsed>>(metrics) : inFlightRequests;
+    }
+
+    @Nonnull
+    Map<StoreMetrics.Stage, StageScheduler> getStageSchedulers() {
+        return stageSchedulers;
+    }
+
+    @Nullable
+    RawCodec<Raw> getHandOffCodec() {
+        return handOffCodec;
+    }
+
+    @Nullable
+    RawMeter<Raw> getRawMeter() {
+        return rawMeter;
+    }
+
+    @Nonnull
+    PrefetchQueue getPrefetchQueue() {
+        return prefetchQueue == null
+                ? new PrefetchQueue(Schedulers.io(), PrefetchQueue.DEFAULT_MAX_CONCURRENCY)
+                : prefetchQueue;
+    }
+
+    @Nullable
+    NegativeCache<Key> getNegativeCache() {
+        return negativeCache;
+    }
+
+    boolean parsesWhileWriting() {
+        return parseWhileWriting;
+    }
+}
@@ -0,0 +1,80 @@
+package com.nytimes.android.external.store3.base.impl;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.Nonnull;
+
+import io.reactivex.Observable;
+import io.reactivex.subjects.PublishSubject;
+
+/**
+ * A {@link PublishSubject} per key, so that an emission only reaches the observers of its own key
+ * instead of being filtered by every observer of the store.
+ * <p>
+ * Subjects are reference counted: one is created when the first observer of a key subscribes and
+ * removed when the last one disposes, so keys nobody observes cost nothing to emit to.
+ */
+final class KeyedSubjects<Key, T> {
+
+    private final ConcurrentMap<Key, Entry<T>> subjects = new ConcurrentHashMap<>();
+
+    /**
+     * @return values emitted for key after subscription
+     */
+    @Nonnull
+    Observable<T> observe(@Nonnull final Key key) {
+        return Observable.defer(() -> {
+            final Entry<T> entry = acquire(key);
+            return entry.subject.doFinally(() -> release(key, entry));
+        });
+    }
+
+    void emit(@Nonnull Key key, @Nonnull T value) {
+        Entry<T> entry = subjects.get(key);
+        if (entry != null) {
+            entry.subject.onNext(value);
+        }
+    }
+
+    /**
+     * @return number of keys with at least one observer
+     */
+    int size() {
+        return subjects.size();
+    }
+
+    @Nonnull
+    private Entry<T> acquire(@Nonnull Key key) {
+        while (true) {
+            Entry<T> entry = subjects.get(key);
+            if (entry == null) {
+                Entry<T> created = new Entry<>();
+                entry = subjects.putIfAbsent(key, created);
+                if (entry == null) {
+                    return created;
+                }
+            }
+            synchronized (entry) {
+                // an entry without references is being removed, retry with a new one
+                if (entry.references > 0) {
+                    entry.references++;
+                    return entry;
+                }
+            }
+        }
+    }
+
+    private void release(@Nonnull Key key, @Nonnull Entry<T> entry) {
+        synchronized (entry) {
+            if (--entry.references == 0) {
+                subjects.remove(key, entry);
+            }
+        }
+    }
+
+    private static final class Entry<T> {
+        final PublishSubject<T> subject = PublishSubject.create();
+        int references = 1;
+    }
+}
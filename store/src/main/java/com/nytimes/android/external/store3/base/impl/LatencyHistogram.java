@@ -0,0 +1,120 @@
+package com.nytimes.android.external.store3.base.impl;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Lock free histogram of latencies recorded by {@link StoreMetrics}.
+ * <p>
+ * Bucket 0 holds everything below one microsecond, bucket i holds latencies in
+ * [2^(i-1), 2^i) microseconds and the last bucket holds everything from 2^31 microseconds (about 36 minutes).
+ * Percentiles are therefore reported as the upper bound of the bucket they fall into.
+ */
+public final class LatencyHistogram {
+    static final int BUCKET_COUNT = 33;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    LatencyHistogram() {
+    }
+
+    void record(long nanos) {
+        long latency = Math.max(0, nanos);
+        buckets.incrementAndGet(bucketFor(latency));
+        count.incrementAndGet();
+        totalNanos.addAndGet(latency);
+        long max = maxNanos.get();
+        while (latency > max && !maxNanos.compareAndSet(max, latency)) {
+            max = maxNanos.get();
+        }
+    }
+
+    static int bucketFor(long nanos) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+        int bucket = 64 - Long.numberOfLeadingZeros(micros);
+        return Math.min(bucket, BUCKET_COUNT - 1);
+    }
+
+    /**
+     * @return exclusive upper bound of the given bucket in nanoseconds, {@link Long#MAX_VALUE} for the last one
+     */
+    public static long bucketUpperBoundNanos(int bucket) {
+        if (bucket >= BUCKET_COUNT - 1) {
+            return Long.MAX_VALUE;
+        }
+        return TimeUnit.MICROSECONDS.toNanos(1L << bucket);
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.get();
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    public double getMeanNanos() {
+        long recorded = count.get();
+        return recorded == 0 ? 0 : (double) totalNanos.get() / recorded;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return upper bound in nanoseconds of the bucket holding the given percentile, 0 when nothing was recorded
+     */
+    public long getPercentileNanos(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("percentile must be between 0 and 100 but was " + percentile);
+        }
+        long[] counts = getBucketCounts();
+        long recorded = 0;
+        for (long bucketCount : counts) {
+            recorded += bucketCount;
+        }
+        if (recorded == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(recorded * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(bucketUpperBoundNanos(i), getMaxNanos());
+            }
+        }
+        return getMaxNanos();
+    }
+
+    /**
+     * @return a copy of the per bucket counts, see {@link #bucketUpperBoundNanos(int)} for the bucket bounds
+     */
+    @Nonnull
+    public long[] getBucketCounts() {
+        long[] counts = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = buckets.get(i);
+        }
+        return counts;
+    }
+
+    @Override
+    public String toString() {
+        return "LatencyHistogram{"
+                + "count=" + getCount()
+                + ", meanNanos=" + (long) getMeanNanos()
+                + ", p50Nanos=" + getPercentileNanos(50)
+                + ", p99Nanos=" + getPercentileNanos(99)
+                + ", maxNanos=" + getMaxNanos()
+                + '}';
+    }
+}
@@ -0,0 +1,47 @@
+package com.nytimes.android.external.store3.base.impl;
+
+import com.nytimes.android.external.cache3.WeightBudget;
+
+import javax.annotation.Nonnull;
+
+/**
+ * A number of bytes shared by the memory caches of every {@link Store} whose {@link MemoryPolicy} was built with
+ * {@link MemoryPolicy.MemoryPolicyBuilder#setSharedBudget(MemoryBudget)}, so that an app with many stores evicts
+ * against one global limit instead of a limit per store.
+ * <p>
+ * Once a store takes the total over the budget, that store evicts its own least recently used values until the total
+ * is back within the budget. Other stores keep their values until they are written to or expire.
+ */
+public final class MemoryBudget {
+
+    @Nonnull
+    private final WeightBudget weightBudget;
+
+    public MemoryBudget(long maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("maxBytes must be positive: " + maxBytes);
+        }
+        weightBudget = new WeightBudget(maxBytes);
+    }
+
+    public long getMaxBytes() {
+        return weightBudget.getMaximumWeight();
+    }
+
+    /**
+     * @return estimated bytes of the values currently held by the stores sharing this budget
+     */
+    public long getUsedBytes() {
+        return weightBudget.getWeight();
+    }
+
+    @Nonnull
+    WeightBudget weightBudget() {
+        return weightBudget;
+    }
+
+    @Override
+    public String toString() {
+        return "MemoryBudget{usedBytes=" + getUsedBytes() + ", maxBytes=" + getMaxBytes() + '}';
+    }
+}
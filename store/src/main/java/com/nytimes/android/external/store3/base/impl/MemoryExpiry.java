@@ -0,0 +1,32 @@
+package com.nytimes.android.external.store3.base.impl;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Decides how long each value stays in the memory cache of a {@link Store}, for stores whose keys need very
+ * different lifetimes, see {@link MemoryPolicy.MemoryPolicyBuilder#setExpiry(MemoryExpiry)}.
+ * <p>
+ * Durations are in the {@link MemoryPolicy#getExpireAfterTimeUnit() time unit} of the policy, a duration of 0
+ * drops the value right away and {@link Long#MAX_VALUE} keeps it until it is evicted or cleared. The time left to a
+ * value is rounded down to that unit, returning it as given keeps the exact expiration of the value.
+ */
+public interface MemoryExpiry<Key, Parsed> {
+
+    /**
+     * @return how long value stays in memory once put there for key
+     */
+    long expireAfterCreate(@Nonnull Key key, @Nonnull Parsed value);
+
+    /**
+     * @param currentDuration time left to the value replaced by value
+     * @return how long value stays in memory once it replaced the previous value of key, currentDuration to keep
+     * the expiration of the previous value
+     */
+    long expireAfterUpdate(@Nonnull Key key, @Nonnull Parsed value, long currentDuration);
+
+    /**
+     * @param currentDuration time left to value
+     * @return how long value stays in memory once read, currentDuration to leave its expiration as it is
+     */
+    long expireAfterRead(@Nonnull Key key, @Nonnull Parsed value, long currentDuration);
+}
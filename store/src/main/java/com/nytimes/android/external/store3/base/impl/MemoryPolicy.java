@@ -5,6 +5,8 @@ import com.nytimes.android.external.store3.util.NoopPersister;
 
 import java.util.concurrent.TimeUnit;
 
+import javax.annotation.Nullable;
+
 /**
  * MemoryPolicy holds all required info to create MemoryCache and
  * {@link NoopPersister NoopPersister}
@@ -24,12 +26,29 @@ public class MemoryPolicy {
     private final long expireAfterAccess;
     private final TimeUnit expireAfterTimeUnit;
     private final long maxSize;
+    private final EvictionPolicy evictionPolicy;
+    private final long refreshAfterWrite;
+    private final TimeUnit refreshAfterWriteTimeUnit;
+    private final long maxWeight;
+    @Nullable
+    private final SizeEstimator<?, ?> sizeEstimator;
+    @Nullable
+    private final MemoryBudget sharedBudget;
+    @Nullable
+    private final MemoryExpiry<?, ?> expiry;
 
-    MemoryPolicy(long expireAfterWrite, long expireAfterAccess, TimeUnit expireAfterTimeUnit, long maxSize) {
-        this.expireAfterWrite = expireAfterWrite;
-        this.expireAfterAccess = expireAfterAccess;
-        this.expireAfterTimeUnit = expireAfterTimeUnit;
-        this.maxSize = maxSize;
+    MemoryPolicy(MemoryPolicyBuilder builder) {
+        this.expireAfterWrite = builder.expireAfterWrite;
+        this.expireAfterAccess = builder.expireAfterAccess;
+        this.expireAfterTimeUnit = builder.expireAfterTimeUnit;
+        this.maxSize = builder.maxSize;
+        this.evictionPolicy = builder.evictionPolicy;
+        this.refreshAfterWrite = builder.refreshAfterWrite;
+        this.refreshAfterWriteTimeUnit = builder.refreshAfterWriteTimeUnit;
+        this.maxWeight = builder.maxWeight;
+        this.sizeEstimator = builder.sizeEstimator;
+        this.sharedBudget = builder.sharedBudget;
+        this.expiry = builder.expiry;
     }
 
     public static MemoryPolicyBuilder builder() {
@@ -95,11 +114,71 @@ public class MemoryPolicy {
         return maxSize != DEFAULT_POLICY;
     }
 
+    public EvictionPolicy getEvictionPolicy() {
+        return evictionPolicy;
+    }
+
+    public long getRefreshAfterWrite() {
+        return refreshAfterWrite;
+    }
+
+    public TimeUnit getRefreshAfterWriteTimeUnit() {
+        return refreshAfterWriteTimeUnit;
+    }
+
+    public boolean hasRefreshPolicy() {
+        return refreshAfterWrite != DEFAULT_POLICY;
+    }
+
+    /**
+     * @return maximum estimated bytes of the values in memory, or the maximum of the shared budget when only that is
+     * set
+     */
+    public long getMaxWeight() {
+        if (maxWeight == DEFAULT_POLICY && sharedBudget != null) {
+            return sharedBudget.getMaxBytes();
+        }
+        return maxWeight;
+    }
+
+    /**
+     * @return whether the memory cache is bounded by the estimated bytes of its values rather than their number
+     */
+    public boolean hasMaxWeight() {
+        return maxWeight != DEFAULT_POLICY || sharedBudget != null;
+    }
+
+    @Nullable
+    public SizeEstimator<?, ?> getSizeEstimator() {
+        return sizeEstimator;
+    }
+
+    @Nullable
+    public MemoryBudget getSharedBudget() {
+        return sharedBudget;
+    }
+
+    @Nullable
+    public MemoryExpiry<?, ?> getExpiry() {
+        return expiry;
+    }
+
+    public boolean hasExpiry() {
+        return expiry != null;
+    }
+
     public static class MemoryPolicyBuilder {
         private long expireAfterWrite = DEFAULT_POLICY;
         private long expireAfterAccess = DEFAULT_POLICY;
         private TimeUnit expireAfterTimeUnit = TimeUnit.SECONDS;
         private long maxSize = -1;
+        private EvictionPolicy evictionPolicy = EvictionPolicy.LRU;
+        private long refreshAfterWrite = DEFAULT_POLICY;
+        private TimeUnit refreshAfterWriteTimeUnit = TimeUnit.SECONDS;
+        private long maxWeight = DEFAULT_POLICY;
+        private SizeEstimator<?, ?> sizeEstimator;
+        private MemoryBudget sharedBudget;
+        private MemoryExpiry<?, ?> expiry;
 
         /**
          * @deprecated Use {@link MemoryPolicyBuilder#setExpireAfterWrite(long)} or
@@ -114,6 +193,9 @@ public class MemoryPolicy {
             if (expireAfterAccess != DEFAULT_POLICY) {
                 throw new IllegalStateException("Cannot set expireAfterWrite with expireAfterAccess already set");
             }
+            if (expiry != null) {
+                throw new IllegalStateException("Cannot set expireAfterWrite with expiry already set");
+            }
             this.expireAfterWrite = expireAfterWrite;
             return this;
         }
@@ -122,22 +204,104 @@ public class MemoryPolicy {
             if (expireAfterWrite != DEFAULT_POLICY) {
                 throw new IllegalStateException("Cannot set expireAfterAccess with expireAfterWrite already set");
             }
+            if (expiry != null) {
+                throw new IllegalStateException("Cannot set expireAfterAccess with expiry already set");
+            }
             this.expireAfterAccess = expireAfterAccess;
             return this;
         }
 
+        /**
+         * Computes how long each value stays in memory from its key and value, when it is put in memory, replaced
+         * and read, in the unit of {@link #setExpireAfterTimeUnit(TimeUnit)}. Its type parameters must match the key
+         * and parsed types of the Store. A {@link NoopPersister} applies it to raw data, so a Store without a
+         * persister must not parse its data, and a StoreRoom does not support it.
+         */
+        public MemoryPolicyBuilder setExpiry(MemoryExpiry<?, ?> expiry) {
+            if (expireAfterWrite != DEFAULT_POLICY || expireAfterAccess != DEFAULT_POLICY) {
+                throw new IllegalStateException(
+                        "Cannot set expiry with expireAfterWrite or expireAfterAccess already set");
+            }
+            this.expiry = expiry;
+            return this;
+        }
+
         public MemoryPolicyBuilder setExpireAfterTimeUnit(TimeUnit expireAfterTimeUnit) {
             this.expireAfterTimeUnit = expireAfterTimeUnit;
             return this;
         }
 
         public MemoryPolicyBuilder setMemorySize(long maxSize) {
+            if (maxWeight != DEFAULT_POLICY || sharedBudget != null) {
+                throw new IllegalStateException("Cannot set memorySize with maxWeight or sharedBudget already set");
+            }
             this.maxSize = maxSize;
             return this;
         }
 
+        /**
+         * Bounds the memory cache by the estimated bytes of its values instead of their number, which suits values
+         * of very different sizes. Values are weighed by the {@link #setSizeEstimator(SizeEstimator)} if there is
+         * one, or else by the size of the raw data they were parsed from.
+         */
+        public MemoryPolicyBuilder setMaxWeight(long maxBytes) {
+            if (maxSize != DEFAULT_POLICY) {
+                throw new IllegalStateException("Cannot set maxWeight with memorySize already set");
+            }
+            if (maxBytes <= 0) {
+                throw new IllegalArgumentException("maxWeight must be positive: " + maxBytes);
+            }
+            this.maxWeight = maxBytes;
+            return this;
+        }
+
+        /**
+         * Estimates the bytes of values for {@link #setMaxWeight(long)} and {@link #setSharedBudget(MemoryBudget)},
+         * its type parameters must match the key and parsed types of the Store
+         */
+        public MemoryPolicyBuilder setSizeEstimator(SizeEstimator<?, ?> sizeEstimator) {
+            this.sizeEstimator = sizeEstimator;
+            return this;
+        }
+
+        /**
+         * Values in memory also count against budget, which may be shared with the policies of other stores, see
+         * {@link MemoryBudget}. Without {@link #setMaxWeight(long)} the store is only bounded by the budget.
+         */
+        public MemoryPolicyBuilder setSharedBudget(MemoryBudget budget) {
+            if (maxSize != DEFAULT_POLICY) {
+                throw new IllegalStateException("Cannot set sharedBudget with memorySize already set");
+            }
+            this.sharedBudget = budget;
+            return this;
+        }
+
+        /**
+         * Defaults to {@link EvictionPolicy#LRU}. Consider {@link EvictionPolicy#TINY_LFU} when a small set of
+         * keys is read over and over while many other keys are read only once.
+         */
+        public MemoryPolicyBuilder setEvictionPolicy(EvictionPolicy evictionPolicy) {
+            this.evictionPolicy = evictionPolicy;
+            return this;
+        }
+
+        /**
+         * Once a value has been in memory for longer than refreshAfterWrite, reading it still returns it right away
+         * but also fetches a new value in the background, see {@link RealStoreBuilder#refreshScheduler}.
+         * Only one refresh per key is in flight at a time. Should be shorter than the expiration, after which
+         * values are dropped from memory instead.
+         */
+        public MemoryPolicyBuilder setRefreshAfterWrite(long refreshAfterWrite, TimeUnit refreshAfterWriteTimeUnit) {
+            if (refreshAfterWrite <= 0) {
+                throw new IllegalArgumentException("refreshAfterWrite must be positive: " + refreshAfterWrite);
+            }
+            this.refreshAfterWrite = refreshAfterWrite;
+            this.refreshAfterWriteTimeUnit = refreshAfterWriteTimeUnit;
+            return this;
+        }
+
         public MemoryPolicy build() {
-            return new MemoryPolicy(expireAfterWrite, expireAfterAccess, expireAfterTimeUnit, maxSize);
+            return new MemoryPolicy(this);
         }
     }
 }
@@ -0,0 +1,122 @@
+package com.nytimes.android.external.store3.base.impl;
+
+import com.nytimes.android.external.cache3.Cache;
+import com.nytimes.android.external.cache3.CacheBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import io.reactivex.Single;
+
+/**
+ * Remembers the fetches of a store which failed, so that a key which cannot be fetched fails again
+ * right away instead of going to the network on every read.
+ * <p>
+ * A failed key is not fetched again until its backoff is over, which grows with every failure in a row
+ * of that key, see {@link NegativeCachePolicy}. With a circuit breaker, enough failures in a row of any key
+ * stop every fetch of the store for a while, during which stores serve what they have on disk instead.
+ */
+public final class NegativeCache<Key> {
+
+    @Nonnull
+    private final NegativeCachePolicy policy;
+    @Nonnull
+    private final Cache<Key, Failure> failures;
+    private final Random random = new Random();
+    private final AtomicInteger failuresInARow = new AtomicInteger();
+    private volatile boolean open;
+    private volatile long openUntil;
+    @Nullable
+    private volatile Throwable lastError;
+
+    public NegativeCache(@Nonnull NegativeCachePolicy policy) {
+        this.policy = policy;
+        // attempts outlive the backoff they set, so that a key failing again soon after backs off for longer
+        this.failures = CacheBuilder.newBuilder()
+                .expireAfterWrite(2 * policy.getMaxBackoff(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS)
+                .build();
+    }
+
+    /**
+     * @return the error key last failed with if its backoff is not over, or else null
+     */
+    @Nullable
+    public Throwable getFailure(@Nonnull Key key) {
+        Failure failure = failures.getIfPresent(key);
+        return failure == null || System.nanoTime() - failure.retryAt >= 0 ? null : failure.error;
+    }
+
+    /**
+     * @return true while the circuit breaker is open and nothing should be fetched
+     */
+    public boolean isCircuitOpen() {
+        return open && System.nanoTime() - openUntil < 0;
+    }
+
+    /**
+     * @return the last error a fetch failed with, the cause of the errors of an open circuit breaker
+     */
+    @Nullable
+    public Throwable getLastError() {
+        return lastError;
+    }
+
+    public void recordFailure(@Nonnull Key key, @Nonnull Throwable error) {
+        Failure previous = failures.getIfPresent(key);
+        int attempts = previous == null ? 1 : previous.attempts + 1;
+        long backoff = policy.backoffNanos(attempts);
+        double jitter = policy.getJitter();
+        if (jitter > 0) {
+            backoff -= (long) (backoff * jitter * random.nextDouble());
+        }
+        failures.put(key, new Failure(error, attempts, System.nanoTime() + backoff));
+        lastError = error;
+        if (policy.hasCircuitBreaker() && failuresInARow.incrementAndGet() >= policy.getFailureThreshold()) {
+            openUntil = System.nanoTime() + policy.getOpenDuration(TimeUnit.NANOSECONDS);
+            open = true;
+        }
+    }
+
+    public void recordSuccess(@Nonnull Key key) {
+        failures.invalidate(key);
+        failuresInARow.set(0);
+        open = false;
+    }
+
+    /**
+     * @return fetch, recording whether it succeeds or fails for key
+     */
+    @Nonnull
+    public <T> Single<T> record(@Nonnull final Key key, @Nonnull Single<T> fetch) {
+        return fetch
+                .doOnSuccess(value -> recordSuccess(key))
+                .doOnError(error -> recordFailure(key, error));
+    }
+
+    public void invalidate(@Nonnull Key key) {
+        failures.invalidate(key);
+    }
+
+    public void clear() {
+        failures.invalidateAll();
+        failuresInARow.set(0);
+        open = false;
+    }
+
+    private static final class Failure {
+        @Nonnull
+        final Throwable error;
+        final int attempts;
+        final long retryAt;
+
+        Failure(@Nonnull Throwable error, int attempts, long retryAt) {
+            this.error = error;
+            this.attempts = attempts;
+            this.retryAt = retryAt;
+        }
+    }
+}
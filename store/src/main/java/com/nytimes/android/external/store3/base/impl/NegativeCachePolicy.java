@@ -0,0 +1,133 @@
+package com.nytimes.android.external.store3.base.impl;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Defines how long a {@link Store} remembers failed fetches, see {@link NegativeCache}
+ */
+public final class NegativeCachePolicy {
+
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+    private final double multiplier;
+    private final double jitter;
+    private final int failureThreshold;
+    private final long openNanos;
+
+    NegativeCachePolicy(long initialBackoffNanos, long maxBackoffNanos, double multiplier, double jitter,
+                        int failureThreshold, long openNanos) {
+        this.initialBackoffNanos = initialBackoffNanos;
+        this.maxBackoffNanos = maxBackoffNanos;
+        this.multiplier = multiplier;
+        this.jitter = jitter;
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openNanos;
+    }
+
+    public static NegativeCachePolicyBuilder builder() {
+        return new NegativeCachePolicyBuilder();
+    }
+
+    public long getInitialBackoff(TimeUnit unit) {
+        return unit.convert(initialBackoffNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public long getMaxBackoff(TimeUnit unit) {
+        return unit.convert(maxBackoffNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public double getMultiplier() {
+        return multiplier;
+    }
+
+    public double getJitter() {
+        return jitter;
+    }
+
+    /**
+     * @return consecutive failed fetches of a store which open its circuit breaker, or 0 if it has none
+     */
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    public boolean hasCircuitBreaker() {
+        return failureThreshold > 0;
+    }
+
+    public long getOpenDuration(TimeUnit unit) {
+        return unit.convert(openNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return how long a key stays failed after its attempt'th failure in a row, before jitter
+     */
+    long backoffNanos(int attempt) {
+        double backoff = initialBackoffNanos * Math.pow(multiplier, attempt - 1);
+        return backoff >= maxBackoffNanos ? maxBackoffNanos : (long) backoff;
+    }
+
+    public static class NegativeCachePolicyBuilder {
+        private long initialBackoffNanos = TimeUnit.SECONDS.toNanos(1);
+        private long maxBackoffNanos = TimeUnit.MINUTES.toNanos(5);
+        private double multiplier = 2;
+        private double jitter = 0.5;
+        private int failureThreshold;
+        private long openNanos;
+
+        /**
+         * A key which fails to fetch fails again without a fetch for initial, then twice as long after each
+         * following failure, up to max. Defaults to 1 second and 5 minutes.
+         */
+        public NegativeCachePolicyBuilder setBackoff(long initial, long max, TimeUnit unit) {
+            if (initial <= 0 || max < initial) {
+                throw new IllegalArgumentException("initial must be positive and not above max");
+            }
+            this.initialBackoffNanos = unit.toNanos(initial);
+            this.maxBackoffNanos = unit.toNanos(max);
+            return this;
+        }
+
+        /**
+         * Growth of the backoff after each failure, 2 by default
+         */
+        public NegativeCachePolicyBuilder setMultiplier(double multiplier) {
+            if (multiplier < 1) {
+                throw new IllegalArgumentException("multiplier must be at least 1: " + multiplier);
+            }
+            this.multiplier = multiplier;
+            return this;
+        }
+
+        /**
+         * Share of each backoff taken off at random, so that keys which failed together are not retried
+         * together. 0.5 by default, 0 for exact backoffs.
+         */
+        public NegativeCachePolicyBuilder setJitter(double jitter) {
+            if (jitter < 0 || jitter > 1) {
+                throw new IllegalArgumentException("jitter must be between 0 and 1: " + jitter);
+            }
+            this.jitter = jitter;
+            return this;
+        }
+
+        /**
+         * After failureThreshold failed fetches in a row, of any key, the store stops fetching for openDuration
+         * and serves what it has on disk, stale or not. The first fetch after that closes the breaker again
+         * if it succeeds, or opens it for another openDuration if it fails.
+         */
+        public NegativeCachePolicyBuilder setCircuitBreaker(int failureThreshold, long openDuration, TimeUnit unit) {
+            if (failureThreshold <= 0 || openDuration <= 0) {
+                throw new IllegalArgumentException("failureThreshold and openDuration must be positive");
+            }
+            this.failureThreshold = failureThreshold;
+            this.openNanos = unit.toNanos(openDuration);
+            return this;
+        }
+
+        public NegativeCachePolicy build() {
+            return new NegativeCachePolicy(initialBackoffNanos, maxBackoffNanos, multiplier, jitter,
+                    failureThreshold, openNanos);
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.nytimes.android.external.store3.base.impl;
+
+import com.nytimes.android.external.store3.base.OffHeapRawCodec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Keeps encoded {@link Raw} values in direct {@link ByteBuffer}s, outside of the Java heap, so that a memory miss can
+ * be served without reading the persister.
+ * <p>
+ * Memory is handed out in 4 KiB blocks carved from 1 MiB slabs, which are allocated as they are needed up to the
+ * given number of bytes and are never released. A value takes as many blocks as it needs, so values of any size
+ * share the slabs without fragmenting them. Once all blocks are in use the least recently read values are evicted.
+ * Values larger than the whole cache are not kept.
+ */
+final class OffHeapRawCache<Raw, Key> {
+
+    static final int BLOCK_SIZE = 4 * 1024;
+    static final int BLOCKS_PER_SLAB = 256;
+
+    @Nonnull
+    private final OffHeapRawCodec<Raw> codec;
+    private final int maxBlocks;
+    private final List<ByteBuffer> slabs = new ArrayList<>();
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final int[] freeBlocks;
+    private int freeCount;
+    private int allocatedBlocks;
+    private long sizeBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    OffHeapRawCache(@Nonnull OffHeapRawCodec<Raw> codec, long maxBytes) {
+        if (maxBytes < BLOCK_SIZE) {
+            throw new IllegalArgumentException("off heap cache needs at least " + BLOCK_SIZE + " bytes: " + maxBytes);
+        }
+        this.codec = codec;
+        this.maxBlocks = (int) Math.min(maxBytes / BLOCK_SIZE, Integer.MAX_VALUE);
+        this.freeBlocks = new int[maxBlocks];
+    }
+
+    /**
+     * @return a new {@link Raw} value decoded from the cached bytes, or null if key is not cached
+     */
+    @Nullable
+    synchronized Raw get(@Nonnull Key key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        // decoded straight from the slabs, blocks are not reused before the lock is released
+        ByteBuffer[] blocks = new ByteBuffer[entry.blocks.length];
+        for (int i = 0; i < blocks.length; i++) {
+            ByteBuffer block = block(entry.blocks[i]);
+            block.limit(block.position() + Math.min(BLOCK_SIZE, entry.length - i * BLOCK_SIZE));
+            blocks[i] = block;
+        }
+        return codec.decode(blocks);
+    }
+
+    /**
+     * caches the content of raw, which may consume it
+     *
+     * @return a new {@link Raw} value reading the encoded content of raw, which is not copied again
+     */
+    @Nonnull
+    Raw put(@Nonnull Key key, @Nonnull Raw raw) throws IOException {
+        byte[] bytes = codec.encode(raw);
+        put(key, bytes);
+        return codec.decode(bytes);
+    }
+
+    private synchronized void put(@Nonnull Key key, @Nonnull byte[] bytes) {
+        invalidate(key);
+        int needed = (bytes.length + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        if (needed > maxBlocks) {
+            return;
+        }
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (freeCount + maxBlocks - allocatedBlocks < needed) {
+            Entry evicted = eldest.next();
+            eldest.remove();
+            release(evicted);
+            evictions++;
+        }
+
+        int[] blocks = new int[needed];
+        for (int i = 0; i < needed; i++) {
+            blocks[i] = allocateBlock();
+            int offset = i * BLOCK_SIZE;
+            block(blocks[i]).put(bytes, offset, Math.min(BLOCK_SIZE, bytes.length - offset));
+        }
+        entries.put(key, new Entry(blocks, bytes.length));
+        sizeBytes += bytes.length;
+    }
+
+    synchronized void invalidate(@Nonnull Key key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            release(entry);
+        }
+    }
+
+    synchronized void invalidateAll() {
+        for (Entry entry : entries.values()) {
+            release(entry);
+        }
+        entries.clear();
+    }
+
+    synchronized long size() {
+        return entries.size();
+    }
+
+    /**
+     * @return bytes taken by cached values, not counting the unused part of their last block
+     */
+    synchronized long sizeBytes() {
+        return sizeBytes;
+    }
+
+    /**
+     * @return bytes allocated outside of the heap so far
+     */
+    synchronized long allocatedBytes() {
+        return (long) allocatedBlocks * BLOCK_SIZE;
+    }
+
+    synchronized long hitCount() {
+        return hits;
+    }
+
+    synchronized long missCount() {
+        return misses;
+    }
+
+    synchronized long evictionCount() {
+        return evictions;
+    }
+
+    private void release(@Nonnull Entry entry) {
+        for (int block : entry.blocks) {
+            freeBlocks[freeCount++] = block;
+        }
+        sizeBytes -= entry.length;
+    }
+
+    private int allocateBlock() {
+        if (freeCount > 0) {
+            return freeBlocks[--freeCount];
+        }
+        if (allocatedBlocks % BLOCKS_PER_SLAB == 0) {
+            int slabBlocks = Math.min(BLOCKS_PER_SLAB, maxBlocks - allocatedBlocks);
+            slabs.add(ByteBuffer.allocateDirect(slabBlocks * BLOCK_SIZE));
+        }
+        return allocatedBlocks++;
+    }
+
+    /**
+     * @return a buffer positioned at the start of block
+     */
+    @Nonnull
+    private ByteBuffer block(int block) {
+        ByteBuffer slab = slabs.get(block / BLOCKS_PER_SLAB).duplicate();
+        slab.position((block % BLOCKS_PER_SLAB) * BLOCK_SIZE);
+        return slab;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "OffHeapRawCache{"
+                + "size=" + entries.size()
+                + ", sizeBytes=" + sizeBytes
+                + ", allocatedBytes=" + allocatedBytes()
+                + '}';
+    }
+
+    private static final class Entry {
+        @Nonnull
+        final int[] blocks;
+        final int length;
+
+        Entry(@Nonnull int[] blocks, int length) {
+            this.blocks = blocks;
+            this.length = length;
+        }
+    }
+}
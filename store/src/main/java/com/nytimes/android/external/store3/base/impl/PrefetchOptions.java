@@ -0,0 +1,93 @@
+package com.nytimes.android.external.store3.base.impl;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Defines how {@link Store#prefetch} loads its keys
+ */
+public final class PrefetchOptions {
+
+    /**
+     * What a prefetch loads for keys which are not in memory
+     */
+    public enum Mode {
+        /**
+         * Values on disk are read into memory, nothing is fetched
+         */
+        DISK_TO_MEMORY,
+        /**
+         * Values on disk are read into memory, missing ones are fetched as with {@link Store#get}
+         */
+        FETCH_IF_MISSING
+    }
+
+    public static final int DEFAULT_PRIORITY = 0;
+
+    @Nonnull
+    private final Mode mode;
+    private final int priority;
+
+    PrefetchOptions(@Nonnull Mode mode, int priority) {
+        this.mode = mode;
+        this.priority = priority;
+    }
+
+    @Nonnull
+    public static PrefetchOptionsBuilder builder() {
+        return new PrefetchOptionsBuilder();
+    }
+
+    /**
+     * @return options fetching missing keys at the default priority
+     */
+    @Nonnull
+    public static PrefetchOptions fetchIfMissing() {
+        return builder().build();
+    }
+
+    /**
+     * @return options reading keys from disk into memory at the default priority
+     */
+    @Nonnull
+    public static PrefetchOptions diskToMemory() {
+        return builder().setMode(Mode.DISK_TO_MEMORY).build();
+    }
+
+    @Nonnull
+    public Mode getMode() {
+        return mode;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    @Override
+    public String toString() {
+        return "PrefetchOptions{mode=" + mode + ", priority=" + priority + '}';
+    }
+
+    public static class PrefetchOptionsBuilder {
+        private Mode mode = Mode.FETCH_IF_MISSING;
+        private int priority = DEFAULT_PRIORITY;
+
+        public PrefetchOptionsBuilder setMode(@Nonnull Mode mode) {
+            this.mode = mode;
+            return this;
+        }
+
+        /**
+         * Keys of prefetches with a higher priority are loaded before the queued keys of any prefetch of the same
+         * store with a lower one. Keys of prefetches with the same priority are loaded in the order they were
+         * queued in.
+         */
+        public PrefetchOptionsBuilder setPriority(int priority) {
+            this.priority = priority;
+            return this;
+        }
+
+        public PrefetchOptions build() {
+            return new PrefetchOptions(mode, priority);
+        }
+    }
+}
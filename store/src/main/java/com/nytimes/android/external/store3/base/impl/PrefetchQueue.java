@@ -0,0 +1,36 @@
+package com.nytimes.android.external.store3.base.impl;
+
+import java.util.Collections;
+
+import javax.annotation.Nonnull;
+
+import io.reactivex.Completable;
+import io.reactivex.Scheduler;
+
+/**
+ * Runs the loads of the prefetches of a store on a {@link Scheduler}, at most maxConcurrency at once.
+ * Queued loads start by priority, then in the order they were queued in.
+ * <p>
+ * Only prefetches go through the queue, so a {@link Store#get} never waits behind one. A load which starts after
+ * a get of its key is in memory already, or joins the request in flight, so it costs next to nothing.
+ */
+final class PrefetchQueue {
+
+    static final int DEFAULT_MAX_CONCURRENCY = 4;
+
+    @Nonnull
+    private final BoundedRunner runner;
+
+    PrefetchQueue(@Nonnull Scheduler scheduler, int maxConcurrency) {
+        // higher priorities first
+        this.runner = new BoundedRunner(scheduler, maxConcurrency, Collections.<Integer>reverseOrder());
+    }
+
+    /**
+     * @return load, queued when subscribed to and removed from the queue, or disposed, when disposed
+     */
+    @Nonnull
+    Completable schedule(@Nonnull Completable load, int priority) {
+        return runner.schedule(load.toMaybe(), priority, null).ignoreElement();
+    }
+}
@@ -3,19 +3,46 @@ package com.nytimes.android.external.store3.base.impl;
 import com.nytimes.android.external.cache3.Cache;
 import com.nytimes.android.external.store.util.Result;
 import com.nytimes.android.external.store3.annotations.Experimental;
+import com.nytimes.android.external.store3.base.BatchFetcher;
+import com.nytimes.android.external.store3.base.ConditionalFetcher;
+import com.nytimes.android.external.store3.base.DiskTee;
+import com.nytimes.android.external.store3.base.FetchResponse;
 import com.nytimes.android.external.store3.base.Fetcher;
 import com.nytimes.android.external.store3.base.InternalStore;
+import com.nytimes.android.external.store3.base.PendingWrite;
 import com.nytimes.android.external.store3.base.Persister;
+import com.nytimes.android.external.store3.base.RawCodec;
+import com.nytimes.android.external.store3.base.RawMeter;
+import com.nytimes.android.external.store3.base.StreamingParser;
+import com.nytimes.android.external.store3.base.ValidatorProvider;
+import com.nytimes.android.external.store3.base.Validators;
+import com.nytimes.android.external.store3.util.CircuitOpenException;
 import com.nytimes.android.external.store3.util.KeyParser;
+import com.nytimes.android.external.store3.util.ParserException;
+import java.io.IOException;
 import java.util.AbstractMap;
-import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.ExecutionException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
 import io.reactivex.Maybe;
 import io.reactivex.Observable;
+import io.reactivex.Scheduler;
 import io.reactivex.Single;
 import io.reactivex.subjects.PublishSubject;
+import io.reactivex.subjects.SingleSubject;
 
 /**
  * Store to be used for loading an object from different data sources
@@ -26,15 +53,47 @@ import io.reactivex.subjects.PublishSubject;
  *                 Example usage:  @link
  */
 final class RealInternalStore<Raw, Parsed, Key> implements InternalStore<Parsed, Key> {
-    Cache<Key, Single<Result<Parsed>>> inFlightRequests;
-    Cache<Key, Maybe<Parsed>> memCache;
+    RequestCoalescer<Key, Result<Parsed>> inFlightRequests;
+    Cache<Key, Parsed> memCache;
     StalePolicy stalePolicy;
     Persister<Raw, Key> persister;
     KeyParser<Key, Raw, Parsed> parser;
 
-    private final PublishSubject<Key> refreshSubject = PublishSubject.create();
+    private final RequestCoalescer<Key, Parsed> diskReads = new RequestCoalescer<>(null);
+    private final KeyedSubjects<Key, Key> refreshSubjects = new KeyedSubjects<>();
     private Fetcher<Raw, Key> fetcher;
-    private PublishSubject<AbstractMap.SimpleEntry<Key, Parsed>> subject;
+    @Nullable
+    private final BatchFetcher<Raw, Key> batchFetcher;
+    private final KeyedSubjects<Key, Parsed> subjects = new KeyedSubjects<>();
+    private final PublishSubject<Parsed> allSubject = PublishSubject.create();
+    @Nullable
+    private final StoreMetrics metrics;
+    @Nullable
+    private final OffHeapRawCache<Raw, Key> rawCache;
+    private final long refreshNanos;
+    /**
+     * times the values in memory were written, kept only while their value is in memory
+     */
+    @Nullable
+    private final Map<Key, Long> writeTimes;
+    private final Map<Key, Boolean> refreshing = new ConcurrentHashMap<>();
+    @Nonnull
+    private final Scheduler refreshScheduler;
+    @Nonnull
+    private final Map<StoreMetrics.Stage, StageScheduler> stageSchedulers;
+    @Nullable
+    private final RawCodec<Raw> handOffCodec;
+    @Nullable
+    private final RawMeter<Raw> rawMeter;
+    private final boolean weighsRawBytes;
+    @Nonnull
+    private final PrefetchQueue prefetchQueue;
+    @Nullable
+    private final NegativeCache<Key> negativeCache;
+    @Nullable
+    private final ConditionalFetcher<Raw, Key> conditionalFetcher;
+    @Nullable
+    private final DiskTee<Raw, Key> diskTee;
 
     RealInternalStore(Fetcher<Raw, Key> fetcher,
                       Persister<Raw, Key> persister,
@@ -48,16 +107,55 @@ final class RealInternalStore<Raw, Parsed, Key> implements InternalStore<Parsed,
                       KeyParser<Key, Raw, Parsed> parser,
                       MemoryPolicy memoryPolicy,
                       StalePolicy stalePolicy) {
+        this(fetcher, persister, parser, memoryPolicy, stalePolicy, new InternalStoreOptions<Raw, Parsed, Key>());
+    }
+
+    @SuppressWarnings("unchecked")
+    RealInternalStore(Fetcher<Raw, Key> fetcher,
+                      Persister<Raw, Key> persister,
+                      KeyParser<Key, Raw, Parsed> parser,
+                      MemoryPolicy memoryPolicy,
+                      StalePolicy stalePolicy,
+                      @Nonnull InternalStoreOptions<Raw, Parsed, Key> options) {
+        boolean parseWhileWriting = options.parsesWhileWriting();
+        if (parseWhileWriting && !(persister instanceof DiskTee)) {
+            throw new IllegalArgumentException("Parsing while writing needs a persister implementing DiskTee");
+        }
 
         this.fetcher = fetcher;
+        this.batchFetcher = options.getBatchFetcher();
         this.persister = persister;
         this.parser = parser;
         this.stalePolicy = stalePolicy;
+        this.metrics = options.getMetrics();
+        this.rawCache = options.getRawCache();
+        this.refreshScheduler = options.getRefreshScheduler();
+        this.stageSchedulers = options.getStageSchedulers();
+        this.handOffCodec = options.getHandOffCodec();
+        this.rawMeter = options.getRawMeter();
+        this.prefetchQueue = options.getPrefetchQueue();
+        this.negativeCache = options.getNegativeCache();
+        this.conditionalFetcher = options.getConditionalFetcher();
+        this.diskTee = parseWhileWriting ? (DiskTee<Raw, Key>) persister : null;
+        this.weighsRawBytes = CacheFactory.weighsRawBytes(memoryPolicy);
+        if (memoryPolicy != null && memoryPolicy.hasRefreshPolicy()) {
+            this.refreshNanos = memoryPolicy.getRefreshAfterWriteTimeUnit()
+                    .toNanos(memoryPolicy.getRefreshAfterWrite());
+            this.writeTimes = new ConcurrentHashMap<>();
+            this.memCache = CacheFactory.createCache(memoryPolicy, metrics, notification -> {
+                Key removed = notification.getKey();
+                // a replaced value is still in memory with the time it was written by
+                if (!memCache.asMap().containsKey(removed)) {
+                    writeTimes.remove(removed);
+                }
+            });
+        } else {
+            this.refreshNanos = 0;
+            this.writeTimes = null;
+            this.memCache = CacheFactory.createCache(memoryPolicy, metrics);
+        }
 
-        this.memCache = CacheFactory.createCache(memoryPolicy);
-        this.inFlightRequests = CacheFactory.createInflighter(memoryPolicy);
-
-        subject = PublishSubject.create();
+        this.inFlightRequests = options.getInFlightRequests();
     }
 
     /**
@@ -86,9 +184,117 @@ final class RealInternalStore<Raw, Parsed, Key> implements InternalStore<Parsed,
     public Observable<Parsed> getRefreshing(@Nonnull final Key key) {
         return get(key)
                 .toObservable()
-                .compose(StoreUtil.<Parsed, Key>repeatWhenSubjectEmits(refreshSubject, key));
+                .compose(RepeatWhenEmits.<Parsed>from(refreshSubjects.observe(key)));
+    }
+
+
+    /**
+     * Serves every key it can from memory or disk and sends the remaining ones to
+     * {@link #fetchAll(Collection)} so that they are loaded together.
+     *
+     * @return values keyed by request, in the order of the given keys
+     */
+    @Nonnull
+    @Override
+    @Experimental
+    public Single<Map<Key, Parsed>> getAll(@Nonnull final Collection<Key> keys) {
+        return Single.defer(() -> {
+            final Set<Key> uniqueKeys = new LinkedHashSet<>(keys);
+            return Observable.fromIterable(uniqueKeys)
+                    .flatMapMaybe(key -> lazyCache(key)
+                            .map(parsed -> new AbstractMap.SimpleEntry<>(key, parsed)))
+                    .toMap(AbstractMap.SimpleEntry::getKey, AbstractMap.SimpleEntry::getValue)
+                    .flatMap(local -> {
+                        List<Key> misses = new ArrayList<>();
+                        for (Key key : uniqueKeys) {
+                            if (!local.containsKey(key)) {
+                                misses.add(key);
+                            }
+                        }
+                        return fetchAll(misses)
+                                .map(fetched -> {
+                                    local.putAll(fetched);
+                                    return inKeyOrder(uniqueKeys, local);
+                                });
+                    });
+        });
     }
 
+    /**
+     * Streams the elements of the raw data of key from disk, fetching and persisting it first when
+     * there is nothing usable on disk. Data read from disk is neither parsed into nor read from memory, a fetch
+     * joins the request in flight for key and so updates memory as a get does.
+     */
+    @Nonnull
+    @Override
+    @Experimental
+    @SuppressWarnings("unchecked")
+    public <E> Flowable<E> streamingGet(@Nonnull final Key key, @Nonnull StreamingParser<?, E> parser) {
+        final StreamingParser<Raw, E> rawParser = (StreamingParser<Raw, E>) parser;
+        return streamingRaw(key).flatMapPublisher(raw -> {
+            try {
+                return rawParser.apply(raw);
+            } catch (ClassCastException exception) {
+                throw new ParserException("The streaming parser does not accept the data type of the persister.",
+                        exception);
+            }
+        });
+    }
+
+    @Nonnull
+    private Single<Raw> streamingRaw(@Nonnull final Key key) {
+        return Single.defer(() -> {
+            Maybe<Raw> disk = StoreUtil.shouldReturnNetworkBeforeStale(persister, stalePolicy, key)
+                    ? Maybe.<Raw>empty()
+                    : rawRead(key);
+            return disk.switchIfEmpty(persistRaw(key));
+        });
+    }
+
+    /**
+     * @return raw data of key read back from the persister once the request in flight for key, which is shared
+     * with gets, fetched and wrote it
+     */
+    @Nonnull
+    private Single<Raw> persistRaw(@Nonnull final Key key) {
+        return fetchAndPersistResult(key).flatMap(result -> rawRead(key).toSingle());
+    }
+
+    @Nonnull
+    @Override
+    @Experimental
+    public Completable prefetch(@Nonnull final Collection<Key> keys, @Nonnull final PrefetchOptions options) {
+        return Completable.defer(() -> {
+            // set before the loads are disposed, a running load releasing its slot must not start a queued one
+            final AtomicBoolean disposed = new AtomicBoolean();
+            List<Completable> loads = new ArrayList<>();
+            for (Key key : new LinkedHashSet<>(keys)) {
+                Completable load = prefetchLoad(key, options.getMode());
+                loads.add(prefetchQueue.schedule(
+                        Completable.defer(() -> disposed.get() ? Completable.complete() : load),
+                        options.getPriority()));
+            }
+            return Completable.merge(loads).doOnDispose(() -> disposed.set(true));
+        });
+    }
+
+    /**
+     * @return a load of key into memory, which goes through the same disk reads and requests in flight as
+     * {@link #get(Key)} so that it never loads a key twice
+     */
+    @Nonnull
+    private Completable prefetchLoad(@Nonnull final Key key, @Nonnull final PrefetchOptions.Mode mode) {
+        return Completable.defer(() -> {
+            // checked when the load starts, a get of key may have loaded it while it was queued
+            if (memCache.getIfPresent(key) != null) {
+                return Completable.complete();
+            }
+            Maybe<Parsed> load = mode == PrefetchOptions.Mode.FETCH_IF_MISSING
+                    ? get(key).toMaybe()
+                    : diskReads.join(key, () -> disk(key).toObservable()).singleElement();
+            return load.ignoreElement();
+        }).onErrorComplete();
+    }
 
     /**
      * @return data from memory
@@ -100,11 +306,74 @@ final class RealInternalStore<Raw, Parsed, Key> implements InternalStore<Parsed,
     }
 
     Maybe<Parsed> cache(@Nonnull final Key key) {
-        try {
-            return memCache.get(key, () -> disk(key));
-        } catch (ExecutionException e) {
-            return Maybe.empty();
+        return memoryOrDisk(key);
+    }
+
+    private Maybe<Parsed> memoryOrDisk(@Nonnull final Key key) {
+        Parsed cached = memoryHit(key);
+        if (cached != null) {
+            return Maybe.just(cached);
+        }
+        // concurrent misses of the same key share one disk read
+        Maybe<Parsed> value = diskReads.join(key, () -> disk(key).toObservable()).singleElement();
+        return metrics == null ? value : value.doOnSuccess(parsed -> metrics.recordDiskHit());
+    }
+
+    /**
+     * @return the value of key in memory, counted as a memory hit, or null
+     */
+    @Nullable
+    private Parsed memoryHit(@Nonnull Key key) {
+        Parsed cached = memCache.getIfPresent(key);
+        if (cached != null) {
+            refreshIfStale(key);
+            if (metrics != null) {
+                metrics.recordMemoryHit();
+            }
+        }
+        return cached;
+    }
+
+    @Nullable
+    @Override
+    public Parsed peek(@Nonnull Key key) {
+        return memCache.getIfPresent(key);
+    }
+
+    /**
+     * Values in memory are returned without creating any Rx type, everything else goes through
+     * {@link #get(Key)}
+     */
+    @Nonnull
+    @Override
+    public Parsed getBlocking(@Nonnull Key key) {
+        Parsed cached = memoryHit(key);
+        return cached == null ? get(key).blockingGet() : cached;
+    }
+
+    /**
+     * Starts a background fetch of key if its value has been in memory for longer than
+     * {@link MemoryPolicy#getRefreshAfterWrite()}, unless one is already running.
+     * The value in memory keeps being served until the fetch replaces it.
+     */
+    @SuppressWarnings("CheckReturnValue")
+    private void refreshIfStale(@Nonnull final Key key) {
+        if (writeTimes == null) {
+            return;
+        }
+        Long writeTime = writeTimes.get(key);
+        if (writeTime == null || System.nanoTime() - writeTime <= refreshNanos
+                || refreshing.put(key, Boolean.TRUE) != null) {
+            return;
         }
+        fetch(key)
+                .subscribeOn(refreshScheduler)
+                .doFinally(() -> refreshing.remove(key))
+                .subscribe(parsed -> {
+                    // memory was updated by fetch
+                }, throwable -> {
+                    // keep serving the value in memory, the next read will try again
+                });
     }
 
     /**
@@ -117,20 +386,15 @@ final class RealInternalStore<Raw, Parsed, Key> implements InternalStore<Parsed,
     }
 
     Maybe<Result<Parsed>> cacheWithResult(@Nonnull final Key key) {
-        try {
-            Maybe<Parsed> maybeResult = memCache.get(key, () -> disk(key));
-            return maybeResult == null ? Maybe.<Result<Parsed>>empty() : maybeResult.map(Result::createFromCache);
-        } catch (ExecutionException e) {
-            return Maybe.empty();
-        }
+        return memoryOrDisk(key).map(Result::createFromCache);
     }
 
 
     @Nonnull
     @Override
     public Maybe<Parsed> memory(@Nonnull Key key) {
-        Maybe<Parsed> cachedValue = memCache.getIfPresent(key);
-        return cachedValue == null ? Maybe.<Parsed>empty() : cachedValue;
+        Parsed cachedValue = memCache.getIfPresent(key);
+        return cachedValue == null ? Maybe.<Parsed>empty() : Maybe.just(cachedValue);
     }
 
     /**
@@ -151,16 +415,129 @@ final class RealInternalStore<Raw, Parsed, Key> implements InternalStore<Parsed,
     }
 
     Maybe<Parsed> readDisk(@Nonnull final Key key) {
-        return persister().read(key)
-                .onErrorResumeNext(Maybe.<Raw>empty())
-                .map(raw -> parser.apply(key, raw))
-                .doOnSuccess(parsed -> {
-                    updateMemory(key, parsed);
-                    if (stalePolicy == StalePolicy.REFRESH_ON_STALE
-                            && StoreUtil.persisterIsStale(key, persister)) {
-                        backfillCache(key);
-                    }
-                }).cache();
+        return Maybe.defer(() -> {
+            // size of the raw data, for memory policies weighing values by it
+            final AtomicLong rawBytes = weighsRawBytes ? new AtomicLong() : null;
+            Maybe<Parsed> read;
+            if (stageSchedulers.containsKey(StoreMetrics.Stage.PARSE)) {
+                read = rawRead(key)
+                        .map(this::detach)
+                        .flatMap(raw -> onStage(StoreMetrics.Stage.PARSE,
+                                Single.fromCallable(() -> parse(key, meter(raw, rawBytes)))).toMaybe());
+            } else {
+                read = rawRead(key).map(raw -> parse(key, meter(raw, rawBytes)));
+            }
+            return read.doOnSuccess(parsed -> {
+                updateMemory(key, parsed, rawBytes);
+                if (stalePolicy == StalePolicy.REFRESH_ON_STALE
+                        && StoreUtil.persisterIsStale(key, persister)) {
+                    backfillCache(key);
+                }
+            });
+        }).cache();
+    }
+
+    /**
+     * Adds the size of raw to rawBytes, with the raw meter if there is one. Without one only the sizes of
+     * {@link CharSequence}s and byte arrays are known, other values weigh the minimum.
+     *
+     * @return raw, or a value with the same content counting what the parser reads from it
+     */
+    @Nonnull
+    private Raw meter(@Nonnull Raw raw, @Nullable AtomicLong rawBytes) {
+        if (rawBytes == null) {
+            return raw;
+        }
+        if (rawMeter != null) {
+            return rawMeter.meter(raw, rawBytes);
+        }
+        if (raw instanceof CharSequence) {
+            rawBytes.addAndGet(((CharSequence) raw).length());
+        } else if (raw instanceof byte[]) {
+            rawBytes.addAndGet(((byte[]) raw).length);
+        }
+        return raw;
+    }
+
+    /**
+     * @return raw data from the off heap cache if there is one, or else from the persister
+     */
+    private Maybe<Raw> rawRead(@Nonnull final Key key) {
+        final Maybe<Raw> fromPersister = persisterRead(key).onErrorResumeNext(Maybe.<Raw>empty());
+        if (rawCache == null) {
+            return fromPersister;
+        }
+        return Maybe.defer(() -> {
+            Raw cached = rawCache.get(key);
+            if (cached != null) {
+                return Maybe.just(cached);
+            }
+            return fromPersister.map(raw -> rawCache.put(key, raw));
+        });
+    }
+
+    /**
+     * @return raw, copied through the hand off codec when it is about to be parsed on another thread than the one
+     * it was read on, since persisters may close what they read once it has been emitted
+     */
+    @Nonnull
+    private Raw detach(@Nonnull Raw raw) throws IOException {
+        if (handOffCodec == null || rawCache != null) {
+            // values of the off heap cache are copies already
+            return raw;
+        }
+        return handOffCodec.decode(handOffCodec.encode(raw));
+    }
+
+    private Maybe<Raw> persisterRead(@Nonnull final Key key) {
+        if (metrics == null) {
+            return onStage(StoreMetrics.Stage.DISK, persister().read(key));
+        }
+        return onStage(StoreMetrics.Stage.DISK, Maybe.defer(() -> {
+            final long start = System.nanoTime();
+            return persister().read(key)
+                    .doOnEvent((raw, error) ->
+                            metrics.recordLatency(StoreMetrics.Stage.DISK, System.nanoTime() - start));
+        }));
+    }
+
+    private Single<Boolean> persisterWrite(@Nonnull final Key key, @Nonnull final Raw raw) {
+        if (metrics == null) {
+            return onStage(StoreMetrics.Stage.WRITE, Single.defer(() -> persister().write(key, raw)));
+        }
+        return onStage(StoreMetrics.Stage.WRITE, Single.defer(() -> {
+            final long start = System.nanoTime();
+            return persister().write(key, raw)
+                    .doOnEvent((written, error) ->
+                            metrics.recordLatency(StoreMetrics.Stage.WRITE, System.nanoTime() - start));
+        }));
+    }
+
+    /**
+     * @return work, running on the {@link StageScheduler} of stage when there is one
+     */
+    @Nonnull
+    private <T> Maybe<T> onStage(@Nonnull StoreMetrics.Stage stage, @Nonnull Maybe<T> work) {
+        StageScheduler stageScheduler = stageSchedulers.get(stage);
+        return stageScheduler == null ? work : stageScheduler.schedule(work, metrics, stage);
+    }
+
+    @Nonnull
+    private <T> Single<T> onStage(@Nonnull StoreMetrics.Stage stage, @Nonnull Single<T> work) {
+        StageScheduler stageScheduler = stageSchedulers.get(stage);
+        return stageScheduler == null ? work : stageScheduler.schedule(work.toMaybe(), metrics, stage).toSingle();
+    }
+
+    private Parsed parse(@Nonnull Key key, @Nonnull Raw raw) {
+        if (metrics == null) {
+            return parser.apply(key, raw);
+        }
+        long start = System.nanoTime();
+        try {
+            return parser.apply(key, raw);
+        } finally {
+            metrics.recordLatency(StoreMetrics.Stage.PARSE, System.nanoTime() - start);
+        }
     }
 
     @SuppressWarnings("CheckReturnValue")
@@ -191,12 +568,76 @@ final class RealInternalStore<Raw, Parsed, Key> implements InternalStore<Parsed,
         return Single.defer(() -> fetchAndPersistResult(key));
     }
 
+    @Nonnull
+    @Override
+    @Experimental
+    public Single<Map<Key, Parsed>> fetchAll(@Nonnull final Collection<Key> keys) {
+        return Single.defer(() -> fetchAndPersistAll(new LinkedHashSet<>(keys)));
+    }
+
+    /**
+     * Joins the in flight request of every key which already has one. All other keys are registered
+     * as in flight requests backed by one shared {@link BatchFetcher#fetchAll(List)} call, which is only
+     * made once every key has been registered, so that concurrent {@link #get(Key)} calls join the batch.
+     */
+    private Single<Map<Key, Parsed>> fetchAndPersistAll(@Nonnull final Set<Key> keys) {
+        if (keys.isEmpty()) {
+            return Single.just(Collections.<Key, Parsed>emptyMap());
+        }
+
+        final List<Key> batchKeys = new ArrayList<>();
+        final SingleSubject<List<Key>> sealedKeys = SingleSubject.create();
+        final Single<Map<Key, Raw>> batch = sealedKeys
+                .flatMap(ks -> ks.isEmpty()
+                        ? Single.just(Collections.<Key, Raw>emptyMap())
+                        : fromNetwork(batchFetcher.fetchAll(ks)))
+                .cache();
+
+        List<Single<Map.Entry<Key, Parsed>>> requests = new ArrayList<>(keys.size());
+        try {
+            for (final Key key : keys) {
+                Single<Result<Parsed>> request = inFlightRequests.join(key, () -> {
+                    if (batchFetcher == null || isCircuitOpen() || isFailing(key)) {
+                        return responseResult(key).toObservable();
+                    }
+                    batchKeys.add(key);
+                    return persistAndRead(key, guard(key, batch.map(raws -> rawFromBatch(raws, key))))
+                            .toObservable();
+                }).singleOrError();
+                requests.add(request.map(result -> new AbstractMap.SimpleEntry<>(key, result.value())));
+            }
+        } finally {
+            sealedKeys.onSuccess(batchKeys);
+        }
+
+        return Single.merge(requests)
+                .toMap(Map.Entry::getKey, Map.Entry::getValue)
+                .map(fetched -> inKeyOrder(keys, fetched));
+    }
+
+    @Nonnull
+    private Raw rawFromBatch(@Nonnull Map<Key, Raw> raws, @Nonnull Key key) {
+        Raw raw = raws.get(key);
+        if (raw == null) {
+            throw new NoSuchElementException("BatchFetcher returned no value for " + key);
+        }
+        return raw;
+    }
+
+    @Nonnull
+    private Map<Key, Parsed> inKeyOrder(@Nonnull Collection<Key> keys, @Nonnull Map<Key, Parsed> values) {
+        Map<Key, Parsed> ordered = new LinkedHashMap<>();
+        for (Key key : keys) {
+            ordered.put(key, values.get(key));
+        }
+        return ordered;
+    }
+
     /**
      * There should only be one fetch request in flight at any give time.
      * <p>
-     * Return cached request in the form of a Behavior Subject which will emit to its subscribers
-     * the last value it gets. Subject/Observable is cached in a {@link ConcurrentMap} to maintain
-     * thread safety.
+     * Callers join the request in flight for key through a {@link RequestCoalescer}, which
+     * cancels it once every caller has disposed.
      *
      * @param key resource identifier
      * @return observable that emits a {@link Parsed} value
@@ -207,11 +648,7 @@ final class RealInternalStore<Raw, Parsed, Key> implements InternalStore<Parsed,
     }
 
     private Single<Result<Parsed>> fetchAndPersistResult(@Nonnull final Key key) {
-        try {
-            return inFlightRequests.get(key, () -> responseResult(key));
-        } catch (ExecutionException e) {
-            return Single.error(e);
-        }
+        return inFlightRequests.join(key, () -> responseResult(key).toObservable()).singleOrError();
     }
 
     @Nonnull
@@ -221,12 +658,179 @@ final class RealInternalStore<Raw, Parsed, Key> implements InternalStore<Parsed,
 
     @Nonnull
     private Single<Result<Parsed>> responseResult(@Nonnull final Key key) {
-        return fetcher()
-                .fetch(key)
-                .flatMap(raw -> persister()
-                        .write(key, raw)
-                        .flatMap(aBoolean -> readDisk(key).toSingle()))
-                .map(Result::createFromNetwork)
+        if (isCircuitOpen()) {
+            return readDisk(key)
+                    .switchIfEmpty(Maybe.<Parsed>error(circuitOpen(key)))
+                    .toSingle()
+                    .map(Result::createFromCache)
+                    .doOnSuccess(data -> notifySubscribers(data.value(), key));
+        }
+        if (conditionalFetcher != null) {
+            return conditionalResult(key);
+        }
+        Single<Raw> network = inFlightRequests.hedge(Single.defer(() -> fetcher().fetch(key)));
+        return persistAndRead(key, guard(key, fromNetwork(network)));
+    }
+
+    /**
+     * Fetches key with the validators stored alongside its record. When the fetcher answers that nothing changed,
+     * the record is only touched so that it is fresh again, and the value in memory, or else on disk, is returned
+     * without writing or parsing the data again.
+     */
+    @Nonnull
+    private Single<Result<Parsed>> conditionalResult(@Nonnull final Key key) {
+        final ValidatorProvider<Key> validatorProvider = validatorProvider();
+        Single<FetchResponse<Raw>> network = inFlightRequests.hedge(Single.defer(() -> conditionalFetcher.fetch(key,
+                validatorProvider == null ? null : validatorProvider.getValidators(key))));
+        return withStaleFallback(key, guard(key, fromNetwork(network))
+                .flatMap(response -> response.isNotModified()
+                        ? revalidate(key, response.getValidators())
+                        : writeAndRead(key, response.getRaw(), response.getValidators())));
+    }
+
+    @Nonnull
+    private Single<Result<Parsed>> revalidate(@Nonnull final Key key, @Nullable final Validators validators) {
+        return Single.defer(() -> {
+            ValidatorProvider<Key> validatorProvider = validatorProvider();
+            if (validatorProvider != null) {
+                validatorProvider.touch(key);
+                if (validators != null) {
+                    validatorProvider.setValidators(key, validators);
+                }
+            }
+            Parsed cached = memCache.getIfPresent(key);
+            if (cached != null) {
+                recordWriteTime(key);
+                return Single.just(Result.createFromNetwork(cached));
+            }
+            return readDisk(key)
+                    .switchIfEmpty(Maybe.<Parsed>error(new NoSuchElementException(
+                            "ConditionalFetcher answered not modified but there is no record of " + key)))
+                    .toSingle()
+                    .map(Result::createFromNetwork);
+        });
+    }
+
+    @Nullable
+    @SuppressWarnings("unchecked")
+    private ValidatorProvider<Key> validatorProvider() {
+        return persister instanceof ValidatorProvider ? (ValidatorProvider<Key>) persister : null;
+    }
+
+    private boolean isCircuitOpen() {
+        return negativeCache != null && negativeCache.isCircuitOpen();
+    }
+
+    private boolean isFailing(@Nonnull Key key) {
+        return negativeCache != null && negativeCache.getFailure(key) != null;
+    }
+
+    @Nonnull
+    private CircuitOpenException circuitOpen(@Nonnull Key key) {
+        return new CircuitOpenException("Fetches are paused after failing repeatedly and there is nothing on disk for "
+                + key, negativeCache.getLastError());
+    }
+
+    /**
+     * @return network, failing with the error of the last fetch of key instead while key is backing off, and
+     * recording its outcome otherwise. Errors go through the same {@link StalePolicy} as any other failed fetch.
+     */
+    @Nonnull
+    private <T> Single<T> guard(@Nonnull final Key key, @Nonnull final Single<T> network) {
+        if (negativeCache == null) {
+            return network;
+        }
+        return Single.defer(() -> {
+            Throwable failure = negativeCache.getFailure(key);
+            return failure == null ? negativeCache.record(key, network) : Single.<T>error(failure);
+        });
+    }
+
+    @Nonnull
+    private <T> Single<T> fromNetwork(@Nonnull final Single<T> network) {
+        if (metrics == null) {
+            return onStage(StoreMetrics.Stage.NETWORK, network);
+        }
+        return onStage(StoreMetrics.Stage.NETWORK, Single.defer(() -> {
+            metrics.recordNetworkFetch();
+            final long start = System.nanoTime();
+            return network.doOnEvent((value, error) ->
+                    metrics.recordLatency(StoreMetrics.Stage.NETWORK, System.nanoTime() - start));
+        }));
+    }
+
+    @Nonnull
+    private Single<Result<Parsed>> persistAndRead(@Nonnull final Key key, @Nonnull Single<Raw> network) {
+        return withStaleFallback(key, network.flatMap(raw -> writeAndRead(key, raw, null)));
+    }
+
+    /**
+     * @param validators stored alongside raw when values are fetched conditionally, replacing those of the
+     *                   previous record
+     */
+    @Nonnull
+    private Single<Result<Parsed>> writeAndRead(@Nonnull final Key key, @Nonnull Raw raw,
+                                                @Nullable final Validators validators) {
+        if (diskTee != null) {
+            return parseWhileWriting(key, raw, validators).map(Result::createFromNetwork);
+        }
+        return persisterWrite(key, raw)
+                .flatMap(aBoolean -> {
+                    storeValidators(key, validators);
+                    invalidateRaw(key);
+                    return readDisk(key).toSingle();
+                })
+                .map(Result::createFromNetwork);
+    }
+
+    /**
+     * Parses raw while the persister writes it, committing the write only once it has been parsed, so that
+     * nothing is read back from disk and a response which fails to parse never replaces the record
+     */
+    @Nonnull
+    private Single<Parsed> parseWhileWriting(@Nonnull final Key key, @Nonnull final Raw raw,
+                                             @Nullable final Validators validators) {
+        return onStage(StoreMetrics.Stage.PARSE, Single.fromCallable(() -> {
+            // size of the raw data, for memory policies weighing values by it
+            AtomicLong rawBytes = weighsRawBytes ? new AtomicLong() : null;
+            PendingWrite<Raw> write = diskTee.tee(key, raw);
+            Parsed parsed;
+            try {
+                parsed = parse(key, meter(write.raw(), rawBytes));
+            } catch (RuntimeException e) {
+                write.abort();
+                throw e;
+            }
+            long start = System.nanoTime();
+            write.commit();
+            if (metrics != null) {
+                metrics.recordLatency(StoreMetrics.Stage.WRITE, System.nanoTime() - start);
+            }
+            storeValidators(key, validators);
+            invalidateRaw(key);
+            updateMemory(key, parsed, rawBytes);
+            return parsed;
+        }));
+    }
+
+    /**
+     * @param validators stored alongside the record just written when values are fetched conditionally
+     */
+    private void storeValidators(@Nonnull Key key, @Nullable Validators validators) throws IOException {
+        ValidatorProvider<Key> validatorProvider = validatorProvider();
+        if (conditionalFetcher != null && validatorProvider != null) {
+            validatorProvider.setValidators(key, validators);
+        }
+    }
+
+    /**
+     * @return fetched, falling back to the record on disk when it fails and the store is
+     * {@link StalePolicy#NETWORK_BEFORE_STALE}
+     */
+    @Nonnull
+    private Single<Result<Parsed>> withStaleFallback(@Nonnull final Key key,
+                                                     @Nonnull Single<Result<Parsed>> fetched) {
+        return fetched
                 .onErrorResumeNext(throwable -> {
                     if (stalePolicy == StalePolicy.NETWORK_BEFORE_STALE) {
                         return readDisk(key)
@@ -236,13 +840,12 @@ final class RealInternalStore<Raw, Parsed, Key> implements InternalStore<Parsed,
                     }
                     return Single.error(throwable);
                 })
-                .doOnSuccess(data -> notifySubscribers(data.value(), key))
-                .doAfterTerminate(() -> inFlightRequests.invalidate(key))
-                .cache();
+                .doOnSuccess(data -> notifySubscribers(data.value(), key));
     }
 
     void notifySubscribers(Parsed data, Key key) {
-        subject.onNext(new AbstractMap.SimpleEntry<>(key, data));
+        subjects.emit(key, data);
+        allSubject.onNext(data);
     }
 
     /**
@@ -253,18 +856,14 @@ final class RealInternalStore<Raw, Parsed, Key> implements InternalStore<Parsed,
     @Nonnull
     @Override
     public Observable<Parsed> stream(@Nonnull Key key) {
-        return subject
-                .hide()
-                .startWith(get(key).toObservable().
-                        map(data -> new AbstractMap.SimpleEntry<>(key, data)))
-                .filter(simpleEntry -> simpleEntry.getKey().equals(key))
-                .map(AbstractMap.SimpleEntry::getValue);
+        return subjects.observe(key)
+                .startWith(get(key).toObservable());
     }
 
     @Nonnull
     @Override
     public Observable<Parsed> stream() {
-        return subject.hide().map(AbstractMap.SimpleEntry::getValue);
+        return allSubject.hide();
     }
 
 
@@ -275,7 +874,26 @@ final class RealInternalStore<Raw, Parsed, Key> implements InternalStore<Parsed,
      * @param data
      */
     void updateMemory(@Nonnull final Key key, final Parsed data) {
-        memCache.put(key, Maybe.just(data));
+        updateMemory(key, data, null);
+    }
+
+    /**
+     * @param rawBytes size of the raw data data was parsed from, when values are weighed by it
+     */
+    void updateMemory(@Nonnull final Key key, final Parsed data, @Nullable AtomicLong rawBytes) {
+        CacheFactory.put(memCache, key, data, rawBytes);
+        recordWriteTime(key);
+    }
+
+    private void recordWriteTime(@Nonnull Key key) {
+        if (writeTimes == null) {
+            return;
+        }
+        writeTimes.put(key, System.nanoTime());
+        // the value may have left memory before its time was recorded, its removal found no time to drop then
+        if (!memCache.asMap().containsKey(key)) {
+            writeTimes.remove(key);
+        }
     }
 
     @Override
@@ -301,18 +919,34 @@ final class RealInternalStore<Raw, Parsed, Key> implements InternalStore<Parsed,
         for (Key cachedKey : memCache.asMap().keySet()) {
             clear(cachedKey);
         }
+        if (rawCache != null) {
+            rawCache.invalidateAll();
+        }
+        if (negativeCache != null) {
+            negativeCache.clear();
+        }
     }
 
     @Override
     public void clear(@Nonnull Key key) {
         inFlightRequests.invalidate(key);
         memCache.invalidate(key);
+        invalidateRaw(key);
+        if (negativeCache != null) {
+            negativeCache.invalidate(key);
+        }
         StoreUtil.clearPersister(persister(), key);
         notifyRefresh(key);
     }
 
+    private void invalidateRaw(@Nonnull Key key) {
+        if (rawCache != null) {
+            rawCache.invalidate(key);
+        }
+    }
+
     private void notifyRefresh(@Nonnull Key key) {
-        refreshSubject.onNext(key);
+        refreshSubjects.emit(key, key);
     }
 
     /**
@@ -5,13 +5,20 @@ import com.nytimes.android.external.store3.base.Fetcher;
 import com.nytimes.android.external.store3.base.InternalStore;
 import com.nytimes.android.external.store3.base.Parser;
 import com.nytimes.android.external.store3.base.Persister;
+import com.nytimes.android.external.store3.base.StreamingParser;
 import com.nytimes.android.external.store3.util.KeyParser;
 import com.nytimes.android.external.store3.util.NoKeyParser;
 import com.nytimes.android.external.store3.util.NoopParserFunc;
 import com.nytimes.android.external.store3.util.NoopPersister;
 
+import java.util.Collection;
+import java.util.Map;
+
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
 import io.reactivex.Maybe;
 import io.reactivex.Observable;
 import io.reactivex.Single;
@@ -74,6 +81,18 @@ public class RealStore<Parsed, Key> implements Store<Parsed, Key> {
         return internalStore.get(key);
     }
 
+    @Nullable
+    @Override
+    public Parsed peek(@Nonnull Key key) {
+        return internalStore.peek(key);
+    }
+
+    @Nonnull
+    @Override
+    public Parsed getBlocking(@Nonnull Key key) {
+        return internalStore.getBlocking(key);
+    }
+
     @Nonnull
     @Override
     public Single<Result<Parsed>> getWithResult(@Nonnull Key key) {
@@ -85,6 +104,24 @@ public class RealStore<Parsed, Key> implements Store<Parsed, Key> {
         return internalStore.getRefreshing(key);
     }
 
+    @Nonnull
+    @Override
+    public Single<Map<Key, Parsed>> getAll(@Nonnull Collection<Key> keys) {
+        return internalStore.getAll(keys);
+    }
+
+    @Nonnull
+    @Override
+    public <E> Flowable<E> streamingGet(@Nonnull Key key, @Nonnull StreamingParser<?, E> parser) {
+        return internalStore.streamingGet(key, parser);
+    }
+
+    @Nonnull
+    @Override
+    public Completable prefetch(@Nonnull Collection<Key> keys, @Nonnull PrefetchOptions options) {
+        return internalStore.prefetch(keys, options);
+    }
+
 
     /**
      * Will check to see if there exists an in flight observable and return it before
@@ -104,6 +141,12 @@ public class RealStore<Parsed, Key> implements Store<Parsed, Key> {
         return internalStore.fetchWithResult(key);
     }
 
+    @Nonnull
+    @Override
+    public Single<Map<Key, Parsed>> fetchAll(@Nonnull Collection<Key> keys) {
+        return internalStore.fetchAll(keys);
+    }
+
     @Nonnull
     @Override
     public Observable<Parsed> stream() {
@@ -1,23 +1,36 @@
 package com.nytimes.android.external.store3.base.impl;
 
 
+import com.nytimes.android.external.store.util.Result;
+import com.nytimes.android.external.store3.base.BatchFetcher;
+import com.nytimes.android.external.store3.base.ConditionalFetcher;
 import com.nytimes.android.external.store3.base.DiskRead;
 import com.nytimes.android.external.store3.base.DiskWrite;
 import com.nytimes.android.external.store3.base.Fetcher;
+import com.nytimes.android.external.store3.base.OffHeapRawCodec;
 import com.nytimes.android.external.store3.base.Parser;
 import com.nytimes.android.external.store3.base.Persister;
+import com.nytimes.android.external.store3.base.RawCodec;
+import com.nytimes.android.external.store3.base.RawMeter;
 import com.nytimes.android.external.store3.util.KeyParser;
 import com.nytimes.android.external.store3.util.NoKeyParser;
 import com.nytimes.android.external.store3.util.NoopParserFunc;
 import com.nytimes.android.external.store3.util.NoopPersister;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Nonnull;
 
 import io.reactivex.Maybe;
+import io.reactivex.Scheduler;
 import io.reactivex.Single;
+import io.reactivex.schedulers.Schedulers;
 
 
 /**
@@ -27,7 +40,22 @@ public class RealStoreBuilder<Raw, Parsed, Key> {
     private final List<KeyParser> parsers = new ArrayList<>();
     private Persister<Raw, Key> persister;
     private Fetcher<Raw, Key> fetcher;
+    private BatchFetcher<Raw, Key> batchFetcher;
+    private ConditionalFetcher<Raw, Key> conditionalFetcher;
+    private boolean parseWhileWriting;
     private MemoryPolicy memoryPolicy;
+    private StoreMetrics metrics;
+    private OffHeapRawCodec<Raw> rawCodec;
+    private long offHeapBytes;
+    private Scheduler refreshScheduler = Schedulers.io();
+    private long fetchTimeoutNanos;
+    private long hedgeDelayNanos;
+    private final Map<StoreMetrics.Stage, StageScheduler> stageSchedulers = new EnumMap<>(StoreMetrics.Stage.class);
+    private RawCodec<Raw> handOffCodec;
+    private RawMeter<Raw> rawMeter;
+    private Scheduler prefetchScheduler = Schedulers.io();
+    private int prefetchConcurrency = PrefetchQueue.DEFAULT_MAX_CONCURRENCY;
+    private NegativeCachePolicy negativeCachePolicy;
 
     @SuppressWarnings("PMD.UnusedPrivateField") //remove when it is implemented...
     private StalePolicy stalePolicy = StalePolicy.UNSPECIFIED;
@@ -43,6 +71,30 @@ public class RealStoreBuilder<Raw, Parsed, Key> {
         return this;
     }
 
+    /**
+     * Misses of {@link Store#getAll} and {@link Store#fetchAll} will be loaded with a single call to
+     * batchFetcher. When no {@link Fetcher} is set, single key loads go through batchFetcher as well.
+     */
+    @Nonnull
+    public RealStoreBuilder<Raw, Parsed, Key> batchFetcher(final @Nonnull BatchFetcher<Raw, Key> batchFetcher) {
+        this.batchFetcher = batchFetcher;
+        return this;
+    }
+
+    /**
+     * Fetches single keys with the {@link com.nytimes.android.external.store3.base.Validators} stored alongside
+     * their records by a persister implementing {@link com.nytimes.android.external.store3.base.ValidatorProvider}.
+     * When conditionalFetcher answers that a record has not changed, it is only touched and the value the store
+     * already has is returned, without writing or parsing the data again. When no {@link Fetcher} is set, loads
+     * which cannot be conditional, such as streaming ones, go through conditionalFetcher without validators.
+     */
+    @Nonnull
+    public RealStoreBuilder<Raw, Parsed, Key> conditionalFetcher(
+            final @Nonnull ConditionalFetcher<Raw, Key> conditionalFetcher) {
+        this.conditionalFetcher = conditionalFetcher;
+        return this;
+    }
+
     @Nonnull
     public RealStoreBuilder<Raw, Parsed, Key> persister(final @Nonnull Persister<Raw, Key> persister) {
         this.persister = persister;
@@ -98,6 +150,150 @@ public class RealStoreBuilder<Raw, Parsed, Key> {
         return this;
     }
 
+    /**
+     * Store will count memory, disk and network reads and time every stage into metrics.
+     * The same instance may be passed to several builders.
+     */
+    @Nonnull
+    public RealStoreBuilder<Raw, Parsed, Key> metrics(final @Nonnull StoreMetrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
+    /**
+     * Store will keep up to maxBytes of raw data outside of the Java heap, encoded with codec, and read it before
+     * the persister on a memory miss. This keeps a larger working set resident than the memory cache can
+     * without growing the heap, at the cost of parsing on every hit.
+     */
+    @Nonnull
+    public RealStoreBuilder<Raw, Parsed, Key> offHeapCache(final @Nonnull OffHeapRawCodec<Raw> codec, long maxBytes) {
+        this.rawCodec = codec;
+        this.offHeapBytes = maxBytes;
+        return this;
+    }
+
+    /**
+     * Background fetches started by {@link MemoryPolicy.MemoryPolicyBuilder#setRefreshAfterWrite} run on
+     * refreshScheduler, which defaults to {@link Schedulers#io()}.
+     */
+    @Nonnull
+    public RealStoreBuilder<Raw, Parsed, Key> refreshScheduler(final @Nonnull Scheduler refreshScheduler) {
+        this.refreshScheduler = refreshScheduler;
+        return this;
+    }
+
+    /**
+     * Fetches which have not produced a value after timeout fail with a
+     * {@link java.util.concurrent.TimeoutException}, for every caller waiting on them.
+     */
+    @Nonnull
+    public RealStoreBuilder<Raw, Parsed, Key> fetchTimeout(long timeout, final @Nonnull TimeUnit unit) {
+        if (timeout <= 0) {
+            throw new IllegalArgumentException("timeout must be positive");
+        }
+        this.fetchTimeoutNanos = unit.toNanos(timeout);
+        return this;
+    }
+
+    /**
+     * When the fetcher has not answered after delay, Store makes a second call to it and uses whichever
+     * answers first. This cuts the latency of requests stuck on a slow connection at the cost of some
+     * extra calls, so delay is best set around the slowest few percent of fetches.
+     */
+    @Nonnull
+    public RealStoreBuilder<Raw, Parsed, Key> hedgeFetchAfter(long delay, final @Nonnull TimeUnit unit) {
+        if (delay <= 0) {
+            throw new IllegalArgumentException("delay must be positive");
+        }
+        this.hedgeDelayNanos = unit.toNanos(delay);
+        return this;
+    }
+
+    /**
+     * Work of stage runs on scheduler, at most maxConcurrency units at a time, instead of on the thread which
+     * subscribed to it. Every stage is handed off to the next one, so that for instance parsing can keep the
+     * computation threads busy without holding the threads of disk reads.
+     * Queue depth and wait time of every stage are recorded into {@link #metrics(StoreMetrics)}.
+     */
+    @Nonnull
+    public RealStoreBuilder<Raw, Parsed, Key> stageScheduler(final @Nonnull StoreMetrics.Stage stage,
+                                                             final @Nonnull Scheduler scheduler,
+                                                             int maxConcurrency) {
+        return stageScheduler(stage, new StageScheduler(scheduler, maxConcurrency));
+    }
+
+    /**
+     * Same as {@link #stageScheduler(StoreMetrics.Stage, Scheduler, int)}, with a {@link StageScheduler} which may
+     * be shared by several stores to bound the stage across all of them.
+     */
+    @Nonnull
+    public RealStoreBuilder<Raw, Parsed, Key> stageScheduler(final @Nonnull StoreMetrics.Stage stage,
+                                                             final @Nonnull StageScheduler stageScheduler) {
+        stageSchedulers.put(stage, stageScheduler);
+        return this;
+    }
+
+    /**
+     * Raw data read from the persister is copied with codec before it is handed off to a
+     * {@link StoreMetrics.Stage#PARSE} stage scheduler. This is required for persisters, such as those of the
+     * filesystem module, which close the values they read once emitted.
+     */
+    @Nonnull
+    public RealStoreBuilder<Raw, Parsed, Key> rawCodec(final @Nonnull RawCodec<Raw> codec) {
+        this.handOffCodec = codec;
+        return this;
+    }
+
+    /**
+     * Measures raw data as it is parsed, for a {@link MemoryPolicy} with a max weight and no
+     * {@link SizeEstimator}, which weighs values by the size of the raw data they were parsed from.
+     * Without a meter only the sizes of Strings and byte arrays are known.
+     */
+    @Nonnull
+    public RealStoreBuilder<Raw, Parsed, Key> rawMeter(final @Nonnull RawMeter<Raw> meter) {
+        this.rawMeter = meter;
+        return this;
+    }
+
+    /**
+     * Keys of {@link Store#prefetch} are loaded on scheduler, at most maxConcurrency at once across all
+     * prefetches of the store. Defaults to {@link Schedulers#io()} and 4.
+     */
+    @Nonnull
+    public RealStoreBuilder<Raw, Parsed, Key> prefetchScheduler(final @Nonnull Scheduler scheduler,
+                                                                int maxConcurrency) {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("maxConcurrency must be positive");
+        }
+        this.prefetchScheduler = scheduler;
+        this.prefetchConcurrency = maxConcurrency;
+        return this;
+    }
+
+    /**
+     * Remembers failed fetches, so that a key which failed is not fetched again until its backoff is over and
+     * reads of it fail, or fall back to disk with {@link #networkBeforeStale()}, without a network call. With a
+     * circuit breaker the store serves whatever it has on disk, stale or not, while the breaker is open.
+     * Failed fetches are not remembered by default.
+     */
+    @Nonnull
+    public RealStoreBuilder<Raw, Parsed, Key> negativeCache(final @Nonnull NegativeCachePolicy policy) {
+        this.negativeCachePolicy = policy;
+        return this;
+    }
+
+    /**
+     * Parses fetched data while the persister writes it, instead of writing it completely and reading it back
+     * from disk before parsing it. The write is only committed once the data has been parsed, so data which fails
+     * to parse never replaces the record on disk. The persister must implement
+     * {@link com.nytimes.android.external.store3.base.DiskTee}.
+     */
+    @Nonnull
+    public RealStoreBuilder<Raw, Parsed, Key> parseWhileWriting() {
+        this.parseWhileWriting = true;
+        return this;
+    }
+
     //Store will backfill the disk cache anytime a record is stale
     //User will still get the stale record returned to them
     public RealStoreBuilder<Raw, Parsed, Key> refreshOnStale() {
@@ -116,6 +312,10 @@ public class RealStoreBuilder<Raw, Parsed, Key> {
     @Nonnull
     public Store<Parsed, Key> open() {
         if (persister == null) {
+            if (memoryPolicy != null && memoryPolicy.hasExpiry() && !parsers.isEmpty()) {
+                throw new IllegalArgumentException("Without a persister the expiry of the memory policy also applies "
+                        + "to raw data, a store which parses it needs a persister");
+            }
             persister = NoopPersister.create(memoryPolicy);
         }
 
@@ -123,11 +323,69 @@ public class RealStoreBuilder<Raw, Parsed, Key> {
             parser(new NoopParserFunc<Raw, Parsed>());
         }
 
+        if (fetcher == null && batchFetcher != null) {
+            fetcher = singleKeyFetcher(batchFetcher);
+        }
+        if (fetcher == null && conditionalFetcher != null) {
+            fetcher = unconditionalFetcher(conditionalFetcher);
+        }
+
         KeyParser<Key, Raw, Parsed> multiParser = new MultiParser<>(parsers);
 
+        OffHeapRawCache<Raw, Key> rawCache = null;
+        if (rawCodec != null) {
+            rawCache = new OffHeapRawCache<>(rawCodec, offHeapBytes);
+            if (metrics != null) {
+                metrics.bindOffHeapCache(rawCache);
+            }
+        }
+
+        RequestCoalescer<Key, Result<Parsed>> inFlightRequests = new RequestCoalescer<>(metrics,
+                fetchTimeoutNanos, hedgeDelayNanos, TimeUnit.NANOSECONDS, Schedulers.computation());
+
+        InternalStoreOptions<Raw, Parsed, Key> options = new InternalStoreOptions<Raw, Parsed, Key>()
+                .batchFetcher(batchFetcher)
+                .conditionalFetcher(conditionalFetcher)
+                .metrics(metrics)
+                .rawCache(rawCache)
+                .refreshScheduler(refreshScheduler)
+                .inFlightRequests(inFlightRequests)
+                .stageSchedulers(new EnumMap<StoreMetrics.Stage, StageScheduler>(stageSchedulers))
+                .handOffCodec(handOffCodec)
+                .rawMeter(rawMeter)
+                .prefetchQueue(new PrefetchQueue(prefetchScheduler, prefetchConcurrency))
+                .negativeCache(negativeCachePolicy == null ? null : new NegativeCache<Key>(negativeCachePolicy))
+                .parseWhileWriting(parseWhileWriting);
+
         RealInternalStore<Raw, Parsed, Key> realInternalStore
-            = new RealInternalStore<>(fetcher, persister, multiParser, memoryPolicy, stalePolicy);
+            = new RealInternalStore<>(fetcher, persister, multiParser, memoryPolicy, stalePolicy, options);
 
         return new RealStore<>(realInternalStore);
     }
+
+    @Nonnull
+    private static <Raw, Key> Fetcher<Raw, Key> unconditionalFetcher(
+            final @Nonnull ConditionalFetcher<Raw, Key> conditionalFetcher) {
+        return key -> conditionalFetcher.fetch(key, null)
+                .map(response -> {
+                    Raw raw = response.getRaw();
+                    if (raw == null) {
+                        throw new IllegalStateException("ConditionalFetcher answered not modified without validators "
+                                + "for " + key);
+                    }
+                    return raw;
+                });
+    }
+
+    @Nonnull
+    private static <Raw, Key> Fetcher<Raw, Key> singleKeyFetcher(final @Nonnull BatchFetcher<Raw, Key> batchFetcher) {
+        return key -> batchFetcher.fetchAll(Collections.singletonList(key))
+                .map(raws -> {
+                    Raw raw = raws.get(key);
+                    if (raw == null) {
+                        throw new NoSuchElementException("BatchFetcher returned no value for " + key);
+                    }
+                    return raw;
+                });
+    }
 }
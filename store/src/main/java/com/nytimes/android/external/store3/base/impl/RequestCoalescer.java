@@ -0,0 +1,137 @@
+package com.nytimes.android.external.store3.base.impl;
+
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import io.reactivex.Observable;
+import io.reactivex.ObservableSource;
+import io.reactivex.Scheduler;
+import io.reactivex.Single;
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.subjects.SingleSubject;
+
+/**
+ * Makes sure there is only one request in flight per key.
+ * <p>
+ * Callers asking for a key which is already being requested join the request in flight instead of
+ * starting a new one. The request is shared between its subscribers and cancelled when the last of
+ * them disposes, so abandoning a slow request does not leave it running in the background. It is
+ * forgotten as soon as it terminates or is cancelled, after which the next caller starts a new one.
+ * <p>
+ * Optionally every request fails with a {@link java.util.concurrent.TimeoutException} if it has not
+ * emitted a value before a deadline, and {@link #hedge(Single)} starts a second attempt of a
+ * network call which has not answered after a delay, taking whichever answers first.
+ */
+public final class RequestCoalescer<Key, T> {
+
+    private final ConcurrentMap<Key, Observable<T>> inFlight = new ConcurrentHashMap<>();
+    @Nullable
+    private final StoreMetrics metrics;
+    private final long timeoutNanos;
+    private final long hedgeDelayNanos;
+    @Nonnull
+    private final Scheduler scheduler;
+
+    public RequestCoalescer(@Nullable StoreMetrics metrics) {
+        this(metrics, 0, 0, TimeUnit.NANOSECONDS, Schedulers.computation());
+    }
+
+    /**
+     * @param timeout    deadline of a request, or 0 to let requests run for as long as they take
+     * @param hedgeDelay delay after which {@link #hedge(Single)} starts a second attempt, or 0 to never
+     * @param scheduler  used to time deadlines and hedged attempts
+     */
+    public RequestCoalescer(@Nullable StoreMetrics metrics,
+                            long timeout,
+                            long hedgeDelay,
+                            @Nonnull TimeUnit unit,
+                            @Nonnull Scheduler scheduler) {
+        if (timeout < 0 || hedgeDelay < 0) {
+            throw new IllegalArgumentException("timeout and hedgeDelay must not be negative");
+        }
+        this.metrics = metrics;
+        this.timeoutNanos = unit.toNanos(timeout);
+        this.hedgeDelayNanos = unit.toNanos(hedgeDelay);
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Joins the request in flight for key, or starts one with request if there is none. request is
+     * only called by the caller which starts the request and its result is subscribed to once, when
+     * the first caller subscribes.
+     *
+     * @return the shared request, late subscribers receive its last value
+     */
+    @Nonnull
+    public Observable<T> join(@Nonnull final Key key, @Nonnull Callable<? extends ObservableSource<T>> request) {
+        Observable<T> existing = inFlight.get(key);
+        if (existing == null) {
+            final SingleSubject<ObservableSource<T>> source = SingleSubject.create();
+            final AtomicReference<Observable<T>> shared = new AtomicReference<>();
+            shared.set(deadline(source.flatMapObservable(observableSource -> observableSource))
+                    .doFinally(() -> inFlight.remove(key, shared.get()))
+                    .replay(1)
+                    .refCount());
+            existing = inFlight.putIfAbsent(key, shared.get());
+            if (existing == null) {
+                // subscribers arriving before the request is set wait for it on source
+                try {
+                    source.onSuccess(request.call());
+                } catch (Exception e) {
+                    source.onError(e);
+                }
+                return shared.get();
+            }
+        }
+        if (metrics != null) {
+            metrics.recordInFlightJoin();
+        }
+        return existing;
+    }
+
+    /**
+     * Forgets the request in flight for key, its current subscribers still receive its result but the
+     * next caller starts a new request.
+     */
+    public void invalidate(@Nonnull Key key) {
+        inFlight.remove(key);
+    }
+
+    /**
+     * @return number of requests in flight
+     */
+    public int size() {
+        return inFlight.size();
+    }
+
+    /**
+     * @param attempt a network call which makes a new request every time it is subscribed to
+     * @return attempt, with a second one started in parallel if the first has not answered after
+     * the hedge delay. The attempt which answers last is cancelled.
+     */
+    @Nonnull
+    public <R> Single<R> hedge(@Nonnull Single<R> attempt) {
+        if (hedgeDelayNanos == 0) {
+            return attempt;
+        }
+        return Single.amb(Arrays.asList(attempt,
+                attempt.delaySubscription(hedgeDelayNanos, TimeUnit.NANOSECONDS, scheduler)));
+    }
+
+    @Nonnull
+    private Observable<T> deadline(@Nonnull Observable<T> request) {
+        if (timeoutNanos == 0) {
+            return request;
+        }
+        // only the first value has a deadline, streams may keep emitting after it
+        return request.timeout(Observable.timer(timeoutNanos, TimeUnit.NANOSECONDS, scheduler),
+                value -> Observable.never());
+    }
+}
@@ -0,0 +1,18 @@
+package com.nytimes.android.external.store3.base.impl;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Estimates how many bytes a value held by the memory cache of a {@link Store} costs, for memory policies bounded
+ * by {@link MemoryPolicy.MemoryPolicyBuilder#setMaxWeight(long)}.
+ * <p>
+ * Without an estimator, values weigh the size of the raw data they were parsed from, see
+ * {@link RealStoreBuilder#rawMeter}.
+ */
+public interface SizeEstimator<Key, Parsed> {
+
+    /**
+     * Called once when value is put in memory, estimates below 1 byte count as 1
+     */
+    long estimateBytes(@Nonnull Key key, @Nonnull Parsed value);
+}
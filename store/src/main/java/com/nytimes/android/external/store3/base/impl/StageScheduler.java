@@ -0,0 +1,79 @@
+package com.nytimes.android.external.store3.base.impl;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import io.reactivex.Maybe;
+import io.reactivex.Scheduler;
+import io.reactivex.Single;
+
+/**
+ * Runs the work of one stage of a {@link Store} on a {@link Scheduler}, with at most maxConcurrency units of
+ * work running at once. Work beyond that waits in a queue, in the order it was subscribed to.
+ * <p>
+ * A unit of work holds its slot until it terminates or is disposed, so asynchronous work such as a network
+ * call is bounded as well. Its result is emitted after the slot is released, on the thread it terminated on,
+ * which hands downstream work off to the next stage instead of running it on this one.
+ * <p>
+ * One instance may be passed to several builders to bound a stage across stores.
+ */
+public final class StageScheduler {
+
+    @Nonnull
+    private final BoundedRunner runner;
+
+    public StageScheduler(@Nonnull Scheduler scheduler, int maxConcurrency) {
+        this.runner = new BoundedRunner(scheduler, maxConcurrency, null);
+    }
+
+    @Nonnull
+    public <T> Single<T> schedule(@Nonnull Single<T> work) {
+        return schedule(work.toMaybe()).toSingle();
+    }
+
+    @Nonnull
+    public <T> Maybe<T> schedule(@Nonnull Maybe<T> work) {
+        return schedule(work, null, null);
+    }
+
+    /**
+     * @param metrics when not null, records the queue depth and the time spent waiting in the queue for stage
+     */
+    @Nonnull
+    <T> Maybe<T> schedule(@Nonnull final Maybe<T> work,
+                          @Nullable final StoreMetrics metrics,
+                          @Nullable final StoreMetrics.Stage stage) {
+        if (metrics == null) {
+            return runner.schedule(work, 0, null);
+        }
+        return runner.schedule(work, 0, new BoundedRunner.QueueListener() {
+            @Override
+            public void onQueueDepthChanged(int delta) {
+                metrics.recordQueued(stage, delta);
+            }
+
+            @Override
+            public void onStarted(long waitNanos) {
+                metrics.recordQueueWait(stage, waitNanos);
+            }
+        });
+    }
+
+    /**
+     * @return units of work waiting for a slot
+     */
+    public int getQueueDepth() {
+        return runner.getQueueDepth();
+    }
+
+    /**
+     * @return units of work holding a slot
+     */
+    public int getActiveCount() {
+        return runner.getActiveCount();
+    }
+
+    public int getMaxConcurrency() {
+        return runner.getMaxConcurrency();
+    }
+}
@@ -2,7 +2,13 @@ package com.nytimes.android.external.store3.base.impl;
 
 import com.nytimes.android.external.store.util.Result;
 import com.nytimes.android.external.store3.annotations.Experimental;
+import com.nytimes.android.external.store3.base.StreamingParser;
+import java.util.Collection;
+import java.util.Map;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
 import io.reactivex.Observable;
 import io.reactivex.Single;
 
@@ -25,6 +31,21 @@ public interface Store<T, V> {
     @Nonnull
     Single<T> get(@Nonnull V key);
 
+    /**
+     * Return the value of Barcode in the Memory Cache, or null when it is not there
+     * Never loads anything nor allocates any Rx type
+     */
+    @Nullable
+    T peek(@Nonnull V key);
+
+    /**
+     * Same as {@link Store#get(V) Store.get() } but blocks the calling thread until a value is available
+     * A Memory Cache hit is returned directly without going through Rx, only misses are loaded
+     * through {@link Store#get(V) Store.get() }, so avoid calling it from the main thread on a miss
+     */
+    @Nonnull
+    T getBlocking(@Nonnull V key);
+
     /**
      * Return an Observable of {@link Result}<T> for request Barcode
      * Data will be returned from oldest non expired source
@@ -41,6 +62,38 @@ public interface Store<T, V> {
     @Experimental
     Observable<T> getRefreshing(@Nonnull final V key);
 
+    /**
+     * Return a Single of all requested values keyed by Barcode, in the order the keys were given
+     * Values found in Memory or Disk Cache are served locally, only the missing keys go to the network,
+     * as a single batched call when a {@link com.nytimes.android.external.store3.base.BatchFetcher} is set
+     */
+    @Experimental
+    @Nonnull
+    Single<Map<V, T>> getAll(@Nonnull Collection<V> keys);
+
+    /**
+     * Return a Flowable of the elements of the collection stored for Barcode, decoded one by one by parser
+     * as they are requested rather than parsed as a whole first
+     * Data is read from Disk Cache unless it is missing (or stale with NETWORK_BEFORE_STALE), in which case
+     * it is fetched and persisted as with {@link Store#get(V) Store.get() }, sharing the fetch in flight
+     * for Barcode and updating Memory Cache as it does
+     * Memory Cache is not read, parser must accept the data type the Persister stores
+     */
+    @Experimental
+    @Nonnull
+    <E> Flowable<E> streamingGet(@Nonnull V key, @Nonnull StreamingParser<?, E> parser);
+
+    /**
+     * Return a Completable loading keys into the Memory Cache in the background, from Disk Cache only or from
+     * the network as well depending on options, which completes once every key has been tried
+     * Keys are queued with the other prefetches of the store and loaded a few at a time by priority, while
+     * {@link Store#get(V) Store.get() } never waits for them and is shared with prefetches of the same key
+     * Keys which fail to load are skipped, disposing cancels the keys not loaded yet
+     */
+    @Experimental
+    @Nonnull
+    Completable prefetch(@Nonnull Collection<V> keys, @Nonnull PrefetchOptions options);
+
 
     /**
      * Return an Observable of T for requested Barcode skipping Memory & Disk Cache
@@ -54,6 +107,13 @@ public interface Store<T, V> {
     @Nonnull
     Single<Result<T>> fetchWithResult(@Nonnull V key);
 
+    /**
+     * Return a Single of all requested values keyed by Barcode skipping Memory & Disk Cache
+     */
+    @Experimental
+    @Nonnull
+    Single<Map<V, T>> fetchAll(@Nonnull Collection<V> keys);
+
     /**
      * @return an Observable that emits "fresh" new response from the store that hit the fetcher
      * WARNING: stream is an endless observable, be careful when combining
@@ -0,0 +1,217 @@
+package com.nytimes.android.external.store3.base.impl;
+
+import com.nytimes.android.external.cache3.Cache;
+import com.nytimes.android.external.store3.base.impl.room.StoreRoom;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Counts where the reads of a {@link Store} or {@link StoreRoom} were served from and how long every stage took.
+ * <p>
+ * Pass an instance to {@link RealStoreBuilder#metrics(StoreMetrics)} or to the matching {@code StoreRoom.from}.
+ * One instance may be shared by several stores, counts are then aggregated.
+ * Stores opened without metrics do not pay for any of the bookkeeping.
+ */
+public final class StoreMetrics {
+
+    /**
+     * Stages timed by a store
+     */
+    public enum Stage {
+        /**
+         * reading a raw value from the persister, misses included
+         */
+        DISK,
+        /**
+         * turning a raw value into a parsed one
+         */
+        PARSE,
+        /**
+         * waiting for the fetcher, or the batch fetcher, to emit
+         */
+        NETWORK,
+        /**
+         * writing a raw value to the persister
+         */
+        WRITE
+    }
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong networkFetches = new AtomicLong();
+    private final AtomicLong inFlightJoins = new AtomicLong();
+    private final Map<Stage, LatencyHistogram> latencies = new EnumMap<>(Stage.class);
+    private final Map<Stage, LatencyHistogram> queueWaits = new EnumMap<>(Stage.class);
+    private final Map<Stage, AtomicLong> queueDepths = new EnumMap<>(Stage.class);
+    private final List<Cache<?, ?>> memoryCaches = new CopyOnWriteArrayList<>();
+    private final List<OffHeapRawCache<?, ?>> offHeapCaches = new CopyOnWriteArrayList<>();
+
+    public StoreMetrics() {
+        for (Stage stage : Stage.values()) {
+            latencies.put(stage, new LatencyHistogram());
+            queueWaits.put(stage, new LatencyHistogram());
+            queueDepths.put(stage, new AtomicLong());
+        }
+    }
+
+    public void recordMemoryHit() {
+        memoryHits.incrementAndGet();
+    }
+
+    public void recordDiskHit() {
+        diskHits.incrementAndGet();
+    }
+
+    public void recordNetworkFetch() {
+        networkFetches.incrementAndGet();
+    }
+
+    /**
+     * a request was served by joining a fetch which was already in flight for the same key
+     */
+    public void recordInFlightJoin() {
+        inFlightJoins.incrementAndGet();
+    }
+
+    public void recordLatency(@Nonnull Stage stage, long nanos) {
+        latencies.get(stage).record(nanos);
+    }
+
+    /**
+     * work of stage waited nanos for a slot of its {@link StageScheduler} before it started
+     */
+    public void recordQueueWait(@Nonnull Stage stage, long nanos) {
+        queueWaits.get(stage).record(nanos);
+    }
+
+    void recordQueued(@Nonnull Stage stage, int delta) {
+        queueDepths.get(stage).addAndGet(delta);
+    }
+
+    /**
+     * Memory caches created by {@link CacheFactory} for a store using these metrics record their own stats
+     */
+    void bindMemoryCache(@Nonnull Cache<?, ?> memoryCache) {
+        memoryCaches.add(memoryCache);
+    }
+
+    /**
+     * Off heap caches created by {@link RealStoreBuilder#offHeapCache} for a store using these metrics
+     */
+    void bindOffHeapCache(@Nonnull OffHeapRawCache<?, ?> offHeapCache) {
+        offHeapCaches.add(offHeapCache);
+    }
+
+    public long getMemoryHitCount() {
+        return memoryHits.get();
+    }
+
+    /**
+     * @return number of disk hits, included in {@link #getDiskHitCount()}, which were read from an off heap cache
+     * instead of the persister
+     */
+    public long getOffHeapHitCount() {
+        long hits = 0;
+        for (OffHeapRawCache<?, ?> offHeapCache : offHeapCaches) {
+            hits += offHeapCache.hitCount();
+        }
+        return hits;
+    }
+
+    /**
+     * @return bytes of raw data currently held by the off heap caches
+     */
+    public long getOffHeapSizeBytes() {
+        long size = 0;
+        for (OffHeapRawCache<?, ?> offHeapCache : offHeapCaches) {
+            size += offHeapCache.sizeBytes();
+        }
+        return size;
+    }
+
+    public long getDiskHitCount() {
+        return diskHits.get();
+    }
+
+    public long getNetworkFetchCount() {
+        return networkFetches.get();
+    }
+
+    public long getInFlightJoinCount() {
+        return inFlightJoins.get();
+    }
+
+    /**
+     * @return ratio of memory hits to all reads served from memory, disk or network
+     */
+    public double getMemoryHitRate() {
+        long hits = memoryHits.get();
+        long reads = hits + diskHits.get() + networkFetches.get() + inFlightJoins.get();
+        return reads == 0 ? 0 : (double) hits / reads;
+    }
+
+    /**
+     * @return number of entries the memory caches dropped because of {@link MemoryPolicy} size or expiration
+     */
+    public long getMemoryEvictionCount() {
+        long evictions = 0;
+        for (Cache<?, ?> memoryCache : memoryCaches) {
+            evictions += memoryCache.stats().evictionCount();
+        }
+        return evictions;
+    }
+
+    /**
+     * @return number of entries currently held by the memory caches
+     */
+    public long getMemorySize() {
+        long size = 0;
+        for (Cache<?, ?> memoryCache : memoryCaches) {
+            size += memoryCache.size();
+        }
+        return size;
+    }
+
+    @Nonnull
+    public LatencyHistogram getLatency(@Nonnull Stage stage) {
+        return latencies.get(stage);
+    }
+
+    /**
+     * @return time work of stage spent waiting for a slot, only recorded when the stage has a {@link StageScheduler}
+     */
+    @Nonnull
+    public LatencyHistogram getQueueWait(@Nonnull Stage stage) {
+        return queueWaits.get(stage);
+    }
+
+    /**
+     * @return number of units of work of stage currently waiting for a slot of its {@link StageScheduler}
+     */
+    public long getQueueDepth(@Nonnull Stage stage) {
+        return queueDepths.get(stage).get();
+    }
+
+    @Override
+    public String toString() {
+        return "StoreMetrics{"
+                + "memoryHits=" + getMemoryHitCount()
+                + ", diskHits=" + getDiskHitCount()
+                + ", networkFetches=" + getNetworkFetchCount()
+                + ", inFlightJoins=" + getInFlightJoinCount()
+                + ", memoryEvictions=" + getMemoryEvictionCount()
+                + ", memorySize=" + getMemorySize()
+                + ", offHeapHits=" + getOffHeapHitCount()
+                + ", offHeapSizeBytes=" + getOffHeapSizeBytes()
+                + ", latencies=" + latencies
+                + ", queueWaits=" + queueWaits
+                + ", queueDepths=" + queueDepths
+                + '}';
+    }
+}
@@ -31,12 +31,19 @@ public final class StoreUtil {
     }
 
     public static <Raw, Key> boolean persisterIsStale(@Nonnull Key key, BasePersister persister) {
+        return getRecordState(key, persister) == STALE;
+    }
+
+    /**
+     * @return state of the record of key if persister is a {@link RecordProvider}, or else {@link RecordState#FRESH}
+     */
+    @Nonnull
+    public static <Key> RecordState getRecordState(@Nonnull Key key, BasePersister persister) {
         if (persister instanceof RecordProvider) {
             RecordProvider<Key> provider = (RecordProvider<Key>) persister;
-            RecordState recordState = provider.getRecordState(key);
-            return recordState == STALE;
+            return provider.getRecordState(key);
         }
-        return false;
+        return RecordState.FRESH;
     }
 
     public static <Raw, Key> void clearPersister(BasePersister persister, @Nonnull Key key) {
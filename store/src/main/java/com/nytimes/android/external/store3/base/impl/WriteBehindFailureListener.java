@@ -0,0 +1,19 @@
+package com.nytimes.android.external.store3.base.impl;
+
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Notified of every batch a {@link WriteBehindQueue} fails to write in the background, see
+ * {@link WriteBehindPolicy.WriteBehindPolicyBuilder#setFailureListener}. Called on the thread which flushed,
+ * it should return quickly.
+ */
+public interface WriteBehindFailureListener {
+
+    /**
+     * @param keys  of the batch, queued again to be retried by the next flush unless they were written again since
+     * @param error the batch failed with
+     */
+    void onFlushFailed(@Nonnull Set<?> keys, @Nonnull Throwable error);
+}
@@ -0,0 +1,165 @@
+package com.nytimes.android.external.store3.base.impl;
+
+import com.nytimes.android.external.store3.base.Clearable;
+import com.nytimes.android.external.store3.base.DiskBatchWrite;
+import com.nytimes.android.external.store3.base.Persister;
+import com.nytimes.android.external.store3.base.RawCodec;
+import com.nytimes.android.external.store3.base.RecordProvider;
+import com.nytimes.android.external.store3.base.RecordState;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import io.reactivex.Completable;
+import io.reactivex.Maybe;
+import io.reactivex.Scheduler;
+import io.reactivex.Single;
+import io.reactivex.schedulers.Schedulers;
+
+/**
+ * Persister which returns from writes once they are queued and writes them to another persister in
+ * batches, see {@link WriteBehindQueue}. Batches are written with {@link DiskBatchWrite#writeAll} if the
+ * persister implements it, or else one record after the other.
+ * <p>
+ * Reads of a key see its last write, whether it was written to the persister yet or not. Raw values which
+ * can only be read once, such as streams, need a {@link RawCodec} to be kept in the queue as bytes.
+ * Writes still queued are lost if the process dies, {@link #close} writes them before shutting down.
+ */
+public final class WriteBehindPersister<Raw, Key> implements Persister<Raw, Key>, Clearable<Key>,
+        RecordProvider<Key>, Closeable {
+
+    @Nonnull
+    private final Persister<Raw, Key> persister;
+    @Nullable
+    private final RawCodec<Raw> codec;
+    @Nonnull
+    private final WriteBehindQueue<Key, Queued<Raw>> queue;
+
+    private WriteBehindPersister(@Nonnull Persister<Raw, Key> persister, @Nullable RawCodec<Raw> codec,
+                                 @Nonnull WriteBehindPolicy policy, @Nonnull Scheduler scheduler) {
+        this.persister = persister;
+        this.codec = codec;
+        this.queue = new WriteBehindQueue<>(policy, scheduler, this::writeBatch);
+    }
+
+    @Nonnull
+    public static <Raw, Key> WriteBehindPersister<Raw, Key> create(@Nonnull Persister<Raw, Key> persister,
+                                                                   @Nonnull WriteBehindPolicy policy) {
+        return new WriteBehindPersister<>(persister, null, policy, Schedulers.io());
+    }
+
+    /**
+     * @param codec used to keep queued values as bytes, and to read them back as many times as needed
+     */
+    @Nonnull
+    public static <Raw, Key> WriteBehindPersister<Raw, Key> create(@Nonnull Persister<Raw, Key> persister,
+                                                                   @Nonnull RawCodec<Raw> codec,
+                                                                   @Nonnull WriteBehindPolicy policy) {
+        return new WriteBehindPersister<>(persister, codec, policy, Schedulers.io());
+    }
+
+    /**
+     * @param codec     used to keep queued values as bytes, or null to keep them as they are written
+     * @param scheduler on which batches are written
+     */
+    @Nonnull
+    public static <Raw, Key> WriteBehindPersister<Raw, Key> create(@Nonnull Persister<Raw, Key> persister,
+                                                                   @Nullable RawCodec<Raw> codec,
+                                                                   @Nonnull WriteBehindPolicy policy,
+                                                                   @Nonnull Scheduler scheduler) {
+        return new WriteBehindPersister<>(persister, codec, policy, scheduler);
+    }
+
+    @Nonnull
+    @Override
+    public Maybe<Raw> read(@Nonnull final Key key) {
+        return Maybe.defer(() -> {
+            Queued<Raw> queued = queue.get(key);
+            return queued == null ? persister.read(key) : Maybe.just(release(queued));
+        });
+    }
+
+    @Nonnull
+    @Override
+    public Single<Boolean> write(@Nonnull final Key key, @Nonnull final Raw raw) {
+        return Single.fromCallable(() -> {
+            queue.put(key, hold(raw));
+            return true;
+        });
+    }
+
+    @Override
+    public void clear(@Nonnull Key key) {
+        queue.remove(key);
+        StoreUtil.clearPersister(persister, key);
+    }
+
+    @Nonnull
+    @Override
+    public RecordState getRecordState(@Nonnull Key key) {
+        if (queue.contains(key)) {
+            return RecordState.FRESH;
+        }
+        return StoreUtil.getRecordState(key, persister);
+    }
+
+    /**
+     * @return writes everything queued so far to the persister
+     */
+    @Nonnull
+    public Completable flush() {
+        return Completable.fromAction(queue::flush);
+    }
+
+    /**
+     * Writes everything queued to the persister, after which writes fail with an {@link IllegalStateException}
+     */
+    @Override
+    public void close() throws IOException {
+        queue.close();
+    }
+
+    private void writeBatch(@Nonnull Map<Key, Queued<Raw>> batch) {
+        if (persister instanceof DiskBatchWrite) {
+            Map<Key, Raw> raws = new LinkedHashMap<>();
+            for (Map.Entry<Key, Queued<Raw>> entry : batch.entrySet()) {
+                raws.put(entry.getKey(), release(entry.getValue()));
+            }
+            ((DiskBatchWrite<Raw, Key>) persister).writeAll(raws).blockingGet();
+        } else {
+            for (Map.Entry<Key, Queued<Raw>> entry : batch.entrySet()) {
+                persister.write(entry.getKey(), release(entry.getValue())).blockingGet();
+            }
+        }
+    }
+
+    @Nonnull
+    private Queued<Raw> hold(@Nonnull Raw raw) throws IOException {
+        return codec == null ? new Queued<>(raw, null) : new Queued<Raw>(null, codec.encode(raw));
+    }
+
+    @Nonnull
+    private Raw release(@Nonnull Queued<Raw> queued) {
+        return queued.raw != null ? queued.raw : codec.decode(queued.bytes);
+    }
+
+    /**
+     * a queued write, kept either as it was written or as the bytes of its codec
+     */
+    private static final class Queued<Raw> {
+        @Nullable
+        final Raw raw;
+        @Nullable
+        final byte[] bytes;
+
+        Queued(@Nullable Raw raw, @Nullable byte[] bytes) {
+            this.raw = raw;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.nytimes.android.external.store3.base.impl;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Defines when a {@link WriteBehindQueue} writes what it holds, see {@link WriteBehindPersister}
+ */
+public final class WriteBehindPolicy {
+
+    private final int maxPending;
+    private final int maxBatchSize;
+    private final long flushDelayNanos;
+    @Nullable
+    private final WriteBehindFailureListener failureListener;
+
+    WriteBehindPolicy(int maxPending, int maxBatchSize, long flushDelayNanos,
+                      @Nullable WriteBehindFailureListener failureListener) {
+        this.maxPending = maxPending;
+        this.maxBatchSize = maxBatchSize;
+        this.flushDelayNanos = flushDelayNanos;
+        this.failureListener = failureListener;
+    }
+
+    public static WriteBehindPolicyBuilder builder() {
+        return new WriteBehindPolicyBuilder();
+    }
+
+    /**
+     * @return keys waiting to be written past which writes are made by their caller instead of queued
+     */
+    public int getMaxPending() {
+        return maxPending;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public long getFlushDelay(TimeUnit unit) {
+        return unit.convert(flushDelayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Nullable
+    public WriteBehindFailureListener getFailureListener() {
+        return failureListener;
+    }
+
+    public static class WriteBehindPolicyBuilder {
+        private int maxPending = 1000;
+        private int maxBatchSize = 100;
+        private long flushDelayNanos = TimeUnit.MILLISECONDS.toNanos(100);
+        private WriteBehindFailureListener failureListener;
+
+        /**
+         * Once maxPending keys are waiting to be written, the next write flushes the queue before returning,
+         * so that writers cannot run ahead of the persister. 1000 by default.
+         */
+        public WriteBehindPolicyBuilder setMaxPending(int maxPending) {
+            if (maxPending <= 0) {
+                throw new IllegalArgumentException("maxPending must be positive: " + maxPending);
+            }
+            this.maxPending = maxPending;
+            return this;
+        }
+
+        /**
+         * Most keys written to the persister at once, a batch is written as soon as that many keys are waiting.
+         * 100 by default.
+         */
+        public WriteBehindPolicyBuilder setMaxBatchSize(int maxBatchSize) {
+            if (maxBatchSize <= 0) {
+                throw new IllegalArgumentException("maxBatchSize must be positive: " + maxBatchSize);
+            }
+            this.maxBatchSize = maxBatchSize;
+            return this;
+        }
+
+        /**
+         * How long a write waits for others to be batched with, 100 milliseconds by default. Writes of a key
+         * made during that time replace each other and only the last one is written.
+         */
+        public WriteBehindPolicyBuilder setFlushDelay(long delay, TimeUnit unit) {
+            if (delay < 0) {
+                throw new IllegalArgumentException("delay cannot be negative: " + delay);
+            }
+            this.flushDelayNanos = unit.toNanos(delay);
+            return this;
+        }
+
+        /**
+         * Notified of batches which fail to be written in the background. Their keys are retried by the next
+         * flush either way, failures of {@link WriteBehindQueue#flush()} are thrown to its caller instead.
+         */
+        public WriteBehindPolicyBuilder setFailureListener(@Nonnull WriteBehindFailureListener failureListener) {
+            this.failureListener = failureListener;
+            return this;
+        }
+
+        public WriteBehindPolicy build() {
+            return new WriteBehindPolicy(maxPending, maxBatchSize, flushDelayNanos, failureListener);
+        }
+    }
+}
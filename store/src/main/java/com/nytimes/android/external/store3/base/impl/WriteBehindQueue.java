@@ -0,0 +1,236 @@
+package com.nytimes.android.external.store3.base.impl;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import io.reactivex.Scheduler;
+
+/**
+ * Holds the values written to a persister until they are written in batches by a {@link Flusher},
+ * see {@link WriteBehindPolicy}.
+ * <p>
+ * A key written again before its value is flushed keeps its place in the queue and only its last value
+ * is flushed. Values stay readable with {@link #get} until their batch is written, so that readers see
+ * their writes. A batch which fails is queued again ahead of later writes, but for the keys written again since,
+ * and retried by the next flush. Its error is thrown to the caller of {@link #flush}, or passed to the
+ * {@link WriteBehindPolicy#getFailureListener() failure listener} when it was flushed in the background.
+ */
+public final class WriteBehindQueue<Key, Value> implements Closeable {
+
+    // failed batches are kept to be retried, which is all a background flush does about them without a listener
+    private static final WriteBehindFailureListener NO_LISTENER = (keys, error) -> {
+    };
+
+    /**
+     * Writes a batch of values to the persister
+     */
+    public interface Flusher<Key, Value> {
+        void flush(@Nonnull Map<Key, Value> batch) throws IOException;
+    }
+
+    @Nonnull
+    private final WriteBehindPolicy policy;
+    @Nonnull
+    private final Scheduler scheduler;
+    @Nonnull
+    private final Flusher<Key, Value> flusher;
+    // batches are written one at a time and in order
+    private final Object flushLock = new Object();
+    @Nonnull
+    private LinkedHashMap<Key, Value> pending = new LinkedHashMap<>();
+    @Nonnull
+    private Map<Key, Value> flushing = Collections.emptyMap();
+    // batches which failed during the current flush, queued again once it is done
+    private final Map<Key, Value> failed = new LinkedHashMap<>();
+    private boolean scheduled;
+    private boolean closed;
+
+    public WriteBehindQueue(@Nonnull WriteBehindPolicy policy, @Nonnull Scheduler scheduler,
+                            @Nonnull Flusher<Key, Value> flusher) {
+        this.policy = policy;
+        this.scheduler = scheduler;
+        this.flusher = flusher;
+    }
+
+    /**
+     * Queues value to be written for key, or writes the queue before returning if it is full
+     */
+    public void put(@Nonnull Key key, @Nonnull Value value) throws IOException {
+        boolean full;
+        boolean schedule = false;
+        long delay = policy.getFlushDelay(TimeUnit.NANOSECONDS);
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("write-behind queue is closed");
+            }
+            pending.put(key, value);
+            // a failed value must not be queued again over this one
+            failed.remove(key);
+            full = pending.size() >= policy.getMaxPending();
+            if (!full && pending.size() == policy.getMaxBatchSize()) {
+                schedule = true;
+                delay = 0;
+            } else if (!full && !scheduled) {
+                schedule = true;
+            }
+            scheduled |= schedule;
+        }
+        if (full) {
+            flush();
+        } else if (schedule) {
+            scheduler.scheduleDirect(this::flushScheduled, delay, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * @return the value queued for key and not written yet, or null if there is none
+     */
+    @Nullable
+    public synchronized Value get(@Nonnull Key key) {
+        Value value = pending.get(key);
+        if (value == null) {
+            value = flushing.get(key);
+        }
+        return value == null ? failed.get(key) : value;
+    }
+
+    public synchronized boolean contains(@Nonnull Key key) {
+        return pending.containsKey(key) || flushing.containsKey(key) || failed.containsKey(key);
+    }
+
+    /**
+     * Drops the value queued for key, waiting for it to be written first if its batch is being flushed
+     */
+    public void remove(@Nonnull Key key) {
+        synchronized (flushLock) {
+            synchronized (this) {
+                pending.remove(key);
+            }
+        }
+    }
+
+    public void clear() {
+        synchronized (flushLock) {
+            synchronized (this) {
+                pending.clear();
+            }
+        }
+    }
+
+    /**
+     * Writes everything queued on the calling thread, then throws the error of the first batch which failed.
+     * Failed batches stay queued for the next flush.
+     */
+    public void flush() throws IOException {
+        flush(null);
+    }
+
+    /**
+     * Writes everything queued, after which nothing more can be queued
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            closed = true;
+        }
+        flush();
+    }
+
+    /**
+     * @param listener when not null, notified of the batches which fail instead of throwing the first error
+     */
+    private void flush(@Nullable WriteBehindFailureListener listener) throws IOException {
+        IOException ioError = null;
+        RuntimeException runtimeError = null;
+        synchronized (flushLock) {
+            try {
+                for (Map<Key, Value> batch = nextBatch(); !batch.isEmpty(); batch = nextBatch()) {
+                    Throwable failure = null;
+                    try {
+                        flusher.flush(batch);
+                    } catch (IOException error) {
+                        ioError = ioError == null && runtimeError == null ? error : ioError;
+                        failure = error;
+                    } catch (RuntimeException error) {
+                        runtimeError = ioError == null && runtimeError == null ? error : runtimeError;
+                        failure = error;
+                    } finally {
+                        synchronized (this) {
+                            if (failure != null) {
+                                keepFailed(batch);
+                            }
+                            flushing = Collections.emptyMap();
+                        }
+                    }
+                    if (failure != null && listener != null) {
+                        listener.onFlushFailed(Collections.unmodifiableSet(batch.keySet()), failure);
+                    }
+                }
+            } finally {
+                requeueFailed();
+            }
+        }
+        if (listener != null) {
+            return;
+        }
+        if (ioError != null) {
+            throw ioError;
+        } else if (runtimeError != null) {
+            throw runtimeError;
+        }
+    }
+
+    /**
+     * keeps the values of batch whose key was not written again while it was flushed
+     */
+    private void keepFailed(@Nonnull Map<Key, Value> batch) {
+        for (Map.Entry<Key, Value> entry : batch.entrySet()) {
+            if (!pending.containsKey(entry.getKey())) {
+                failed.put(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * queues the values of failed batches ahead of those written since
+     */
+    private synchronized void requeueFailed() {
+        if (failed.isEmpty()) {
+            return;
+        }
+        LinkedHashMap<Key, Value> requeued = new LinkedHashMap<>(failed);
+        requeued.putAll(pending);
+        pending = requeued;
+        failed.clear();
+    }
+
+    private synchronized Map<Key, Value> nextBatch() {
+        scheduled = false;
+        Map<Key, Value> batch = new LinkedHashMap<>();
+        Iterator<Map.Entry<Key, Value>> entries = pending.entrySet().iterator();
+        while (entries.hasNext() && batch.size() < policy.getMaxBatchSize()) {
+            Map.Entry<Key, Value> entry = entries.next();
+            batch.put(entry.getKey(), entry.getValue());
+            entries.remove();
+        }
+        flushing = batch;
+        return batch;
+    }
+
+    private void flushScheduled() {
+        WriteBehindFailureListener listener = policy.getFailureListener();
+        try {
+            flush(listener == null ? NO_LISTENER : listener);
+        } catch (IOException impossible) {
+            // failures are passed to the listener
+        }
+    }
+}
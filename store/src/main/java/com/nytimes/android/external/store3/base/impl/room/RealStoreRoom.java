@@ -5,18 +5,24 @@ import com.nytimes.android.external.store3.annotations.Experimental;
 import com.nytimes.android.external.store3.base.Fetcher;
 import com.nytimes.android.external.store3.base.impl.CacheFactory;
 import com.nytimes.android.external.store3.base.impl.MemoryPolicy;
+import com.nytimes.android.external.store3.base.impl.NegativeCache;
+import com.nytimes.android.external.store3.base.impl.RequestCoalescer;
 import com.nytimes.android.external.store3.base.impl.StalePolicy;
+import com.nytimes.android.external.store3.base.impl.StoreMetrics;
 import com.nytimes.android.external.store3.base.impl.StoreUtil;
 import com.nytimes.android.external.store3.base.room.RoomPersister;
+import com.nytimes.android.external.store3.util.CircuitOpenException;
 
 import java.util.Collection;
-import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 import io.reactivex.Observable;
+import io.reactivex.Single;
 
 /**
  * Store to be used for loading an object from different data sources
@@ -31,7 +37,11 @@ class RealStoreRoom<Raw, Parsed, Key> extends StoreRoom<Parsed, Key> {
     private final RoomPersister<Raw, Parsed, Key> persister;
     private final Cache<Key, Observable<Parsed>> memCache;
     private final StalePolicy stalePolicy;
-    private final Cache<Key, Observable<Parsed>> inFlightRequests;
+    private final RequestCoalescer<Key, Parsed> inFlightRequests;
+    @Nullable
+    private final StoreMetrics metrics;
+    @Nullable
+    private final NegativeCache<Key> negativeCache;
 
 
      RealStoreRoom(Fetcher<Raw, Key> fetcher,
@@ -49,11 +59,30 @@ class RealStoreRoom<Raw, Parsed, Key> extends StoreRoom<Parsed, Key> {
                   RoomPersister<Raw, Parsed, Key> persister,
                   MemoryPolicy memoryPolicy,
                   StalePolicy stalePolicy) {
+        this(fetcher, persister, memoryPolicy, stalePolicy, null);
+    }
+
+    RealStoreRoom(Fetcher<Raw, Key> fetcher,
+                  RoomPersister<Raw, Parsed, Key> persister,
+                  MemoryPolicy memoryPolicy,
+                  StalePolicy stalePolicy,
+                  @Nullable StoreMetrics metrics) {
+        this(fetcher, persister, memoryPolicy, stalePolicy, metrics, null);
+    }
+
+    RealStoreRoom(Fetcher<Raw, Key> fetcher,
+                  RoomPersister<Raw, Parsed, Key> persister,
+                  MemoryPolicy memoryPolicy,
+                  StalePolicy stalePolicy,
+                  @Nullable StoreMetrics metrics,
+                  @Nullable NegativeCache<Key> negativeCache) {
         this.fetcher = fetcher;
         this.persister = persister;
         this.stalePolicy = stalePolicy;
-        this.memCache = CacheFactory.createRoomCache(memoryPolicy);
-        this.inFlightRequests = CacheFactory.createRoomInflighter(memoryPolicy);
+        this.metrics = metrics;
+        this.negativeCache = negativeCache;
+        this.memCache = CacheFactory.createRoomCache(memoryPolicy, metrics);
+        this.inFlightRequests = new RequestCoalescer<>(metrics);
     }
 
     /**
@@ -75,12 +104,50 @@ class RealStoreRoom<Raw, Parsed, Key> extends StoreRoom<Parsed, Key> {
 
     Observable<Parsed> cache(@Nonnull final Key key) {
         try {
-            return memCache.get(key, () -> disk(key));
+            if (metrics == null) {
+                return memCache.get(key, () -> disk(key));
+            }
+            DiskLoader loader = new DiskLoader(key);
+            final Observable<Parsed> value = memCache.get(key, loader);
+            // a subscription which loaded value reads Room, later ones are served the values kept in memory
+            final boolean fromDisk = loader.loaded;
+            return Observable.defer(() -> {
+                // counted once per subscription, Room emits again whenever its tables change
+                final AtomicBoolean counted = new AtomicBoolean();
+                return value.doOnNext(parsed -> {
+                    if (counted.compareAndSet(false, true)) {
+                        if (fromDisk) {
+                            metrics.recordDiskHit();
+                        } else {
+                            metrics.recordMemoryHit();
+                        }
+                    }
+                });
+            });
         } catch (ExecutionException e) {
             return Observable.empty();
         }
     }
 
+    /**
+     * loads the value of a key missing from memory from Room, remembering that it did
+     */
+    private final class DiskLoader implements Callable<Observable<Parsed>> {
+        @Nonnull
+        private final Key key;
+        volatile boolean loaded;
+
+        DiskLoader(@Nonnull Key key) {
+            this.key = key;
+        }
+
+        @Override
+        public Observable<Parsed> call() {
+            loaded = true;
+            return disk(key);
+        }
+    }
+
     @Nonnull
     public Observable<Parsed> memory(@Nonnull Key key) {
         Observable<Parsed> cachedValue = memCache.getIfPresent(key);
@@ -103,8 +170,7 @@ class RealStoreRoom<Raw, Parsed, Key> extends StoreRoom<Parsed, Key> {
     }
 
     Observable<Parsed> readDisk(@Nonnull final Key key) {
-        return persister()
-                .read(key)
+        return persisterRead(key)
                 .doOnNext(this::guardAgainstEmptyCollection)
                 .onErrorResumeNext(
                         Observable.empty())
@@ -117,6 +183,22 @@ class RealStoreRoom<Raw, Parsed, Key> extends StoreRoom<Parsed, Key> {
                 }).cache();
     }
 
+    private Observable<Parsed> persisterRead(@Nonnull final Key key) {
+        if (metrics == null) {
+            return persister().read(key);
+        }
+        return Observable.defer(() -> {
+            final long start = System.nanoTime();
+            final AtomicBoolean timed = new AtomicBoolean();
+            return persister().read(key)
+                    .doOnEach(notification -> {
+                        if (timed.compareAndSet(false, true)) {
+                            metrics.recordLatency(StoreMetrics.Stage.DISK, System.nanoTime() - start);
+                        }
+                    });
+        });
+    }
+
     @SuppressWarnings("CheckReturnValue")
     void backfillCache(@Nonnull Key key) {
         fetch(key).subscribe(it -> {
@@ -141,26 +223,25 @@ class RealStoreRoom<Raw, Parsed, Key> extends StoreRoom<Parsed, Key> {
     /**
      * There should only be one fetch request in flight at any give time.
      * <p>
-     * Return cached request in the form of a Behavior Subject which will emit to its subscribers
-     * the last value it gets. Subject/Observable is cached in a {@link ConcurrentMap} to maintain
-     * thread safety.
+     * Callers join the request in flight for key through a {@link RequestCoalescer}, which
+     * cancels it once every caller has disposed.
      *
      * @param key resource identifier
      * @return observable that emits a {@link Parsed} value
      */
     @Nullable
     Observable<Parsed> fetchAndPersist(@Nonnull final Key key) {
-        try {
-            return inFlightRequests.get(key, () -> response(key));
-        } catch (ExecutionException e) {
-            return Observable.error(e);
-        }
+        return inFlightRequests.join(key, () -> response(key));
     }
 
     @Nonnull
     Observable<Parsed> response(@Nonnull final Key key) {
-        return fetcher()
-                .fetch(key)
+        if (negativeCache != null && negativeCache.isCircuitOpen()) {
+            return readDisk(key).switchIfEmpty(Observable.error(new CircuitOpenException(
+                    "Fetches are paused after failing repeatedly and there is nothing on disk for " + key,
+                    negativeCache.getLastError())));
+        }
+        return guardedFetch(key)
                 .doOnSuccess(it -> persister().write(key, it))
                 .flatMapObservable(it -> readDisk(key))
                 .onErrorResumeNext(throwable -> {
@@ -168,12 +249,37 @@ class RealStoreRoom<Raw, Parsed, Key> extends StoreRoom<Parsed, Key> {
                         return readDisk(key).switchIfEmpty(Observable.error(throwable));
                     }
                     return Observable.error(throwable);
-                })
-                .doAfterTerminate(() -> inFlightRequests.invalidate(key))
-                .cache();
+                });
     }
 
 
+    /**
+     * @return the fetch of key, failing with the error of its last fetch instead while it is backing off
+     */
+    @Nonnull
+    private Single<Raw> guardedFetch(@Nonnull final Key key) {
+        if (negativeCache == null) {
+            return fromNetwork(key);
+        }
+        return Single.defer(() -> {
+            Throwable failure = negativeCache.getFailure(key);
+            return failure == null ? negativeCache.record(key, fromNetwork(key)) : Single.<Raw>error(failure);
+        });
+    }
+
+    @Nonnull
+    private Single<Raw> fromNetwork(@Nonnull final Key key) {
+        if (metrics == null) {
+            return fetcher().fetch(key);
+        }
+        return Single.defer(() -> {
+            metrics.recordNetworkFetch();
+            final long start = System.nanoTime();
+            return fetcher().fetch(key).doOnEvent((raw, error) ->
+                    metrics.recordLatency(StoreMetrics.Stage.NETWORK, System.nanoTime() - start));
+        });
+    }
+
     /**
      * Only update memory after persister has been successfully updated
      *
@@ -192,12 +298,18 @@ class RealStoreRoom<Raw, Parsed, Key> extends StoreRoom<Parsed, Key> {
         for (Key cachedKey : memCache.asMap().keySet()) {
             clear(cachedKey);
         }
+        if (negativeCache != null) {
+            negativeCache.clear();
+        }
     }
 
     @Override
     public void clear(@Nonnull Key key) {
         inFlightRequests.invalidate(key);
         memCache.invalidate(key);
+        if (negativeCache != null) {
+            negativeCache.invalidate(key);
+        }
         StoreUtil.clearPersister(persister(), key);
     }
 
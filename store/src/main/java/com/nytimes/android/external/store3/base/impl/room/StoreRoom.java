@@ -3,8 +3,11 @@ package com.nytimes.android.external.store3.base.impl.room;
 import com.nytimes.android.external.store3.annotations.Experimental;
 import com.nytimes.android.external.store3.base.Fetcher;
 import com.nytimes.android.external.store3.base.impl.MemoryPolicy;
+import com.nytimes.android.external.store3.base.impl.NegativeCache;
+import com.nytimes.android.external.store3.base.impl.NegativeCachePolicy;
 import com.nytimes.android.external.store3.base.impl.StalePolicy;
 import com.nytimes.android.external.store3.base.impl.StoreBuilder;
+import com.nytimes.android.external.store3.base.impl.StoreMetrics;
 import com.nytimes.android.external.store3.base.room.RoomPersister;
 
 import javax.annotation.Nonnull;
@@ -67,4 +70,22 @@ public abstract class StoreRoom<T, V> {
              StalePolicy stalePolicy, MemoryPolicy memoryPolicy) {
         return new RealStoreRoom<>(fetcher, persister, memoryPolicy, stalePolicy);
     }
+
+    public static <Raw, Parsed, Key> StoreRoom<Parsed, Key> from
+            (Fetcher<Raw, Key> fetcher, RoomPersister<Raw, Parsed, Key> persister,
+             StalePolicy stalePolicy, MemoryPolicy memoryPolicy, StoreMetrics metrics) {
+        return new RealStoreRoom<>(fetcher, persister, memoryPolicy, stalePolicy, metrics);
+    }
+
+    /**
+     * @param negativeCachePolicy how long failed fetches are remembered, see
+     *                            {@link com.nytimes.android.external.store3.base.impl.RealStoreBuilder#negativeCache}
+     */
+    public static <Raw, Parsed, Key> StoreRoom<Parsed, Key> from
+            (Fetcher<Raw, Key> fetcher, RoomPersister<Raw, Parsed, Key> persister,
+             StalePolicy stalePolicy, MemoryPolicy memoryPolicy, StoreMetrics metrics,
+             NegativeCachePolicy negativeCachePolicy) {
+        return new RealStoreRoom<>(fetcher, persister, memoryPolicy, stalePolicy, metrics,
+                new NegativeCache<Key>(negativeCachePolicy));
+    }
 }
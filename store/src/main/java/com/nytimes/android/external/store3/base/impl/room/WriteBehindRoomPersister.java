@@ -0,0 +1,113 @@
+package com.nytimes.android.external.store3.base.impl.room;
+
+import com.nytimes.android.external.store3.annotations.Experimental;
+import com.nytimes.android.external.store3.base.Clearable;
+import com.nytimes.android.external.store3.base.impl.StoreUtil;
+import com.nytimes.android.external.store3.base.impl.WriteBehindPolicy;
+import com.nytimes.android.external.store3.base.impl.WriteBehindQueue;
+import com.nytimes.android.external.store3.base.room.RoomDiskBatchWrite;
+import com.nytimes.android.external.store3.base.room.RoomPersister;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+
+import io.reactivex.Completable;
+import io.reactivex.Observable;
+import io.reactivex.Scheduler;
+import io.reactivex.schedulers.Schedulers;
+
+/**
+ * Room persister which returns from writes once they are queued and writes them to another Room persister
+ * in batches, see {@link WriteBehindQueue}.
+ * Batches are written in one transaction with {@link RoomDiskBatchWrite#writeAll} if the persister
+ * implements it, or else one record after the other.
+ * <p>
+ * Room reads emit parsed rows, so a read of a key with a queued write flushes the queue first
+ * to see it. Writes still queued are lost if the process dies, {@link #close} writes them before shutting down.
+ */
+@Experimental
+public final class WriteBehindRoomPersister<Raw, Parsed, Key> implements RoomPersister<Raw, Parsed, Key>,
+        Clearable<Key>, Closeable {
+
+    @Nonnull
+    private final RoomPersister<Raw, Parsed, Key> persister;
+    @Nonnull
+    private final WriteBehindQueue<Key, Raw> queue;
+
+    private WriteBehindRoomPersister(@Nonnull RoomPersister<Raw, Parsed, Key> persister,
+                                     @Nonnull WriteBehindPolicy policy, @Nonnull Scheduler scheduler) {
+        this.persister = persister;
+        this.queue = new WriteBehindQueue<>(policy, scheduler, this::writeBatch);
+    }
+
+    @Nonnull
+    public static <Raw, Parsed, Key> WriteBehindRoomPersister<Raw, Parsed, Key> create(
+            @Nonnull RoomPersister<Raw, Parsed, Key> persister, @Nonnull WriteBehindPolicy policy) {
+        return new WriteBehindRoomPersister<>(persister, policy, Schedulers.io());
+    }
+
+    /**
+     * @param scheduler on which batches are written
+     */
+    @Nonnull
+    public static <Raw, Parsed, Key> WriteBehindRoomPersister<Raw, Parsed, Key> create(
+            @Nonnull RoomPersister<Raw, Parsed, Key> persister, @Nonnull WriteBehindPolicy policy,
+            @Nonnull Scheduler scheduler) {
+        return new WriteBehindRoomPersister<>(persister, policy, scheduler);
+    }
+
+    @Nonnull
+    @Override
+    public Observable<Parsed> read(@Nonnull final Key key) {
+        return Observable.defer(() -> {
+            if (queue.contains(key)) {
+                queue.flush();
+            }
+            return persister.read(key);
+        });
+    }
+
+    @Override
+    public void write(@Nonnull Key key, @Nonnull Raw raw) {
+        try {
+            queue.put(key, raw);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void clear(@Nonnull Key key) {
+        queue.remove(key);
+        StoreUtil.clearPersister(persister, key);
+    }
+
+    /**
+     * @return writes everything queued so far to the persister
+     */
+    @Nonnull
+    public Completable flush() {
+        return Completable.fromAction(queue::flush);
+    }
+
+    /**
+     * Writes everything queued to the persister, after which writes fail with an {@link IllegalStateException}
+     */
+    @Override
+    public void close() throws IOException {
+        queue.close();
+    }
+
+    private void writeBatch(@Nonnull Map<Key, Raw> batch) {
+        if (persister instanceof RoomDiskBatchWrite) {
+            ((RoomDiskBatchWrite<Raw, Key>) persister).writeAll(batch);
+        } else {
+            for (Map.Entry<Key, Raw> entry : batch.entrySet()) {
+                persister.write(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+}
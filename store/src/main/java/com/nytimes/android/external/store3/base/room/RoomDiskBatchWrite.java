@@ -0,0 +1,22 @@
+package com.nytimes.android.external.store3.base.room;
+
+import com.nytimes.android.external.store3.annotations.Experimental;
+
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Room persisters should implement RoomDiskBatchWrite to flush a
+ * {@link com.nytimes.android.external.store3.base.impl.room.WriteBehindRoomPersister WriteBehindRoomPersister}
+ * in a single transaction, typically with a DAO method annotated with {@code @Transaction}
+ *
+ * @param <Raw> data type before parsing
+ */
+@Experimental
+public interface RoomDiskBatchWrite<Raw, Key> extends RoomDiskWrite<Raw, Key> {
+    /**
+     * @param raws records to write, each of them as {@link RoomDiskWrite#write} would
+     */
+    void writeAll(@Nonnull Map<Key, Raw> raws);
+}
@@ -0,0 +1,14 @@
+package com.nytimes.android.external.store3.util;
+
+/**
+ * Exception returned instead of fetching while the circuit breaker of a store is open and there is
+ * nothing on disk for the key requested.
+ */
+public class CircuitOpenException extends RuntimeException {
+
+    private static final long serialVersionUID = 1;
+
+    public CircuitOpenException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -4,6 +4,7 @@ import com.nytimes.android.external.cache3.Cache;
 import com.nytimes.android.external.cache3.CacheBuilder;
 import com.nytimes.android.external.store3.base.Clearable;
 import com.nytimes.android.external.store3.base.Persister;
+import com.nytimes.android.external.store3.base.impl.CacheFactory;
 import com.nytimes.android.external.store3.base.impl.MemoryPolicy;
 
 import java.util.concurrent.TimeUnit;
@@ -18,8 +19,13 @@ import io.reactivex.Single;
 public class NoopPersister<Raw, Key> implements Persister<Raw, Key>, Clearable<Key> {
     protected final Cache<Key, Maybe<Raw>> networkResponses;
 
+    /**
+     * @param memoryPolicy with an {@link MemoryPolicy#getExpiry() expiry} taking raw values, if it has one
+     */
     NoopPersister(MemoryPolicy memoryPolicy) {
-        if (memoryPolicy.hasAccessPolicy()) {
+        if (memoryPolicy.hasExpiry()) {
+            networkResponses = CacheFactory.createResponseCache(memoryPolicy);
+        } else if (memoryPolicy.hasAccessPolicy()) {
             networkResponses = CacheBuilder.newBuilder()
                 .expireAfterAccess(memoryPolicy.getExpireAfterAccess(), memoryPolicy.getExpireAfterTimeUnit())
                 .build();
@@ -0,0 +1,139 @@
+package com.nytimes.android.external.store3;
+
+import com.nytimes.android.external.store3.base.ConditionalFetcher;
+import com.nytimes.android.external.store3.base.FetchResponse;
+import com.nytimes.android.external.store3.base.Persister;
+import com.nytimes.android.external.store3.base.ValidatorProvider;
+import com.nytimes.android.external.store3.base.Validators;
+import com.nytimes.android.external.store3.base.impl.BarCode;
+import com.nytimes.android.external.store3.base.impl.Store;
+import com.nytimes.android.external.store3.base.impl.StoreBuilder;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import io.reactivex.Maybe;
+import io.reactivex.Single;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ConditionalFetchTest {
+
+    private static final Validators FIRST = new Validators("\"1\"", null);
+    private static final Validators SECOND = new Validators("\"2\"", null);
+
+    private final BarCode barCode = new BarCode("type", "key");
+    private final List<Validators> sent = Collections.synchronizedList(new ArrayList<Validators>());
+    private final AtomicInteger parses = new AtomicInteger();
+    private final MapPersister persister = new MapPersister();
+
+    @Test
+    public void notModifiedReturnsTheValueInMemoryWithoutWritingOrParsing() {
+        Validators refreshed = new Validators("\"1\"", "Wed, 21 Oct 2015 07:28:00 GMT");
+        Store<String, BarCode> store = open((key, validators) -> {
+            sent.add(validators);
+            return Single.just(validators == null
+                    ? FetchResponse.modified("first", FIRST)
+                    : FetchResponse.<String>notModified(refreshed));
+        });
+
+        assertThat(store.get(barCode).blockingGet()).isEqualTo("parsed first");
+        assertThat(store.fetch(barCode).blockingGet()).isEqualTo("parsed first");
+
+        assertThat(sent).containsExactly(null, FIRST);
+        assertThat(persister.writes.get()).isEqualTo(1);
+        assertThat(persister.touches.get()).isEqualTo(1);
+        assertThat(parses.get()).isEqualTo(1);
+        assertThat(persister.getValidators(barCode)).isEqualTo(refreshed);
+    }
+
+    @Test
+    public void notModifiedReadsTheRecordOnDiskWhenNotInMemory() {
+        ConditionalFetcher<String, BarCode> fetcher = (key, validators) -> Single.just(validators == null
+                ? FetchResponse.modified("first", FIRST)
+                : FetchResponse.<String>notModified(null));
+        open(fetcher).get(barCode).blockingGet();
+
+        assertThat(open(fetcher).fetch(barCode).blockingGet()).isEqualTo("parsed first");
+
+        assertThat(persister.writes.get()).isEqualTo(1);
+        assertThat(persister.touches.get()).isEqualTo(1);
+        assertThat(persister.getValidators(barCode)).isEqualTo(FIRST);
+    }
+
+    @Test
+    public void modifiedDataReplacesTheRecordAndItsValidators() {
+        Store<String, BarCode> store = open((key, validators) -> Single.just(validators == null
+                ? FetchResponse.modified("first", FIRST)
+                : FetchResponse.modified("second", SECOND)));
+
+        store.get(barCode).blockingGet();
+        assertThat(store.fetch(barCode).blockingGet()).isEqualTo("parsed second");
+
+        assertThat(persister.writes.get()).isEqualTo(2);
+        assertThat(persister.touches.get()).isZero();
+        assertThat(persister.getValidators(barCode)).isEqualTo(SECOND);
+    }
+
+    private Store<String, BarCode> open(ConditionalFetcher<String, BarCode> fetcher) {
+        return StoreBuilder.<BarCode, String, String>parsedWithKey()
+                .conditionalFetcher(fetcher)
+                .persister(persister)
+                .parser(raw -> {
+                    parses.incrementAndGet();
+                    return "parsed " + raw;
+                })
+                .open();
+    }
+
+    private static class MapPersister implements Persister<String, BarCode>, ValidatorProvider<BarCode> {
+        final Map<BarCode, String> records = new ConcurrentHashMap<>();
+        final Map<BarCode, Validators> validators = new ConcurrentHashMap<>();
+        final AtomicInteger writes = new AtomicInteger();
+        final AtomicInteger touches = new AtomicInteger();
+
+        @Nonnull
+        @Override
+        public Maybe<String> read(@Nonnull BarCode key) {
+            String value = records.get(key);
+            return value == null ? Maybe.<String>empty() : Maybe.just(value);
+        }
+
+        @Nonnull
+        @Override
+        public Single<Boolean> write(@Nonnull BarCode key, @Nonnull String raw) {
+            writes.incrementAndGet();
+            records.put(key, raw);
+            return Single.just(true);
+        }
+
+        @Nullable
+        @Override
+        public Validators getValidators(@Nonnull BarCode key) {
+            return records.containsKey(key) ? validators.get(key) : null;
+        }
+
+        @Override
+        public void setValidators(@Nonnull BarCode key, @Nullable Validators validators) {
+            if (validators == null) {
+                this.validators.remove(key);
+            } else {
+                this.validators.put(key, validators);
+            }
+        }
+
+        @Override
+        public void touch(@Nonnull BarCode key) {
+            touches.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.nytimes.android.external.store3;
+
+import com.nytimes.android.external.cache3.Cache;
+import com.nytimes.android.external.cache3.CacheBuilder;
+import com.nytimes.android.external.store3.base.impl.BarCode;
+import com.nytimes.android.external.store3.base.impl.EvictionPolicy;
+import com.nytimes.android.external.store3.base.impl.MemoryPolicy;
+import com.nytimes.android.external.store3.base.impl.Store;
+import com.nytimes.android.external.store3.base.impl.StoreBuilder;
+import com.nytimes.android.external.store3.base.impl.StoreMetrics;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Single;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EvictionPolicyTest {
+
+    private static final int CACHE_SIZE = 100;
+    private static final int HOT_KEYS = 64;
+    private static final int HOT_READS_PER_ROUND = 500;
+    private static final int SCAN_LENGTH = 400;
+    private static final int ROUNDS = 40;
+
+    private final List<Integer> trace = scanHeavyTrace();
+
+    @Test
+    public void tinyLfuKeepsHotKeysThroughScans() {
+        double lru = hitRate(com.nytimes.android.external.cache3.EvictionPolicy.LRU);
+        double tinyLfu = hitRate(com.nytimes.android.external.cache3.EvictionPolicy.TINY_LFU);
+
+        assertThat(tinyLfu).isGreaterThan(lru + 0.04);
+    }
+
+    @Test
+    public void tinyLfuNeverExceedsMaximumSize() {
+        Cache<Integer, Integer> cache = CacheBuilder.newBuilder()
+                .maximumSize(CACHE_SIZE)
+                .evictionPolicy(com.nytimes.android.external.cache3.EvictionPolicy.TINY_LFU)
+                .build();
+
+        for (Integer key : trace) {
+            if (cache.getIfPresent(key) == null) {
+                cache.put(key, key);
+            }
+            assertThat(cache.size()).isLessThanOrEqualTo(CACHE_SIZE);
+        }
+        cache.invalidateAll();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    public void memoryPolicySelectsEvictionPolicy() {
+        long lruHits = storeMemoryHits(EvictionPolicy.LRU);
+        long tinyLfuHits = storeMemoryHits(EvictionPolicy.TINY_LFU);
+
+        assertThat(tinyLfuHits).isGreaterThan(lruHits);
+    }
+
+    private double hitRate(com.nytimes.android.external.cache3.EvictionPolicy evictionPolicy) {
+        Cache<Integer, Integer> cache = CacheBuilder.newBuilder()
+                .maximumSize(CACHE_SIZE)
+                .evictionPolicy(evictionPolicy)
+                .recordStats()
+                .build();
+        for (Integer key : trace) {
+            if (cache.getIfPresent(key) == null) {
+                cache.put(key, key);
+            }
+        }
+        return cache.stats().hitRate();
+    }
+
+    private long storeMemoryHits(EvictionPolicy evictionPolicy) {
+        StoreMetrics metrics = new StoreMetrics();
+        Store<Integer, BarCode> store = StoreBuilder.<Integer>barcode()
+                .fetcher(barCode -> Single.just(Integer.valueOf(barCode.getKey())))
+                .memoryPolicy(MemoryPolicy.builder()
+                        .setExpireAfterWrite(1)
+                        .setExpireAfterTimeUnit(TimeUnit.HOURS)
+                        .setMemorySize(CACHE_SIZE)
+                        .setEvictionPolicy(evictionPolicy)
+                        .build())
+                .metrics(metrics)
+                .open();
+        for (Integer key : trace) {
+            store.get(new BarCode("trace", String.valueOf(key))).blockingGet();
+        }
+        return metrics.getMemoryHitCount();
+    }
+
+    /**
+     * Rounds of skewed reads over a small hot set, each followed by a scan over keys which are
+     * never read again, like a user going back to a few sections between scrolling long lists.
+     */
+    private static List<Integer> scanHeavyTrace() {
+        Random random = new Random(42);
+        List<Integer> trace = new ArrayList<>();
+        int nextScanKey = HOT_KEYS;
+        for (int round = 0; round < ROUNDS; round++) {
+            for (int i = 0; i < HOT_READS_PER_ROUND; i++) {
+                double skewed = random.nextDouble() * random.nextDouble();
+                trace.add((int) (skewed * HOT_KEYS));
+            }
+            for (int i = 0; i < SCAN_LENGTH; i++) {
+                trace.add(nextScanKey++);
+            }
+        }
+        return trace;
+    }
+}
@@ -0,0 +1,150 @@
+package com.nytimes.android.external.store3;
+
+import com.nytimes.android.external.store3.base.BatchFetcher;
+import com.nytimes.android.external.store3.base.Persister;
+import com.nytimes.android.external.store3.base.impl.BarCode;
+import com.nytimes.android.external.store3.base.impl.Store;
+import com.nytimes.android.external.store3.base.impl.StoreBuilder;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Nonnull;
+
+import io.reactivex.Maybe;
+import io.reactivex.Single;
+import io.reactivex.subjects.SingleSubject;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class GetAllTest {
+
+    private final BarCode first = new BarCode("type", "first");
+    private final BarCode second = new BarCode("type", "second");
+    private final BarCode third = new BarCode("type", "third");
+
+    private final List<List<BarCode>> batches = new ArrayList<>();
+    private final Map<BarCode, String> disk = new ConcurrentHashMap<>();
+    private Store<String, BarCode> store;
+
+    @Before
+    public void setUp() {
+        store = StoreBuilder.<String>barcode()
+                .batchFetcher(keys -> {
+                    batches.add(keys);
+                    Map<BarCode, String> raws = new HashMap<>();
+                    for (BarCode key : keys) {
+                        raws.put(key, "network " + key.getKey());
+                    }
+                    return Single.just(raws);
+                })
+                .persister(new MapPersister())
+                .open();
+    }
+
+    @Test
+    public void missesAreFetchedInOneBatch() {
+        Map<BarCode, String> values = store.getAll(Arrays.asList(first, second, third)).blockingGet();
+
+        assertThat(values.keySet()).containsExactly(first, second, third);
+        assertThat(values.get(second)).isEqualTo("network second");
+        assertThat(batches).hasSize(1);
+        assertThat(batches.get(0)).containsExactly(first, second, third);
+    }
+
+    @Test
+    public void localValuesAreNotFetched() {
+        disk.put(second, "disk second");
+        store.get(first).blockingGet();
+        batches.clear();
+
+        Map<BarCode, String> values = store.getAll(Arrays.asList(first, second, third)).blockingGet();
+
+        assertThat(values.get(first)).isEqualTo("network first");
+        assertThat(values.get(second)).isEqualTo("disk second");
+        assertThat(values.get(third)).isEqualTo("network third");
+        assertThat(batches).hasSize(1);
+        assertThat(batches.get(0)).containsExactly(third);
+    }
+
+    @Test
+    public void allLocalMakesNoNetworkCall() {
+        disk.put(first, "disk first");
+        disk.put(second, "disk second");
+
+        Map<BarCode, String> values = store.getAll(Arrays.asList(second, first)).blockingGet();
+
+        assertThat(values.keySet()).containsExactly(second, first);
+        assertThat(batches).isEmpty();
+    }
+
+    @Test
+    public void fetchAllSkipsLocalValues() {
+        disk.put(first, "disk first");
+
+        store.fetchAll(Arrays.asList(first, second)).blockingGet();
+
+        assertThat(batches).hasSize(1);
+        assertThat(batches.get(0)).containsExactly(first, second);
+    }
+
+    @Test
+    public void singleGetJoinsInFlightBatch() {
+        SingleSubject<Map<BarCode, String>> response = SingleSubject.create();
+        List<List<BarCode>> calls = new ArrayList<>();
+        Store<String, BarCode> pendingStore = StoreBuilder.<String>barcode()
+                .batchFetcher(keys -> {
+                    calls.add(keys);
+                    return response;
+                })
+                .open();
+
+        Single<Map<BarCode, String>> all = pendingStore.fetchAll(Arrays.asList(first, second)).cache();
+        all.test();
+        Single<String> single = pendingStore.get(second).cache();
+        single.test();
+
+        Map<BarCode, String> raws = new HashMap<>();
+        raws.put(first, "one");
+        raws.put(second, "two");
+        response.onSuccess(raws);
+
+        assertThat(all.blockingGet().get(first)).isEqualTo("one");
+        assertThat(single.blockingGet()).isEqualTo("two");
+        assertThat(calls).hasSize(1);
+    }
+
+    @Test
+    public void missingBatchValueFails() {
+        BatchFetcher<String, BarCode> partial = keys -> Single.just(new HashMap<>());
+        Store<String, BarCode> partialStore = StoreBuilder.<String>barcode()
+                .batchFetcher(partial)
+                .open();
+
+        partialStore.getAll(Arrays.asList(first, second)).test()
+                .assertError(NoSuchElementException.class);
+    }
+
+    private class MapPersister implements Persister<String, BarCode> {
+        @Nonnull
+        @Override
+        public Maybe<String> read(@Nonnull BarCode key) {
+            String value = disk.get(key);
+            return value == null ? Maybe.<String>empty() : Maybe.just(value);
+        }
+
+        @Nonnull
+        @Override
+        public Single<Boolean> write(@Nonnull BarCode key, @Nonnull String raw) {
+            disk.put(key, raw);
+            return Single.just(true);
+        }
+    }
+}
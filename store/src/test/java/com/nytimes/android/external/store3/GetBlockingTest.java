@@ -0,0 +1,61 @@
+package com.nytimes.android.external.store3;
+
+import com.nytimes.android.external.store3.base.impl.BarCode;
+import com.nytimes.android.external.store3.base.impl.Store;
+import com.nytimes.android.external.store3.base.impl.StoreBuilder;
+import com.nytimes.android.external.store3.base.impl.StoreMetrics;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.reactivex.Single;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class GetBlockingTest {
+
+    private final BarCode barCode = new BarCode("type", "key");
+    private final AtomicInteger fetches = new AtomicInteger();
+    private final StoreMetrics metrics = new StoreMetrics();
+    private Store<String, BarCode> store;
+
+    @Before
+    public void setUp() {
+        store = StoreBuilder.<String>barcode()
+                .fetcher(key -> Single.just("value " + fetches.incrementAndGet()))
+                .metrics(metrics)
+                .open();
+    }
+
+    @Test
+    public void peekDoesNotLoad() {
+        assertThat(store.peek(barCode)).isNull();
+        assertThat(fetches.get()).isEqualTo(0);
+
+        store.get(barCode).blockingGet();
+
+        assertThat(store.peek(barCode)).isEqualTo("value 1");
+    }
+
+    @Test
+    public void getBlockingLoadsMissesAndServesHitsFromMemory() {
+        assertThat(store.getBlocking(barCode)).isEqualTo("value 1");
+        assertThat(store.getBlocking(barCode)).isEqualTo("value 1");
+        assertThat(store.getBlocking(barCode)).isEqualTo("value 1");
+
+        assertThat(fetches.get()).isEqualTo(1);
+        assertThat(metrics.getNetworkFetchCount()).isEqualTo(1);
+        assertThat(metrics.getMemoryHitCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void clearedValuesAreLoadedAgain() {
+        store.getBlocking(barCode);
+        store.clear(barCode);
+
+        assertThat(store.peek(barCode)).isNull();
+        assertThat(store.getBlocking(barCode)).isEqualTo("value 2");
+    }
+}
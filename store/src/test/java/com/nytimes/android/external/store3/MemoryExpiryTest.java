@@ -0,0 +1,315 @@
+package com.nytimes.android.external.store3;
+
+import com.nytimes.android.external.cache3.Cache;
+import com.nytimes.android.external.cache3.CacheBuilder;
+import com.nytimes.android.external.cache3.Expiry;
+import com.nytimes.android.external.cache3.Ticker;
+import com.nytimes.android.external.store3.base.impl.BarCode;
+import com.nytimes.android.external.store3.base.impl.MemoryExpiry;
+import com.nytimes.android.external.store3.base.impl.MemoryPolicy;
+import com.nytimes.android.external.store3.base.impl.Store;
+import com.nytimes.android.external.store3.base.impl.StoreBuilder;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+
+import io.reactivex.Single;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MemoryExpiryTest {
+
+    private static final long LIVE_SCORES = TimeUnit.SECONDS.toNanos(10);
+    private static final long SECTION_FRONTS = TimeUnit.HOURS.toNanos(24);
+
+    private final FakeTicker ticker = new FakeTicker();
+
+    @Test
+    public void entriesExpireAfterTheirOwnDuration() {
+        Cache<String, String> cache = open(new ByTypeExpiry(false));
+        for (int i = 0; i < 100; i++) {
+            cache.put("scores/" + i, "score");
+            cache.put("fronts/" + i, "front");
+        }
+
+        ticker.advance(11, TimeUnit.SECONDS);
+        cache.cleanUp();
+
+        assertThat(cache.size()).isEqualTo(100);
+        assertThat(cache.getIfPresent("scores/0")).isNull();
+        assertThat(cache.getIfPresent("fronts/0")).isEqualTo("front");
+
+        ticker.advance(24, TimeUnit.HOURS);
+        cache.cleanUp();
+
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    public void readsCanExtendExpiration() {
+        Cache<String, String> cache = open(new ByTypeExpiry(true));
+        cache.put("scores/0", "score");
+
+        ticker.advance(8, TimeUnit.SECONDS);
+        assertThat(cache.getIfPresent("scores/0")).isEqualTo("score");
+        ticker.advance(8, TimeUnit.SECONDS);
+        assertThat(cache.getIfPresent("scores/0")).isEqualTo("score");
+        ticker.advance(11, TimeUnit.SECONDS);
+
+        assertThat(cache.getIfPresent("scores/0")).isNull();
+    }
+
+    @Test
+    public void updatesCanKeepExpiration() {
+        Cache<String, String> cache = open(new ByTypeExpiry(false));
+        cache.put("scores/0", "0 - 0");
+
+        ticker.advance(8, TimeUnit.SECONDS);
+        cache.put("scores/0", "1 - 0");
+        ticker.advance(3, TimeUnit.SECONDS);
+
+        assertThat(cache.getIfPresent("scores/0")).isNull();
+    }
+
+    @Test
+    public void entriesExpireOnTimeAcrossAllWheels() {
+        // start right before the ticker overflows to check that the wheels keep turning
+        ticker.nanos = Long.MAX_VALUE - TimeUnit.DAYS.toNanos(3);
+        final Map<Integer, Long> durations = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 2000; i++) {
+            durations.put(i, (long) (Math.pow(random.nextDouble(), 4) * TimeUnit.DAYS.toNanos(20)));
+        }
+        Cache<Integer, Integer> cache = CacheBuilder.newBuilder()
+                .ticker(ticker)
+                .expireAfter(new Expiry<Integer, Integer>() {
+                    @Override
+                    public long expireAfterCreate(Integer key, Integer value, long currentTime) {
+                        return durations.get(key);
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(Integer key, Integer value, long currentTime,
+                                                  long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(Integer key, Integer value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+        for (Integer key : durations.keySet()) {
+            cache.put(key, key);
+        }
+
+        long elapsed = 0;
+        while (elapsed < TimeUnit.DAYS.toNanos(21)) {
+            long step = (long) (Math.pow(random.nextDouble(), 2) * TimeUnit.HOURS.toNanos(12));
+            ticker.advance(step, TimeUnit.NANOSECONDS);
+            elapsed += step;
+            cache.cleanUp();
+
+            int live = 0;
+            for (Long duration : durations.values()) {
+                if (duration > elapsed) {
+                    live++;
+                }
+            }
+            // expired entries are dropped once the finest wheel turned past them, within about a second
+            assertThat(cache.size()).isBetween((long) live, (long) live + countExpiringWithin(durations, elapsed));
+        }
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    public void memoryPolicySetsTheExpiryOfAStore() throws InterruptedException {
+        final AtomicInteger fetches = new AtomicInteger();
+        Store<String, BarCode> store = StoreBuilder.<BarCode, String>key()
+                .fetcher(barCode -> Single.just(barCode.getKey() + " " + fetches.incrementAndGet()))
+                .memoryPolicy(MemoryPolicy.builder()
+                        .setExpiry(new MemoryExpiry<BarCode, String>() {
+                            @Override
+                            public long expireAfterCreate(@Nonnull BarCode key, @Nonnull String value) {
+                                return key.getType().equals("scores") ? 20 : TimeUnit.DAYS.toMillis(1);
+                            }
+
+                            @Override
+                            public long expireAfterUpdate(@Nonnull BarCode key, @Nonnull String value,
+                                                          long currentDuration) {
+                                return expireAfterCreate(key, value);
+                            }
+
+                            @Override
+                            public long expireAfterRead(@Nonnull BarCode key, @Nonnull String value,
+                                                        long currentDuration) {
+                                return currentDuration;
+                            }
+                        })
+                        .setExpireAfterTimeUnit(TimeUnit.MILLISECONDS)
+                        .setMemorySize(10)
+                        .build())
+                .open();
+        BarCode scores = new BarCode("scores", "game");
+        BarCode front = new BarCode("fronts", "home");
+
+        assertThat(store.get(scores).blockingGet()).isEqualTo("game 1");
+        assertThat(store.get(front).blockingGet()).isEqualTo("home 2");
+        Thread.sleep(60);
+
+        assertThat(store.get(scores).blockingGet()).isEqualTo("game 3");
+        assertThat(store.get(front).blockingGet()).isEqualTo("home 2");
+    }
+
+    @Test
+    public void durationsGivenBackKeepTheirExpirationInCoarseUnits() {
+        final AtomicInteger fetches = new AtomicInteger();
+        Store<String, BarCode> store = StoreBuilder.<BarCode, String>key()
+                .fetcher(barCode -> Single.just(barCode.getKey() + " " + fetches.incrementAndGet()))
+                .memoryPolicy(MemoryPolicy.builder()
+                        .setExpiry(new MemoryExpiry<BarCode, String>() {
+                            @Override
+                            public long expireAfterCreate(@Nonnull BarCode key, @Nonnull String value) {
+                                return 1;
+                            }
+
+                            @Override
+                            public long expireAfterUpdate(@Nonnull BarCode key, @Nonnull String value,
+                                                          long currentDuration) {
+                                return currentDuration;
+                            }
+
+                            @Override
+                            public long expireAfterRead(@Nonnull BarCode key, @Nonnull String value,
+                                                        long currentDuration) {
+                                return currentDuration;
+                            }
+                        })
+                        .setExpireAfterTimeUnit(TimeUnit.HOURS)
+                        .setMemorySize(10)
+                        .build())
+                .open();
+        BarCode front = new BarCode("fronts", "home");
+
+        // less than an hour is left on every read, which is 0 hours once rounded down
+        for (int i = 0; i < 3; i++) {
+            assertThat(store.get(front).blockingGet()).isEqualTo("home 1");
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void expiryCannotBeSetWithExpireAfterWrite() {
+        MemoryPolicy.builder()
+                .setExpireAfterWrite(10)
+                .setExpiry(new MemoryExpiry<BarCode, String>() {
+                    @Override
+                    public long expireAfterCreate(@Nonnull BarCode key, @Nonnull String value) {
+                        return 10;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(@Nonnull BarCode key, @Nonnull String value,
+                                                  long currentDuration) {
+                        return 10;
+                    }
+
+                    @Override
+                    public long expireAfterRead(@Nonnull BarCode key, @Nonnull String value,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                });
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void storesWhichParseNeedAPersisterForAnExpiry() {
+        StoreBuilder.<BarCode, String, Integer>parsedWithKey()
+                .fetcher(barCode -> Single.just(barCode.getKey()))
+                .parser(String::length)
+                .memoryPolicy(MemoryPolicy.builder()
+                        .setExpiry(new MemoryExpiry<BarCode, Integer>() {
+                            @Override
+                            public long expireAfterCreate(@Nonnull BarCode key, @Nonnull Integer value) {
+                                return 10;
+                            }
+
+                            @Override
+                            public long expireAfterUpdate(@Nonnull BarCode key, @Nonnull Integer value,
+                                                          long currentDuration) {
+                                return 10;
+                            }
+
+                            @Override
+                            public long expireAfterRead(@Nonnull BarCode key, @Nonnull Integer value,
+                                                        long currentDuration) {
+                                return currentDuration;
+                            }
+                        })
+                        .build())
+                .open();
+    }
+
+    private Cache<String, String> open(Expiry<String, String> expiry) {
+        return CacheBuilder.newBuilder()
+                .ticker(ticker)
+                .expireAfter(expiry)
+                .build();
+    }
+
+    private static long countExpiringWithin(Map<Integer, Long> durations, long elapsed) {
+        long count = 0;
+        for (Long duration : durations.values()) {
+            if (duration <= elapsed && elapsed - duration < TimeUnit.SECONDS.toNanos(2)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Gives live scores 10 seconds and section fronts a day, updates keep the expiration they replace.
+     */
+    private static class ByTypeExpiry implements Expiry<String, String> {
+        private final boolean readsExtend;
+
+        ByTypeExpiry(boolean readsExtend) {
+            this.readsExtend = readsExtend;
+        }
+
+        @Override
+        public long expireAfterCreate(String key, String value, long currentTime) {
+            return key.startsWith("scores/") ? LIVE_SCORES : SECTION_FRONTS;
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, String value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        @Override
+        public long expireAfterRead(String key, String value, long currentTime, long currentDuration) {
+            return readsExtend ? expireAfterCreate(key, value, currentTime) : currentDuration;
+        }
+    }
+
+    private static class FakeTicker extends Ticker {
+        long nanos;
+
+        void advance(long duration, TimeUnit unit) {
+            nanos += unit.toNanos(duration);
+        }
+
+        @Override
+        public long read() {
+            return nanos;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.nytimes.android.external.store3;
+
+import com.nytimes.android.external.store3.base.impl.BarCode;
+import com.nytimes.android.external.store3.base.impl.CacheFactory;
+import com.nytimes.android.external.store3.base.impl.MemoryBudget;
+import com.nytimes.android.external.store3.base.impl.MemoryPolicy;
+import com.nytimes.android.external.store3.base.impl.SizeEstimator;
+import com.nytimes.android.external.store3.base.impl.Store;
+import com.nytimes.android.external.store3.base.impl.StoreBuilder;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Single;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MemoryWeightTest {
+
+    // small enough for the memory cache to have a single segment, which makes eviction order predictable
+    private static final long MAX_BYTES = 12;
+
+    private final BarCode first = new BarCode("type", "aaaaa");
+    private final BarCode second = new BarCode("type", "bbbbb");
+    private final BarCode third = new BarCode("type", "ccccc");
+
+    @Test
+    public void weighsValuesByTheLengthOfTheirRawData() {
+        Store<String, BarCode> store = open(policy().setMaxWeight(MAX_BYTES));
+
+        store.get(first).blockingGet();
+        store.get(second).blockingGet();
+        assertThat(store.peek(first)).isEqualTo("aaaaa");
+        assertThat(store.peek(second)).isEqualTo("bbbbb");
+
+        store.get(third).blockingGet();
+        assertThat(store.peek(first)).isNull();
+        assertThat(store.peek(second)).isEqualTo("bbbbb");
+        assertThat(store.peek(third)).isEqualTo("ccccc");
+    }
+
+    @Test
+    public void weighsValuesWithTheSizeEstimator() {
+        SizeEstimator<BarCode, String> twoBytesPerChar = (barCode, parsed) -> parsed.length() * 2;
+        Store<String, BarCode> store = open(policy()
+                .setMaxWeight(MAX_BYTES)
+                .setSizeEstimator(twoBytesPerChar));
+
+        store.get(first).blockingGet();
+        store.get(second).blockingGet();
+
+        assertThat(store.peek(first)).isNull();
+        assertThat(store.peek(second)).isEqualTo("bbbbb");
+    }
+
+    @Test
+    public void storeWrittenToEvictsAgainstTheSharedBudget() {
+        MemoryBudget budget = new MemoryBudget(MAX_BYTES);
+        Store<String, BarCode> articles = open(policy().setSharedBudget(budget));
+        Store<String, BarCode> sections = open(policy().setSharedBudget(budget));
+
+        articles.get(first).blockingGet();
+        articles.get(second).blockingGet();
+        sections.get(first).blockingGet();
+        // sections only holds the value just written, the other store keeps its values until it is written to
+        assertThat(budget.getUsedBytes()).isEqualTo(15);
+        assertThat(articles.peek(first)).isEqualTo("aaaaa");
+        assertThat(articles.peek(second)).isEqualTo("bbbbb");
+
+        articles.get(third).blockingGet();
+        assertThat(articles.peek(first)).isNull();
+        assertThat(articles.peek(second)).isNull();
+        assertThat(articles.peek(third)).isEqualTo("ccccc");
+        assertThat(sections.peek(first)).isEqualTo("aaaaa");
+        assertThat(budget.getUsedBytes()).isEqualTo(10);
+
+        articles.clear();
+        sections.clear();
+        assertThat(budget.getUsedBytes()).isZero();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void roomCacheRejectsAMaxWeight() {
+        CacheFactory.createRoomCache(policy().setMaxWeight(MAX_BYTES).build());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void roomCacheRejectsASharedBudget() {
+        CacheFactory.createRoomCache(policy().setSharedBudget(new MemoryBudget(MAX_BYTES)).build());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void maxWeightConflictsWithMemorySize() {
+        policy().setMemorySize(10).setMaxWeight(MAX_BYTES);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void memorySizeConflictsWithSharedBudget() {
+        policy().setSharedBudget(new MemoryBudget(MAX_BYTES)).setMemorySize(10);
+    }
+
+    private static MemoryPolicy.MemoryPolicyBuilder policy() {
+        return MemoryPolicy.builder()
+                .setExpireAfterWrite(1)
+                .setExpireAfterTimeUnit(TimeUnit.HOURS);
+    }
+
+    private static Store<String, BarCode> open(MemoryPolicy.MemoryPolicyBuilder policy) {
+        return StoreBuilder.<String>barcode()
+                .fetcher(barCode -> Single.just(barCode.getKey()))
+                .memoryPolicy(policy.build())
+                .open();
+    }
+}
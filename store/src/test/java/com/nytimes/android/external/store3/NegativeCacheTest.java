@@ -0,0 +1,145 @@
+package com.nytimes.android.external.store3;
+
+import com.nytimes.android.external.store3.base.Persister;
+import com.nytimes.android.external.store3.base.impl.BarCode;
+import com.nytimes.android.external.store3.base.impl.NegativeCachePolicy;
+import com.nytimes.android.external.store3.base.impl.RealStoreBuilder;
+import com.nytimes.android.external.store3.base.impl.Store;
+import com.nytimes.android.external.store3.base.impl.StoreBuilder;
+import com.nytimes.android.external.store3.util.CircuitOpenException;
+
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+
+import io.reactivex.Maybe;
+import io.reactivex.Single;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class NegativeCacheTest {
+
+    private static final long BACKOFF_MILLIS = 100;
+
+    private final BarCode barCode = new BarCode("type", "key");
+    private final IllegalStateException offline = new IllegalStateException("offline");
+    private final AtomicInteger fetches = new AtomicInteger();
+    private final Map<BarCode, String> disk = new ConcurrentHashMap<>();
+    private volatile boolean failing = true;
+
+    @Test
+    public void failedKeysAreNotFetchedUntilTheirBackoffIsOver() throws InterruptedException {
+        Store<String, BarCode> store = open(backoff(), false);
+
+        store.get(barCode).test().assertError(offline);
+        failing = false;
+        store.get(barCode).test().assertError(offline);
+        assertThat(fetches.get()).isEqualTo(1);
+
+        Thread.sleep(BACKOFF_MILLIS * 2);
+        store.get(barCode).test().assertValue("network 2");
+    }
+
+    @Test
+    public void backoffGrowsWithEveryFailureInARow() throws InterruptedException {
+        Store<String, BarCode> store = open(backoff(), false);
+
+        store.get(barCode).test().assertError(offline);
+        Thread.sleep(BACKOFF_MILLIS * 3 / 2);
+        store.get(barCode).test().assertError(offline);
+        assertThat(fetches.get()).isEqualTo(2);
+
+        // the second failure backs off for twice as long
+        Thread.sleep(BACKOFF_MILLIS * 3 / 2);
+        store.get(barCode).test().assertError(offline);
+        assertThat(fetches.get()).isEqualTo(2);
+
+        Thread.sleep(BACKOFF_MILLIS);
+        failing = false;
+        store.get(barCode).test().assertValue("network 3");
+    }
+
+    @Test
+    public void clearForgetsFailures() {
+        Store<String, BarCode> store = open(backoff(), false);
+
+        store.get(barCode).test().assertError(offline);
+        store.clear(barCode);
+        failing = false;
+
+        store.get(barCode).test().assertValue("network 2");
+    }
+
+    @Test
+    public void networkBeforeStaleServesDiskWhileBackingOff() {
+        Store<String, BarCode> store = open(backoff(), true);
+        disk.put(barCode, "disk");
+
+        store.fetch(barCode).test().assertValue("disk");
+        store.fetch(barCode).test().assertValue("disk");
+
+        assertThat(fetches.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void openCircuitServesDiskWithoutFetching() {
+        Store<String, BarCode> store = open(NegativeCachePolicy.builder()
+                .setBackoff(BACKOFF_MILLIS, BACKOFF_MILLIS * 4, TimeUnit.MILLISECONDS)
+                .setCircuitBreaker(2, 1, TimeUnit.HOURS)
+                .build(), false);
+        BarCode cached = new BarCode("type", "cached");
+        BarCode missing = new BarCode("type", "missing");
+        disk.put(cached, "disk");
+
+        store.fetch(new BarCode("type", "first")).test().assertError(offline);
+        store.fetch(new BarCode("type", "second")).test().assertError(offline);
+        failing = false;
+
+        store.fetch(cached).test().assertValue("disk");
+        store.fetch(missing).test().assertError(CircuitOpenException.class);
+        assertThat(store.fetch(missing).test().errors().get(0).getCause()).isSameAs(offline);
+        assertThat(fetches.get()).isEqualTo(2);
+    }
+
+    private NegativeCachePolicy backoff() {
+        return NegativeCachePolicy.builder()
+                .setBackoff(BACKOFF_MILLIS, BACKOFF_MILLIS * 4, TimeUnit.MILLISECONDS)
+                .setJitter(0)
+                .build();
+    }
+
+    private Store<String, BarCode> open(NegativeCachePolicy policy, boolean networkBeforeStale) {
+        RealStoreBuilder<String, String, BarCode> builder = StoreBuilder.<String>barcode()
+                .fetcher(key -> Single.fromCallable(() -> {
+                    int fetch = fetches.incrementAndGet();
+                    if (failing) {
+                        throw offline;
+                    }
+                    return "network " + fetch;
+                }))
+                .persister(new MapPersister())
+                .negativeCache(policy);
+        return networkBeforeStale ? builder.networkBeforeStale().open() : builder.open();
+    }
+
+    private class MapPersister implements Persister<String, BarCode> {
+        @Nonnull
+        @Override
+        public Maybe<String> read(@Nonnull BarCode key) {
+            String value = disk.get(key);
+            return value == null ? Maybe.<String>empty() : Maybe.just(value);
+        }
+
+        @Nonnull
+        @Override
+        public Single<Boolean> write(@Nonnull BarCode key, @Nonnull String raw) {
+            disk.put(key, raw);
+            return Single.just(true);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.nytimes.android.external.store3;
+
+import com.nytimes.android.external.store3.base.DiskTee;
+import com.nytimes.android.external.store3.base.PendingWrite;
+import com.nytimes.android.external.store3.base.Persister;
+import com.nytimes.android.external.store3.base.impl.BarCode;
+import com.nytimes.android.external.store3.base.impl.Store;
+import com.nytimes.android.external.store3.base.impl.StoreBuilder;
+
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+
+import io.reactivex.Maybe;
+import io.reactivex.Single;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ParseWhileWritingTest {
+
+    private final BarCode barCode = new BarCode("type", "key");
+    private final TeePersister persister = new TeePersister();
+
+    @Test
+    public void fetchedDataIsNotReadBack() {
+        Store<Integer, BarCode> store = open("42");
+
+        assertThat(store.get(barCode).blockingGet()).isEqualTo(42);
+
+        assertThat(persister.records).containsEntry(barCode, "42");
+        assertThat(persister.reads.get()).isEqualTo(1);
+        assertThat(store.get(barCode).blockingGet()).isEqualTo(42);
+        assertThat(persister.reads.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void dataWhichFailsToParseIsNotWritten() {
+        persister.records.put(barCode, "1");
+        Store<Integer, BarCode> store = open("not a number");
+
+        store.fetch(barCode).test().assertError(NumberFormatException.class);
+
+        assertThat(persister.records).containsEntry(barCode, "1");
+        assertThat(persister.aborts.get()).isEqualTo(1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void needsAPersisterWhichCanTee() {
+        StoreBuilder.<BarCode, String, Integer>parsedWithKey()
+                .fetcher(key -> Single.just("42"))
+                .parser(raw -> Integer.valueOf(raw))
+                .parseWhileWriting()
+                .open();
+    }
+
+    private Store<Integer, BarCode> open(String response) {
+        return StoreBuilder.<BarCode, String, Integer>parsedWithKey()
+                .fetcher(key -> Single.just(response))
+                .persister(persister)
+                .parser(raw -> Integer.valueOf(raw))
+                .parseWhileWriting()
+                .open();
+    }
+
+    private static class TeePersister implements Persister<String, BarCode>, DiskTee<String, BarCode> {
+        final Map<BarCode, String> records = new ConcurrentHashMap<>();
+        final AtomicInteger reads = new AtomicInteger();
+        final AtomicInteger aborts = new AtomicInteger();
+
+        @Nonnull
+        @Override
+        public Maybe<String> read(@Nonnull BarCode key) {
+            reads.incrementAndGet();
+            String value = records.get(key);
+            return value == null ? Maybe.<String>empty() : Maybe.just(value);
+        }
+
+        @Nonnull
+        @Override
+        public Single<Boolean> write(@Nonnull BarCode key, @Nonnull String raw) {
+            records.put(key, raw);
+            return Single.just(true);
+        }
+
+        @Nonnull
+        @Override
+        public PendingWrite<String> tee(@Nonnull final BarCode key, @Nonnull final String raw) {
+            return new PendingWrite<String>() {
+                @Nonnull
+                @Override
+                public String raw() {
+                    return raw;
+                }
+
+                @Override
+                public void commit() {
+                    records.put(key, raw);
+                }
+
+                @Override
+                public void abort() {
+                    aborts.incrementAndGet();
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.nytimes.android.external.store3;
+
+import com.nytimes.android.external.store3.base.Persister;
+import com.nytimes.android.external.store3.base.impl.BarCode;
+import com.nytimes.android.external.store3.base.impl.PrefetchOptions;
+import com.nytimes.android.external.store3.base.impl.Store;
+import com.nytimes.android.external.store3.base.impl.StoreBuilder;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Nonnull;
+
+import io.reactivex.Maybe;
+import io.reactivex.Single;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.observers.TestObserver;
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.subjects.SingleSubject;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PrefetchTest {
+
+    private final BarCode first = new BarCode("type", "first");
+    private final BarCode second = new BarCode("type", "second");
+    private final BarCode third = new BarCode("type", "third");
+
+    private final List<BarCode> fetched = Collections.synchronizedList(new ArrayList<BarCode>());
+    private final Map<BarCode, SingleSubject<String>> responses = new ConcurrentHashMap<>();
+    private final Map<BarCode, String> disk = new ConcurrentHashMap<>();
+    private Store<String, BarCode> store;
+
+    @Before
+    public void setUp() {
+        store = StoreBuilder.<String>barcode()
+                .fetcher(barCode -> {
+                    fetched.add(barCode);
+                    SingleSubject<String> response = SingleSubject.create();
+                    responses.put(barCode, response);
+                    return response;
+                })
+                .persister(new MapPersister())
+                .prefetchScheduler(Schedulers.trampoline(), 1)
+                .open();
+    }
+
+    @Test
+    public void fetchesMissingKeysIntoMemory() {
+        disk.put(first, "disk first");
+        TestObserver<Void> prefetch = store.prefetch(Arrays.asList(first, second), PrefetchOptions.fetchIfMissing())
+                .test();
+
+        assertThat(fetched).containsExactly(second);
+        respond(second);
+
+        prefetch.assertComplete();
+        assertThat(store.peek(first)).isEqualTo("disk first");
+        assertThat(store.peek(second)).isEqualTo("network second");
+    }
+
+    @Test
+    public void diskToMemoryNeverFetches() {
+        disk.put(second, "disk second");
+
+        store.prefetch(Arrays.asList(first, second), PrefetchOptions.diskToMemory()).test().assertComplete();
+
+        assertThat(fetched).isEmpty();
+        assertThat(store.peek(first)).isNull();
+        assertThat(store.peek(second)).isEqualTo("disk second");
+    }
+
+    @Test
+    public void higherPriorityKeysStartFirst() {
+        store.prefetch(Arrays.asList(first, second), PrefetchOptions.fetchIfMissing()).test();
+        store.prefetch(Collections.singletonList(third), PrefetchOptions.builder().setPriority(1).build()).test();
+        assertThat(fetched).containsExactly(first);
+
+        respond(first);
+        assertThat(fetched).containsExactly(first, third);
+
+        respond(third);
+        assertThat(fetched).containsExactly(first, third, second);
+    }
+
+    @Test
+    public void getsDoNotWaitForQueuedPrefetchesAndAreNotFetchedTwice() {
+        TestObserver<Void> prefetch = store.prefetch(Arrays.asList(first, second), PrefetchOptions.fetchIfMissing())
+                .test();
+
+        TestObserver<String> get = store.get(second).test();
+        assertThat(fetched).containsExactly(first, second);
+        respond(second);
+        get.assertValue("network second");
+
+        TestObserver<String> joined = store.get(first).test();
+        respond(first);
+        joined.assertValue("network first");
+
+        prefetch.assertComplete();
+        assertThat(fetched).containsExactly(first, second);
+    }
+
+    @Test
+    public void disposingCancelsKeysNotLoadedYet() {
+        Disposable prefetch = store.prefetch(Arrays.asList(first, second), PrefetchOptions.fetchIfMissing())
+                .subscribe();
+        assertThat(responses.get(first).hasObservers()).isTrue();
+
+        prefetch.dispose();
+
+        assertThat(responses.get(first).hasObservers()).isFalse();
+        assertThat(fetched).containsExactly(first);
+    }
+
+    @Test
+    public void failedKeysAreSkipped() {
+        TestObserver<Void> prefetch = store.prefetch(Arrays.asList(first, second), PrefetchOptions.fetchIfMissing())
+                .test();
+
+        responses.get(first).onError(new IllegalStateException("offline"));
+        respond(second);
+
+        prefetch.assertComplete();
+        assertThat(store.peek(first)).isNull();
+        assertThat(store.peek(second)).isEqualTo("network second");
+    }
+
+    private void respond(BarCode barCode) {
+        responses.get(barCode).onSuccess("network " + barCode.getKey());
+    }
+
+    private class MapPersister implements Persister<String, BarCode> {
+        @Nonnull
+        @Override
+        public Maybe<String> read(@Nonnull BarCode key) {
+            String value = disk.get(key);
+            return value == null ? Maybe.<String>empty() : Maybe.just(value);
+        }
+
+        @Nonnull
+        @Override
+        public Single<Boolean> write(@Nonnull BarCode key, @Nonnull String raw) {
+            disk.put(key, raw);
+            return Single.just(true);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.nytimes.android.external.store3;
+
+import com.nytimes.android.external.store3.base.Fetcher;
+import com.nytimes.android.external.store3.base.impl.BarCode;
+import com.nytimes.android.external.store3.base.impl.MemoryPolicy;
+import com.nytimes.android.external.store3.base.impl.Store;
+import com.nytimes.android.external.store3.base.impl.StoreBuilder;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.reactivex.Scheduler;
+import io.reactivex.Single;
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.schedulers.TestScheduler;
+import io.reactivex.subjects.SingleSubject;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RefreshAfterWriteTest {
+
+    private static final long REFRESH_MILLIS = 20;
+
+    private final BarCode barCode = new BarCode("type", "key");
+    private final AtomicInteger fetches = new AtomicInteger();
+
+    @Test
+    public void servesStaleValueWhileRefreshing() throws InterruptedException {
+        TestScheduler refreshScheduler = new TestScheduler();
+        Store<String, BarCode> store = open(barCode -> Single.just("value " + fetches.incrementAndGet()),
+                refreshScheduler);
+
+        assertThat(store.get(barCode).blockingGet()).isEqualTo("value 1");
+        Thread.sleep(REFRESH_MILLIS * 2);
+
+        assertThat(store.get(barCode).blockingGet()).isEqualTo("value 1");
+        assertThat(store.get(barCode).blockingGet()).isEqualTo("value 1");
+        assertThat(fetches.get()).isEqualTo(1);
+
+        refreshScheduler.triggerActions();
+        assertThat(fetches.get()).isEqualTo(2);
+        assertThat(store.get(barCode).blockingGet()).isEqualTo("value 2");
+    }
+
+    @Test
+    public void freshValuesAreNotRefreshed() {
+        Store<String, BarCode> store = open(barCode -> Single.just("value " + fetches.incrementAndGet()),
+                Schedulers.trampoline());
+
+        store.get(barCode).blockingGet();
+        store.get(barCode).blockingGet();
+
+        assertThat(fetches.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void onlyOneRefreshRunsPerKey() throws InterruptedException {
+        final SingleSubject<String> refresh = SingleSubject.create();
+        Store<String, BarCode> store = open(barCode -> fetches.incrementAndGet() == 1
+                ? Single.just("value 1")
+                : refresh, Schedulers.trampoline());
+
+        store.get(barCode).blockingGet();
+        Thread.sleep(REFRESH_MILLIS * 2);
+        store.get(barCode).blockingGet();
+        store.get(barCode).blockingGet();
+        assertThat(fetches.get()).isEqualTo(2);
+
+        refresh.onSuccess("value 2");
+        assertThat(store.get(barCode).blockingGet()).isEqualTo("value 2");
+    }
+
+    @Test
+    public void failedRefreshKeepsServingTheValueInMemory() throws InterruptedException {
+        Store<String, BarCode> store = open(barCode -> fetches.incrementAndGet() == 1
+                ? Single.just("value 1")
+                : Single.<String>error(new IllegalStateException("offline")), Schedulers.trampoline());
+
+        store.get(barCode).blockingGet();
+        Thread.sleep(REFRESH_MILLIS * 2);
+
+        assertThat(store.get(barCode).blockingGet()).isEqualTo("value 1");
+        assertThat(store.get(barCode).blockingGet()).isEqualTo("value 1");
+        assertThat(fetches.get()).isEqualTo(3);
+    }
+
+    @Test
+    public void refreshesEveryKeyOfAWeighedMemoryCache() throws InterruptedException {
+        int keys = 500;
+        Store<String, BarCode> store = StoreBuilder.<String>barcode()
+                .fetcher(barCode -> Single.just("value " + fetches.incrementAndGet()))
+                .memoryPolicy(policy().setMaxWeight(Long.MAX_VALUE).build())
+                .refreshScheduler(Schedulers.trampoline())
+                .open();
+
+        for (int i = 0; i < keys; i++) {
+            store.get(new BarCode("type", "key" + i)).blockingGet();
+        }
+        Thread.sleep(REFRESH_MILLIS * 2);
+        for (int i = 0; i < keys; i++) {
+            store.get(new BarCode("type", "key" + i)).blockingGet();
+        }
+
+        assertThat(fetches.get()).isEqualTo(keys * 2);
+    }
+
+    private Store<String, BarCode> open(Fetcher<String, BarCode> fetcher, Scheduler refreshScheduler) {
+        return StoreBuilder.<String>barcode()
+                .fetcher(fetcher)
+                .memoryPolicy(policy().build())
+                .refreshScheduler(refreshScheduler)
+                .open();
+    }
+
+    private static MemoryPolicy.MemoryPolicyBuilder policy() {
+        return MemoryPolicy.builder()
+                .setExpireAfterWrite(1)
+                .setExpireAfterTimeUnit(TimeUnit.HOURS)
+                .setRefreshAfterWrite(REFRESH_MILLIS, TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,110 @@
+package com.nytimes.android.external.store3;
+
+import com.nytimes.android.external.store3.base.impl.BarCode;
+import com.nytimes.android.external.store3.base.impl.RequestCoalescer;
+import com.nytimes.android.external.store3.base.impl.Store;
+import com.nytimes.android.external.store3.base.impl.StoreBuilder;
+import com.nytimes.android.external.store3.base.impl.StoreMetrics;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.reactivex.Observable;
+import io.reactivex.Single;
+import io.reactivex.observers.TestObserver;
+import io.reactivex.schedulers.TestScheduler;
+import io.reactivex.subjects.PublishSubject;
+import io.reactivex.subjects.SingleSubject;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RequestCoalescerTest {
+
+    private final AtomicInteger requests = new AtomicInteger();
+    private final TestScheduler scheduler = new TestScheduler();
+
+    @Test
+    public void callersJoinTheRequestInFlight() {
+        StoreMetrics metrics = new StoreMetrics();
+        RequestCoalescer<String, String> coalescer = new RequestCoalescer<>(metrics);
+        SingleSubject<String> response = SingleSubject.create();
+
+        TestObserver<String> first = coalescer.join("key", () -> request(response)).test();
+        TestObserver<String> second = coalescer.join("key", () -> request(response)).test();
+        response.onSuccess("value");
+
+        first.assertResult("value");
+        second.assertResult("value");
+        assertThat(requests.get()).isEqualTo(1);
+        assertThat(metrics.getInFlightJoinCount()).isEqualTo(1);
+        assertThat(coalescer.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void requestIsCancelledWhenEveryCallerDisposes() {
+        RequestCoalescer<String, String> coalescer = new RequestCoalescer<>(null);
+        AtomicBoolean cancelled = new AtomicBoolean();
+        Observable<String> slow = Observable.<String>never().doOnDispose(() -> cancelled.set(true));
+
+        TestObserver<String> first = coalescer.join("key", () -> slow).test();
+        TestObserver<String> second = coalescer.join("key", () -> slow).test();
+        first.dispose();
+        assertThat(cancelled.get()).isFalse();
+
+        second.dispose();
+        assertThat(cancelled.get()).isTrue();
+        assertThat(coalescer.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void requestsFailAfterTheDeadline() {
+        RequestCoalescer<String, String> coalescer = new RequestCoalescer<>(null, 5, 0, TimeUnit.SECONDS, scheduler);
+
+        TestObserver<String> observer = coalescer.join("key", Observable::never).test();
+        scheduler.advanceTimeBy(4, TimeUnit.SECONDS);
+        observer.assertNoErrors();
+
+        scheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+        observer.assertError(TimeoutException.class);
+        assertThat(coalescer.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void slowAttemptsAreHedged() {
+        RequestCoalescer<String, String> coalescer = new RequestCoalescer<>(null, 0, 1, TimeUnit.SECONDS, scheduler);
+        PublishSubject<String> slow = PublishSubject.create();
+        Single<String> attempt = Single.defer(() -> requests.incrementAndGet() == 1
+                ? slow.firstOrError()
+                : Single.just("hedged"));
+
+        TestObserver<String> observer = coalescer.hedge(attempt).test();
+        observer.assertNoValues();
+        scheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+
+        observer.assertResult("hedged");
+        assertThat(requests.get()).isEqualTo(2);
+        assertThat(slow.hasObservers()).isFalse();
+    }
+
+    @Test
+    public void storeFetchesTimeOut() {
+        Store<String, BarCode> store = StoreBuilder.<String>barcode()
+                .fetcher(barCode -> Single.<String>never())
+                .fetchTimeout(10, TimeUnit.MILLISECONDS)
+                .open();
+
+        store.get(new BarCode("type", "key"))
+                .test()
+                .awaitDone(5, TimeUnit.SECONDS)
+                .assertError(TimeoutException.class);
+    }
+
+    private Observable<String> request(SingleSubject<String> response) {
+        requests.incrementAndGet();
+        return response.toObservable();
+    }
+}
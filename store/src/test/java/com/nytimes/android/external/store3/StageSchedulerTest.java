@@ -0,0 +1,168 @@
+package com.nytimes.android.external.store3;
+
+import com.nytimes.android.external.store3.base.Persister;
+import com.nytimes.android.external.store3.base.RawCodec;
+import com.nytimes.android.external.store3.base.impl.BarCode;
+import com.nytimes.android.external.store3.base.impl.StageScheduler;
+import com.nytimes.android.external.store3.base.impl.Store;
+import com.nytimes.android.external.store3.base.impl.StoreBuilder;
+import com.nytimes.android.external.store3.base.impl.StoreMetrics;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.annotation.Nonnull;
+
+import io.reactivex.Maybe;
+import io.reactivex.Scheduler;
+import io.reactivex.Single;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.observers.TestObserver;
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.subjects.SingleSubject;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StageSchedulerTest {
+
+    private final ExecutorService parseExecutor = Executors.newSingleThreadExecutor(runnable ->
+            new Thread(runnable, "parse"));
+    private final BarCode barCode = new BarCode("type", "key");
+
+    @After
+    public void tearDown() {
+        parseExecutor.shutdown();
+    }
+
+    @Test
+    public void runsAtMostMaxConcurrencyAtOnce() {
+        StageScheduler stageScheduler = new StageScheduler(Schedulers.trampoline(), 2);
+        List<SingleSubject<Integer>> work = new ArrayList<>();
+        List<TestObserver<Integer>> observers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            SingleSubject<Integer> subject = SingleSubject.create();
+            work.add(subject);
+            observers.add(stageScheduler.schedule(subject).test());
+        }
+        assertThat(stageScheduler.getActiveCount()).isEqualTo(2);
+        assertThat(stageScheduler.getQueueDepth()).isEqualTo(2);
+        assertThat(work.get(2).hasObservers()).isFalse();
+
+        work.get(0).onSuccess(0);
+        observers.get(0).assertValue(0);
+        assertThat(work.get(2).hasObservers()).isTrue();
+        assertThat(stageScheduler.getQueueDepth()).isEqualTo(1);
+    }
+
+    @Test
+    public void disposedWorkGivesItsSlotBack() {
+        StageScheduler stageScheduler = new StageScheduler(Schedulers.trampoline(), 1);
+        SingleSubject<Integer> running = SingleSubject.create();
+        SingleSubject<Integer> queued = SingleSubject.create();
+        SingleSubject<Integer> last = SingleSubject.create();
+
+        Disposable first = stageScheduler.schedule(running).subscribe();
+        Disposable second = stageScheduler.schedule(queued).subscribe();
+        stageScheduler.schedule(last).test();
+
+        second.dispose();
+        assertThat(stageScheduler.getQueueDepth()).isEqualTo(1);
+
+        first.dispose();
+        assertThat(running.hasObservers()).isFalse();
+        assertThat(queued.hasObservers()).isFalse();
+        assertThat(last.hasObservers()).isTrue();
+        assertThat(stageScheduler.getActiveCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void parsesOnTheParseStageAndRecordsItsQueue() {
+        StoreMetrics metrics = new StoreMetrics();
+        Scheduler parseScheduler = Schedulers.from(parseExecutor);
+        Store<String, BarCode> store = StoreBuilder.<BarCode, String, String>parsedWithKey()
+                .fetcher(barCode -> Single.just("value"))
+                .parser(raw -> raw + " parsed on " + Thread.currentThread().getName())
+                .stageScheduler(StoreMetrics.Stage.PARSE, parseScheduler, 1)
+                .metrics(metrics)
+                .open();
+
+        assertThat(store.get(barCode).blockingGet()).isEqualTo("value parsed on parse");
+        assertThat(metrics.getQueueWait(StoreMetrics.Stage.PARSE).getCount()).isEqualTo(1);
+        assertThat(metrics.getQueueWait(StoreMetrics.Stage.DISK).getCount()).isEqualTo(0);
+        assertThat(metrics.getQueueDepth(StoreMetrics.Stage.PARSE)).isEqualTo(0);
+    }
+
+    @Test
+    public void rawCodecCopiesValuesTheirPersisterCloses() {
+        Store<String, BarCode> store = StoreBuilder.<BarCode, Closing, String>parsedWithKey()
+                .fetcher(barCode -> Single.just(new Closing("value")))
+                .persister(new ClosingPersister())
+                .parser(Closing::read)
+                .stageScheduler(StoreMetrics.Stage.PARSE, Schedulers.from(parseExecutor), 1)
+                .rawCodec(new RawCodec<Closing>() {
+                    @Nonnull
+                    @Override
+                    public byte[] encode(@Nonnull Closing raw) {
+                        return raw.read().getBytes();
+                    }
+
+                    @Nonnull
+                    @Override
+                    public Closing decode(@Nonnull byte[] bytes) {
+                        return new Closing(new String(bytes));
+                    }
+                })
+                .open();
+
+        assertThat(store.get(barCode).blockingGet()).isEqualTo("value");
+    }
+
+    private static final class Closing {
+        private final String value;
+        private boolean closed;
+
+        Closing(String value) {
+            this.value = value;
+        }
+
+        String read() {
+            if (closed) {
+                throw new IllegalStateException("closed");
+            }
+            return value;
+        }
+    }
+
+    /**
+     * closes what it reads once emitted, like the persisters of the filesystem module
+     */
+    private static final class ClosingPersister implements Persister<Closing, BarCode> {
+        private String value;
+
+        @Nonnull
+        @Override
+        public Maybe<Closing> read(@Nonnull BarCode key) {
+            return Maybe.create(emitter -> {
+                if (value == null) {
+                    emitter.onComplete();
+                    return;
+                }
+                Closing closing = new Closing(value);
+                emitter.onSuccess(closing);
+                closing.closed = true;
+            });
+        }
+
+        @Nonnull
+        @Override
+        public Single<Boolean> write(@Nonnull BarCode key, @Nonnull Closing closing) {
+            value = closing.read();
+            return Single.just(true);
+        }
+    }
+}
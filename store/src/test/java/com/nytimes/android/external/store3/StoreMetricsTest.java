@@ -0,0 +1,149 @@
+package com.nytimes.android.external.store3;
+
+import com.nytimes.android.external.cache3.Cache;
+import com.nytimes.android.external.cache3.CacheBuilder;
+import com.nytimes.android.external.cache3.CacheStats;
+import com.nytimes.android.external.store3.base.Persister;
+import com.nytimes.android.external.store3.base.impl.BarCode;
+import com.nytimes.android.external.store3.base.impl.LatencyHistogram;
+import com.nytimes.android.external.store3.base.impl.MemoryPolicy;
+import com.nytimes.android.external.store3.base.impl.Store;
+import com.nytimes.android.external.store3.base.impl.StoreBuilder;
+import com.nytimes.android.external.store3.base.impl.StoreMetrics;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+import io.reactivex.Maybe;
+import io.reactivex.Single;
+import io.reactivex.subjects.SingleSubject;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StoreMetricsTest {
+
+    private final BarCode first = new BarCode("type", "first");
+    private final BarCode second = new BarCode("type", "second");
+    private final Map<BarCode, String> disk = new ConcurrentHashMap<>();
+    private final StoreMetrics metrics = new StoreMetrics();
+
+    @Test
+    public void readsAreCountedPerTier() {
+        Store<String, BarCode> store = open(MemoryPolicy.builder()
+                .setExpireAfterWrite(1)
+                .setExpireAfterTimeUnit(TimeUnit.HOURS)
+                .setMemorySize(10)
+                .build());
+
+        store.get(first).blockingGet();
+        store.get(first).blockingGet();
+        disk.put(second, "disk");
+        store.get(second).blockingGet();
+
+        assertThat(metrics.getNetworkFetchCount()).isEqualTo(1);
+        assertThat(metrics.getMemoryHitCount()).isEqualTo(1);
+        assertThat(metrics.getDiskHitCount()).isEqualTo(1);
+        assertThat(metrics.getLatency(StoreMetrics.Stage.NETWORK).getCount()).isEqualTo(1);
+        assertThat(metrics.getLatency(StoreMetrics.Stage.PARSE).getCount()).isEqualTo(2);
+        assertThat(metrics.getLatency(StoreMetrics.Stage.DISK).getCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void concurrentFetchesAreCountedAsJoins() {
+        SingleSubject<String> response = SingleSubject.create();
+        Store<String, BarCode> store = StoreBuilder.<String>barcode()
+                .fetcher(barCode -> response)
+                .metrics(metrics)
+                .open();
+
+        store.fetch(first).test();
+        store.fetch(first).test();
+        response.onSuccess("network");
+
+        assertThat(metrics.getNetworkFetchCount()).isEqualTo(1);
+        assertThat(metrics.getInFlightJoinCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void evictionsOfTheMemoryCacheAreReported() {
+        Store<String, BarCode> store = open(MemoryPolicy.builder()
+                .setExpireAfterWrite(1)
+                .setExpireAfterTimeUnit(TimeUnit.HOURS)
+                .setMemorySize(1)
+                .build());
+
+        store.get(first).blockingGet();
+        store.get(second).blockingGet();
+
+        assertThat(metrics.getMemorySize()).isEqualTo(1);
+        assertThat(metrics.getMemoryEvictionCount()).isGreaterThan(0);
+    }
+
+    @Test
+    public void storesWithoutMetricsRecordNothing() {
+        Store<String, BarCode> store = StoreBuilder.<String>barcode()
+                .fetcher(barCode -> Single.just("network"))
+                .open();
+
+        store.get(first).blockingGet();
+
+        assertThat(metrics.getNetworkFetchCount()).isZero();
+        assertThat(metrics.getMemorySize()).isZero();
+    }
+
+    @Test
+    public void cacheRecordsStatsWhenAsked() throws Exception {
+        Cache<String, String> cache = CacheBuilder.newBuilder().recordStats().build();
+
+        cache.get("key", () -> "value");
+        cache.get("key", () -> "other");
+        cache.getIfPresent("missing");
+
+        CacheStats stats = cache.stats();
+        assertThat(stats.hitCount()).isEqualTo(1);
+        assertThat(stats.missCount()).isEqualTo(2);
+        assertThat(stats.loadSuccessCount()).isEqualTo(1);
+        assertThat(CacheBuilder.newBuilder().build().stats().requestCount()).isZero();
+    }
+
+    @Test
+    public void histogramReportsBucketUpperBounds() {
+        metrics.recordLatency(StoreMetrics.Stage.PARSE, TimeUnit.MICROSECONDS.toNanos(3));
+        metrics.recordLatency(StoreMetrics.Stage.PARSE, TimeUnit.MICROSECONDS.toNanos(5));
+        metrics.recordLatency(StoreMetrics.Stage.PARSE, TimeUnit.MILLISECONDS.toNanos(2));
+
+        LatencyHistogram parse = metrics.getLatency(StoreMetrics.Stage.PARSE);
+        assertThat(parse.getCount()).isEqualTo(3);
+        assertThat(parse.getPercentileNanos(50)).isEqualTo(TimeUnit.MICROSECONDS.toNanos(8));
+        assertThat(parse.getPercentileNanos(100)).isEqualTo(TimeUnit.MILLISECONDS.toNanos(2));
+    }
+
+    private Store<String, BarCode> open(MemoryPolicy memoryPolicy) {
+        return StoreBuilder.<String>barcode()
+                .fetcher(barCode -> Single.just("network " + barCode.getKey()))
+                .persister(new MapPersister())
+                .memoryPolicy(memoryPolicy)
+                .metrics(metrics)
+                .open();
+    }
+
+    private class MapPersister implements Persister<String, BarCode> {
+        @Nonnull
+        @Override
+        public Maybe<String> read(@Nonnull BarCode key) {
+            String value = disk.get(key);
+            return value == null ? Maybe.<String>empty() : Maybe.just(value);
+        }
+
+        @Nonnull
+        @Override
+        public Single<Boolean> write(@Nonnull BarCode key, @Nonnull String raw) {
+            disk.put(key, raw);
+            return Single.just(true);
+        }
+    }
+}
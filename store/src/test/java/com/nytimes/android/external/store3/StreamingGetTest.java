@@ -0,0 +1,80 @@
+package com.nytimes.android.external.store3;
+
+import com.nytimes.android.external.store3.base.StreamingParser;
+import com.nytimes.android.external.store3.base.impl.BarCode;
+import com.nytimes.android.external.store3.base.impl.Store;
+import com.nytimes.android.external.store3.base.impl.StoreBuilder;
+import com.nytimes.android.external.store3.util.ParserException;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.reactivex.Flowable;
+import io.reactivex.Single;
+import io.reactivex.observers.TestObserver;
+import io.reactivex.subjects.SingleSubject;
+import io.reactivex.subscribers.TestSubscriber;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StreamingGetTest {
+
+    private static final StreamingParser<String, String> SPLIT = raw -> Flowable.fromArray(raw.split(","));
+
+    private final BarCode barCode = new BarCode("type", "key");
+    private final AtomicInteger fetches = new AtomicInteger();
+    private final Store<String, BarCode> store = StoreBuilder.<String>barcode()
+            .fetcher(barCode -> Single.fromCallable(() -> {
+                fetches.incrementAndGet();
+                return "a,b,c";
+            }))
+            .open();
+
+    @Test
+    public void fetchesPersistsAndStreamsTheRawData() {
+        assertThat(store.streamingGet(barCode, SPLIT).toList().blockingGet()).containsExactly("a", "b", "c");
+        assertThat(store.streamingGet(barCode, SPLIT).toList().blockingGet()).containsExactly("a", "b", "c");
+
+        assertThat(fetches.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void sharesTheFetchInFlightWithGets() {
+        SingleSubject<String> response = SingleSubject.create();
+        AtomicInteger calls = new AtomicInteger();
+        Store<String, BarCode> pending = StoreBuilder.<String>barcode()
+                .fetcher(barCode -> Single.defer(() -> {
+                    calls.incrementAndGet();
+                    return response;
+                }))
+                .open();
+
+        TestSubscriber<String> first = pending.streamingGet(barCode, SPLIT).test();
+        TestSubscriber<String> second = pending.streamingGet(barCode, SPLIT).test();
+        TestObserver<String> get = pending.get(barCode).test();
+        response.onSuccess("a,b,c");
+
+        assertThat(calls.get()).isEqualTo(1);
+        first.assertValues("a", "b", "c").assertComplete();
+        second.assertValues("a", "b", "c").assertComplete();
+        get.assertValue("a,b,c");
+    }
+
+    @Test
+    public void elementsAreEmittedAsTheyAreRequested() {
+        TestSubscriber<String> subscriber = store.streamingGet(barCode, SPLIT).test(1);
+        subscriber.assertValues("a").assertNotComplete();
+
+        subscriber.requestMore(2);
+        subscriber.assertValues("a", "b", "c").assertComplete();
+    }
+
+    @Test
+    public void parserOfAnotherDataTypeFails() {
+        StreamingParser<Integer, Integer> digits = raw -> Flowable.fromIterable(Arrays.asList(raw, raw));
+
+        store.streamingGet(barCode, digits).test().assertError(ParserException.class);
+    }
+}
@@ -0,0 +1,209 @@
+package com.nytimes.android.external.store3;
+
+import com.nytimes.android.external.store3.base.DiskBatchWrite;
+import com.nytimes.android.external.store3.base.Persister;
+import com.nytimes.android.external.store3.base.impl.BarCode;
+import com.nytimes.android.external.store3.base.impl.WriteBehindPersister;
+import com.nytimes.android.external.store3.base.impl.WriteBehindPolicy;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import io.reactivex.Maybe;
+import io.reactivex.Single;
+import io.reactivex.schedulers.TestScheduler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class WriteBehindPersisterTest {
+
+    private final BarCode first = new BarCode("type", "first");
+    private final BarCode second = new BarCode("type", "second");
+    private final TestScheduler scheduler = new TestScheduler();
+    private final BatchPersister persister = new BatchPersister();
+
+    @Test
+    public void writesOfAKeyAreCoalescedIntoOneBatch() {
+        WriteBehindPersister<String, BarCode> writeBehind = open(policy().build());
+
+        writeBehind.write(first, "1").test().assertValue(true);
+        writeBehind.write(second, "2").test().assertValue(true);
+        writeBehind.write(first, "3").test().assertValue(true);
+        assertThat(persister.records).isEmpty();
+
+        scheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+
+        assertThat(persister.batches).hasSize(1);
+        assertThat(persister.batches.get(0).keySet()).containsExactly(first, second);
+        assertThat(persister.batches.get(0)).containsEntry(first, "3").containsEntry(second, "2");
+        assertThat(persister.writes.get()).isZero();
+    }
+
+    @Test
+    public void queuedWritesAreRead() {
+        WriteBehindPersister<String, BarCode> writeBehind = open(policy().build());
+        persister.records.put(first, "on disk");
+
+        writeBehind.write(first, "queued").test();
+
+        writeBehind.read(first).test().assertValue("queued");
+        writeBehind.read(second).test().assertNoValues().assertComplete();
+        scheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+        writeBehind.read(first).test().assertValue("queued");
+    }
+
+    @Test
+    public void fullBatchesAreWrittenWithoutWaiting() {
+        WriteBehindPersister<String, BarCode> writeBehind = open(policy().setMaxBatchSize(2).build());
+
+        writeBehind.write(first, "1").test();
+        writeBehind.write(second, "2").test();
+        scheduler.triggerActions();
+
+        assertThat(persister.batches).hasSize(1);
+    }
+
+    @Test
+    public void aFullQueueIsWrittenByTheWriter() {
+        WriteBehindPersister<String, BarCode> writeBehind = open(policy().setMaxPending(2).build());
+
+        writeBehind.write(first, "1").test();
+        writeBehind.write(second, "2").test();
+
+        assertThat(persister.records).containsEntry(first, "1").containsEntry(second, "2");
+    }
+
+    @Test
+    public void closeWritesEverythingQueued() throws IOException {
+        WriteBehindPersister<String, BarCode> writeBehind = open(policy().build());
+        writeBehind.write(first, "1").test();
+
+        writeBehind.close();
+
+        assertThat(persister.records).containsEntry(first, "1");
+        writeBehind.write(second, "2").test().assertError(IllegalStateException.class);
+    }
+
+    @Test
+    public void failedBatchesAreReportedAndRetriedByTheNextFlush() {
+        List<Object> failedKeys = new ArrayList<>();
+        WriteBehindPersister<String, BarCode> writeBehind = open(policy()
+                .setFailureListener((keys, error) -> failedKeys.addAll(keys))
+                .build());
+        persister.failures.set(1);
+
+        writeBehind.write(first, "1").test();
+        scheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+
+        assertThat(failedKeys).containsExactly(first);
+        assertThat(persister.records).isEmpty();
+        writeBehind.read(first).test().assertValue("1");
+
+        writeBehind.flush().test().assertComplete();
+        assertThat(persister.records).containsEntry(first, "1");
+    }
+
+    @Test
+    public void failedBatchesDoNotReplaceWritesMadeWhileFlushing() {
+        WriteBehindPersister<String, BarCode> writeBehind = open(policy().build());
+        persister.failures.set(1);
+        persister.duringBatch = () -> writeBehind.write(first, "2").test();
+
+        writeBehind.write(first, "1").test();
+        writeBehind.write(second, "1").test();
+        writeBehind.flush().test().assertError(error -> error.getCause() instanceof IOException);
+
+        writeBehind.read(first).test().assertValue("2");
+        writeBehind.flush().test().assertComplete();
+        assertThat(persister.records).containsEntry(first, "2").containsEntry(second, "1");
+    }
+
+    @Test
+    public void persistersWithoutBatchesAreWrittenOneRecordAtATime() {
+        Map<BarCode, String> records = new ConcurrentHashMap<>();
+        Persister<String, BarCode> plain = new Persister<String, BarCode>() {
+            @Nonnull
+            @Override
+            public Maybe<String> read(@Nonnull BarCode key) {
+                String value = records.get(key);
+                return value == null ? Maybe.<String>empty() : Maybe.just(value);
+            }
+
+            @Nonnull
+            @Override
+            public Single<Boolean> write(@Nonnull BarCode key, @Nonnull String raw) {
+                records.put(key, raw);
+                return Single.just(true);
+            }
+        };
+        WriteBehindPersister<String, BarCode> writeBehind =
+                WriteBehindPersister.create(plain, null, policy().build(), scheduler);
+
+        writeBehind.write(first, "1").test();
+        writeBehind.write(second, "2").test();
+        writeBehind.flush().test().assertComplete();
+
+        assertThat(records).containsEntry(first, "1").containsEntry(second, "2");
+    }
+
+    private WriteBehindPolicy.WriteBehindPolicyBuilder policy() {
+        return WriteBehindPolicy.builder().setFlushDelay(1, TimeUnit.SECONDS);
+    }
+
+    private WriteBehindPersister<String, BarCode> open(WriteBehindPolicy policy) {
+        return WriteBehindPersister.create(persister, null, policy, scheduler);
+    }
+
+    private static class BatchPersister implements Persister<String, BarCode>, DiskBatchWrite<String, BarCode> {
+        final Map<BarCode, String> records = new ConcurrentHashMap<>();
+        final List<Map<BarCode, String>> batches = Collections.synchronizedList(new ArrayList<>());
+        final AtomicInteger writes = new AtomicInteger();
+        // batches left to fail
+        final AtomicInteger failures = new AtomicInteger();
+        @Nullable
+        Runnable duringBatch;
+
+        @Nonnull
+        @Override
+        public Maybe<String> read(@Nonnull BarCode key) {
+            String value = records.get(key);
+            return value == null ? Maybe.<String>empty() : Maybe.just(value);
+        }
+
+        @Nonnull
+        @Override
+        public Single<Boolean> write(@Nonnull BarCode key, @Nonnull String raw) {
+            writes.incrementAndGet();
+            records.put(key, raw);
+            return Single.just(true);
+        }
+
+        @Nonnull
+        @Override
+        public Single<Boolean> writeAll(@Nonnull Map<BarCode, String> raws) {
+            if (duringBatch != null) {
+                Runnable write = duringBatch;
+                duringBatch = null;
+                write.run();
+            }
+            if (failures.getAndDecrement() > 0) {
+                return Single.error(new IOException("disk full"));
+            }
+            batches.add(new LinkedHashMap<>(raws));
+            records.putAll(raws);
+            return Single.just(true);
+        }
+    }
+}
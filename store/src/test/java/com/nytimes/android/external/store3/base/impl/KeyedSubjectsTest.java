@@ -0,0 +1,51 @@
+package com.nytimes.android.external.store3.base.impl;
+
+import org.junit.Test;
+
+import io.reactivex.observers.TestObserver;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class KeyedSubjectsTest {
+
+    private final KeyedSubjects<String, Integer> subjects = new KeyedSubjects<>();
+
+    @Test
+    public void emitsOnlyToObserversOfTheKey() {
+        TestObserver<Integer> first = subjects.observe("first").test();
+        TestObserver<Integer> second = subjects.observe("second").test();
+
+        subjects.emit("first", 1);
+        subjects.emit("second", 2);
+        subjects.emit("third", 3);
+
+        first.assertValues(1);
+        second.assertValues(2);
+    }
+
+    @Test
+    public void removesSubjectWhenLastObserverDisposes() {
+        TestObserver<Integer> one = subjects.observe("key").test();
+        TestObserver<Integer> two = subjects.observe("key").test();
+        assertThat(subjects.size()).isEqualTo(1);
+
+        one.dispose();
+        subjects.emit("key", 1);
+        assertThat(subjects.size()).isEqualTo(1);
+
+        two.dispose();
+        assertThat(subjects.size()).isEqualTo(0);
+        two.assertValues(1);
+    }
+
+    @Test
+    public void resubscribingAfterRemovalCreatesANewSubject() {
+        subjects.observe("key").test().dispose();
+
+        TestObserver<Integer> observer = subjects.observe("key").test();
+        subjects.emit("key", 1);
+
+        observer.assertValues(1);
+        assertThat(subjects.size()).isEqualTo(1);
+    }
+}
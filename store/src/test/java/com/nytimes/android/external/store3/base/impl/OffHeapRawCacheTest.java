@@ -0,0 +1,170 @@
+package com.nytimes.android.external.store3.base.impl;
+
+import com.nytimes.android.external.store3.base.OffHeapRawCodec;
+import com.nytimes.android.external.store3.base.Persister;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+
+import io.reactivex.Maybe;
+import io.reactivex.Single;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class OffHeapRawCacheTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final OffHeapRawCodec<String> CODEC = new OffHeapRawCodec<String>() {
+        @Nonnull
+        @Override
+        public byte[] encode(@Nonnull String raw) {
+            return raw.getBytes(UTF_8);
+        }
+
+        @Nonnull
+        @Override
+        public String decode(@Nonnull byte[] bytes) {
+            return new String(bytes, UTF_8);
+        }
+
+        @Nonnull
+        @Override
+        public String decode(@Nonnull ByteBuffer[] blocks) {
+            StringBuilder content = new StringBuilder();
+            for (ByteBuffer block : blocks) {
+                content.append(UTF_8.decode(block));
+            }
+            return content.toString();
+        }
+    };
+
+    private final BarCode first = new BarCode("type", "first");
+    private final BarCode second = new BarCode("type", "second");
+    private final Map<BarCode, String> disk = new ConcurrentHashMap<>();
+    private final AtomicInteger diskReads = new AtomicInteger();
+    private final AtomicInteger networkCalls = new AtomicInteger();
+
+    @Test
+    public void keepsValuesSpanningSeveralBlocks() throws IOException {
+        OffHeapRawCache<String, String> cache = new OffHeapRawCache<>(CODEC, 1024 * 1024);
+        String large = repeat('a', 3 * OffHeapRawCache.BLOCK_SIZE + 17);
+
+        assertThat(cache.put("large", large)).isEqualTo(large);
+        cache.put("empty", "");
+
+        assertThat(cache.get("large")).isEqualTo(large);
+        assertThat(cache.get("empty")).isEmpty();
+        assertThat(cache.get("missing")).isNull();
+        assertThat(cache.sizeBytes()).isEqualTo(large.length());
+        assertThat(cache.hitCount()).isEqualTo(2);
+        assertThat(cache.missCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void evictsLeastRecentlyReadValuesWhenFull() throws IOException {
+        OffHeapRawCache<String, String> cache = new OffHeapRawCache<>(CODEC, 3 * OffHeapRawCache.BLOCK_SIZE);
+        String block = repeat('b', OffHeapRawCache.BLOCK_SIZE);
+        cache.put("one", block);
+        cache.put("two", block);
+        cache.put("three", block);
+
+        cache.get("one");
+        cache.put("four", block);
+
+        assertThat(cache.get("two")).isNull();
+        assertThat(cache.get("one")).isEqualTo(block);
+        assertThat(cache.get("four")).isEqualTo(block);
+        assertThat(cache.evictionCount()).isEqualTo(1);
+        assertThat(cache.allocatedBytes()).isEqualTo(3 * OffHeapRawCache.BLOCK_SIZE);
+    }
+
+    @Test
+    public void doesNotKeepValuesLargerThanTheCache() throws IOException {
+        OffHeapRawCache<String, String> cache = new OffHeapRawCache<>(CODEC, OffHeapRawCache.BLOCK_SIZE);
+        cache.put("small", "small");
+        String large = repeat('c', OffHeapRawCache.BLOCK_SIZE + 1);
+
+        assertThat(cache.put("large", large)).isEqualTo(large);
+
+        assertThat(cache.get("large")).isNull();
+        assertThat(cache.get("small")).isEqualTo("small");
+    }
+
+    @Test
+    public void memoryMissesAreServedWithoutReadingThePersister() {
+        StoreMetrics metrics = new StoreMetrics();
+        Store<String, BarCode> store = open(metrics);
+
+        store.get(first).blockingGet();
+        store.get(second).blockingGet();
+        int reads = diskReads.get();
+
+        assertThat(store.get(first).blockingGet()).isEqualTo("network first 1");
+        assertThat(diskReads.get()).isEqualTo(reads);
+        assertThat(metrics.getOffHeapHitCount()).isEqualTo(1);
+        assertThat(metrics.getOffHeapSizeBytes()).isGreaterThan(0);
+    }
+
+    @Test
+    public void fetchesAndClearsReplaceOffHeapValues() {
+        Store<String, BarCode> store = open(new StoreMetrics());
+
+        store.get(first).blockingGet();
+        assertThat(store.fetch(first).blockingGet()).isEqualTo("network first 2");
+        store.get(second).blockingGet();
+        assertThat(store.get(first).blockingGet()).isEqualTo("network first 2");
+
+        store.clear(first);
+        disk.put(first, "disk");
+        assertThat(store.get(first).blockingGet()).isEqualTo("disk");
+    }
+
+    private Store<String, BarCode> open(StoreMetrics metrics) {
+        return StoreBuilder.<BarCode, String, String>parsedWithKey()
+                .fetcher(barCode -> Single.just("network " + barCode.getKey() + " " + networkCalls.incrementAndGet()))
+                .persister(new MapPersister())
+                .memoryPolicy(MemoryPolicy.builder()
+                        .setExpireAfterWrite(1)
+                        .setExpireAfterTimeUnit(TimeUnit.HOURS)
+                        .setMemorySize(1)
+                        .build())
+                .offHeapCache(CODEC, 64 * 1024)
+                .metrics(metrics)
+                .open();
+    }
+
+    private static String repeat(char c, int count) {
+        char[] chars = new char[count];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+
+    private class MapPersister implements Persister<String, BarCode> {
+        @Nonnull
+        @Override
+        public Maybe<String> read(@Nonnull BarCode key) {
+            return Maybe.defer(() -> {
+                diskReads.incrementAndGet();
+                String value = disk.get(key);
+                return value == null ? Maybe.<String>empty() : Maybe.just(value);
+            });
+        }
+
+        @Nonnull
+        @Override
+        public Single<Boolean> write(@Nonnull BarCode key, @Nonnull String raw) {
+            disk.put(key, raw);
+            return Single.just(true);
+        }
+    }
+}
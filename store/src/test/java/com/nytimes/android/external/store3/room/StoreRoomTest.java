@@ -2,7 +2,10 @@ package com.nytimes.android.external.store3.room;
 
 import com.nytimes.android.external.store3.base.Fetcher;
 import com.nytimes.android.external.store3.base.impl.BarCode;
+import com.nytimes.android.external.store3.base.impl.MemoryExpiry;
+import com.nytimes.android.external.store3.base.impl.MemoryPolicy;
 import com.nytimes.android.external.store3.base.impl.StalePolicy;
+import com.nytimes.android.external.store3.base.impl.StoreMetrics;
 import com.nytimes.android.external.store3.base.impl.room.StoreRoom;
 import com.nytimes.android.external.store3.base.room.RoomPersister;
 
@@ -11,10 +14,14 @@ import org.junit.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import javax.annotation.Nonnull;
+
 import io.reactivex.Observable;
 import io.reactivex.Single;
+import io.reactivex.subjects.PublishSubject;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.times;
@@ -95,4 +102,50 @@ public class StoreRoomTest {
         assertThat(response).isEqualTo("hello");
         verify(fetcher, times(1)).fetch(barCode);
     }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void expiriesAreNotSupported() {
+        StoreRoom.from(fetcher, persister, StalePolicy.UNSPECIFIED, MemoryPolicy.builder()
+                .setExpiry(new MemoryExpiry<BarCode, String>() {
+                    @Override
+                    public long expireAfterCreate(@Nonnull BarCode key, @Nonnull String value) {
+                        return 10;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(@Nonnull BarCode key, @Nonnull String value,
+                                                  long currentDuration) {
+                        return 10;
+                    }
+
+                    @Override
+                    public long expireAfterRead(@Nonnull BarCode key, @Nonnull String value,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build());
+    }
+
+    @Test
+    public void readsAreCountedOncePerSubscription() {
+        StoreMetrics metrics = new StoreMetrics();
+        PublishSubject<String> table = PublishSubject.create();
+        when(persister.read(barCode)).thenReturn(table);
+        StoreRoom<String, BarCode> store = StoreRoom.from(fetcher, persister, StalePolicy.UNSPECIFIED,
+                MemoryPolicy.builder()
+                        .setExpireAfterWrite(1)
+                        .setExpireAfterTimeUnit(TimeUnit.HOURS)
+                        .setMemorySize(10)
+                        .build(), metrics);
+
+        store.get(barCode).test();
+        table.onNext(DISK);
+        // the table changed
+        table.onNext(DISK);
+        store.get(barCode).test().assertValue(DISK);
+
+        assertThat(metrics.getDiskHitCount()).isEqualTo(1);
+        assertThat(metrics.getMemoryHitCount()).isEqualTo(1);
+    }
 }
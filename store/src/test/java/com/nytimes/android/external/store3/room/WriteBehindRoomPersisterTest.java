@@ -0,0 +1,78 @@
+package com.nytimes.android.external.store3.room;
+
+import com.nytimes.android.external.store3.base.impl.BarCode;
+import com.nytimes.android.external.store3.base.impl.WriteBehindPolicy;
+import com.nytimes.android.external.store3.base.impl.room.WriteBehindRoomPersister;
+import com.nytimes.android.external.store3.base.room.RoomDiskBatchWrite;
+import com.nytimes.android.external.store3.base.room.RoomPersister;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+import io.reactivex.Observable;
+import io.reactivex.schedulers.TestScheduler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class WriteBehindRoomPersisterTest {
+
+    private final BarCode first = new BarCode("type", "first");
+    private final BarCode second = new BarCode("type", "second");
+    private final TestScheduler scheduler = new TestScheduler();
+    private final TransactionPersister persister = new TransactionPersister();
+    private final WriteBehindRoomPersister<String, Integer, BarCode> writeBehind = WriteBehindRoomPersister.create(
+            persister, WriteBehindPolicy.builder().setFlushDelay(1, TimeUnit.SECONDS).build(), scheduler);
+
+    @Test
+    public void queuedWritesAreWrittenInOneTransaction() {
+        writeBehind.write(first, "1");
+        writeBehind.write(second, "2");
+        writeBehind.write(first, "3");
+        assertThat(persister.transactions).isEmpty();
+
+        scheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+
+        assertThat(persister.transactions).hasSize(1);
+        assertThat(persister.rows).containsEntry(first, "3").containsEntry(second, "2");
+    }
+
+    @Test
+    public void readingAQueuedKeyWritesItFirst() {
+        writeBehind.write(first, "42");
+
+        writeBehind.read(first).test().assertValue(42);
+        assertThat(persister.transactions).hasSize(1);
+    }
+
+    private static class TransactionPersister implements RoomPersister<String, Integer, BarCode>,
+            RoomDiskBatchWrite<String, BarCode> {
+        final Map<BarCode, String> rows = new ConcurrentHashMap<>();
+        final List<Map<BarCode, String>> transactions = Collections.synchronizedList(new ArrayList<>());
+
+        @Nonnull
+        @Override
+        public Observable<Integer> read(@Nonnull BarCode key) {
+            String row = rows.get(key);
+            return row == null ? Observable.<Integer>empty() : Observable.just(Integer.valueOf(row));
+        }
+
+        @Override
+        public void write(@Nonnull BarCode key, @Nonnull String raw) {
+            rows.put(key, raw);
+        }
+
+        @Override
+        public void writeAll(@Nonnull Map<BarCode, String> raws) {
+            transactions.add(raws);
+            rows.putAll(raws);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.nytimes.android.external.store3.util;
 
 import com.nytimes.android.external.store3.base.impl.BarCode;
+import com.nytimes.android.external.store3.base.impl.MemoryExpiry;
 import com.nytimes.android.external.store3.base.impl.MemoryPolicy;
 
 import org.junit.Rule;
@@ -10,6 +11,8 @@ import org.junit.rules.ExpectedException;
 import static org.assertj.core.api.Assertions.assertThat;
 import java.util.concurrent.TimeUnit;
 
+import javax.annotation.Nonnull;
+
 public class NoopPersisterTest {
 
     @Rule public ExpectedException exception = ExpectedException.none();
@@ -34,6 +37,38 @@ public class NoopPersisterTest {
         assertThat(input).isSameAs(output);
     }
 
+    @Test
+    public void responsesAreKeptAsLongAsTheExpiryKeepsThem() {
+        BarCode kept = new BarCode("key", "kept");
+        BarCode dropped = new BarCode("key", "dropped");
+        NoopPersister<String, BarCode> persister = NoopPersister.create(MemoryPolicy.builder()
+            .setExpiry(new MemoryExpiry<BarCode, String>() {
+                @Override
+                public long expireAfterCreate(@Nonnull BarCode key, @Nonnull String value) {
+                    return value.equals("dropped") ? 0 : 1;
+                }
+
+                @Override
+                public long expireAfterUpdate(@Nonnull BarCode key, @Nonnull String value, long currentDuration) {
+                    return expireAfterCreate(key, value);
+                }
+
+                @Override
+                public long expireAfterRead(@Nonnull BarCode key, @Nonnull String value, long currentDuration) {
+                    return currentDuration;
+                }
+            })
+            .setExpireAfterTimeUnit(TimeUnit.HOURS)
+            .build());
+
+        persister.write(kept, "kept").blockingGet();
+        persister.write(dropped, "dropped").blockingGet();
+
+        assertThat(persister.read(kept).blockingGet()).isEqualTo("kept");
+        assertThat(persister.read(kept).blockingGet()).isEqualTo("kept");
+        persister.read(dropped).test().assertNoValues().assertComplete();
+    }
+
     // https://github.com/NYTimes/Store/issues/312
     @Test
     public void testReadingOfMemoryPolicies() {